@@ -0,0 +1,33 @@
+package com.github.cdclaxton.guitartabgenerator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Runs the JMH benchmarks, writing the results as JSON (for trend tracking) unless another result format is given.
+ * <p>
+ * Takes the same arguments as org.openjdk.jmh.Main; by default the results go to jmh-result.json in the current
+ * folder (override with -rff).
+ */
+public final class BenchmarkMain {
+
+    private static final String defaultResultFile = "jmh-result.json";
+
+    private BenchmarkMain() {}
+
+    public static void main(String[] args) throws Exception {
+        final List<String> jmhArgs = new ArrayList<>(Arrays.asList(args));
+
+        if (!jmhArgs.contains("-rf")) {
+            jmhArgs.add("-rf");
+            jmhArgs.add("json");
+            if (!jmhArgs.contains("-rff")) {
+                jmhArgs.add("-rff");
+                jmhArgs.add(defaultResultFile);
+            }
+        }
+
+        org.openjdk.jmh.Main.main(jmhArgs.toArray(new String[0]));
+    }
+}
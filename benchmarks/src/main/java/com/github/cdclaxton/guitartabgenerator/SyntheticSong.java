@@ -0,0 +1,170 @@
+package com.github.cdclaxton.guitartabgenerator;
+
+import com.github.cdclaxton.guitartabgenerator.music.Bar;
+import com.github.cdclaxton.guitartabgenerator.sheetmusic.Section;
+import com.github.cdclaxton.guitartabgenerator.sheetmusic.SheetMusic;
+import com.github.cdclaxton.guitartabgenerator.tabparser.SheetMusicParser;
+import com.github.cdclaxton.guitartabgenerator.tabwriter.TabSheetMusicBuilder;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A synthetic song of a given number of bars, shared by the benchmarks.
+ * <p>
+ * Bars are generated along the lines of the test RandomGenerators (random timings, strings and frets), but from a
+ * fixed seed so that every run measures the same song. The song is in C and is split into sections of 16 bars.
+ */
+@State(Scope.Benchmark)
+public class SyntheticSong {
+
+    private static final long seed = 42;
+    private static final int barsPerSection = 16;
+    private static final int pageWidth = 100;
+    private static final int riffLength = 8;
+
+    private static final String[] chords = {"C", "Dm", "Em", "F", "G", "Am", "G/B", "Cmaj7", "Fsus2", "Bb", "D7"};
+    private static final String[] subdivisions = {"", "e", "+", "a"};
+    private static final String stringLetters = "ebgdaE";
+
+    @Param({"10", "1000", "100000"})
+    public int bars;
+
+    /** Specification (as written to file). */
+    public String spec;
+
+    /** Specification file. */
+    public File specFile;
+
+    /** Note notation of each bar, e.g. 1/g6 2+/&lt;b9 e8&gt;. */
+    public List<String> noteNotations;
+
+    /** Chord names in the order they appear. */
+    public List<String> chordNames;
+
+    /** Parsed song. */
+    public SheetMusic sheetMusic;
+
+    /** All of the bars of the parsed song. */
+    public List<Bar> allBars;
+
+    /** The first bars of the song repeated to its length (as in a riff-based song). */
+    public List<Bar> riffBars;
+
+    /** Rendered tab. */
+    public List<String> tab;
+
+    private final Random random = new Random(seed);
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        noteNotations = new ArrayList<>(bars);
+        chordNames = new ArrayList<>();
+
+        final StringBuilder specBuilder = new StringBuilder();
+        specBuilder.append("title = Synthetic song\n")
+                .append("artist = ").append(bars).append(" bars\n")
+                .append("key = C\n")
+                .append("time.signature = 4/4\n\n");
+
+        for (int i = 0; i < bars; i++) {
+            if (i % barsPerSection == 0) {
+                specBuilder.append("\n[Section ").append(i / barsPerSection + 1).append("]\n");
+                if (randomInteger(0, 3) == 0) specBuilder.append("> Play softly\n");
+            }
+
+            final String chordNotation = randomChords();
+            final String noteNotation = randomNotes();
+            noteNotations.add(noteNotation);
+            specBuilder.append('(').append(chordNotation).append(") ").append(noteNotation).append('\n');
+        }
+        spec = specBuilder.toString();
+
+        specFile = File.createTempFile("synthetic-" + bars + "-", ".txt");
+        specFile.deleteOnExit();
+        Files.write(specFile.toPath(), spec.getBytes(StandardCharsets.UTF_8));
+
+        sheetMusic = SheetMusicParser.parseSheetMusic(specFile);
+        allBars = new ArrayList<>(bars);
+        for (Section section : sheetMusic.getSections()) {
+            allBars.addAll(section.getBars());
+        }
+        riffBars = new ArrayList<>(bars);
+        for (int i = 0; i < allBars.size(); i++) {
+            riffBars.add(allBars.get(i % Math.min(riffLength, allBars.size())));
+        }
+        tab = TabSheetMusicBuilder.buildTabSheetMusic(sheetMusic, pageWidth);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        specFile.delete();
+    }
+
+    /**
+     * Generate the chords of a bar: none, one on the first beat or two on the first and third beats.
+     *
+     * @return Chord notation.
+     */
+    private String randomChords() {
+        final int nChords = randomInteger(0, 2);
+        final StringBuilder notation = new StringBuilder();
+        for (int i = 0; i < nChords; i++) {
+            final String chord = chords[randomInteger(0, chords.length - 1)];
+            chordNames.add(chord);
+            if (i > 0) notation.append(' ');
+            notation.append(i == 0 ? "1/" : "3/").append(chord);
+        }
+        return notation.toString();
+    }
+
+    /**
+     * Generate the notes of a bar: up to eight distinct timings, each a single note or a stack of notes.
+     *
+     * @return Note notation.
+     */
+    private String randomNotes() {
+        final boolean[] used = new boolean[16];
+        final int nTimings = randomInteger(0, 8);
+        for (int i = 0; i < nTimings; i++) {
+            used[randomTiming()] = true;
+        }
+
+        final StringBuilder notation = new StringBuilder();
+        for (int timing = 0; timing < used.length; timing++) {
+            if (!used[timing]) continue;
+            if (notation.length() > 0) notation.append(' ');
+            notation.append(timing / 4 + 1).append(subdivisions[timing % 4]).append('/');
+
+            if (randomInteger(0, 3) == 0) {
+                // Stack of notes on adjacent strings
+                final int lowestString = randomInteger(3, 6);
+                final int nStrings = randomInteger(2, 3);
+                notation.append('<');
+                for (int s = 0; s < nStrings; s++) {
+                    if (s > 0) notation.append(' ');
+                    notation.append(stringLetters.charAt(lowestString - s - 1)).append(randomFret());
+                }
+                notation.append('>');
+            } else {
+                notation.append(stringLetters.charAt(randomStringNumber() - 1)).append(randomFret());
+            }
+        }
+        return notation.toString();
+    }
+
+    private int randomInteger(final int min, final int max) {
+        return random.nextInt((max - min) + 1) + min;
+    }
+
+    private int randomTiming() { return randomInteger(0, 15); }
+
+    private int randomFret() { return randomInteger(0, 12); }
+
+    private int randomStringNumber() { return randomInteger(1, 6); }
+}
@@ -0,0 +1,27 @@
+package com.github.cdclaxton.guitartabgenerator.music;
+
+import com.github.cdclaxton.guitartabgenerator.SyntheticSong;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to transpose every bar of a synthetic song from C up to E.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BarTranspositionBenchmark {
+
+    @Benchmark
+    public void transposeBar(final SyntheticSong song, final Blackhole blackhole)
+            throws TranspositionException, InvalidChordException {
+        for (Bar bar : song.allBars) {
+            blackhole.consume(BarTransposition.transposeBar(bar, "C", "E", true, 22));
+        }
+    }
+
+}
@@ -0,0 +1,26 @@
+package com.github.cdclaxton.guitartabgenerator.music;
+
+import com.github.cdclaxton.guitartabgenerator.SyntheticSong;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to build every chord of a synthetic song from its name.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChordBenchmark {
+
+    @Benchmark
+    public void build(final SyntheticSong song, final Blackhole blackhole) throws InvalidChordException {
+        for (String chordName : song.chordNames) {
+            blackhole.consume(Chord.build(chordName));
+        }
+    }
+
+}
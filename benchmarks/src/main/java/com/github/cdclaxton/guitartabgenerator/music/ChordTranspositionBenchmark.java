@@ -0,0 +1,48 @@
+package com.github.cdclaxton.guitartabgenerator.music;
+
+import com.github.cdclaxton.guitartabgenerator.SyntheticSong;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to transpose every chord of a synthetic song from C to E, checking the keys once for the song or once per
+ * chord.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ChordTranspositionBenchmark {
+
+    private List<Chord> chords;
+
+    @Setup(Level.Trial)
+    public void setup(final SyntheticSong song) throws InvalidChordException {
+        chords = new ArrayList<>(song.chordNames.size());
+        for (String chordName : song.chordNames) {
+            chords.add(Chord.build(chordName));
+        }
+    }
+
+    @Benchmark
+    public void transposeChords(final Blackhole blackhole) throws TranspositionException {
+        final KeyTransposition keyTransposition = KeyTransposition.between("C", "E", true);
+        for (Chord chord : chords) {
+            blackhole.consume(keyTransposition.transposeChord(chord));
+        }
+    }
+
+    @Benchmark
+    public void transposeChordsCheckingKeys(final Blackhole blackhole) throws TranspositionException {
+        for (Chord chord : chords) {
+            blackhole.consume(ChordTransposition.transposeChord(chord, "C", "E"));
+        }
+    }
+
+}
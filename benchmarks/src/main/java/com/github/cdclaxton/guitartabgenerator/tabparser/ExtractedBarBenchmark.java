@@ -0,0 +1,26 @@
+package com.github.cdclaxton.guitartabgenerator.tabparser;
+
+import com.github.cdclaxton.guitartabgenerator.SyntheticSong;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to parse the notes of every bar of a synthetic song.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExtractedBarBenchmark {
+
+    @Benchmark
+    public void parseNotes(final SyntheticSong song, final Blackhole blackhole) throws Exception {
+        for (String notation : song.noteNotations) {
+            blackhole.consume(ExtractedBar.parseNotes(notation));
+        }
+    }
+
+}
@@ -0,0 +1,65 @@
+package com.github.cdclaxton.guitartabgenerator.tabparser;
+
+import com.github.cdclaxton.guitartabgenerator.music.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the regular expression parsers in ExtractedBar with NotationTokenizer on typical bars.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class NotationTokenizerBenchmark {
+
+    private final String[] notes = {
+            "1/g6 1+/g6 2/b9 2+/g6 3/g6 3+/g6 4/b9 4+/g6",
+            "1/g6 1+/g6 2/b9 2+/g6 3/g6 3+/g6 4/b6 4e/b7 4+/b6",
+            "1/<a4 d6 g6> 3/<a4 d6 g6> 4/<a3 g5>",
+            "1/<E6 a8 d8> 3/<E6 a8 d8> 4/<E4 a6 d6>"
+    };
+
+    private final String[] chords = {
+            "1/Db",
+            "1/Bbm 3/Gb",
+            "1/Ab 2+/Db/F 4a/Ebm7"
+    };
+
+    @Benchmark
+    public void notesByRegex(final Blackhole blackhole)
+            throws InvalidStringException, InvalidFretNumberException, InvalidTimingException, ExtractionException {
+        for (String n : notes) {
+            blackhole.consume(ExtractedBar.parseNotesByRegex(n));
+        }
+    }
+
+    @Benchmark
+    public void notesByTokenizer(final Blackhole blackhole)
+            throws InvalidStringException, InvalidFretNumberException, InvalidTimingException {
+        for (String n : notes) {
+            blackhole.consume(NotationTokenizer.parseNotes(n));
+        }
+    }
+
+    @Benchmark
+    public void chordsByRegex(final Blackhole blackhole)
+            throws InvalidChordException, InvalidTimingException, ExtractionException {
+        for (String c : chords) {
+            blackhole.consume(ExtractedBar.parseChordsByRegex(c));
+        }
+    }
+
+    @Benchmark
+    public void chordsByTokenizer(final Blackhole blackhole)
+            throws InvalidChordException, InvalidTimingException, ExtractionException {
+        for (String c : chords) {
+            blackhole.consume(NotationTokenizer.parseChords(c));
+        }
+    }
+
+}
@@ -0,0 +1,24 @@
+package com.github.cdclaxton.guitartabgenerator.tabparser;
+
+import com.github.cdclaxton.guitartabgenerator.SyntheticSong;
+import com.github.cdclaxton.guitartabgenerator.sheetmusic.SheetMusic;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to read and parse a synthetic song from file.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SheetMusicParserBenchmark {
+
+    @Benchmark
+    public SheetMusic parseSheetMusic(final SyntheticSong song) throws Exception {
+        return SheetMusicParser.parseSheetMusic(song.specFile);
+    }
+
+}
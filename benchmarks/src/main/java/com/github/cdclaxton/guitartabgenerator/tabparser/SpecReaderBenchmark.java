@@ -0,0 +1,24 @@
+package com.github.cdclaxton.guitartabgenerator.tabparser;
+
+import com.github.cdclaxton.guitartabgenerator.SyntheticSong;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to read a synthetic song from file and classify each line into a component (before the bars are parsed).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SpecReaderBenchmark {
+
+    @Benchmark
+    public List<ExtractedComponent> readComponents(final SyntheticSong song) throws Exception {
+        return SpecReader.readComponents(song.specFile);
+    }
+
+}
@@ -0,0 +1,61 @@
+package com.github.cdclaxton.guitartabgenerator.tabwriter;
+
+import com.github.cdclaxton.guitartabgenerator.SyntheticSong;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to lay out every bar of a synthetic song as one block of tab, on a normal and a wide page, breaking the bars
+ * into systems greedily (the default) and optimally, with the systems laid out in parallel on the common pool, and for a
+ * riff-based song that repeats the same bars.
+ * <p>
+ * Run with -prof gc to see the allocation per operation (gc.alloc.rate.norm).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LayoutEngineBenchmark {
+
+    @Benchmark
+    public List<String> layoutBars(final SyntheticSong song) throws TabBuildingException {
+        return LayoutEngine.layoutBars(song.allBars, 100, 1);
+    }
+
+    @Benchmark
+    public List<String> layoutBarsWidePage(final SyntheticSong song) throws TabBuildingException {
+        return LayoutEngine.layoutBars(song.allBars, 1000, 1);
+    }
+
+    @Benchmark
+    public List<String> layoutBarsOptimal(final SyntheticSong song) throws TabBuildingException {
+        return LayoutEngine.layoutBars(song.allBars, 100, 1, TabSheetMusicBuilder.LineBreaking.Optimal);
+    }
+
+    @Benchmark
+    public List<String> layoutBarsOptimalWidePage(final SyntheticSong song) throws TabBuildingException {
+        return LayoutEngine.layoutBars(song.allBars, 1000, 1, TabSheetMusicBuilder.LineBreaking.Optimal);
+    }
+
+    @Benchmark
+    public List<String> layoutRepeatedBars(final SyntheticSong song) throws TabBuildingException {
+        return LayoutEngine.layoutBars(song.riffBars, 100, 1);
+    }
+
+    @Benchmark
+    public List<String> layoutBarsInParallel(final SyntheticSong song) throws Exception {
+        final List<String> lines = new ArrayList<>();
+        for (Future<List<String>> systems : LayoutEngine.submitSystems(song.allBars, 100, 1,
+                TabSheetMusicBuilder.LineBreaking.Greedy, new BarRenderCache(), ForkJoinPool.commonPool())) {
+            lines.addAll(systems.get());
+        }
+        return lines;
+    }
+
+}
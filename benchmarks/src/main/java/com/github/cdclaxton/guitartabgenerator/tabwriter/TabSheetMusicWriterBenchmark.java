@@ -0,0 +1,55 @@
+package com.github.cdclaxton.guitartabgenerator.tabwriter;
+
+import com.github.cdclaxton.guitartabgenerator.SyntheticSong;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to write the rendered tab of a synthetic song to file, and to render it and write it in one go.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TabSheetMusicWriterBenchmark {
+
+    private File tabFile;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        tabFile = File.createTempFile("synthetic-tab-", ".txt");
+        tabFile.deleteOnExit();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        tabFile.delete();
+    }
+
+    @Benchmark
+    public void writeLines(final SyntheticSong song) throws IOException {
+        TabSheetMusicWriter.writeLines(song.tab, tabFile.getPath());
+    }
+
+    @Benchmark
+    public void buildAndWriteLines(final SyntheticSong song) throws IOException, TabBuildingException {
+        TabSheetMusicWriter.writeLines(TabSheetMusicBuilder.buildTabSheetMusic(song.sheetMusic, 100),
+                tabFile.getPath());
+    }
+
+    @Benchmark
+    public void renderToChannel(final SyntheticSong song) throws IOException, TabBuildingException {
+        try (FileChannel channel = FileChannel.open(tabFile.toPath(), StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            TabSheetMusicBuilder.render(song.sheetMusic, 100, channel);
+        }
+    }
+
+}
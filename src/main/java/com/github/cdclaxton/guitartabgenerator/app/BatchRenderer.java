@@ -0,0 +1,443 @@
+package com.github.cdclaxton.guitartabgenerator.app;
+
+import com.github.cdclaxton.guitartabgenerator.music.InvalidChordException;
+import com.github.cdclaxton.guitartabgenerator.music.InvalidKeyException;
+import com.github.cdclaxton.guitartabgenerator.music.TranspositionException;
+import com.github.cdclaxton.guitartabgenerator.sheetmusic.SheetMusic;
+import com.github.cdclaxton.guitartabgenerator.sheetmusic.SheetMusicTransposition;
+import com.github.cdclaxton.guitartabgenerator.tabwriter.AsyncTabWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Renders the tab for many specification files in one run using a fixed-size pool of worker threads.
+ */
+final class BatchRenderer {
+
+    private static final Logger logger = LoggerFactory.getLogger(BatchRenderer.class);
+    private static final String specExtension = ".txt";
+
+    /**
+     * Outcome of rendering a single specification file.
+     */
+    static final class FileResult {
+
+        private final File specFile;
+        private final Optional<String> outputFile;
+        private final Optional<String> error;
+        private final long nanos;
+
+        /**
+         * Instantiate the result of rendering a file.
+         *
+         * @param specFile Specification file.
+         * @param outputFile Tab file written (if successful).
+         * @param error Reason for the failure (if unsuccessful).
+         * @param nanos Time taken to render the file (in nanoseconds).
+         */
+        FileResult(final File specFile,
+                   final Optional<String> outputFile,
+                   final Optional<String> error,
+                   final long nanos) {
+            this.specFile = specFile;
+            this.outputFile = outputFile;
+            this.error = error;
+            this.nanos = nanos;
+        }
+
+        File getSpecFile() { return specFile; }
+
+        Optional<String> getOutputFile() { return outputFile; }
+
+        Optional<String> getError() { return error; }
+
+        long getNanos() { return nanos; }
+
+        boolean isSuccess() { return outputFile.isPresent(); }
+    }
+
+    /**
+     * Summary of a batch run.
+     */
+    static final class Summary {
+
+        private final List<FileResult> results;
+        private final long elapsedNanos;
+
+        /**
+         * Instantiate a batch summary.
+         *
+         * @param results Per-file results (in completion order).
+         * @param elapsedNanos Wall-clock time of the whole run (in nanoseconds).
+         */
+        Summary(final List<FileResult> results,
+                final long elapsedNanos) {
+            this.results = results;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        List<FileResult> getResults() { return results; }
+
+        int numberSucceeded() { return (int) results.stream().filter(FileResult::isSuccess).count(); }
+
+        int numberFailed() { return results.size() - numberSucceeded(); }
+
+        /**
+         * Get the throughput of the run.
+         *
+         * @return Files processed per second.
+         */
+        double filesPerSecond() {
+            if (elapsedNanos == 0) return 0.0;
+            return results.size() / (elapsedNanos / 1e9);
+        }
+
+        /**
+         * Get a percentile of the per-file latency (nearest-rank method).
+         *
+         * @param percentile Percentile in the range (0, 100].
+         * @return Latency in milliseconds.
+         */
+        double latencyPercentileMillis(final double percentile) {
+            if (results.isEmpty()) return 0.0;
+
+            final long[] nanos = results.stream().mapToLong(FileResult::getNanos).toArray();
+            Arrays.sort(nanos);
+
+            final int rank = (int) Math.ceil(percentile / 100.0 * nanos.length);
+            return nanos[Math.max(rank, 1) - 1] / 1e6;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Batch summary: %d files, %d succeeded, %d failed, %.1f s, %.1f files/s, " +
+                            "p50 %.1f ms, p99 %.1f ms",
+                    results.size(), numberSucceeded(), numberFailed(), elapsedNanos / 1e9, filesPerSecond(),
+                    latencyPercentileMillis(50), latencyPercentileMillis(99));
+        }
+    }
+
+    private BatchRenderer() {}
+
+    /**
+     * Find the specification files in a folder (and its sub-folders).
+     *
+     * @param folder Folder to walk.
+     * @return Specification files (sorted by path).
+     * @throws IOException Unable to walk the folder.
+     */
+    static List<File> findSpecFiles(final String folder) throws IOException {
+        try (Stream<Path> paths = Files.walk(Paths.get(folder))) {
+            return paths.filter(Files::isRegularFile)
+                    .filter(p -> p.getFileName().toString().endsWith(specExtension))
+                    .sorted()
+                    .map(Path::toFile)
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Read the specification files listed in a manifest.
+     * <p>
+     * The manifest has one path per line. Relative paths are relative to the manifest's folder. Blank lines and
+     * lines starting with # are ignored.
+     *
+     * @param manifest Manifest file.
+     * @return Specification files (in manifest order).
+     * @throws IOException Unable to read the manifest.
+     */
+    static List<File> readManifest(final String manifest) throws IOException {
+        final Path manifestPath = Paths.get(manifest).toAbsolutePath();
+        final Path folder = manifestPath.getParent();
+
+        final List<File> specFiles = new ArrayList<>();
+        for (String line : Files.readAllLines(manifestPath, StandardCharsets.UTF_8)) {
+            final String trimmedLine = line.trim();
+            if (trimmedLine.isEmpty() || trimmedLine.startsWith("#")) continue;
+            specFiles.add(folder.resolve(trimmedLine).toFile());
+        }
+
+        return specFiles;
+    }
+
+    /**
+     * Render the tab for each of the specification files.
+     * <p>
+     * The name of a tab comes from the song's title, artist and key, so two specifications (e.g. a copy of a song)
+     * can have the same tab file. Only the first of them to be rendered writes the file; the others fail rather than
+     * overwrite it (or write it at the same time).
+     *
+     * @param specFiles Specification files.
+     * @param transposeKey Musical key to transpose to (if required).
+     * @param up Transpose up?
+     * @param outputFolder Folder where the tabs will be written.
+     * @param config Config.
+     * @param nThreads Number of worker threads.
+     * @return Summary of the run.
+     * @throws InterruptedException Interrupted whilst waiting for the workers.
+     */
+    static Summary render(final List<File> specFiles,
+                          final Optional<String> transposeKey,
+                          final boolean up,
+                          final String outputFolder,
+                          final Config config,
+                          final int nThreads) throws InterruptedException {
+
+        logger.info("Rendering " + specFiles.size() + " specification files using " + nThreads + " threads");
+
+        final ExecutorService executor = Executors.newFixedThreadPool(nThreads);
+        final CompletionService<Future<FileResult>> completionService = new ExecutorCompletionService<>(executor);
+        final Optional<AsyncTabWriter> writer = config.isAsyncWrites() ?
+                Optional.of(new AsyncTabWriter(AsyncTabWriter.defaultQueueCapacity, config.isAtomicWrites())) :
+                Optional.empty();
+        final ConcurrentMap<String, File> outputFiles = new ConcurrentHashMap<>();
+        final List<FileResult> results = new ArrayList<>(specFiles.size());
+        final long start = System.nanoTime();
+
+        try {
+            for (File specFile : specFiles) {
+                completionService.submit(() -> BatchRenderer.renderFile(specFile, transposeKey, up, outputFolder,
+                        config, writer, outputFiles));
+            }
+
+            // Results are logged in the order the files finish rendering (waiting for each to be written)
+            for (int i = 0; i < specFiles.size(); i++) {
+                final FileResult result = BatchRenderer.getResult(BatchRenderer.getResult(completionService.take()));
+                BatchRenderer.logResult(result);
+                results.add(result);
+            }
+        } finally {
+            executor.shutdownNow();
+            if (writer.isPresent()) BatchRenderer.closeWriter(writer.get());
+        }
+
+        return new Summary(results, System.nanoTime() - start);
+    }
+
+    /**
+     * Close the asynchronous writer, logging rather than throwing on failure.
+     *
+     * @param writer Writer.
+     */
+    private static void closeWriter(final AsyncTabWriter writer) {
+        try {
+            writer.close();
+        } catch (IOException e) {
+            logger.warn("Unable to close the tab writer: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Render the tab for a specification file in all twelve keys.
+     * <p>
+     * The file is parsed once. The transpositions run concurrently on one pool and the tabs are built and written by
+     * a second pool shared by all twelve keys, each write starting as soon as its transposition is ready. A key that
+     * fails doesn't stop the others, so the files written are identical to those from twelve separate runs. Each key is
+     * timed from when its write starts, so the time of a key doesn't include the shared parse; the time of the whole
+     * run is reported in the summary.
+     *
+     * @param specFile Specification file.
+     * @param up Transpose up?
+     * @param outputFolder Folder where the tabs will be written.
+     * @param config Config.
+     * @param nThreads Number of threads in each pool.
+     * @return Summary of the run (one result per key, in key order).
+     * @throws RenderException Unable to read or parse the specification file.
+     * @throws InterruptedException Interrupted whilst waiting for the workers.
+     */
+    static Summary renderAllKeys(final File specFile,
+                                 final boolean up,
+                                 final String outputFolder,
+                                 final Config config,
+                                 final int nThreads) throws RenderException, InterruptedException {
+
+        final long start = System.nanoTime();
+        final SheetMusic sheetMusic = SpecRenderer.parse(specFile, config.getParsedSongCache());
+
+        final ExecutorService transposers = Executors.newFixedThreadPool(nThreads);
+        final ExecutorService writers = Executors.newFixedThreadPool(nThreads);
+        final List<FileResult> results = new ArrayList<>();
+
+        try {
+            // Fan out the transpositions and queue a write for each key
+            final Map<String, Future<SheetMusic>> transposed = SheetMusicTransposition.transposeToAllKeys(sheetMusic,
+                    up, config.getMaxFret(), transposers);
+
+            final List<Future<FileResult>> written = new ArrayList<>(transposed.size());
+            for (Map.Entry<String, Future<SheetMusic>> entry : transposed.entrySet()) {
+                written.add(writers.submit(() -> BatchRenderer.writeKey(specFile, entry.getKey(), entry.getValue(),
+                        outputFolder, config)));
+            }
+
+            for (Future<FileResult> future : written) {
+                final FileResult result = BatchRenderer.getResult(future);
+                BatchRenderer.logResult(result);
+                results.add(result);
+            }
+        } finally {
+            transposers.shutdownNow();
+            writers.shutdownNow();
+        }
+
+        return new Summary(results, System.nanoTime() - start);
+    }
+
+    /**
+     * Wait for a transposition and write its tab, capturing the outcome rather than throwing.
+     * <p>
+     * The time of the result runs from when the write starts, so it covers waiting for the key's transposition (if it
+     * isn't ready) and building and writing its tab.
+     *
+     * @param specFile Specification file.
+     * @param key Musical key.
+     * @param transposition Transposition to the key.
+     * @param outputFolder Folder where the tab will be written.
+     * @param config Config.
+     * @return Result.
+     * @throws InterruptedException Interrupted whilst waiting for the transposition.
+     */
+    private static FileResult writeKey(final File specFile,
+                                       final String key,
+                                       final Future<SheetMusic> transposition,
+                                       final String outputFolder,
+                                       final Config config) throws InterruptedException {
+        final long start = System.nanoTime();
+        try {
+            final SheetMusic sheetMusic = BatchRenderer.getTransposition(transposition);
+            final String outputFile = SpecRenderer.write(sheetMusic, outputFolder, config);
+            return new FileResult(specFile, Optional.of(outputFile), Optional.empty(), System.nanoTime() - start);
+        } catch (RenderException e) {
+            return new FileResult(specFile, Optional.empty(), Optional.of("[" + key + "] " + e.getMessage()),
+                    System.nanoTime() - start);
+        } catch (RuntimeException e) {
+            return new FileResult(specFile, Optional.empty(), Optional.of("[" + key + "] " + e.toString()),
+                    System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Get the result of a transposition.
+     *
+     * @param future Transposition.
+     * @return Transposed sheet music.
+     * @throws RenderException Transposition failed.
+     * @throws InterruptedException Interrupted whilst waiting.
+     */
+    private static SheetMusic getTransposition(final Future<SheetMusic> future)
+            throws RenderException, InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof InvalidKeyException) {
+                throw new RenderException("Invalid key: " + cause.getMessage(), cause);
+            } else if (cause instanceof InvalidChordException) {
+                throw new RenderException("Invalid chord: " + cause.getMessage(), cause);
+            } else if (cause instanceof TranspositionException) {
+                throw new RenderException("Unable to transpose: " + cause.getMessage(), cause);
+            }
+            throw new RenderException("Unable to transpose: " + cause, cause);
+        }
+    }
+
+    /**
+     * Log the outcome of rendering a file.
+     *
+     * @param result Result.
+     */
+    private static void logResult(final FileResult result) {
+        if (result.isSuccess()) {
+            logger.info("OK     " + result.getSpecFile() + " -> " + result.getOutputFile().get());
+        } else {
+            logger.error("FAILED " + result.getSpecFile() + " - " + result.getError().get());
+        }
+    }
+
+    /**
+     * Render a single file, capturing the outcome rather than throwing.
+     * <p>
+     * With an asynchronous writer, the returned future completes once the tab has been written; otherwise it has
+     * already completed.
+     *
+     * @param specFile Specification file.
+     * @param transposeKey Musical key to transpose to (if required).
+     * @param up Transpose up?
+     * @param outputFolder Folder where the tab will be written.
+     * @param config Config.
+     * @param writer Asynchronous writer (if enabled).
+     * @param outputFiles Tab files of the run, with the specification file that writes each one.
+     * @return Result.
+     */
+    private static Future<FileResult> renderFile(final File specFile,
+                                                 final Optional<String> transposeKey,
+                                                 final boolean up,
+                                                 final String outputFolder,
+                                                 final Config config,
+                                                 final Optional<AsyncTabWriter> writer,
+                                                 final ConcurrentMap<String, File> outputFiles) {
+        final long start = System.nanoTime();
+        try {
+            final SheetMusic sheetMusic = SpecRenderer.parseAndTranspose(specFile, transposeKey, up, config);
+
+            // Don't write a tab file that another specification of the run has already claimed
+            final String filePath = SpecRenderer.tabFilePath(sheetMusic, outputFolder);
+            final File claimedBy = outputFiles.putIfAbsent(filePath, specFile);
+            if (claimedBy != null) {
+                return CompletableFuture.completedFuture(new FileResult(specFile, Optional.empty(),
+                        Optional.of("Tab file " + filePath + " is also written by " + claimedBy),
+                        System.nanoTime() - start));
+            }
+
+            if (writer.isPresent()) {
+                return SpecRenderer.write(sheetMusic, outputFolder, config, writer.get())
+                        .handle((outputFile, e) -> e == null ?
+                                new FileResult(specFile, Optional.of(outputFile), Optional.empty(),
+                                        System.nanoTime() - start) :
+                                new FileResult(specFile, Optional.empty(), Optional.of(e.getMessage()),
+                                        System.nanoTime() - start));
+            }
+
+            final String outputFile = SpecRenderer.write(sheetMusic, outputFolder, config);
+            return CompletableFuture.completedFuture(new FileResult(specFile, Optional.of(outputFile),
+                    Optional.empty(), System.nanoTime() - start));
+        } catch (RenderException e) {
+            return CompletableFuture.completedFuture(new FileResult(specFile, Optional.empty(),
+                    Optional.of(e.getMessage()), System.nanoTime() - start));
+        } catch (RuntimeException e) {
+            return CompletableFuture.completedFuture(new FileResult(specFile, Optional.empty(),
+                    Optional.of(e.toString()), System.nanoTime() - start));
+        }
+    }
+
+    /**
+     * Get the result of a completed render.
+     *
+     * @param future Completed future.
+     * @return Result.
+     * @throws InterruptedException Interrupted whilst waiting.
+     */
+    private static <T> T getResult(final Future<T> future) throws InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            // renderFile() captures exceptions, so only an Error can end up here
+            throw new IllegalStateException("Rendering failed unexpectedly", e.getCause());
+        }
+    }
+
+}
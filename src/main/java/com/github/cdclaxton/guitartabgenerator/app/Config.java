@@ -1,21 +1,48 @@
 package com.github.cdclaxton.guitartabgenerator.app;
 
+import com.github.cdclaxton.guitartabgenerator.tabparser.ParsedSongCache;
+import com.github.cdclaxton.guitartabgenerator.tabwriter.TabSheetMusicBuilder;
+
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.Properties;
+import java.util.concurrent.ExecutorService;
 
 public final class Config {
 
     private final int pageWidth;
     private final int maxFret;
+    private final Optional<String> cacheDir;
+    private final long cacheMaxBytes;
+    private final Optional<ParsedSongCache> parsedSongCache;
+    private final int fretShapeCacheSize;
+    private final int renderThreads;
+    private final Optional<ExecutorService> renderExecutor;
+    private final boolean asyncWrites;
+    private final boolean atomicWrites;
+    private final boolean metricsEnabled;
+    private final Optional<String> metricsFile;
+    private final TabSheetMusicBuilder.LineBreaking lineBreaking;
+
+    // Default maximum size of the parsed song cache (in megabytes)
+    static final long defaultCacheMaxMegabytes = 64;
+
+    // Default maximum number of transposed fret shapes to cache
+    static final int defaultFretShapeCacheSize = 4096;
+
+    // Default number of threads used to transpose and lay out a song (1 keeps it on the calling thread)
+    static final int defaultRenderThreads = 1;
 
     /**
      * Instantiate the config a config.properties file.
      *
      * @param path Path of the config file.
-     * @throws IOException Unable to read the config file.
+     * @throws IOException Unable to read the config file or create the cache directory.
+     * @throws IllegalArgumentException A value in the config file is invalid.
      */
     Config(String path) throws IOException {
         Properties prop = new Properties();
@@ -27,6 +54,84 @@ public final class Config {
         // Extract the values
         this.pageWidth = Integer.valueOf(prop.getProperty("page.width"));
         this.maxFret = Integer.valueOf(prop.getProperty("max.fret"));
+
+        // Optional cache of parsed songs
+        this.cacheDir = Optional.ofNullable(prop.getProperty("cache.dir"));
+        this.cacheMaxBytes = Long.valueOf(prop.getProperty("cache.max.mb", String.valueOf(defaultCacheMaxMegabytes)))
+                * 1024 * 1024;
+        this.parsedSongCache = this.cacheDir.isPresent() ?
+                Optional.of(new ParsedSongCache(new File(this.cacheDir.get()), this.cacheMaxBytes)) :
+                Optional.empty();
+
+        // Size of the cache of transposed fret shapes (0 disables it)
+        this.fretShapeCacheSize = Integer.valueOf(prop.getProperty("transposition.cache.size",
+                String.valueOf(defaultFretShapeCacheSize)));
+
+        // Number of threads to transpose and lay out the sections of a song in parallel (0 = all processors); the
+        // executor is created by the app (see withRenderExecutor)
+        final int threads = Integer.valueOf(prop.getProperty("render.threads", String.valueOf(defaultRenderThreads)));
+        if (threads < 0) throw new IllegalArgumentException("render.threads cannot be negative: " + threads);
+        this.renderThreads = threads == 0 ? Runtime.getRuntime().availableProcessors() : threads;
+        this.renderExecutor = Optional.empty();
+
+        // How tab files are written
+        this.asyncWrites = Boolean.parseBoolean(prop.getProperty("writer.async", "false"));
+        this.atomicWrites = Boolean.parseBoolean(prop.getProperty("writer.atomic", "false"));
+
+        // Metrics of the parse, transpose, layout and write stages
+        this.metricsEnabled = Boolean.parseBoolean(prop.getProperty("metrics.enabled", "false"));
+        this.metricsFile = Optional.ofNullable(prop.getProperty("metrics.file"));
+
+        // How the bars of a section are broken into systems
+        this.lineBreaking = Config.parseLineBreaking(prop.getProperty("layout.line.breaking", "greedy"));
+    }
+
+    /**
+     * Instantiate a copy of a config with an executor to render songs on.
+     *
+     * @param config Config to copy.
+     * @param renderExecutor Executor used to transpose and lay out a song in parallel.
+     */
+    private Config(final Config config,
+                   final Optional<ExecutorService> renderExecutor) {
+        this.pageWidth = config.pageWidth;
+        this.maxFret = config.maxFret;
+        this.cacheDir = config.cacheDir;
+        this.cacheMaxBytes = config.cacheMaxBytes;
+        this.parsedSongCache = config.parsedSongCache;
+        this.fretShapeCacheSize = config.fretShapeCacheSize;
+        this.renderThreads = config.renderThreads;
+        this.renderExecutor = renderExecutor;
+        this.asyncWrites = config.asyncWrites;
+        this.atomicWrites = config.atomicWrites;
+        this.metricsEnabled = config.metricsEnabled;
+        this.metricsFile = config.metricsFile;
+        this.lineBreaking = config.lineBreaking;
+    }
+
+    /**
+     * Get a copy of the config that renders songs on an executor.
+     * <p>
+     * The config doesn't own the executor: whoever creates it shuts it down.
+     *
+     * @param renderExecutor Executor used to transpose and lay out a song in parallel (sequential if empty).
+     * @return Config.
+     */
+    Config withRenderExecutor(final Optional<ExecutorService> renderExecutor) {
+        return new Config(this, renderExecutor);
+    }
+
+    /**
+     * Parse the line breaking (case insensitive).
+     *
+     * @param value Value of the property, e.g. greedy.
+     * @return Line breaking.
+     */
+    private static TabSheetMusicBuilder.LineBreaking parseLineBreaking(final String value) {
+        for (TabSheetMusicBuilder.LineBreaking lineBreaking : TabSheetMusicBuilder.LineBreaking.values()) {
+            if (lineBreaking.name().equalsIgnoreCase(value.trim())) return lineBreaking;
+        }
+        throw new IllegalArgumentException("layout.line.breaking must be greedy or optimal: " + value);
     }
 
     /**
@@ -43,9 +148,76 @@ public final class Config {
      */
     int getMaxFret() { return maxFret; }
 
+    /**
+     * Get the cache of parsed songs.
+     *
+     * @return Cache (if a cache directory is configured).
+     */
+    Optional<ParsedSongCache> getParsedSongCache() { return parsedSongCache; }
+
+    /**
+     * Get the maximum number of transposed fret shapes to cache.
+     *
+     * @return Cache size (0 if the cache is disabled).
+     */
+    int getFretShapeCacheSize() { return fretShapeCacheSize; }
+
+    /**
+     * Get the number of threads used to transpose and lay out a song.
+     *
+     * @return Number of threads (1 if songs are rendered sequentially).
+     */
+    int getRenderThreads() { return renderThreads; }
+
+    /**
+     * Get the executor used to transpose and lay out a song in parallel.
+     *
+     * @return Executor (empty if songs are rendered sequentially or the app hasn't set one).
+     */
+    Optional<ExecutorService> getRenderExecutor() { return renderExecutor; }
+
+    /**
+     * Are tab files written on a background thread in batch mode?
+     *
+     * @return True if writes are asynchronous.
+     */
+    boolean isAsyncWrites() { return asyncWrites; }
+
+    /**
+     * Are tab files written to a temporary file and renamed?
+     *
+     * @return True if writes are atomic.
+     */
+    boolean isAtomicWrites() { return atomicWrites; }
+
+    /**
+     * Are the metrics of the parse, transpose, layout and write stages recorded?
+     *
+     * @return True if metrics are enabled.
+     */
+    boolean isMetricsEnabled() { return metricsEnabled; }
+
+    /**
+     * Get the file the metrics are written to (as JSON) when the app exits.
+     *
+     * @return File path (if empty, the metrics are logged instead).
+     */
+    Optional<String> getMetricsFile() { return metricsFile; }
+
+    /**
+     * Get how the bars of a section are broken into systems.
+     *
+     * @return Line breaking.
+     */
+    TabSheetMusicBuilder.LineBreaking getLineBreaking() { return lineBreaking; }
+
     @Override
     public String toString() {
-        return "Config[pageWidth=" + this.pageWidth + ",maxFret=" + this.maxFret + "]";
+        return "Config[pageWidth=" + this.pageWidth + ",maxFret=" + this.maxFret + ",cacheDir=" + this.cacheDir +
+                ",cacheMaxBytes=" + this.cacheMaxBytes + ",fretShapeCacheSize=" + this.fretShapeCacheSize +
+                ",renderThreads=" + this.renderThreads + ",asyncWrites=" + this.asyncWrites +
+                ",atomicWrites=" + this.atomicWrites + ",metricsEnabled=" + this.metricsEnabled +
+                ",metricsFile=" + this.metricsFile + ",lineBreaking=" + this.lineBreaking + "]";
     }
 
     @Override
@@ -54,11 +226,21 @@ public final class Config {
         if (o == null || getClass() != o.getClass()) return false;
         Config config = (Config) o;
         return pageWidth == config.pageWidth &&
-                maxFret == config.maxFret;
+                maxFret == config.maxFret &&
+                cacheMaxBytes == config.cacheMaxBytes &&
+                fretShapeCacheSize == config.fretShapeCacheSize &&
+                renderThreads == config.renderThreads &&
+                asyncWrites == config.asyncWrites &&
+                atomicWrites == config.atomicWrites &&
+                metricsEnabled == config.metricsEnabled &&
+                lineBreaking == config.lineBreaking &&
+                Objects.equals(cacheDir, config.cacheDir) &&
+                Objects.equals(metricsFile, config.metricsFile);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(pageWidth, maxFret);
+        return Objects.hash(pageWidth, maxFret, cacheDir, cacheMaxBytes, fretShapeCacheSize, renderThreads,
+                asyncWrites, atomicWrites, metricsEnabled, metricsFile, lineBreaking);
     }
 }
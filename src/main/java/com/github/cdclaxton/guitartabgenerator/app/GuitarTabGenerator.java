@@ -1,9 +1,11 @@
 package com.github.cdclaxton.guitartabgenerator.app;
 
+import com.github.cdclaxton.guitartabgenerator.metrics.Metrics;
 import com.github.cdclaxton.guitartabgenerator.music.*;
 import com.github.cdclaxton.guitartabgenerator.sheetmusic.SheetMusic;
 import com.github.cdclaxton.guitartabgenerator.sheetmusic.SheetMusicTransposition;
 import com.github.cdclaxton.guitartabgenerator.tabparser.ExtractionException;
+import com.github.cdclaxton.guitartabgenerator.tabparser.ParsedSongCache;
 import com.github.cdclaxton.guitartabgenerator.tabparser.SheetMusicParser;
 import com.github.cdclaxton.guitartabgenerator.tabwriter.TabBuildingException;
 import com.github.cdclaxton.guitartabgenerator.tabwriter.TabSheetMusicBuilder;
@@ -14,9 +16,14 @@ import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
 
 public final class GuitarTabGenerator {
 
@@ -34,6 +41,13 @@ public final class GuitarTabGenerator {
         private boolean video;
         private Optional<String> transposeKey;
         private Optional<Boolean> transposeUp;
+        private Optional<String> inputFolder = Optional.empty();
+        private Optional<String> manifest = Optional.empty();
+        private Optional<Integer> threads = Optional.empty();
+        private Optional<Boolean> allKeysUp = Optional.empty();
+        private Optional<Integer> servePort = Optional.empty();
+        private boolean stream;
+        private boolean watch;
 
         /**
          * Construct a ParsedCmdArgs object.
@@ -73,15 +87,29 @@ public final class GuitarTabGenerator {
             // Help
             this.help = cmd.hasOption("help");
 
-            // Input (specification) file -- required if help is not requested
-            if (!cmd.hasOption("input") && !this.help) throw new IllegalArgumentException("Input file required");
+            // Serve tab over HTTP (specifications are sent in the requests)
+            if (cmd.hasOption("serve")) this.servePort = Optional.of(parsePort(cmd.getOptionValue("serve")));
+
+            // Input (specification) file, folder or manifest -- one is required if help is not requested
+            final int nInputs = (cmd.hasOption("input") ? 1 : 0) + (cmd.hasOption("input-dir") ? 1 : 0) +
+                    (cmd.hasOption("manifest") ? 1 : 0);
+            if (nInputs == 0 && !this.help && !this.serve()) throw new IllegalArgumentException("Input file required");
+            if (nInputs > 0 && this.serve()) {
+                throw new IllegalArgumentException("Specifications are posted to the server, not read from files");
+            }
+            if (nInputs > 1) throw new IllegalArgumentException("Only one of input, input-dir and manifest per run");
             if (cmd.hasOption("input")) this.inputFile = Optional.of(cmd.getOptionValue("input"));
+            if (cmd.hasOption("input-dir")) this.inputFolder = Optional.of(cmd.getOptionValue("input-dir"));
+            if (cmd.hasOption("manifest")) this.manifest = Optional.of(cmd.getOptionValue("manifest"));
 
             // Output folder
             if (cmd.hasOption("output")) this.outputFolder = Optional.of(cmd.getOptionValue("output"));
 
             // Check that both transpose up and transpose down haven't been defined
             if (cmd.hasOption("up") && cmd.hasOption("down")) throw new IllegalArgumentException("Only one transpose per run");
+            if (cmd.hasOption("all-keys") && (cmd.hasOption("up") || cmd.hasOption("down"))) {
+                throw new IllegalArgumentException("Only one transpose per run");
+            }
 
             // Transpose
             if (cmd.hasOption("up")) {
@@ -95,8 +123,77 @@ public final class GuitarTabGenerator {
                 this.transposeUp = Optional.empty();
             }
 
+            // Transpose to all keys
+            if (cmd.hasOption("all-keys")) {
+                final String direction = cmd.getOptionValue("all-keys", "up");
+                if (!direction.equals("up") && !direction.equals("down")) {
+                    throw new IllegalArgumentException("All keys direction must be up or down: " + direction);
+                }
+                this.allKeysUp = Optional.of(direction.equals("up"));
+            }
+
             // Video
             this.video = cmd.hasOption("video");
+
+            // Batch mode settings
+            if (this.isBatch() && !this.outputFolder.isPresent()) {
+                throw new IllegalArgumentException("Output folder required for batch mode");
+            }
+            if (this.transposeToAllKeys() && (this.isBatch() || !this.outputFolder.isPresent())) {
+                throw new IllegalArgumentException("All keys requires an input file and an output folder");
+            }
+            // Streaming settings
+            this.stream = cmd.hasOption("stream");
+            if (this.stream && (!this.inputFile.isPresent() || !this.outputFolder.isPresent())) {
+                throw new IllegalArgumentException("Streaming requires an input file and an output folder");
+            }
+            if (this.stream && (this.transposeToAllKeys() || this.video)) {
+                throw new IllegalArgumentException("Streaming only renders a single tab");
+            }
+
+            // Watch settings
+            this.watch = cmd.hasOption("watch");
+            if (this.watch && (!this.inputFolder.isPresent() || !this.outputFolder.isPresent())) {
+                throw new IllegalArgumentException("Watching requires an input folder and an output folder");
+            }
+
+            if (cmd.hasOption("threads")) this.threads = Optional.of(parseThreads(cmd.getOptionValue("threads")));
+        }
+
+        /**
+         * Parse the number of worker threads.
+         *
+         * @param value Value of the option.
+         * @return Number of threads (at least one).
+         * @throws ParseException Value isn't a positive whole number.
+         */
+        private static int parseThreads(final String value) throws ParseException {
+            final int threads;
+            try {
+                threads = Integer.parseInt(value);
+            } catch (NumberFormatException e) {
+                throw new ParseException("Number of threads must be a whole number: " + value);
+            }
+            if (threads < 1) throw new ParseException("Number of threads must be at least 1: " + value);
+            return threads;
+        }
+
+        /**
+         * Parse the port for the tab rendering server.
+         *
+         * @param value Value of the option.
+         * @return Port (0 for any free port).
+         * @throws ParseException Value isn't a whole number from 0 to 65535.
+         */
+        private static int parsePort(final String value) throws ParseException {
+            final int port;
+            try {
+                port = Integer.parseInt(value);
+            } catch (NumberFormatException e) {
+                throw new ParseException("Port must be a whole number: " + value);
+            }
+            if (port < 0 || port > 65535) throw new ParseException("Port must be from 0 to 65535: " + value);
+            return port;
         }
 
         /**
@@ -127,6 +224,76 @@ public final class GuitarTabGenerator {
          */
         boolean showVideo() { return this.video; }
 
+        /**
+         * Should a batch of specification files (a folder or manifest) be rendered?
+         *
+         * @return True if running in batch mode.
+         */
+        boolean isBatch() { return this.inputFolder.isPresent() || this.manifest.isPresent(); }
+
+        /**
+         * Should the tab be transposed to all twelve keys?
+         *
+         * @return True if all keys should be rendered.
+         */
+        boolean transposeToAllKeys() { return this.allKeysUp.isPresent(); }
+
+        /**
+         * Transpose up when rendering all keys?
+         *
+         * @return True if transposing up to all keys (if all keys was requested).
+         */
+        Optional<Boolean> getAllKeysUp() { return this.allKeysUp; }
+
+        /**
+         * Should the tab rendering server be run?
+         *
+         * @return True if running as a server.
+         */
+        boolean serve() { return this.servePort.isPresent(); }
+
+        /**
+         * Get the port for the tab rendering server.
+         *
+         * @return Port (if provided on the CLI).
+         */
+        Optional<Integer> getServePort() { return this.servePort; }
+
+        /**
+         * Should the tab be rendered one section at a time (rather than reading the whole song first)?
+         *
+         * @return True if streaming.
+         */
+        boolean stream() { return this.stream; }
+
+        /**
+         * Should the input folder be watched, re-rendering the tab for each specification file that changes?
+         *
+         * @return True if watching.
+         */
+        boolean watch() { return this.watch; }
+
+        /**
+         * Get the folder of specification files (batch mode).
+         *
+         * @return Specification folder (if provided on the CLI).
+         */
+        Optional<String> getInputFolder() { return this.inputFolder; }
+
+        /**
+         * Get the manifest listing the specification files (batch mode).
+         *
+         * @return Manifest file path (if provided on the CLI).
+         */
+        Optional<String> getManifest() { return this.manifest; }
+
+        /**
+         * Get the number of worker threads to use in batch mode.
+         *
+         * @return Number of threads (if provided on the CLI).
+         */
+        Optional<Integer> getThreads() { return this.threads; }
+
         /**
          * Get the file path of the specification file.
          *
@@ -160,8 +327,14 @@ public final class GuitarTabGenerator {
             return "ParsedCmdArgs[" +
                     "help=" + this.help + ","  +
                     "input=" + this.inputFile + "," +
+                    "inputDir=" + this.inputFolder + "," +
+                    "manifest=" + this.manifest + "," +
                     "output=" + this.outputFolder + "," +
                     "transpose=" + this.transposeKey + "," +
+                    "allKeysUp=" + this.allKeysUp + "," +
+                    "serve=" + this.servePort + "," +
+                    "stream=" + this.stream + "," +
+                    "watch=" + this.watch + "," +
                     "video=" + this.video + "]";
         }
 
@@ -172,15 +345,23 @@ public final class GuitarTabGenerator {
             ParsedCmdArgs that = (ParsedCmdArgs) o;
             return help == that.help &&
                     video == that.video &&
+                    stream == that.stream &&
+                    watch == that.watch &&
                     Objects.equals(inputFile, that.inputFile) &&
                     Objects.equals(outputFolder, that.outputFolder) &&
                     Objects.equals(transposeKey, that.transposeKey) &&
-                    Objects.equals(transposeUp, that.transposeUp);
+                    Objects.equals(transposeUp, that.transposeUp) &&
+                    Objects.equals(inputFolder, that.inputFolder) &&
+                    Objects.equals(manifest, that.manifest) &&
+                    Objects.equals(threads, that.threads) &&
+                    Objects.equals(allKeysUp, that.allKeysUp) &&
+                    Objects.equals(servePort, that.servePort);
         }
 
         @Override
         public int hashCode() {
-            return Objects.hash(help, inputFile, outputFolder, video, transposeKey, transposeUp);
+            return Objects.hash(help, inputFile, outputFolder, video, transposeKey, transposeUp, inputFolder,
+                    manifest, threads, allKeysUp, servePort, stream, watch);
         }
     }
 
@@ -206,7 +387,9 @@ public final class GuitarTabGenerator {
         try {
             config = new Config("config.properties");
             logger.info("Config.properties read - " + config.toString());
-        } catch (IOException e) {
+            FretShapeCache.setMaxEntries(config.getFretShapeCacheSize());
+            if (config.isMetricsEnabled()) enableMetrics(config.getMetricsFile());
+        } catch (IOException | IllegalArgumentException e) {
             logger.error("Invalid config.properties file");
             logger.error(e.getMessage());
             System.exit(-1);
@@ -215,9 +398,30 @@ public final class GuitarTabGenerator {
         // Just show the help?
         if (cmdLine.showHelp()) showHelpAndExit();
 
+        // Pool to transpose and lay out each song in parallel (if configured)
+        config = config.withRenderExecutor(createRenderExecutor(config.getRenderThreads()));
+
+        // Run the tab rendering server?
+        if (cmdLine.serve()) {
+            runServer(cmdLine, config);
+            return;
+        }
+
+        // Watch a folder of specification files?
+        if (cmdLine.watch()) runWatcherAndExit(cmdLine, config);
+
+        // Render a batch of specification files?
+        if (cmdLine.isBatch()) runBatchAndExit(cmdLine, config);
+
+        // Render the tab in all twelve keys?
+        if (cmdLine.transposeToAllKeys()) renderAllKeysAndExit(cmdLine, config);
+
+        // Render the tab one section at a time?
+        if (cmdLine.stream()) renderStreamingAndExit(cmdLine, config);
+
         // Read the sheet music
         logger.info("Reading specification from file: " + cmdLine.inputFile.get());
-        final Optional<SheetMusic> sheetMusic = parseSheetMusic(cmdLine.inputFile.get());
+        final Optional<SheetMusic> sheetMusic = parseSheetMusic(cmdLine.inputFile.get(), config.getParsedSongCache());
         if (!sheetMusic.isPresent()) {
             logger.error("Aborting due to input specification failure");
             System.exit(-1);
@@ -234,7 +438,8 @@ public final class GuitarTabGenerator {
                 logger.info("Transposing to key: " + cmdLine.transposeKey.get());
                 try {
                     sheetMusicInRequiredKey = SheetMusicTransposition.transpose(sheetMusic.get(),
-                            cmdLine.getTransposeKey().get(), cmdLine.getTransposeUp().get(), config.getMaxFret());
+                            cmdLine.getTransposeKey().get(), cmdLine.getTransposeUp().get(), config.getMaxFret(),
+                            config.getRenderExecutor());
                 } catch (InvalidKeyException e) {
                     logger.error("Invalid key: " + e.getMessage());
                 } catch (InvalidChordException e) {
@@ -251,7 +456,8 @@ public final class GuitarTabGenerator {
             // Build the sheet music
             List<String> tab = null;
             try {
-                tab = TabSheetMusicBuilder.buildTabSheetMusic(sheetMusicInRequiredKey, config.getPageWidth());
+                tab = TabSheetMusicBuilder.buildTabSheetMusic(sheetMusicInRequiredKey, config.getPageWidth(),
+                        config.getRenderExecutor(), config.getLineBreaking());
             } catch (TabBuildingException e) {
                 logger.error("Unable to build guitar tab: " + e.getMessage());
                 System.exit(-1);
@@ -266,7 +472,7 @@ public final class GuitarTabGenerator {
 
             // Write the tab
             try {
-                TabSheetMusicWriter.writeLines(tab, filePath);
+                TabSheetMusicWriter.writeLines(tab, filePath, config.isAtomicWrites());
             } catch (IOException e) {
                 logger.error("Can't write file to: " + filePath);
                 logger.error(e.getMessage());
@@ -292,6 +498,176 @@ public final class GuitarTabGenerator {
 
     }
 
+    /**
+     * Create the pool used to transpose and lay out a song in parallel, which is shut down when the app exits.
+     *
+     * @param renderThreads Number of threads.
+     * @return Pool (empty if songs are rendered sequentially).
+     */
+    private static Optional<ExecutorService> createRenderExecutor(final int renderThreads) {
+        if (renderThreads <= 1) return Optional.empty();
+
+        final ExecutorService executor = new ForkJoinPool(renderThreads);
+        Runtime.getRuntime().addShutdownHook(new Thread(executor::shutdownNow));
+        return Optional.of(executor);
+    }
+
+    /**
+     * Record the metrics of the parse, transpose, layout and write stages and report them when the app exits.
+     *
+     * @param metricsFile File to write the metrics to as JSON (logged if empty).
+     */
+    private static void enableMetrics(final Optional<String> metricsFile) {
+        Metrics.setEnabled(true);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            final String json = Metrics.toJson();
+            if (!metricsFile.isPresent()) {
+                logger.info("Metrics: " + json);
+                return;
+            }
+            try {
+                Files.write(Paths.get(metricsFile.get()), (json + "\n").getBytes(StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                logger.error("Can't write metrics to: " + metricsFile.get());
+            }
+        }));
+    }
+
+    /**
+     * Render each of the specification files in the folder or manifest, report a summary and exit.
+     *
+     * @param cmdLine Parsed command line arguments.
+     * @param config Config.
+     */
+    private static void runBatchAndExit(final ParsedCmdArgs cmdLine,
+                                        final Config config) {
+
+        // Find the specification files
+        List<File> specFiles = null;
+        try {
+            if (cmdLine.getInputFolder().isPresent()) {
+                logger.info("Reading specifications from folder: " + cmdLine.getInputFolder().get());
+                specFiles = BatchRenderer.findSpecFiles(cmdLine.getInputFolder().get());
+            } else {
+                logger.info("Reading specifications listed in manifest: " + cmdLine.getManifest().get());
+                specFiles = BatchRenderer.readManifest(cmdLine.getManifest().get());
+            }
+        } catch (IOException e) {
+            logger.error("Unable to find specification files: " + e.getMessage());
+            System.exit(-1);
+        }
+
+        // Render the tab for each file
+        final int nThreads = cmdLine.getThreads().orElse(Runtime.getRuntime().availableProcessors());
+        BatchRenderer.Summary summary = null;
+        try {
+            summary = BatchRenderer.render(specFiles, cmdLine.getTransposeKey(),
+                    cmdLine.getTransposeUp().orElse(true), cmdLine.getOutputFolder().get(), config, nThreads);
+        } catch (InterruptedException e) {
+            logger.error("Interrupted whilst rendering");
+            System.exit(-1);
+        }
+
+        logger.info(summary.toString());
+        System.exit(summary.numberFailed() == 0 ? 0 : -1);
+    }
+
+    /**
+     * Render each of the specification files in the folder and then re-render the files as they change, until the JVM
+     * is stopped.
+     *
+     * @param cmdLine Parsed command line arguments.
+     * @param config Config.
+     */
+    private static void runWatcherAndExit(final ParsedCmdArgs cmdLine,
+                                          final Config config) {
+
+        final int nThreads = cmdLine.getThreads().orElse(SpecWatcher.defaultThreads);
+        try (SpecWatcher watcher = new SpecWatcher(cmdLine.getInputFolder().get(), cmdLine.getTransposeKey(),
+                cmdLine.getTransposeUp().orElse(true), cmdLine.getOutputFolder().get(), config, nThreads,
+                SpecWatcher.defaultDebounceMillis)) {
+            watcher.run();
+        } catch (IOException e) {
+            logger.error("Unable to watch folder: " + e.getMessage());
+            System.exit(-1);
+        }
+        System.exit(0);
+    }
+
+    /**
+     * Start the tab rendering server; it runs until the JVM is stopped.
+     *
+     * @param cmdLine Parsed command line arguments.
+     * @param config Config.
+     */
+    private static void runServer(final ParsedCmdArgs cmdLine,
+                                  final Config config) {
+
+        final int nThreads = cmdLine.getThreads().orElse(Runtime.getRuntime().availableProcessors());
+        try {
+            final TabServer server = new TabServer(config, cmdLine.getServePort().get(), nThreads,
+                    TabServer.defaultCacheSize);
+            Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+            server.start();
+        } catch (IOException e) {
+            logger.error("Unable to start server: " + e.getMessage());
+            System.exit(-1);
+        }
+    }
+
+    /**
+     * Transpose the specification file to all twelve keys, write the tab for each, report a summary and exit.
+     *
+     * @param cmdLine Parsed command line arguments.
+     * @param config Config.
+     */
+    private static void renderAllKeysAndExit(final ParsedCmdArgs cmdLine,
+                                             final Config config) {
+
+        final boolean up = cmdLine.getAllKeysUp().get();
+        final int nThreads = cmdLine.getThreads().orElse(Runtime.getRuntime().availableProcessors());
+        logger.info("Transposing " + cmdLine.getInputFile().get() + (up ? " up" : " down") +
+                " to all keys using " + nThreads + " threads");
+
+        BatchRenderer.Summary summary = null;
+        try {
+            summary = BatchRenderer.renderAllKeys(new File(cmdLine.getInputFile().get()), up,
+                    cmdLine.getOutputFolder().get(), config, nThreads);
+        } catch (RenderException e) {
+            logger.error(e.getMessage());
+            logger.error("Aborting due to input specification failure");
+            System.exit(-1);
+        } catch (InterruptedException e) {
+            logger.error("Interrupted whilst rendering");
+            System.exit(-1);
+        }
+
+        logger.info(summary.toString());
+        System.exit(summary.numberFailed() == 0 ? 0 : -1);
+    }
+
+    /**
+     * Render the specification file one section at a time (so the whole song is never held in memory) and exit.
+     *
+     * @param cmdLine Parsed command line arguments.
+     * @param config Config.
+     */
+    private static void renderStreamingAndExit(final ParsedCmdArgs cmdLine,
+                                               final Config config) {
+
+        logger.info("Streaming specification from file: " + cmdLine.getInputFile().get());
+        try {
+            final String filePath = SpecRenderer.renderSpecStreaming(new File(cmdLine.getInputFile().get()),
+                    cmdLine.getTransposeKey(), cmdLine.getTransposeUp().orElse(true),
+                    cmdLine.getOutputFolder().get(), config);
+            logger.info("Tab written to: " + filePath);
+        } catch (RenderException e) {
+            logger.error(e.getMessage());
+            System.exit(-1);
+        }
+        System.exit(0);
+    }
+
     /**
      * Build the filename and path.
      *
@@ -319,12 +695,26 @@ public final class GuitarTabGenerator {
      * @return Sheet music (if parsable), otherwise empty.
      */
     static Optional<SheetMusic> parseSheetMusic(String filePath) {
+        return parseSheetMusic(filePath, Optional.empty());
+    }
+
+    /**
+     * Parse the sheet music (if possible), using the cached song if the file hasn't changed since it was cached.
+     *
+     * @param filePath Path of the tab specification file.
+     * @param cache Cache of parsed songs (if configured).
+     * @return Sheet music (if parsable), otherwise empty.
+     */
+    static Optional<SheetMusic> parseSheetMusic(final String filePath,
+                                                final Optional<ParsedSongCache> cache) {
         File inputFile = new File(filePath);
         SheetMusic sheetMusic = null;
 
         // Try to parse the sheet music from the file
         try {
-            sheetMusic = SheetMusicParser.parseSheetMusic(inputFile);
+            sheetMusic = cache.isPresent() ?
+                    cache.get().parseSheetMusic(inputFile) :
+                    SheetMusicParser.parseSheetMusic(inputFile);
         } catch (IOException e) {
             logger.error("Can't read specification file: " + inputFile);
         } catch (ExtractionException e) {
@@ -388,6 +778,63 @@ public final class GuitarTabGenerator {
                 .build();
         options.addOption(transposeDown);
 
+        Option allKeys = Option.builder()
+                .longOpt("all-keys")
+                .hasArg()
+                .optionalArg(true)
+                .argName("up|down")
+                .desc("transpose to all twelve keys (default: up)")
+                .build();
+        options.addOption(allKeys);
+
+        // Batch mode
+        Option inputFolder = Option.builder()
+                .longOpt("input-dir")
+                .hasArg()
+                .argName("folder")
+                .desc("folder of specification files to render (batch mode)")
+                .build();
+        options.addOption(inputFolder);
+
+        Option manifest = Option.builder()
+                .longOpt("manifest")
+                .hasArg()
+                .argName("file")
+                .desc("file listing the specification files to render, one per line (batch mode)")
+                .build();
+        options.addOption(manifest);
+
+        Option threads = Option.builder()
+                .longOpt("threads")
+                .hasArg()
+                .argName("n")
+                .desc("number of worker threads in batch, all keys, serve and watch modes (default: number of processors, " +
+                        "or 2 when watching)")
+                .build();
+        options.addOption(threads);
+
+        Option stream = Option.builder()
+                .longOpt("stream")
+                .desc("render the tab one section at a time, without reading the whole specification first")
+                .build();
+        options.addOption(stream);
+
+        Option watch = Option.builder()
+                .longOpt("watch")
+                .desc("keep running and re-render the tab for each specification file in the input folder that " +
+                        "changes")
+                .build();
+        options.addOption(watch);
+
+        // Server
+        Option serve = Option.builder()
+                .longOpt("serve")
+                .hasArg()
+                .argName("port")
+                .desc("serve tab over HTTP on localhost (POST a specification to /render, GET /metrics)")
+                .build();
+        options.addOption(serve);
+
         // Open video
         Option video = Option.builder("v")
                 .longOpt("video")
@@ -0,0 +1,335 @@
+package com.github.cdclaxton.guitartabgenerator.app;
+
+import com.github.cdclaxton.guitartabgenerator.metrics.Metrics;
+import com.github.cdclaxton.guitartabgenerator.music.*;
+import com.github.cdclaxton.guitartabgenerator.sheetmusic.Header;
+import com.github.cdclaxton.guitartabgenerator.sheetmusic.Section;
+import com.github.cdclaxton.guitartabgenerator.tabparser.ExtractionException;
+import com.github.cdclaxton.guitartabgenerator.tabparser.SectionSource;
+import com.github.cdclaxton.guitartabgenerator.tabparser.SectionedSheetMusic;
+import com.github.cdclaxton.guitartabgenerator.tabparser.SheetMusicParser;
+import com.github.cdclaxton.guitartabgenerator.tabwriter.TabBuildingException;
+import com.github.cdclaxton.guitartabgenerator.tabwriter.TabSheetMusicBuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Re-renders a specification that is being edited, laying out again only the sections that have changed.
+ * <p>
+ * The rendered lines of each section are cached against the section's source (its name, text and unparsed bars) and
+ * the settings that affect them (page width, line breaking and transposition). When the specification is rendered again, the header
+ * and sections are split out without parsing the bars; a section whose source is unchanged is spliced in from the
+ * cache, and only the other sections are parsed, transposed and laid out. The tab is identical to a full render. The
+ * least recently used sections are removed when the cache is full.
+ */
+final class IncrementalRenderer {
+
+    // Default maximum number of rendered sections to hold
+    static final int defaultMaxSections = 1024;
+
+    private final Map<RenderedSection, List<String>> rendered;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Key of the cache: the source of a section and how it is rendered.
+     */
+    private static final class RenderedSection {
+        private final SectionSource source;
+        private final int pageWidth;
+        private final TabSheetMusicBuilder.LineBreaking lineBreaking;
+        private final String currentKey;
+        private final String newKey;
+        private final boolean up;
+        private final int maxFret;
+        private final int hash;
+
+        private RenderedSection(final SectionSource source,
+                                final int pageWidth,
+                                final TabSheetMusicBuilder.LineBreaking lineBreaking,
+                                final String currentKey,
+                                final String newKey,
+                                final boolean up,
+                                final int maxFret) {
+            this.source = source;
+            this.pageWidth = pageWidth;
+            this.lineBreaking = lineBreaking;
+            this.currentKey = currentKey;
+            this.newKey = newKey;
+            this.up = up;
+            this.maxFret = maxFret;
+            this.hash = Objects.hash(source, pageWidth, lineBreaking, currentKey, newKey, up, maxFret);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            RenderedSection that = (RenderedSection) o;
+            return hash == that.hash &&
+                    pageWidth == that.pageWidth &&
+                    lineBreaking == that.lineBreaking &&
+                    up == that.up &&
+                    maxFret == that.maxFret &&
+                    Objects.equals(currentKey, that.currentKey) &&
+                    Objects.equals(newKey, that.newKey) &&
+                    source.equals(that.source);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * Instantiate a renderer with an empty cache.
+     *
+     * @param maxSections Maximum number of rendered sections to hold (0 disables the cache).
+     */
+    IncrementalRenderer(final int maxSections) {
+        if (maxSections < 0) throw new IllegalArgumentException("Cache size cannot be negative: " + maxSections);
+        this.rendered = new LinkedHashMap<RenderedSection, List<String>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<RenderedSection, List<String>> eldest) {
+                return size() > maxSections;
+            }
+        };
+        Metrics.cache("render.sections", this::getHits, this::getMisses, this::size);
+    }
+
+    /**
+     * Render the tab for a specification file and write it to the output folder.
+     *
+     * @param specFile Specification file.
+     * @param transposeKey Musical key to transpose to (if required).
+     * @param up Transpose up?
+     * @param outputFolder Folder where the tab will be written.
+     * @param config Config.
+     * @return Path of the written tab.
+     * @throws RenderException Unable to render the tab.
+     */
+    String renderSpec(final File specFile,
+                      final Optional<String> transposeKey,
+                      final boolean up,
+                      final String outputFolder,
+                      final Config config) throws RenderException {
+
+        final SectionedSheetMusic sheetMusic = IncrementalRenderer.parseSections(specFile);
+        final Header header = transposeKey.isPresent() ?
+                SpecRenderer.transposeHeader(sheetMusic.getHeader(), transposeKey.get()) :
+                sheetMusic.getHeader();
+
+        final String filePath = GuitarTabGenerator.buildTabFilename(header.getTitle(), header.getArtist(),
+                header.getKey().getKey(), outputFolder);
+        SpecRenderer.writeTab(this.render(sheetMusic, transposeKey, up, config.getPageWidth(),
+                config.getLineBreaking(), config.getMaxFret()), filePath, config.isAtomicWrites());
+        return filePath;
+    }
+
+    /**
+     * Render the tab for a specification held in memory.
+     *
+     * @param spec Specification.
+     * @param transposeKey Musical key to transpose to (if required).
+     * @param up Transpose up?
+     * @param pageWidth Page width (in characters).
+     * @param lineBreaking How the bars of each section are broken into systems.
+     * @param maxFret Maximum fret number.
+     * @return Lines of tab.
+     * @throws RenderException Unable to render the tab.
+     */
+    List<String> render(final String spec,
+                        final Optional<String> transposeKey,
+                        final boolean up,
+                        final int pageWidth,
+                        final TabSheetMusicBuilder.LineBreaking lineBreaking,
+                        final int maxFret) throws RenderException {
+        return this.render(IncrementalRenderer.parseSections(new StringReader(spec)), transposeKey, up, pageWidth,
+                lineBreaking, maxFret);
+    }
+
+    /**
+     * Render the tab for sectioned sheet music, re-using the lines of the sections that have been rendered before.
+     *
+     * @param sheetMusic Sectioned sheet music.
+     * @param transposeKey Musical key to transpose to (if required).
+     * @param up Transpose up?
+     * @param pageWidth Page width (in characters).
+     * @param lineBreaking How the bars of each section are broken into systems.
+     * @param maxFret Maximum fret number.
+     * @return Lines of tab.
+     * @throws RenderException Unable to render the tab.
+     */
+    private List<String> render(final SectionedSheetMusic sheetMusic,
+                                final Optional<String> transposeKey,
+                                final boolean up,
+                                final int pageWidth,
+                                final TabSheetMusicBuilder.LineBreaking lineBreaking,
+                                final int maxFret) throws RenderException {
+
+        // Work out the change of key (if any) from the header
+        final Header header = transposeKey.isPresent() ?
+                SpecRenderer.transposeHeader(sheetMusic.getHeader(), transposeKey.get()) :
+                sheetMusic.getHeader();
+        final Optional<KeyTransposition> keyTransposition = transposeKey.isPresent() ?
+                Optional.of(SpecRenderer.keyTransposition(sheetMusic.getHeader(), transposeKey.get(), up)) :
+                Optional.empty();
+        final String currentKey = sheetMusic.getHeader().getKey() != null ?
+                sheetMusic.getHeader().getKey().getKey() :
+                null;
+
+        final List<String> lines = new ArrayList<>(TabSheetMusicBuilder.buildHeader(header, pageWidth));
+
+        final List<SectionSource> sources = sheetMusic.getSections();
+        for (int i = 0; i < sources.size(); i++) {
+            final RenderedSection key = new RenderedSection(sources.get(i), pageWidth, lineBreaking,
+                    currentKey, transposeKey.orElse(null), transposeKey.isPresent() && up, maxFret);
+
+            List<String> sectionLines = this.get(key);
+            if (sectionLines == null) {
+                sectionLines = IncrementalRenderer.renderSection(sources.get(i), i, keyTransposition, pageWidth,
+                        lineBreaking, maxFret);
+                this.put(key, sectionLines);
+            }
+            lines.addAll(sectionLines);
+
+            // Add an empty line after the section
+            lines.add("");
+        }
+
+        return lines;
+    }
+
+    /**
+     * Parse, transpose (if required) and lay out a section.
+     *
+     * @param source Source of the section.
+     * @param sectionIndex Index of the section in the song.
+     * @param keyTransposition Change of key (if required).
+     * @param pageWidth Page width (in characters).
+     * @param lineBreaking How the bars are broken into systems.
+     * @param maxFret Maximum fret number.
+     * @return Lines of the section (unmodifiable).
+     * @throws RenderException Unable to render the section.
+     */
+    private static List<String> renderSection(final SectionSource source,
+                                              final int sectionIndex,
+                                              final Optional<KeyTransposition> keyTransposition,
+                                              final int pageWidth,
+                                              final TabSheetMusicBuilder.LineBreaking lineBreaking,
+                                              final int maxFret) throws RenderException {
+
+        Section section;
+        try {
+            section = source.parse();
+        } catch (ExtractionException | InvalidStringException | InvalidFretNumberException |
+                InvalidTimingException | InvalidChordException e) {
+            throw SpecRenderer.parseFailure(e);
+        }
+
+        if (keyTransposition.isPresent()) {
+            section = SpecRenderer.transposeSection(section, sectionIndex, keyTransposition.get(), maxFret);
+        }
+
+        try {
+            return Collections.unmodifiableList(TabSheetMusicBuilder.buildSection(section, sectionIndex, pageWidth,
+                    lineBreaking));
+        } catch (TabBuildingException e) {
+            throw new RenderException("Unable to build guitar tab: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Parse the header of a specification file and split out the sources of its sections.
+     *
+     * @param specFile Specification file.
+     * @return Sectioned sheet music.
+     * @throws RenderException Unable to read or parse the file.
+     */
+    private static SectionedSheetMusic parseSections(final File specFile) throws RenderException {
+        try {
+            return SheetMusicParser.parseSections(specFile);
+        } catch (IOException e) {
+            throw new RenderException("Can't read specification file: " + specFile, e);
+        } catch (ExtractionException | InvalidKeyException e) {
+            throw SpecRenderer.parseFailure(e);
+        }
+    }
+
+    /**
+     * Parse the header of a specification and split out the sources of its sections.
+     *
+     * @param reader Reader containing the specification.
+     * @return Sectioned sheet music.
+     * @throws RenderException Unable to read or parse the specification.
+     */
+    private static SectionedSheetMusic parseSections(final Reader reader) throws RenderException {
+        try {
+            return SheetMusicParser.parseSections(reader);
+        } catch (IOException e) {
+            throw new RenderException("Can't read specification", e);
+        } catch (ExtractionException | InvalidKeyException e) {
+            throw SpecRenderer.parseFailure(e);
+        }
+    }
+
+    /**
+     * Find the rendered lines of a section.
+     *
+     * @param key Section and how it is rendered.
+     * @return Lines of the section, or null if it hasn't been rendered.
+     */
+    private List<String> get(final RenderedSection key) {
+        final List<String> lines;
+        synchronized (this.rendered) {
+            lines = this.rendered.get(key);
+        }
+        if (lines != null) hits.incrementAndGet();
+        else misses.incrementAndGet();
+        return lines;
+    }
+
+    /**
+     * Add the rendered lines of a section.
+     *
+     * @param key Section and how it is rendered.
+     * @param lines Lines of the section.
+     */
+    private void put(final RenderedSection key,
+                     final List<String> lines) {
+        synchronized (this.rendered) {
+            this.rendered.put(key, lines);
+        }
+    }
+
+    /**
+     * Get the number of sections spliced in from the cache.
+     *
+     * @return Number of hits.
+     */
+    long getHits() { return hits.get(); }
+
+    /**
+     * Get the number of sections that had to be rendered.
+     *
+     * @return Number of misses.
+     */
+    long getMisses() { return misses.get(); }
+
+    /**
+     * Get the number of sections in the cache.
+     *
+     * @return Number of sections.
+     */
+    int size() {
+        synchronized (this.rendered) {
+            return this.rendered.size();
+        }
+    }
+}
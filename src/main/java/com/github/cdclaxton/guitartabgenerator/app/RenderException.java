@@ -0,0 +1,7 @@
+package com.github.cdclaxton.guitartabgenerator.app;
+
+public class RenderException extends Exception {
+    public RenderException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
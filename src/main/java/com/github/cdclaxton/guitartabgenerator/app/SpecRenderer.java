@@ -0,0 +1,533 @@
+package com.github.cdclaxton.guitartabgenerator.app;
+
+import com.github.cdclaxton.guitartabgenerator.music.*;
+import com.github.cdclaxton.guitartabgenerator.sheetmusic.Header;
+import com.github.cdclaxton.guitartabgenerator.sheetmusic.Section;
+import com.github.cdclaxton.guitartabgenerator.sheetmusic.SheetMusic;
+import com.github.cdclaxton.guitartabgenerator.sheetmusic.SheetMusicTransposition;
+import com.github.cdclaxton.guitartabgenerator.tabparser.ExtractionException;
+import com.github.cdclaxton.guitartabgenerator.tabparser.ParsedSongCache;
+import com.github.cdclaxton.guitartabgenerator.tabparser.SheetMusicParser;
+import com.github.cdclaxton.guitartabgenerator.tabparser.SheetMusicStream;
+import com.github.cdclaxton.guitartabgenerator.tabwriter.AsyncTabWriter;
+import com.github.cdclaxton.guitartabgenerator.tabwriter.LineSink;
+import com.github.cdclaxton.guitartabgenerator.tabwriter.StreamingTabWriter;
+import com.github.cdclaxton.guitartabgenerator.tabwriter.TabBuildingException;
+import com.github.cdclaxton.guitartabgenerator.tabwriter.TabSheetMusicBuilder;
+import com.github.cdclaxton.guitartabgenerator.tabwriter.TabSheetMusicWriter;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Runs the parse, transpose, build and write steps for a single specification file.
+ * <p>
+ * Unlike the single file path in GuitarTabGenerator, failures are reported as a RenderException rather than by
+ * exiting, so that one bad file doesn't stop the others from being rendered.
+ */
+final class SpecRenderer {
+
+    private SpecRenderer() {}
+
+    /**
+     * Render the tab for a specification file and write it to the output folder.
+     *
+     * @param specFile Specification file.
+     * @param transposeKey Musical key to transpose to (if required).
+     * @param up Transpose up?
+     * @param outputFolder Folder where the tab will be written.
+     * @param config Config.
+     * @return Path of the written tab.
+     * @throws RenderException Unable to render the tab.
+     */
+    static String renderSpec(final File specFile,
+                             final Optional<String> transposeKey,
+                             final boolean up,
+                             final String outputFolder,
+                             final Config config) throws RenderException {
+
+        return SpecRenderer.write(SpecRenderer.parseAndTranspose(specFile, transposeKey, up, config), outputFolder,
+                config);
+    }
+
+    /**
+     * Render the tab for a specification file and queue it to be written to the output folder.
+     * <p>
+     * The tab is built on the calling thread and written by the asynchronous writer, so the caller can move on to the
+     * next file whilst the tab is written.
+     *
+     * @param specFile Specification file.
+     * @param transposeKey Musical key to transpose to (if required).
+     * @param up Transpose up?
+     * @param outputFolder Folder where the tab will be written.
+     * @param config Config.
+     * @param writer Asynchronous writer.
+     * @return Future that completes with the path of the written tab, or with a RenderException if it couldn't be
+     * written.
+     * @throws RenderException Unable to render the tab.
+     */
+    static CompletableFuture<String> renderSpec(final File specFile,
+                                                final Optional<String> transposeKey,
+                                                final boolean up,
+                                                final String outputFolder,
+                                                final Config config,
+                                                final AsyncTabWriter writer) throws RenderException {
+
+        return SpecRenderer.write(SpecRenderer.parseAndTranspose(specFile, transposeKey, up, config), outputFolder,
+                config, writer);
+    }
+
+    /**
+     * Build the tab for the sheet music and queue it to be written to the output folder, as set in the config.
+     * <p>
+     * The tab is built on the calling thread and written by the asynchronous writer.
+     *
+     * @param sheetMusic Sheet music.
+     * @param outputFolder Folder where the tab will be written.
+     * @param config Config.
+     * @param writer Asynchronous writer.
+     * @return Future that completes with the path of the written tab, or with a RenderException if it couldn't be
+     * written.
+     * @throws RenderException Unable to build the tab.
+     */
+    static CompletableFuture<String> write(final SheetMusic sheetMusic,
+                                           final String outputFolder,
+                                           final Config config,
+                                           final AsyncTabWriter writer) throws RenderException {
+
+        final List<String> tab = SpecRenderer.build(sheetMusic, config.getPageWidth(), config.getRenderExecutor(),
+                config.getLineBreaking());
+        final String filePath = SpecRenderer.tabFilePath(sheetMusic, outputFolder);
+
+        final CompletableFuture<String> written = new CompletableFuture<>();
+        writer.write(tab, filePath).whenComplete((path, e) -> {
+            if (e == null) written.complete(path);
+            else written.completeExceptionally(new RenderException("Can't write file to: " + filePath, e));
+        });
+        return written;
+    }
+
+    /**
+     * Parse a specification file and transpose it (if required).
+     *
+     * @param specFile Specification file.
+     * @param transposeKey Musical key to transpose to (if required).
+     * @param up Transpose up?
+     * @param config Config.
+     * @return Sheet music in the required key.
+     * @throws RenderException Unable to parse or transpose the sheet music.
+     */
+    static SheetMusic parseAndTranspose(final File specFile,
+                                        final Optional<String> transposeKey,
+                                        final boolean up,
+                                        final Config config) throws RenderException {
+
+        final SheetMusic sheetMusic = SpecRenderer.parse(specFile, config.getParsedSongCache());
+
+        return transposeKey.isPresent() ?
+                SpecRenderer.transpose(sheetMusic, transposeKey.get(), up, config.getMaxFret(),
+                        config.getRenderExecutor()) :
+                sheetMusic;
+    }
+
+    /**
+     * Render the tab for a specification file one section at a time and write it to the output folder.
+     * <p>
+     * Each section is parsed, transposed, laid out and written before the next is read, so memory use is bounded by
+     * the largest section rather than the length of the song. The tab is identical to that from renderSpec(). If a
+     * section fails, the partly written tab is deleted.
+     *
+     * @param specFile Specification file.
+     * @param transposeKey Musical key to transpose to (if required).
+     * @param up Transpose up?
+     * @param outputFolder Folder where the tab will be written.
+     * @param config Config.
+     * @return Path of the written tab.
+     * @throws RenderException Unable to render the tab.
+     */
+    static String renderSpecStreaming(final File specFile,
+                                      final Optional<String> transposeKey,
+                                      final boolean up,
+                                      final String outputFolder,
+                                      final Config config) throws RenderException {
+
+        try (SheetMusicStream stream = SpecRenderer.openStream(specFile)) {
+
+            // Work out the change of key (if any) from the header
+            final Header header = transposeKey.isPresent() ?
+                    SpecRenderer.transposeHeader(stream.getHeader(), transposeKey.get()) :
+                    stream.getHeader();
+            final Optional<KeyTransposition> keyTransposition = transposeKey.isPresent() ?
+                    Optional.of(SpecRenderer.keyTransposition(stream.getHeader(), transposeKey.get(), up)) :
+                    Optional.empty();
+
+            final String filePath = GuitarTabGenerator.buildTabFilename(header.getTitle(), header.getArtist(),
+                    header.getKey().getKey(), outputFolder);
+
+            // Write each section as soon as it has been read, deleting the partly written tab on failure
+            boolean written = false;
+            try {
+                try (StreamingTabWriter writer = new StreamingTabWriter(filePath, config.getPageWidth(),
+                        config.getLineBreaking())) {
+                    writer.writeHeader(header);
+
+                    Optional<Section> section;
+                    int sectionIndex = 0;
+                    while ((section = SpecRenderer.nextSection(stream, specFile)).isPresent()) {
+                        writer.writeSection(keyTransposition.isPresent() ?
+                                SpecRenderer.transposeSection(section.get(), sectionIndex, keyTransposition.get(),
+                                        config.getMaxFret()) :
+                                section.get());
+                        sectionIndex++;
+                    }
+                }
+                written = true;
+            } catch (TabBuildingException e) {
+                throw new RenderException("Unable to build guitar tab: " + e.getMessage(), e);
+            } catch (IOException e) {
+                throw new RenderException("Can't write file to: " + filePath, e);
+            } finally {
+                if (!written) new File(filePath).delete();
+            }
+
+            return filePath;
+        } catch (IOException e) {
+            throw new RenderException("Can't read specification file: " + specFile, e);
+        }
+    }
+
+    /**
+     * Open a specification file for streaming, reading its header.
+     *
+     * @param specFile Specification file.
+     * @return Stream positioned after the header.
+     * @throws RenderException Unable to read or parse the header.
+     */
+    private static SheetMusicStream openStream(final File specFile) throws RenderException {
+        try {
+            return SheetMusicStream.open(specFile);
+        } catch (IOException e) {
+            throw new RenderException("Can't read specification file: " + specFile, e);
+        } catch (ExtractionException | InvalidKeyException e) {
+            throw SpecRenderer.parseFailure(e);
+        }
+    }
+
+    /**
+     * Read the next section from a specification file.
+     *
+     * @param stream Stream over the specification file.
+     * @param specFile Specification file.
+     * @return Section, or empty if there are no more sections.
+     * @throws RenderException Unable to read or parse the section.
+     */
+    private static Optional<Section> nextSection(final SheetMusicStream stream,
+                                                 final File specFile) throws RenderException {
+        try {
+            return stream.nextSection();
+        } catch (IOException e) {
+            throw new RenderException("Can't read specification file: " + specFile, e);
+        } catch (ExtractionException | InvalidStringException | InvalidFretNumberException | InvalidTimingException |
+                InvalidChordException e) {
+            throw SpecRenderer.parseFailure(e);
+        }
+    }
+
+    /**
+     * Parse the sheet music from a specification file.
+     *
+     * @param specFile Specification file.
+     * @param cache Cache of parsed songs (if configured).
+     * @return Sheet music.
+     * @throws RenderException Unable to read or parse the file.
+     */
+    static SheetMusic parse(final File specFile,
+                            final Optional<ParsedSongCache> cache) throws RenderException {
+        try {
+            return cache.isPresent() ?
+                    cache.get().parseSheetMusic(specFile) :
+                    SheetMusicParser.parseSheetMusic(specFile);
+        } catch (IOException e) {
+            throw new RenderException("Can't read specification file: " + specFile, e);
+        } catch (ExtractionException | InvalidKeyException | InvalidStringException | InvalidFretNumberException |
+                InvalidTimingException | InvalidChordException e) {
+            throw SpecRenderer.parseFailure(e);
+        }
+    }
+
+    /**
+     * Parse the sheet music from a specification held in memory.
+     *
+     * @param spec Specification.
+     * @return Sheet music.
+     * @throws RenderException Unable to parse the specification.
+     */
+    static SheetMusic parse(final String spec) throws RenderException {
+        try {
+            return SheetMusicParser.parseSheetMusic(new StringReader(spec));
+        } catch (IOException e) {
+            throw new RenderException("Can't read specification", e);
+        } catch (ExtractionException | InvalidKeyException | InvalidStringException | InvalidFretNumberException |
+                InvalidTimingException | InvalidChordException e) {
+            throw SpecRenderer.parseFailure(e);
+        }
+    }
+
+    /**
+     * Describe why the specification couldn't be parsed.
+     *
+     * @param e Exception thrown by the parser.
+     * @return Render exception.
+     */
+    static RenderException parseFailure(final Exception e) {
+        final String reason;
+        if (e instanceof ExtractionException) reason = "Extraction exception: ";
+        else if (e instanceof InvalidKeyException) reason = "Invalid key: ";
+        else if (e instanceof InvalidStringException) reason = "Invalid string: ";
+        else if (e instanceof InvalidFretNumberException) reason = "Invalid fret number: ";
+        else if (e instanceof InvalidTimingException) reason = "Invalid timing: ";
+        else reason = "Invalid chord: ";
+        return new RenderException(reason + e.getMessage(), e);
+    }
+
+    /**
+     * Transpose the sheet music to a new key.
+     *
+     * @param sheetMusic Sheet music.
+     * @param newKey Musical key to transpose to.
+     * @param up Transpose up?
+     * @param maxFret Maximum fret number.
+     * @return Transposed sheet music.
+     * @throws RenderException Unable to transpose.
+     */
+    static SheetMusic transpose(final SheetMusic sheetMusic,
+                                final String newKey,
+                                final boolean up,
+                                final int maxFret) throws RenderException {
+        return SpecRenderer.transpose(sheetMusic, newKey, up, maxFret, Optional.empty());
+    }
+
+    /**
+     * Transpose the sheet music to a new key, optionally in parallel.
+     *
+     * @param sheetMusic Sheet music.
+     * @param newKey Musical key to transpose to.
+     * @param up Transpose up?
+     * @param maxFret Maximum fret number.
+     * @param executor Executor to transpose the bars on (sequential if empty).
+     * @return Transposed sheet music.
+     * @throws RenderException Unable to transpose.
+     */
+    static SheetMusic transpose(final SheetMusic sheetMusic,
+                                final String newKey,
+                                final boolean up,
+                                final int maxFret,
+                                final Optional<ExecutorService> executor) throws RenderException {
+        try {
+            return SheetMusicTransposition.transpose(sheetMusic, newKey, up, maxFret, executor);
+        } catch (InvalidKeyException e) {
+            throw new RenderException("Invalid key: " + e.getMessage(), e);
+        } catch (InvalidChordException e) {
+            throw new RenderException("Invalid chord: " + e.getMessage(), e);
+        } catch (TranspositionException e) {
+            throw new RenderException("Unable to transpose: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Transpose the header of the sheet music to a new key.
+     *
+     * @param header Header.
+     * @param newKey Musical key to transpose to.
+     * @return Transposed header.
+     * @throws RenderException Invalid key.
+     */
+    static Header transposeHeader(final Header header,
+                                  final String newKey) throws RenderException {
+        try {
+            return SheetMusicTransposition.transposeHeader(header, newKey);
+        } catch (InvalidKeyException e) {
+            throw new RenderException("Invalid key: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Work out the change of key for the sheet music.
+     *
+     * @param header Header (in the current key).
+     * @param newKey Musical key to transpose to.
+     * @param up Transpose up?
+     * @return Change of key.
+     * @throws RenderException Unable to transpose between the keys.
+     */
+    static KeyTransposition keyTransposition(final Header header,
+                                             final String newKey,
+                                             final boolean up) throws RenderException {
+        try {
+            return KeyTransposition.between(header.getKey().getKey(), newKey, up);
+        } catch (TranspositionException e) {
+            throw new RenderException("Unable to transpose: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Transpose a section of the sheet music to a new key.
+     *
+     * @param section Section.
+     * @param sectionIndex Index of the section in the song.
+     * @param keyTransposition Change of key.
+     * @param maxFret Maximum fret number.
+     * @return Transposed section.
+     * @throws RenderException Unable to transpose.
+     */
+    static Section transposeSection(final Section section,
+                                    final int sectionIndex,
+                                    final KeyTransposition keyTransposition,
+                                    final int maxFret) throws RenderException {
+        try {
+            return SheetMusicTransposition.transposeSection(section, sectionIndex, keyTransposition, maxFret);
+        } catch (InvalidChordException e) {
+            throw new RenderException("Invalid chord: " + e.getMessage(), e);
+        } catch (TranspositionException e) {
+            throw new RenderException("Unable to transpose: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Build the tab for the sheet music (with greedy line breaking).
+     *
+     * @param sheetMusic Sheet music.
+     * @param pageWidth Page width (in characters).
+     * @return Lines of tab.
+     * @throws RenderException Unable to build the tab.
+     */
+    static List<String> build(final SheetMusic sheetMusic,
+                              final int pageWidth) throws RenderException {
+        return SpecRenderer.build(sheetMusic, pageWidth, Optional.empty(), TabSheetMusicBuilder.LineBreaking.Greedy);
+    }
+
+    /**
+     * Build the tab for the sheet music, optionally laying out the sections in parallel.
+     *
+     * @param sheetMusic Sheet music.
+     * @param pageWidth Page width (in characters).
+     * @param executor Executor to lay out the sections on (sequential if empty).
+     * @param lineBreaking How the bars of each section are broken into systems.
+     * @return Lines of tab.
+     * @throws RenderException Unable to build the tab.
+     */
+    static List<String> build(final SheetMusic sheetMusic,
+                              final int pageWidth,
+                              final Optional<ExecutorService> executor,
+                              final TabSheetMusicBuilder.LineBreaking lineBreaking) throws RenderException {
+        try {
+            return TabSheetMusicBuilder.buildTabSheetMusic(sheetMusic, pageWidth, executor, lineBreaking);
+        } catch (TabBuildingException e) {
+            throw new RenderException("Unable to build guitar tab: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Build the tab for the sheet music straight into a string builder (one line per row with a trailing line feed),
+     * optionally laying out the sections in parallel.
+     *
+     * @param sheetMusic Sheet music.
+     * @param pageWidth Page width (in characters).
+     * @param executor Executor to lay out the sections on (sequential if empty).
+     * @param lineBreaking How the bars of each section are broken into systems.
+     * @param tab String builder to append the tab to.
+     * @throws RenderException Unable to build the tab.
+     */
+    static void build(final SheetMusic sheetMusic,
+                      final int pageWidth,
+                      final Optional<ExecutorService> executor,
+                      final TabSheetMusicBuilder.LineBreaking lineBreaking,
+                      final StringBuilder tab) throws RenderException {
+        try {
+            TabSheetMusicBuilder.render(sheetMusic, pageWidth, executor, lineBreaking, LineSink.of(tab));
+        } catch (TabBuildingException e) {
+            throw new RenderException("Unable to build guitar tab: " + e.getMessage(), e);
+        } catch (IOException e) {
+            throw new IllegalStateException("Appending to a string builder failed!", e);
+        }
+    }
+
+    /**
+     * Build the tab for the sheet music and write it to the output folder (with greedy line breaking).
+     *
+     * @param sheetMusic Sheet music.
+     * @param outputFolder Folder where the tab will be written.
+     * @param pageWidth Page width (in characters).
+     * @return Path of the written tab.
+     * @throws RenderException Unable to build or write the tab.
+     */
+    static String write(final SheetMusic sheetMusic,
+                        final String outputFolder,
+                        final int pageWidth) throws RenderException {
+
+        final String filePath = SpecRenderer.tabFilePath(sheetMusic, outputFolder);
+        SpecRenderer.writeTab(SpecRenderer.build(sheetMusic, pageWidth), filePath, false);
+        return filePath;
+    }
+
+    /**
+     * Build the tab for the sheet music and write it to the output folder, as set in the config.
+     * <p>
+     * The sections are laid out on the config's render executor (if there is one) with the config's line breaking,
+     * and the tab is written atomically if the config asks for it.
+     *
+     * @param sheetMusic Sheet music.
+     * @param outputFolder Folder where the tab will be written.
+     * @param config Config.
+     * @return Path of the written tab.
+     * @throws RenderException Unable to build or write the tab.
+     */
+    static String write(final SheetMusic sheetMusic,
+                        final String outputFolder,
+                        final Config config) throws RenderException {
+
+        final String filePath = SpecRenderer.tabFilePath(sheetMusic, outputFolder);
+        SpecRenderer.writeTab(SpecRenderer.build(sheetMusic, config.getPageWidth(), config.getRenderExecutor(),
+                config.getLineBreaking()), filePath, config.isAtomicWrites());
+        return filePath;
+    }
+
+    /**
+     * Build the path of the tab file for the sheet music.
+     *
+     * @param sheetMusic Sheet music.
+     * @param outputFolder Folder where the tab will be written.
+     * @return Path of the tab file.
+     */
+    static String tabFilePath(final SheetMusic sheetMusic,
+                              final String outputFolder) {
+        return GuitarTabGenerator.buildTabFilename(sheetMusic.getHeader().getTitle(),
+                sheetMusic.getHeader().getArtist(),
+                sheetMusic.getHeader().getKey().getKey(),
+                outputFolder);
+    }
+
+    /**
+     * Write the lines of tab to a file.
+     *
+     * @param tab Lines of tab.
+     * @param filePath Path of the file to write.
+     * @param atomic Write to a temporary file and rename it?
+     * @throws RenderException Unable to write the file.
+     */
+    static void writeTab(final List<String> tab,
+                         final String filePath,
+                         final boolean atomic) throws RenderException {
+        try {
+            TabSheetMusicWriter.writeLines(tab, filePath, atomic);
+        } catch (IOException e) {
+            throw new RenderException("Can't write file to: " + filePath, e);
+        }
+    }
+
+}
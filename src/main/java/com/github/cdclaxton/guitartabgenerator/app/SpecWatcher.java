@@ -0,0 +1,314 @@
+package com.github.cdclaxton.guitartabgenerator.app;
+
+import com.github.cdclaxton.guitartabgenerator.metrics.LatencyHistogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * Watches a folder of specification files and re-renders the tab for each file that changes.
+ * <p>
+ * Editors and file copies raise several events per file, so events are collected until the folder has been quiet for
+ * the debounce period and each changed file is then rendered once. The files are rendered on a small pool of worker
+ * threads by an IncrementalRenderer, which keeps the rendered sections of each song in memory between events, so only
+ * the sections that have been edited are parsed and laid out again. A file that changes whilst it is being rendered is
+ * rendered again afterwards (never twice at the same time). The latency of each render (from the first event of the
+ * burst to the tab being written) and the number of files waiting are logged.
+ */
+final class SpecWatcher implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(SpecWatcher.class);
+
+    // Default number of worker threads
+    static final int defaultThreads = 2;
+
+    // Default time the folder has to be quiet before the changed files are rendered (in milliseconds)
+    static final long defaultDebounceMillis = 200;
+
+    private static final int queueCapacity = 1024;
+    private static final String specExtension = ".txt";
+
+    // Marks a scheduled file that is being rendered (and hasn't changed since its render started)
+    private static final long rendering = Long.MIN_VALUE;
+
+    private final Path folder;
+    private final Optional<String> transposeKey;
+    private final boolean up;
+    private final String outputFolder;
+    private final Config config;
+    private final long debounceMillis;
+
+    private final WatchService watchService;
+    private final ThreadPoolExecutor executor;
+    private final IncrementalRenderer renderer = new IncrementalRenderer(IncrementalRenderer.defaultMaxSections);
+
+    // Files that are waiting or being rendered, mapped to when they changed (or rendering)
+    private final Map<Path, Long> scheduled = new HashMap<>();
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final AtomicLong numberRendered = new AtomicLong();
+    private final AtomicLong numberFailed = new AtomicLong();
+
+    /**
+     * Instantiate a watcher over a folder (and its sub-folders).
+     *
+     * @param folder Folder of specification files.
+     * @param transposeKey Musical key to transpose to (if required).
+     * @param up Transpose up?
+     * @param outputFolder Folder where the tabs will be written.
+     * @param config Config.
+     * @param nThreads Number of worker threads.
+     * @param debounceMillis Time the folder has to be quiet before the changed files are rendered.
+     * @throws IOException Unable to watch the folder.
+     */
+    SpecWatcher(final String folder,
+                final Optional<String> transposeKey,
+                final boolean up,
+                final String outputFolder,
+                final Config config,
+                final int nThreads,
+                final long debounceMillis) throws IOException {
+
+        this.folder = Paths.get(folder).toAbsolutePath();
+        this.transposeKey = transposeKey;
+        this.up = up;
+        this.outputFolder = outputFolder;
+        this.config = config;
+        this.debounceMillis = debounceMillis;
+
+        this.watchService = this.folder.getFileSystem().newWatchService();
+
+        // Bounded pool; when the queue is full the watching thread renders the file itself
+        this.executor = new ThreadPoolExecutor(nThreads, nThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    final Thread thread = new Thread(runnable, "spec-watcher");
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * Render every specification file in the folder and then re-render the files as they change, until the watcher
+     * is closed or the thread is interrupted.
+     *
+     * @throws IOException Unable to watch the folder.
+     */
+    void run() throws IOException {
+
+        logger.info("Watching " + this.folder + " for changes using " + this.executor.getMaximumPoolSize() +
+                " threads");
+        try {
+            this.scheduleAll(this.folder, System.nanoTime());
+
+            while (true) {
+                // Wait for a change and then collect events until the folder is quiet
+                final Map<Path, Long> changed = new LinkedHashMap<>();
+                WatchKey key = this.watchService.take();
+                while (key != null) {
+                    this.collect(key, changed);
+                    key = this.watchService.poll(this.debounceMillis, TimeUnit.MILLISECONDS);
+                }
+
+                for (Map.Entry<Path, Long> entry : changed.entrySet()) {
+                    this.schedule(entry.getKey(), entry.getValue());
+                }
+            }
+        } catch (ClosedWatchServiceException e) {
+            // The watcher has been closed
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Collect the specification files that have changed from the events of a watch key.
+     *
+     * @param key Watch key.
+     * @param changed Changed files, mapped to when the first event for each was seen.
+     * @throws IOException Unable to watch a new folder.
+     */
+    private void collect(final WatchKey key,
+                         final Map<Path, Long> changed) throws IOException {
+
+        final long now = System.nanoTime();
+        final Path watched = (Path) key.watchable();
+
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW) {
+                // Events have been lost, so render everything again
+                logger.warn("Missed changes to " + watched + ", rendering all of its files again");
+                this.scheduleAll(watched, now);
+                continue;
+            }
+            if (event.kind() == ENTRY_DELETE) continue;
+
+            final Path path = watched.resolve((Path) event.context());
+            if (Files.isDirectory(path)) {
+                this.scheduleAll(path, now);
+            } else if (SpecWatcher.isSpecFile(path)) {
+                changed.putIfAbsent(path, now);
+            }
+        }
+
+        if (!key.reset()) logger.info("No longer watching: " + watched);
+    }
+
+    /**
+     * Watch a folder and its sub-folders and schedule each of their specification files to be rendered.
+     *
+     * @param start Folder.
+     * @param changed When the files changed.
+     * @throws IOException Unable to watch a folder.
+     */
+    private void scheduleAll(final Path start,
+                             final long changed) throws IOException {
+
+        final List<Path> specFiles = new ArrayList<>();
+        try (Stream<Path> paths = Files.walk(start)) {
+            for (Path path : (Iterable<Path>) paths::iterator) {
+                if (Files.isDirectory(path)) {
+                    path.register(this.watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+                } else if (SpecWatcher.isSpecFile(path)) {
+                    specFiles.add(path);
+                }
+            }
+        } catch (NoSuchFileException e) {
+            // The folder has been removed since the event
+            return;
+        }
+
+        Collections.sort(specFiles);
+        for (Path path : specFiles) {
+            this.schedule(path, changed);
+        }
+    }
+
+    /**
+     * Schedule a specification file to be rendered, unless it is already waiting to be.
+     *
+     * @param specFile Specification file.
+     * @param changed When the file changed.
+     */
+    private void schedule(final Path specFile,
+                          final long changed) {
+
+        synchronized (this.scheduled) {
+            final Long previous = this.scheduled.put(specFile, changed);
+
+            // A waiting file will read the change when it's rendered; a file being rendered is rendered again after
+            if (previous != null) {
+                if (previous != rendering) this.scheduled.put(specFile, previous);
+                return;
+            }
+        }
+        this.executor.execute(() -> this.render(specFile));
+    }
+
+    /**
+     * Render a specification file, and again if it changes whilst it is being rendered.
+     *
+     * @param specFile Specification file.
+     */
+    private void render(final Path specFile) {
+        while (true) {
+            final long changed;
+            synchronized (this.scheduled) {
+                changed = this.scheduled.put(specFile, rendering);
+            }
+
+            final long start = System.nanoTime();
+            try {
+                final String tabFile = this.renderer.renderSpec(specFile.toFile(), this.transposeKey, this.up,
+                        this.outputFolder, this.config);
+                final long end = System.nanoTime();
+                this.latency.record(end - changed);
+                this.numberRendered.incrementAndGet();
+                logger.info("OK     " + specFile + " -> " + tabFile + " in " + SpecWatcher.millis(end - start) +
+                        " ms (" + SpecWatcher.millis(end - changed) + " ms after the change, " +
+                        this.executor.getQueue().size() + " files queued)");
+            } catch (RenderException | RuntimeException e) {
+                this.numberFailed.incrementAndGet();
+                logger.error("FAILED " + specFile + " - " + e.getMessage() + " (" +
+                        this.executor.getQueue().size() + " files queued)");
+            }
+
+            synchronized (this.scheduled) {
+                if (this.scheduled.get(specFile) == rendering) {
+                    this.scheduled.remove(specFile);
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Is a file a specification file?
+     *
+     * @param path Path of the file.
+     * @return True if the file should be rendered.
+     */
+    private static boolean isSpecFile(final Path path) {
+        return path.getFileName().toString().endsWith(specExtension) && !path.getFileName().toString().startsWith(".");
+    }
+
+    /**
+     * Convert nanoseconds to milliseconds (to one decimal place).
+     *
+     * @param nanos Nanoseconds.
+     * @return Milliseconds.
+     */
+    private static String millis(final long nanos) {
+        return String.format("%.1f", nanos / 1e6);
+    }
+
+    /**
+     * Get the number of tabs written.
+     *
+     * @return Number of tabs written.
+     */
+    long getNumberRendered() { return numberRendered.get(); }
+
+    /**
+     * Get the number of renders that failed.
+     *
+     * @return Number of failures.
+     */
+    long getNumberFailed() { return numberFailed.get(); }
+
+    /**
+     * Get the latency of the renders, from the change to the tab being written.
+     *
+     * @return Latency histogram.
+     */
+    LatencyHistogram getLatency() { return latency; }
+
+    /**
+     * Stop watching and wait for the files being rendered to be written.
+     *
+     * @throws IOException Unable to stop watching, or interrupted whilst waiting.
+     */
+    @Override
+    public void close() throws IOException {
+        this.watchService.close();
+        this.executor.shutdown();
+        try {
+            this.executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            this.executor.shutdownNow();
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted whilst waiting for tabs to be written");
+        }
+    }
+}
@@ -0,0 +1,328 @@
+package com.github.cdclaxton.guitartabgenerator.app;
+
+import com.github.cdclaxton.guitartabgenerator.metrics.LatencyHistogram;
+import com.github.cdclaxton.guitartabgenerator.metrics.Metrics;
+import com.github.cdclaxton.guitartabgenerator.sheetmusic.SheetMusic;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Long-running local HTTP server that renders tab, so that the JVM stays warm between requests.
+ * <p>
+ * POST /render with the specification as the body and the optional query parameters key (to transpose to),
+ * direction (up or down, default up) and width (page width from 1 to 1000, default from the config). The tab is
+ * returned as plain text. GET /metrics returns the request counts, spec cache hit rate, request latency histogram and
+ * the metrics of the parse, transpose, layout and write stages (see Metrics) as JSON.
+ * <p>
+ * Parsed sheet music is cached by the SHA-256 hash of the specification, so re-rendering a spec (e.g. in a different
+ * key) skips the parser.
+ */
+final class TabServer {
+
+    private static final Logger logger = LoggerFactory.getLogger(TabServer.class);
+
+    static final int defaultCacheSize = 256;
+    private static final int queueCapacity = 1024;
+
+    // Largest page width a request can ask for (in characters)
+    static final int maxPageWidth = 1000;
+
+    private final Config config;
+    private final HttpServer server;
+    private final ThreadPoolExecutor executor;
+    private final Map<String, SheetMusic> specCache;
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final AtomicLong numberRequests = new AtomicLong();
+    private final AtomicLong numberFailed = new AtomicLong();
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong cacheMisses = new AtomicLong();
+
+    /**
+     * Instantiate a server bound to the loopback address.
+     *
+     * @param config Config.
+     * @param port Port to listen on (0 for any free port).
+     * @param nThreads Number of request threads.
+     * @param cacheSize Maximum number of parsed specifications to cache.
+     * @throws IOException Unable to bind to the port.
+     */
+    TabServer(final Config config,
+              final int port,
+              final int nThreads,
+              final int cacheSize) throws IOException {
+
+        this.config = config;
+        this.specCache = Collections.synchronizedMap(new LinkedHashMap<String, SheetMusic>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, SheetMusic> eldest) {
+                return size() > cacheSize;
+            }
+        });
+
+        // Bounded pool; when the queue is full the accepting thread renders the request itself, which slows the
+        // rate that new connections are accepted
+        this.executor = new ThreadPoolExecutor(nThreads, nThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new ThreadPoolExecutor.CallerRunsPolicy());
+
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        this.server.createContext("/render", this::handleRender);
+        this.server.createContext("/metrics", this::handleMetrics);
+        this.server.setExecutor(this.executor);
+    }
+
+    /**
+     * Start serving requests.
+     */
+    void start() {
+        server.start();
+        logger.info("Serving tab on http://" + server.getAddress().getHostString() + ":" + getPort() +
+                "/render using " + executor.getMaximumPoolSize() + " threads");
+    }
+
+    /**
+     * Stop serving requests.
+     */
+    void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    /**
+     * Get the port the server is listening on.
+     *
+     * @return Port.
+     */
+    int getPort() { return server.getAddress().getPort(); }
+
+    /**
+     * Render the specification in the request body.
+     *
+     * @param exchange HTTP exchange.
+     * @throws IOException Unable to read the request or write the response.
+     */
+    private void handleRender(final HttpExchange exchange) throws IOException {
+        final long start = System.nanoTime();
+        numberRequests.incrementAndGet();
+
+        try {
+            if (!exchange.getRequestMethod().equals("POST")) {
+                respond(exchange, 405, "Use POST with the specification as the body\n");
+                return;
+            }
+
+            final Map<String, String> params = parseQuery(exchange.getRequestURI().getRawQuery());
+            final Optional<String> key = Optional.ofNullable(params.get("key"));
+            final String direction = params.getOrDefault("direction", "up");
+            if (!direction.equals("up") && !direction.equals("down")) {
+                respond(exchange, 400, "Direction must be up or down: " + direction + "\n");
+                return;
+            }
+
+            final int pageWidth;
+            try {
+                pageWidth = params.containsKey("width") ? Integer.parseInt(params.get("width")) : config.getPageWidth();
+            } catch (NumberFormatException e) {
+                respond(exchange, 400, "Invalid page width: " + params.get("width") + "\n");
+                return;
+            }
+            if (pageWidth < 1 || pageWidth > maxPageWidth) {
+                respond(exchange, 400, "Page width must be from 1 to " + maxPageWidth + ": " + pageWidth + "\n");
+                return;
+            }
+
+            final String spec = new String(readAll(exchange.getRequestBody()), StandardCharsets.UTF_8);
+
+            final String tab;
+            try {
+                tab = render(spec, key, direction.equals("up"), pageWidth);
+            } catch (RenderException e) {
+                respond(exchange, 400, e.getMessage() + "\n");
+                return;
+            }
+
+            respond(exchange, 200, tab);
+        } catch (RuntimeException e) {
+            logger.error("Unable to render request: " + e);
+            respond(exchange, 500, "Internal error\n");
+        } finally {
+            latency.record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Render the tab for a specification.
+     *
+     * @param spec Specification.
+     * @param key Musical key to transpose to (if required).
+     * @param up Transpose up?
+     * @param pageWidth Page width (in characters).
+     * @return Tab, one line per row with a trailing line feed (as written to a file).
+     * @throws RenderException Unable to render the tab.
+     */
+    String render(final String spec,
+                  final Optional<String> key,
+                  final boolean up,
+                  final int pageWidth) throws RenderException {
+
+        final SheetMusic sheetMusic = parseCached(spec);
+
+        final SheetMusic sheetMusicInRequiredKey = key.isPresent() ?
+                SpecRenderer.transpose(sheetMusic, key.get(), up, config.getMaxFret(), config.getRenderExecutor()) :
+                sheetMusic;
+
+        final StringBuilder tab = new StringBuilder();
+        SpecRenderer.build(sheetMusicInRequiredKey, pageWidth, config.getRenderExecutor(), config.getLineBreaking(),
+                tab);
+        return tab.toString();
+    }
+
+    /**
+     * Parse the specification, using the cached sheet music if the same specification has been seen before.
+     *
+     * @param spec Specification.
+     * @return Sheet music.
+     * @throws RenderException Unable to parse the specification.
+     */
+    private SheetMusic parseCached(final String spec) throws RenderException {
+        final String hash = sha256(spec);
+
+        final SheetMusic cached = specCache.get(hash);
+        if (cached != null) {
+            cacheHits.incrementAndGet();
+            return cached;
+        }
+
+        cacheMisses.incrementAndGet();
+        final SheetMusic sheetMusic = SpecRenderer.parse(spec);
+        specCache.put(hash, sheetMusic);
+        return sheetMusic;
+    }
+
+    /**
+     * Report the server metrics.
+     *
+     * @param exchange HTTP exchange.
+     * @throws IOException Unable to write the response.
+     */
+    private void handleMetrics(final HttpExchange exchange) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        respond(exchange, 200, metricsJson() + "\n");
+    }
+
+    /**
+     * Render the server metrics as a JSON object.
+     *
+     * @return JSON.
+     */
+    String metricsJson() {
+        return "{\"requests\":" + numberRequests.get() +
+                ",\"failed\":" + numberFailed.get() +
+                ",\"specCache\":{\"hits\":" + cacheHits.get() + ",\"misses\":" + cacheMisses.get() +
+                ",\"size\":" + specCache.size() + "}" +
+                ",\"stages\":" + Metrics.toJson() +
+                ",\"queued\":" + executor.getQueue().size() +
+                ",\"latency\":" + latency.toJson() + "}";
+    }
+
+    /**
+     * Send a plain text response (unless a content type has already been set).
+     *
+     * @param exchange HTTP exchange.
+     * @param status HTTP status code.
+     * @param body Response body.
+     * @throws IOException Unable to write the response.
+     */
+    private void respond(final HttpExchange exchange,
+                         final int status,
+                         final String body) throws IOException {
+
+        if (status >= 400) numberFailed.incrementAndGet();
+
+        final byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        if (!exchange.getResponseHeaders().containsKey("Content-Type")) {
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        }
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Parse a URL query string.
+     *
+     * @param rawQuery Raw (encoded) query, may be null.
+     * @return Parameter values by name.
+     */
+    static Map<String, String> parseQuery(final String rawQuery) {
+        final Map<String, String> params = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) return params;
+
+        for (String pair : rawQuery.split("&")) {
+            final int equals = pair.indexOf('=');
+            if (equals < 0) continue;
+            try {
+                params.put(URLDecoder.decode(pair.substring(0, equals), "UTF-8"),
+                        URLDecoder.decode(pair.substring(equals + 1), "UTF-8"));
+            } catch (IOException e) {
+                throw new IllegalStateException("UTF-8 is not supported", e);
+            }
+        }
+        return params;
+    }
+
+    /**
+     * Read an input stream to the end.
+     *
+     * @param input Input stream.
+     * @return Bytes read.
+     * @throws IOException Unable to read the stream.
+     */
+    private static byte[] readAll(final InputStream input) throws IOException {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[8192];
+        int n;
+        while ((n = input.read(buffer)) != -1) {
+            output.write(buffer, 0, n);
+        }
+        return output.toByteArray();
+    }
+
+    /**
+     * Hash a specification.
+     *
+     * @param spec Specification.
+     * @return Hex-encoded SHA-256 hash of the UTF-8 bytes.
+     */
+    static String sha256(final String spec) {
+        try {
+            final byte[] digest = MessageDigest.getInstance("SHA-256").digest(spec.getBytes(StandardCharsets.UTF_8));
+            final StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+    }
+}
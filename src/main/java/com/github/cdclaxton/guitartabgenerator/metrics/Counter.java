@@ -0,0 +1,41 @@
+package com.github.cdclaxton.guitartabgenerator.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Count of events, e.g. the number of systems laid out. Nothing is counted whilst metrics are disabled.
+ */
+public final class Counter {
+
+    private final LongAdder count = new LongAdder();
+
+    Counter() {}
+
+    /**
+     * Add to the count (if metrics are enabled).
+     *
+     * @param n Number of events.
+     */
+    public void add(final long n) {
+        if (Metrics.isEnabled()) count.add(n);
+    }
+
+    /**
+     * Add one to the count (if metrics are enabled).
+     */
+    public void increment() {
+        this.add(1);
+    }
+
+    /**
+     * Get the count.
+     *
+     * @return Count.
+     */
+    public long get() { return count.sum(); }
+
+    /**
+     * Set the count back to zero.
+     */
+    void reset() { count.reset(); }
+}
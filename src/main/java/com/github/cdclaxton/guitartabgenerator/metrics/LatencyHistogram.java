@@ -0,0 +1,128 @@
+package com.github.cdclaxton.guitartabgenerator.metrics;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread-safe histogram of latencies with power-of-two microsecond buckets.
+ * <p>
+ * Bucket i counts the latencies below 2^i microseconds (and at least 2^(i-1)); the last bucket is unbounded.
+ * Percentiles are reported as the upper bound of the bucket they fall in, so they are accurate to a factor of two.
+ */
+public final class LatencyHistogram {
+
+    private static final int numberBuckets = 32;
+
+    private final AtomicLongArray counts = new AtomicLongArray(numberBuckets);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /**
+     * Record a latency.
+     *
+     * @param nanos Latency (in nanoseconds).
+     */
+    public void record(final long nanos) {
+        final long micros = Math.max(nanos, 0) / 1000;
+        final int bucket = Math.min(64 - Long.numberOfLeadingZeros(micros), numberBuckets - 1);
+
+        counts.incrementAndGet(bucket);
+        count.incrementAndGet();
+        totalNanos.addAndGet(nanos);
+        maxNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    /**
+     * Get the number of latencies recorded.
+     *
+     * @return Count.
+     */
+    public long getCount() { return count.get(); }
+
+    /**
+     * Get the mean latency.
+     *
+     * @return Mean latency in milliseconds.
+     */
+    public double meanMillis() {
+        final long n = count.get();
+        return n == 0 ? 0.0 : totalNanos.get() / 1e6 / n;
+    }
+
+    /**
+     * Get the maximum latency.
+     *
+     * @return Maximum latency in milliseconds.
+     */
+    public double maxMillis() { return maxNanos.get() / 1e6; }
+
+    /**
+     * Get a percentile of the latency (nearest-rank method, to the upper bound of the bucket).
+     *
+     * @param percentile Percentile in the range (0, 100].
+     * @return Latency in milliseconds.
+     */
+    public double percentileMillis(final double percentile) {
+        final long n = count.get();
+        if (n == 0) return 0.0;
+
+        final long rank = Math.max((long) Math.ceil(percentile / 100.0 * n), 1);
+        long cumulative = 0;
+        for (int i = 0; i < numberBuckets - 1; i++) {
+            cumulative += counts.get(i);
+            if (cumulative >= rank) return Math.min(upperBoundMillis(i), maxMillis());
+        }
+        return maxMillis();
+    }
+
+    /**
+     * Render the histogram as a JSON object.
+     *
+     * @return JSON.
+     */
+    public String toJson() {
+        final StringBuilder json = new StringBuilder();
+        json.append("{\"count\":").append(getCount())
+                .append(",\"meanMs\":").append(formatMillis(meanMillis()))
+                .append(",\"p50Ms\":").append(formatMillis(percentileMillis(50)))
+                .append(",\"p90Ms\":").append(formatMillis(percentileMillis(90)))
+                .append(",\"p99Ms\":").append(formatMillis(percentileMillis(99)))
+                .append(",\"maxMs\":").append(formatMillis(maxMillis()))
+                .append(",\"buckets\":[");
+
+        boolean first = true;
+        for (int i = 0; i < numberBuckets; i++) {
+            final long bucketCount = counts.get(i);
+            if (bucketCount == 0) continue;
+            if (!first) json.append(',');
+            json.append("{\"ltMs\":")
+                    .append(i == numberBuckets - 1 ? "null" : formatMillis(upperBoundMillis(i)))
+                    .append(",\"count\":").append(bucketCount).append('}');
+            first = false;
+        }
+
+        return json.append("]}").toString();
+    }
+
+    /**
+     * Get the (exclusive) upper bound of a bucket.
+     *
+     * @param bucket Bucket index.
+     * @return Upper bound in milliseconds.
+     */
+    private static double upperBoundMillis(final int bucket) {
+        return (1L << bucket) / 1000.0;
+    }
+
+    /**
+     * Format a latency for JSON (independent of the default locale).
+     *
+     * @param millis Latency in milliseconds.
+     * @return Formatted latency.
+     */
+    static String formatMillis(final double millis) {
+        return String.format(Locale.ROOT, "%.3f", millis);
+    }
+}
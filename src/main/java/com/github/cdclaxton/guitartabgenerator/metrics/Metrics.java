@@ -0,0 +1,166 @@
+package com.github.cdclaxton.guitartabgenerator.metrics;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Registry of the metrics of the parse, transpose, layout and write stages.
+ * <p>
+ * The counters and timers are looked up by name once (and held in a static field by the class being measured), so
+ * recording a metric is a check of the enabled flag followed by an add to a LongAdder. Metrics are disabled by
+ * default, in which case nothing is recorded and the clock isn't read. Caches are registered with suppliers of their
+ * own hit and miss counts, which are only read when the registry is rendered as JSON.
+ */
+public final class Metrics {
+
+    // Value of start() whilst metrics are disabled
+    static final long disabled = Long.MIN_VALUE;
+
+    private static volatile boolean enabled = false;
+
+    private static final Map<String, Counter> counters = new ConcurrentSkipListMap<>();
+    private static final Map<String, Timer> timers = new ConcurrentSkipListMap<>();
+    private static final Map<String, CacheStats> caches = new ConcurrentSkipListMap<>();
+
+    /**
+     * Hit and miss counts (and optionally the size) of a cache.
+     */
+    private static final class CacheStats {
+        private final LongSupplier hits;
+        private final LongSupplier misses;
+        private final LongSupplier size;
+
+        private CacheStats(final LongSupplier hits,
+                           final LongSupplier misses,
+                           final LongSupplier size) {
+            this.hits = hits;
+            this.misses = misses;
+            this.size = size;
+        }
+
+        private String toJson() {
+            final long nHits = hits.getAsLong();
+            final long nMisses = misses.getAsLong();
+            final double hitRate = nHits + nMisses == 0 ? 0.0 : (double) nHits / (nHits + nMisses);
+            return "{\"hits\":" + nHits + ",\"misses\":" + nMisses +
+                    ",\"hitRate\":" + String.format(Locale.ROOT, "%.3f", hitRate) +
+                    (size != null ? ",\"size\":" + size.getAsLong() : "") + "}";
+        }
+    }
+
+    private Metrics() {}
+
+    /**
+     * Are metrics being recorded?
+     *
+     * @return True if enabled.
+     */
+    public static boolean isEnabled() { return enabled; }
+
+    /**
+     * Start or stop recording metrics.
+     *
+     * @param enable Record metrics?
+     */
+    public static void setEnabled(final boolean enable) { enabled = enable; }
+
+    /**
+     * Get (or register) a counter.
+     *
+     * @param name Name of the counter, e.g. layout.systems.
+     * @return Counter.
+     */
+    public static Counter counter(final String name) {
+        return counters.computeIfAbsent(name, n -> new Counter());
+    }
+
+    /**
+     * Get (or register) a timer.
+     *
+     * @param name Name of the stage, e.g. parse.
+     * @param unit Name of the items handled by the stage, e.g. bars.
+     * @return Timer.
+     */
+    public static Timer timer(final String name,
+                              final String unit) {
+        return timers.computeIfAbsent(name, n -> new Timer(unit));
+    }
+
+    /**
+     * Register a cache, replacing any cache already registered with the name.
+     *
+     * @param name Name of the cache.
+     * @param hits Supplier of the number of hits.
+     * @param misses Supplier of the number of misses.
+     */
+    public static void cache(final String name,
+                             final LongSupplier hits,
+                             final LongSupplier misses) {
+        caches.put(name, new CacheStats(hits, misses, null));
+    }
+
+    /**
+     * Register a cache, replacing any cache already registered with the name.
+     *
+     * @param name Name of the cache.
+     * @param hits Supplier of the number of hits.
+     * @param misses Supplier of the number of misses.
+     * @param size Supplier of the number of entries.
+     */
+    public static void cache(final String name,
+                             final LongSupplier hits,
+                             final LongSupplier misses,
+                             final LongSupplier size) {
+        caches.put(name, new CacheStats(hits, misses, size));
+    }
+
+    /**
+     * Start timing a call.
+     *
+     * @return Start time to pass to Timer.stop().
+     */
+    public static long start() {
+        return enabled ? System.nanoTime() : disabled;
+    }
+
+    /**
+     * Set the counters back to zero and forget the timed calls (the caches keep their own counts).
+     */
+    public static void reset() {
+        counters.values().forEach(Counter::reset);
+        timers.values().forEach(Timer::reset);
+    }
+
+    /**
+     * Render the registry as a JSON object.
+     *
+     * @return JSON.
+     */
+    public static String toJson() {
+        final StringBuilder json = new StringBuilder();
+        json.append("{\"enabled\":").append(enabled).append(",\"counters\":{");
+        String separator = "";
+        for (Map.Entry<String, Counter> entry : counters.entrySet()) {
+            json.append(separator).append('"').append(entry.getKey()).append("\":").append(entry.getValue().get());
+            separator = ",";
+        }
+
+        json.append("},\"timers\":{");
+        separator = "";
+        for (Map.Entry<String, Timer> entry : timers.entrySet()) {
+            json.append(separator).append('"').append(entry.getKey()).append("\":").append(entry.getValue().toJson());
+            separator = ",";
+        }
+
+        json.append("},\"caches\":{");
+        separator = "";
+        for (Map.Entry<String, CacheStats> entry : caches.entrySet()) {
+            json.append(separator).append('"').append(entry.getKey()).append("\":").append(entry.getValue().toJson());
+            separator = ",";
+        }
+
+        return json.append("}}").toString();
+    }
+}
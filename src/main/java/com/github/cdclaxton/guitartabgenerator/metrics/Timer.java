@@ -0,0 +1,95 @@
+package com.github.cdclaxton.guitartabgenerator.metrics;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency of each call to a stage, with the number of items (e.g. bars or bytes) the stage handled, so that the
+ * throughput of the stage can be reported.
+ * <p>
+ * A call is timed with:
+ * <pre>
+ *     final long start = Metrics.start();
+ *     ...
+ *     timer.stop(start, nBars);
+ * </pre>
+ * Whilst metrics are disabled, start() doesn't read the clock and stop() returns straight away.
+ */
+public final class Timer {
+
+    private final String unit;
+    private volatile LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder items = new LongAdder();
+
+    /**
+     * Instantiate a timer.
+     *
+     * @param unit Name of the items handled by the stage, e.g. bars.
+     */
+    Timer(final String unit) {
+        this.unit = unit;
+    }
+
+    /**
+     * Record a call to the stage.
+     *
+     * @param start Value of Metrics.start() when the call started.
+     * @param nItems Number of items handled by the call.
+     */
+    public void stop(final long start,
+                     final long nItems) {
+        if (start == Metrics.disabled) return;
+        this.latency.record(System.nanoTime() - start);
+        this.items.add(nItems);
+    }
+
+    /**
+     * Get the number of calls recorded.
+     *
+     * @return Number of calls.
+     */
+    public long getCount() { return latency.getCount(); }
+
+    /**
+     * Get the number of items handled by the recorded calls.
+     *
+     * @return Number of items.
+     */
+    public long getItems() { return items.sum(); }
+
+    /**
+     * Get the latency of the recorded calls.
+     *
+     * @return Latency histogram.
+     */
+    public LatencyHistogram getLatency() { return latency; }
+
+    /**
+     * Get the throughput of the stage, i.e. the items handled per second spent in the stage.
+     *
+     * @return Items per second.
+     */
+    public double itemsPerSecond() {
+        final double seconds = latency.meanMillis() * latency.getCount() / 1000.0;
+        return seconds == 0.0 ? 0.0 : items.sum() / seconds;
+    }
+
+    /**
+     * Forget the recorded calls.
+     */
+    void reset() {
+        this.latency = new LatencyHistogram();
+        this.items.reset();
+    }
+
+    /**
+     * Render the timer as a JSON object.
+     *
+     * @return JSON.
+     */
+    String toJson() {
+        return "{\"" + unit + "\":" + items.sum() +
+                ",\"" + unit + "PerSec\":" + String.format(Locale.ROOT, "%.1f", itemsPerSecond()) +
+                ",\"latency\":" + latency.toJson() + "}";
+    }
+}
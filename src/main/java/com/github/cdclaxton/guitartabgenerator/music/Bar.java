@@ -6,11 +6,61 @@ import java.util.stream.Collectors;
 
 public final class Bar {
 
+    // Number of strings (occupancy masks are indexed by string number, with the chords at index 0)
+    private static final int numberStrings = 6;
+
     private final TimeSignature timeSignature;
-    private final List<Note> notes;
+    private final PackedNotes notes;
     private final List<TimedChord> timedChords;
 
-    public enum TimeSignature { Four4, Six8 }
+    // Timings (as bits, e.g. bit 2 is sixteenth 2) of the chords (index 0) and the notes on each string
+    private final int[] occupancy;
+
+    /**
+     * Time signature, described by its beats and the number of sixteenths in each beat.
+     * <p>
+     * 4/4 has four crotchet beats (counted 1 e + a); 6/8 has six quaver beats (counted 1 + 2 + ... 6 +).
+     */
+    public enum TimeSignature {
+        Four4(4, 4),
+        Six8(6, 2);
+
+        private final int numberBeats;
+        private final int sixteenthsPerBeat;
+
+        TimeSignature(final int numberBeats,
+                      final int sixteenthsPerBeat) {
+            this.numberBeats = numberBeats;
+            this.sixteenthsPerBeat = sixteenthsPerBeat;
+        }
+
+        /**
+         * Get the number of beats in a bar.
+         *
+         * @return Number of beats.
+         */
+        public int getNumberBeats() {
+            return numberBeats;
+        }
+
+        /**
+         * Get the number of sixteenths in a beat.
+         *
+         * @return Number of sixteenths.
+         */
+        public int getSixteenthsPerBeat() {
+            return sixteenthsPerBeat;
+        }
+
+        /**
+         * Get the number of sixteenths in a bar.
+         *
+         * @return Number of sixteenths.
+         */
+        public int getNumberSixteenths() {
+            return numberBeats * sixteenthsPerBeat;
+        }
+    }
 
     /**
      * Instantiate a bar.
@@ -23,13 +73,34 @@ public final class Bar {
                final List<Note> notes,
                final List<TimedChord> timedChords) {
 
-        this.timeSignature = timeSignature;
+        this(timeSignature, PackedNotes.of(notes), timedChords);
+    }
+
+    /**
+     * Instantiate a bar from packed notes.
+     *
+     * @param timeSignature Time signature of the bar.
+     * @param notes Notes in the bar (immutable, so they are shared rather than copied).
+     * @param timedChords Chords in the bar.
+     */
+    public Bar(final TimeSignature timeSignature,
+               final PackedNotes notes,
+               final List<TimedChord> timedChords) {
 
-        // Make a deep copy of the notes
-        this.notes = notes.stream().map(Note::newInstance).collect(Collectors.toList());
+        this.timeSignature = timeSignature;
+        this.notes = notes;
 
         // Make a deep copy of the timed chords
         this.timedChords = timedChords.stream().map(TimedChord::newInstance).collect(Collectors.toList());
+
+        this.occupancy = new int[numberStrings + 1];
+        for (TimedChord timedChord : this.timedChords) {
+            this.occupancy[0] |= 1 << timedChord.getTiming().getSixteenthNumber();
+        }
+        for (int i = 0; i < notes.size(); i++) {
+            final int note = notes.get(i);
+            this.occupancy[PackedNotes.stringNumber(note)] |= 1 << PackedNotes.sixteenthNumber(note);
+        }
     }
 
     /**
@@ -39,7 +110,7 @@ public final class Bar {
      * @return New instance.
      */
     public static Bar newInstance(Bar bar) {
-        return new Bar(bar.timeSignature, bar.getNotes(), bar.getTimedChords());
+        return new Bar(bar.timeSignature, bar.notes, bar.getTimedChords());
     }
 
     /**
@@ -57,7 +128,16 @@ public final class Bar {
      * @return List of notes.
      */
     public List<Note> getNotes() {
-        return notes.stream().map(Note::newInstance).collect(Collectors.toList());
+        return notes.toNotes();
+    }
+
+    /**
+     * Get the notes in the bar in their packed form (without creating any objects).
+     *
+     * @return Packed notes.
+     */
+    public PackedNotes getPackedNotes() {
+        return notes;
     }
 
     /**
@@ -69,6 +149,55 @@ public final class Bar {
         return timedChords.stream().map(TimedChord::newInstance).collect(Collectors.toList());
     }
 
+    /**
+     * Get the number of timed chords in the bar.
+     *
+     * @return Number of timed chords.
+     */
+    public int getNumberTimedChords() {
+        return timedChords.size();
+    }
+
+    /**
+     * Get a timed chord (without copying the list of chords).
+     *
+     * @param index Index of the chord.
+     * @return Timed chord.
+     */
+    public TimedChord getTimedChord(final int index) {
+        return timedChords.get(index);
+    }
+
+    /**
+     * Get the timings of the notes on a string.
+     *
+     * @param stringNumber String number (1 = high E string).
+     * @return Occupancy mask (bit n is set if there is a note at sixteenth n).
+     */
+    public int getNoteOccupancy(final int stringNumber) {
+        return occupancy[stringNumber];
+    }
+
+    /**
+     * Get the timings of the chords.
+     *
+     * @return Occupancy mask (bit n is set if there is a chord at sixteenth n).
+     */
+    public int getChordOccupancy() {
+        return occupancy[0];
+    }
+
+    /**
+     * Get the timings of all of the notes and chords.
+     *
+     * @return Occupancy mask (bit n is set if there is a note or chord at sixteenth n).
+     */
+    public int getOccupancy() {
+        int mask = 0;
+        for (int bits : occupancy) mask |= bits;
+        return mask;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -86,6 +215,6 @@ public final class Bar {
 
     @Override
     public String toString() {
-        return "Bar[" + this.timeSignature + ",timedChords=" + this.timedChords + ",notes=" + this.notes + "]";
+        return "Bar[" + this.timeSignature + ",timedChords=" + this.timedChords + ",notes=" + this.getNotes() + "]";
     }
 }
@@ -32,7 +32,7 @@ public final class BarBuilder {
     public BarBuilder addTimedChord(final int sixteenthTiming,
                                     final Chord chord) throws InvalidTimingException {
 
-        this.timedChords.add(new TimedChord(new Timing(sixteenthTiming), chord));
+        this.timedChords.add(new TimedChord(Timing.of(sixteenthTiming), chord));
         return this;
     }
 
@@ -52,7 +52,7 @@ public final class BarBuilder {
                               final int sixteenthTiming)
             throws InvalidStringException, InvalidFretNumberException, InvalidTimingException {
 
-        this.notes.add(new Note(new Fret(stringNumber, fret), new Timing(sixteenthTiming)));
+        this.notes.add(new Note(Fret.of(stringNumber, fret), Timing.of(sixteenthTiming)));
         return this;
     }
 
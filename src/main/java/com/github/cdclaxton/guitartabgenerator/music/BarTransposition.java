@@ -23,12 +23,29 @@ public final class BarTransposition {
                                    final boolean up,
                                    final int maxFretNumber) throws TranspositionException, InvalidChordException {
 
+        return BarTransposition.transposeBar(bar, KeyTransposition.between(currentKey, newKey, up), maxFretNumber);
+    }
+
+    /**
+     * Transpose a bar of music using a precomputed change of key.
+     *
+     * @param bar Bar to transpose.
+     * @param keyTransposition Change of key.
+     * @param maxFretNumber Maximum fret number.
+     * @return Transposed bar.
+     * @throws TranspositionException Unable to transpose the bar.
+     * @throws InvalidChordException One or more chords in the bar are invalid.
+     */
+    public static Bar transposeBar(final Bar bar,
+                                   final KeyTransposition keyTransposition,
+                                   final int maxFretNumber) throws TranspositionException, InvalidChordException {
+
         // Transpose the chords
-        final List<TimedChord> timedChords = BarTransposition.transposeChords(bar.getTimedChords(), currentKey, newKey);
+        final List<TimedChord> timedChords = BarTransposition.transposeChords(bar.getTimedChords(), keyTransposition);
 
         // Transpose the notes
-        final int numSemitones = BarTransposition.numSemitonesDifferent(currentKey, newKey, up);
-        final List<Note> notes = NoteTransposition.transposeNotes(bar.getNotes(), numSemitones, maxFretNumber);
+        final PackedNotes notes = NoteTransposition.transposeNotes(bar.getPackedNotes(),
+                keyTransposition.getNoteSemitones(), maxFretNumber);
 
         // Construct and return the new bar
         return new Bar(bar.getTimeSignature(), notes, timedChords);
@@ -48,7 +65,20 @@ public final class BarTransposition {
                                      final boolean up) throws TranspositionException {
 
         // Always returns a number between -6 and 6
-        int nSemitones = ChordTransposition.numSemitones(currentKey, newKey);
+        return BarTransposition.numSemitonesDifferent(ChordTransposition.numSemitones(currentKey, newKey), up);
+    }
+
+    /**
+     * Find the number of semitones to move the notes, dependent on direction.
+     *
+     * @param chordSemitones Number of semitones between the keys (between -6 and 6).
+     * @param up Transpose up?
+     * @return Number of semitones to move the notes.
+     */
+    static int numSemitonesDifferent(final int chordSemitones,
+                                     final boolean up) {
+
+        int nSemitones = chordSemitones;
 
         if (up && nSemitones < 0) nSemitones = 12 - nSemitones;
         else if (!up && nSemitones > 0) nSemitones = -nSemitones;
@@ -57,44 +87,23 @@ public final class BarTransposition {
     }
 
     /**
-     * Transpose a list of timed chords from the current key to a new key.
+     * Transpose a list of timed chords to a new key.
      *
      * @param timedChords List of timed chords.
-     * @param currentKey Current musical key.
-     * @param newKey New musical key.
+     * @param keyTransposition Change of key.
      * @return List of transposed timed chords.
      * @throws InvalidChordException One or more chords are invalid.
      * @throws TranspositionException Unable to transpose chords.
      */
     private static List<TimedChord> transposeChords(final List<TimedChord> timedChords,
-                                                    final String currentKey,
-                                                    final String newKey)
+                                                    final KeyTransposition keyTransposition)
             throws InvalidChordException, TranspositionException {
 
-        List<TimedChord> transposedTimedChords = new ArrayList<>();
+        List<TimedChord> transposedTimedChords = new ArrayList<>(timedChords.size());
         for (TimedChord tc : timedChords) {
-            transposedTimedChords.add(BarTransposition.transposeChord(tc, currentKey, newKey));
+            transposedTimedChords.add(new TimedChord(tc.getTiming(), keyTransposition.transposeChord(tc.getChord())));
         }
         return transposedTimedChords;
     }
 
-    /**
-     * Transpose a timed chord from the current key to a new key.
-     *
-     * @param timedChord Timed chord to transpose.
-     * @param currentKey Current musical key.
-     * @param newKey New musical key.
-     * @return Transposed timed chord.
-     * @throws TranspositionException  Unable to transpose chord.
-     * @throws InvalidChordException Invalid chord.
-     */
-    private static TimedChord transposeChord(final TimedChord timedChord,
-                                             final String currentKey,
-                                             final String newKey)
-            throws TranspositionException, InvalidChordException {
-
-        return new TimedChord(timedChord.getTiming(),
-                ChordTransposition.transposeChord(timedChord.getChord(), currentKey, newKey));
-    }
-
 }
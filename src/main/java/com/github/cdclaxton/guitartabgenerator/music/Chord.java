@@ -5,15 +5,30 @@ import org.slf4j.LoggerFactory;
 
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 public final class Chord {
 
+    // Maximum number of chords shared by build(); a song only uses a handful of different chords
+    static final int maxCachedChords = 1024;
+
+    private static final Pattern chordPattern = Pattern.compile("^([ABCDEFG][#b]?)([A-Za-z0-9]*)(/[ABCDEFG][#b]?)?$");
+
+    // Chords built from their notation (chords are immutable, so the same instance can be handed out each time)
+    private static final ConcurrentHashMap<String, Chord> chords = new ConcurrentHashMap<>();
+
     private final String rootNote;
     private final String symbols;
     private final Optional<String> bassNote;
 
+    // Pitch classes of the root and bass notes (PitchClass.none if not present or not valid)
+    private final int rootPitchClass;
+    private final int bassPitchClass;
+
+    private final int hash;
+
     private final static Logger logger = LoggerFactory.getLogger(Chord.class);
 
     /**
@@ -28,9 +43,30 @@ public final class Chord {
     public Chord(final String rootNote,
                  final String symbols,
                  final Optional<String> bassNote) {
+        this(rootNote, PitchClass.of(rootNote), symbols, bassNote,
+                bassNote.isPresent() ? PitchClass.of(bassNote.get()) : PitchClass.none);
+    }
+
+    /**
+     * Instantiate a chord whose pitch classes are already known.
+     *
+     * @param rootNote Root note of the chord.
+     * @param rootPitchClass Pitch class of the root note.
+     * @param symbols Type of the chord.
+     * @param bassNote Bass note (if different from the root note).
+     * @param bassPitchClass Pitch class of the bass note (PitchClass.none if there isn't one).
+     */
+    Chord(final String rootNote,
+          final int rootPitchClass,
+          final String symbols,
+          final Optional<String> bassNote,
+          final int bassPitchClass) {
         this.rootNote = rootNote;
         this.symbols = symbols;
         this.bassNote = bassNote;
+        this.rootPitchClass = rootPitchClass;
+        this.bassPitchClass = bassPitchClass;
+        this.hash = Objects.hash(rootNote, symbols, bassNote);
     }
 
     /**
@@ -42,6 +78,24 @@ public final class Chord {
         return rootNote;
     }
 
+    /**
+     * Get the pitch class of the root note.
+     *
+     * @return Pitch class (PitchClass.none if the root note isn't valid).
+     */
+    int getRootPitchClass() {
+        return rootPitchClass;
+    }
+
+    /**
+     * Get the pitch class of the bass note.
+     *
+     * @return Pitch class (PitchClass.none if there is no bass note or it isn't valid).
+     */
+    int getBassPitchClass() {
+        return bassPitchClass;
+    }
+
     /**
      * Get the symbols associated with the chord.
      *
@@ -74,13 +128,28 @@ public final class Chord {
     }
 
     /**
-     * Create a new instance of the chord.
+     * Get an instance of the chord (chords are immutable, so the chord itself is returned).
      *
-     * @param chord Chord to make a new instance of.
-     * @return New instance of the chord.
+     * @param chord Chord.
+     * @return Chord.
      */
     public static Chord newInstance(final Chord chord) {
-        return new Chord(chord.rootNote, chord.symbols, chord.bassNote);
+        return chord;
+    }
+
+    /**
+     * Get the shared instance of a chord, adding the chord to the cache used by build() if it isn't there.
+     *
+     * @param chord Chord.
+     * @return Shared chord equal to the given chord.
+     */
+    public static Chord intern(final Chord chord) {
+        final String notation = chord.musicNotation();
+        final Chord cached = chords.get(notation);
+        if (cached == null) return Chord.cache(notation, chord);
+
+        // A chord built directly (rather than parsed) may have the same notation as a different chord
+        return cached.equals(chord) ? cached : chord;
     }
 
     /**
@@ -108,9 +177,11 @@ public final class Chord {
      */
     public static Chord build(final String chord) throws InvalidChordException {
 
-        final String pattern = "^([ABCDEFG][#b]?)([A-Za-z0-9]*)(/[ABCDEFG][#b]?)?$";
-        final Pattern compiledPattern = Pattern.compile(pattern);
-        final Matcher matcher = compiledPattern.matcher(chord);
+        // Chords are looked up by their notation, so each chord is only parsed once
+        final Chord cached = chords.get(chord);
+        if (cached != null) return cached;
+
+        final Matcher matcher = chordPattern.matcher(chord);
         final Chord parsedChord;
         if (matcher.find()) {
             final String rootNote = matcher.group(1);
@@ -120,12 +191,26 @@ public final class Chord {
             else bassNote = Optional.empty();
             parsedChord = new Chord(rootNote, symbols, bassNote);
         } else {
-            logger.error("Can't parse chord: " + chord);
+            logger.error("Can't parse chord: {}", chord);
             throw new InvalidChordException("Can't parse chord: " + chord);
         }
 
-        logger.debug("Chord " + chord + " --> " + parsedChord);
-        return parsedChord;
+        logger.trace("Chord {} --> {}", chord, parsedChord);
+        return Chord.cache(chord, parsedChord);
+    }
+
+    /**
+     * Add a chord to the cache (unless the cache is full).
+     *
+     * @param notation Notation of the chord.
+     * @param chord Chord.
+     * @return Shared instance of the chord.
+     */
+    private static Chord cache(final String notation,
+                               final Chord chord) {
+        if (chords.size() >= maxCachedChords) return chord;
+        final Chord existing = chords.putIfAbsent(notation, chord);
+        return existing == null ? chord : existing;
     }
 
     @Override
@@ -145,6 +230,6 @@ public final class Chord {
 
     @Override
     public int hashCode() {
-        return Objects.hash(rootNote, symbols, bassNote);
+        return hash;
     }
 }
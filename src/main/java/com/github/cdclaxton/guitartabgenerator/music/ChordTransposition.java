@@ -3,14 +3,12 @@ package com.github.cdclaxton.guitartabgenerator.music;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Arrays;
 import java.util.Optional;
 
 final class ChordTransposition {
 
-    private static final String[] notes = {"A", "A#", "B", "C", "C#", "D", "D#", "E", "F", "F#", "G", "G#"};
-    private static final String[] enharmonicNotes = {"A", "Bb", "B", "C", "Db", "D", "Eb", "E", "F", "Gb", "G", "Ab"};
-    private static final int numberNotes = 12;
+    private static final int numberNotes = PitchClass.numberNotes;
+
     private static final Logger logger = LoggerFactory.getLogger(ChordTransposition.class);
 
     /**
@@ -26,60 +24,92 @@ final class ChordTransposition {
                                 final String oldKey,
                                 final String newKey) throws TranspositionException {
 
-        logger.debug("Transposing chord " + chord + " from key " + oldKey + " to key " + newKey);
+        // Guarded, as more than two arguments are passed as an array
+        if (logger.isTraceEnabled()) {
+            logger.trace("Transposing chord {} from key {} to key {}", chord, oldKey, newKey);
+        }
 
         // Check the keys are valid
-        if (!Key.isValid(oldKey)) throw new TranspositionException("Old key " + oldKey + " is not valid");
-        if (!Key.isValid(newKey)) throw new TranspositionException("New key " + newKey + " is not valid");
-
-        // Check the keys together are valid
-        final boolean oldKeyIsMajor = Key.isMajorKey(oldKey);
-        final boolean newKeyIsMajor = Key.isMajorKey(newKey);
-        if ((oldKeyIsMajor & !newKeyIsMajor) || (!oldKeyIsMajor && newKeyIsMajor)) {
-            throw new TranspositionException("Can't transpose from major to minor keys and vice versa");
-        }
+        final Key oldValidKey = validKey(oldKey, "Old");
+        final Key newValidKey = validKey(newKey, "New");
+        checkKeys(oldValidKey, newValidKey);
 
         // Find the number of semitones difference between the keys
-        final int nSemitones = numSemitones(oldKey, newKey);
+        final int nSemitones = numSemitones(oldValidKey, newValidKey);
 
-        // Transpose the base note
-        final String transposedRootNote = transposeNote(chord.getRootNote(), nSemitones, newKey);
+        return transposeChord(chord, nSemitones, newValidKey.usesSharps());
+    }
 
-        // Transpose the bass note if required
-        Optional<String> transposedBassNote = Optional.empty();
-        if (chord.getBassNote().isPresent()) {
-            transposedBassNote = Optional.of(transposeNote(chord.getBassNote().get(), nSemitones, newKey));
+    /**
+     * Get a key, reporting an invalid key as a transposition failure.
+     *
+     * @param key Musical key.
+     * @param description Description of the key for the error message (e.g. Old).
+     * @return Key.
+     * @throws TranspositionException Invalid key.
+     */
+    static Key validKey(final String key,
+                        final String description) throws TranspositionException {
+        try {
+            return Key.of(key);
+        } catch (InvalidKeyException e) {
+            throw new TranspositionException(description + " key " + key + " is not valid");
         }
+    }
 
-        // Create and return the transposed chord
-        return new Chord(transposedRootNote, chord.getSymbols(), transposedBassNote);
+    /**
+     * Check that a chord can be transposed from one key to another.
+     *
+     * @param oldKey Old musical key.
+     * @param newKey New musical key.
+     * @throws TranspositionException Change from major to minor (or vice versa).
+     */
+    static void checkKeys(final Key oldKey,
+                          final Key newKey) throws TranspositionException {
+        if (oldKey.getMode() != newKey.getMode()) {
+            throw new TranspositionException("Can't transpose from major to minor keys and vice versa");
+        }
     }
 
     /**
-     * Transpose a note a given number of semitones.
+     * Transpose a chord by a number of semitones.
+     * <p>
+     * The pitch classes of the chord's notes are shifted and the new note names are looked up, so no strings are
+     * handled. The keys aren't checked, so the caller is expected to have validated them (see KeyTransposition).
      *
-     * @param note Note to transpose.
-     * @param nSemitones Number of semitones to transpose the note.
-     * @param newKey New musical key (after transposition).
-     * @return Transposed note.
-     * @throws TranspositionException Note transposition failed.
+     * @param chord Chord to transpose.
+     * @param nSemitones Number of semitones to transpose the chord.
+     * @param sharps Spell the transposed notes with sharps (rather than flats)?
+     * @return Transposed chord.
+     * @throws TranspositionException Invalid root or bass note.
      */
-    private static String transposeNote(final String note,
-                                        final int nSemitones,
-                                        final String newKey) throws TranspositionException {
+    static Chord transposeChord(final Chord chord,
+                                final int nSemitones,
+                                final boolean sharps) throws TranspositionException {
 
-        // Get the index of the note
-        final int noteIndex = rootNoteToIndex(note);
+        final int shift = transposeNoteIndex(0, nSemitones);
 
-        // Get the index of the transposed note
-        final int transposedIndex = transposeNoteIndex(noteIndex, nSemitones);
+        // Transpose the root note
+        final int rootPitchClass = chord.getRootPitchClass();
+        if (rootPitchClass == PitchClass.none) {
+            throw new TranspositionException("Root note is not valid: " + chord.getRootNote());
+        }
+        final int transposedRoot = (rootPitchClass + shift) % numberNotes;
 
-        // Get the note letter (enharmonic where required)
-        String transposedNote;
-        if (inNotes(removeMinor(newKey))) transposedNote = notes[transposedIndex];
-        else transposedNote = enharmonicNotes[transposedIndex];
+        // Transpose the bass note if required
+        if (!chord.getBassNote().isPresent()) {
+            return new Chord(PitchClass.name(transposedRoot, sharps), transposedRoot, chord.getSymbols(),
+                    Optional.empty(), PitchClass.none);
+        }
+
+        final int bassPitchClass = chord.getBassPitchClass();
+        if (bassPitchClass == PitchClass.none) {
+            throw new TranspositionException("Root note is not valid: " + chord.getBassNote().get());
+        }
+        final int transposedBass = (bassPitchClass + shift) % numberNotes;
 
-        return transposedNote;
+        return new Chord(PitchClass.name(transposedRoot, sharps), transposedRoot, chord.getSymbols(),
+                PitchClass.optionalName(transposedBass, sharps), transposedBass);
     }
 
     /**
@@ -92,11 +122,32 @@ final class ChordTransposition {
      */
     static int numSemitones(final String oldKey,
                             final String newKey) throws TranspositionException {
+        return semitonesBetween(rootNoteToIndex(keyBaseNote(oldKey)), rootNoteToIndex(keyBaseNote(newKey)));
+    }
+
+    /**
+     * Get the number of semitones different between two keys.
+     *
+     * @param oldKey Old musical key.
+     * @param newKey New musical key.
+     * @return Number of semitones different (between -6 and 6).
+     */
+    static int numSemitones(final Key oldKey,
+                            final Key newKey) {
+        return semitonesBetween(oldKey.getPitchClass(), newKey.getPitchClass());
+    }
 
-        final String oldKeyBaseNote = keyBaseNote(oldKey);
-        final String newKeyBaseNote = keyBaseNote(newKey);
+    /**
+     * Get the shortest distance (in semitones) from one pitch class to another.
+     *
+     * @param from Pitch class.
+     * @param to Pitch class.
+     * @return Number of semitones (between -6 and 6).
+     */
+    private static int semitonesBetween(final int from,
+                                        final int to) {
 
-        int diff = rootNoteToIndex(newKeyBaseNote) - rootNoteToIndex(oldKeyBaseNote);
+        int diff = to - from;
 
         if (diff > numberNotes/2) {
             diff = diff - numberNotes;
@@ -147,49 +198,9 @@ final class ChordTransposition {
      * @throws TranspositionException Invalid root note.
      */
     static int rootNoteToIndex(final String rootNote) throws TranspositionException {
-        if (inNotes(rootNote)) return noteIndex(rootNote);
-        else if (inEnharmonicNotes(rootNote)) return enharmonicNoteIndex(rootNote);
-        else throw new TranspositionException("Root note is not valid: " + rootNote);
-    }
-
-    /**
-     * Is the note in the list of notes?
-     *
-     * @param note Note.
-     * @return True if the note is contained in the list, otherwise false.
-     */
-    private static boolean inNotes(final String note) {
-        return Arrays.asList(notes).contains(note);
-    }
-
-    /**
-     * Is the note in the list of enharmonic notes?
-     *
-     * @param note Note.
-     * @return True if the note is contained in the list, otherwise false.
-     */
-    private static boolean inEnharmonicNotes(final String note) {
-        return Arrays.asList(enharmonicNotes).contains(note);
-    }
-
-    /**
-     * Get the index of a note.
-     *
-     * @param note Note.
-     * @return Index of the note.
-     */
-    private static int noteIndex(final String note) {
-        return Arrays.asList(notes).indexOf(note);
-    }
-
-    /**
-     * Get the index of an (enharmonic) note.
-     *
-     * @param note Note.
-     * @return Index.
-     */
-    private static int enharmonicNoteIndex(final String note) {
-        return Arrays.asList(enharmonicNotes).indexOf(note);
+        final int index = PitchClass.of(rootNote);
+        if (index == PitchClass.none) throw new TranspositionException("Root note is not valid: " + rootNote);
+        return index;
     }
 
     /**
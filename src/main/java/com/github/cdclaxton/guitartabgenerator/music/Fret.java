@@ -4,6 +4,14 @@ import java.util.Objects;
 
 public final class Fret {
 
+    private static final int numberStrings = 6;
+
+    // Highest fret on a standard guitar (also the limit of a transposed note)
+    static final int highestFretNumber = 22;
+
+    // Every valid fret, indexed by [string number - 1][fret number]
+    private static final Fret[][] frets = buildFrets();
+
     private final int stringNumber;
     private final int fretNumber;
 
@@ -24,8 +32,9 @@ public final class Fret {
         // Check the fretNumber number is valid for a standard guitar
         if (fretNumber < 0) {
             throw new InvalidFretNumberException("Fret number (" + fretNumber + ") cannot be negative");
-        } else if (fretNumber > 22) {
-            throw new InvalidFretNumberException("Fret number (" + fretNumber + ") cannot be greater than 22");
+        } else if (fretNumber > highestFretNumber) {
+            throw new InvalidFretNumberException("Fret number (" + fretNumber + ") cannot be greater than " +
+                    highestFretNumber);
         }
 
         this.stringNumber = stringNumber;
@@ -33,19 +42,33 @@ public final class Fret {
     }
 
     /**
-     * Create a new instance.
+     * Get the shared instance of a fret.
      *
-     * @param fret Fret object to copy.
-     * @return New Fret object.
+     * @param stringNumber String (1 = high E).
+     * @param fretNumber Fret number (0 = open string).
+     * @return Fret.
+     * @throws InvalidFretNumberException Fret number is invalid.
+     * @throws InvalidStringException String number is invalid.
      */
-    public static Fret newInstance(Fret fret) {
-        try {
-            return new Fret(fret.getStringNumber(), fret.getFretNumber());
-        } catch (InvalidFretNumberException e) {
-            throw new IllegalStateException("Fret number is now invalid!");
-        } catch (InvalidStringException e) {
-            throw new IllegalStateException("String number is now invalid!");
+    public static Fret of(final int stringNumber,
+                          final int fretNumber) throws InvalidFretNumberException, InvalidStringException {
+
+        if (isStringNumberValid(stringNumber) && fretNumber >= 0 && fretNumber <= highestFretNumber) {
+            return frets[stringNumber - 1][fretNumber];
         }
+
+        // Constructing the fret reports why it is invalid
+        return new Fret(stringNumber, fretNumber);
+    }
+
+    /**
+     * Get the shared instance of a fret (frets are immutable, so there is no need to copy one).
+     *
+     * @param fret Fret.
+     * @return Shared Fret object with the same string and fret number.
+     */
+    public static Fret newInstance(Fret fret) {
+        return frets[fret.stringNumber - 1][fret.fretNumber];
     }
 
     /**
@@ -103,4 +126,23 @@ public final class Fret {
     public int hashCode() {
         return Objects.hash(stringNumber, fretNumber);
     }
+
+    /**
+     * Build the table of all valid frets.
+     *
+     * @return Frets indexed by [string number - 1][fret number].
+     */
+    private static Fret[][] buildFrets() {
+        final Fret[][] table = new Fret[numberStrings][highestFretNumber + 1];
+        try {
+            for (int string = 1; string <= numberStrings; string++) {
+                for (int fret = 0; fret <= highestFretNumber; fret++) {
+                    table[string - 1][fret] = new Fret(string, fret);
+                }
+            }
+        } catch (InvalidFretNumberException | InvalidStringException e) {
+            throw new IllegalStateException("Unable to build the table of frets", e);
+        }
+        return table;
+    }
 }
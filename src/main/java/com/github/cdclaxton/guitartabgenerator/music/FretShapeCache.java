@@ -0,0 +1,211 @@
+package com.github.cdclaxton.guitartabgenerator.music;
+
+import com.github.cdclaxton.guitartabgenerator.metrics.Metrics;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded cache of transposed fret shapes, shared by all transpositions.
+ * <p>
+ * Songs repeat the same riffs many times, so the same shape (the strings and frets of a bar's notes, in order) is
+ * transposed by the same number of semitones over and over. The cache is keyed by the shape, the number of semitones,
+ * the maximum fret number and the direction, and holds either the transposed frets or the reason the shape can't be
+ * transposed. The least recently used shapes are removed when the cache is full.
+ */
+public final class FretShapeCache {
+
+    static final int defaultMaxEntries = 4096;
+
+    private static volatile FretShapeCache instance = new FretShapeCache(defaultMaxEntries);
+
+    static {
+        Metrics.cache("transposition.fretShapes", FretShapeCache::getHits, FretShapeCache::getMisses,
+                FretShapeCache::size);
+    }
+
+    private final int maxEntries;
+    private final Map<Shape, Resolved> resolved;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Key of the cache: a fret shape and how it is transposed.
+     */
+    static final class Shape {
+        private final int[] frets;
+        private final int nSemitones;
+        private final int maxFretNumber;
+        private final boolean up;
+        private final int hash;
+
+        /**
+         * Instantiate a shape from packed notes.
+         *
+         * @param notes Packed notes.
+         * @param nSemitones Number of semitones to transpose the notes.
+         * @param maxFretNumber Maximum fret number.
+         */
+        Shape(final PackedNotes notes,
+              final int nSemitones,
+              final int maxFretNumber) {
+
+            // Drop the timing of each note, keeping (string number << 8) | fret number
+            this.frets = new int[notes.size()];
+            for (int i = 0; i < this.frets.length; i++) {
+                this.frets[i] = notes.get(i) >>> 8;
+            }
+
+            this.nSemitones = nSemitones;
+            this.maxFretNumber = maxFretNumber;
+            this.up = nSemitones > 0;
+            this.hash = 31 * (31 * (31 * Arrays.hashCode(this.frets) + nSemitones) + maxFretNumber) +
+                    Boolean.hashCode(this.up);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Shape shape = (Shape) o;
+            return hash == shape.hash &&
+                    nSemitones == shape.nSemitones &&
+                    maxFretNumber == shape.maxFretNumber &&
+                    up == shape.up &&
+                    Arrays.equals(frets, shape.frets);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * Value of the cache: the transposed shape or why the shape can't be transposed.
+     */
+    static final class Resolved {
+        private final int[] shape;
+        private final String error;
+
+        private Resolved(final int[] shape,
+                         final String error) {
+            this.shape = shape;
+            this.error = error;
+        }
+
+        static Resolved shape(final int[] shape) {
+            return new Resolved(shape, null);
+        }
+
+        static Resolved error(final TranspositionException e) {
+            return new Resolved(null, e.getMessage());
+        }
+
+        /**
+         * Get the transposed shape.
+         *
+         * @return Transposed shape, i.e. (string number << 8) | fret number for each note (shared, so must not be
+         * modified).
+         * @throws TranspositionException The shape can't be transposed.
+         */
+        int[] getShape() throws TranspositionException {
+            if (this.error != null) throw new TranspositionException(this.error);
+            return this.shape;
+        }
+    }
+
+    /**
+     * Instantiate a cache.
+     *
+     * @param maxEntries Maximum number of shapes to hold (0 disables the cache).
+     */
+    private FretShapeCache(final int maxEntries) {
+        this.maxEntries = maxEntries;
+        this.resolved = new LinkedHashMap<Shape, Resolved>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<Shape, Resolved> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Replace the shared cache with an empty one of the given size.
+     *
+     * @param maxEntries Maximum number of shapes to hold (0 disables the cache).
+     */
+    public static void setMaxEntries(final int maxEntries) {
+        if (maxEntries < 0) throw new IllegalArgumentException("Cache size cannot be negative: " + maxEntries);
+        instance = new FretShapeCache(maxEntries);
+    }
+
+    /**
+     * Get the shared cache.
+     *
+     * @return Cache.
+     */
+    static FretShapeCache getInstance() { return instance; }
+
+    /**
+     * Is the cache enabled?
+     *
+     * @return True if shapes are cached.
+     */
+    boolean isEnabled() { return this.maxEntries > 0; }
+
+    /**
+     * Find a transposed shape.
+     *
+     * @param shape Shape.
+     * @return Transposed shape (if cached).
+     */
+    Optional<Resolved> get(final Shape shape) {
+        final Resolved value;
+        synchronized (this.resolved) {
+            value = this.resolved.get(shape);
+        }
+        if (value != null) hits.incrementAndGet();
+        else misses.incrementAndGet();
+        return Optional.ofNullable(value);
+    }
+
+    /**
+     * Add a transposed shape.
+     *
+     * @param shape Shape.
+     * @param value Transposed shape.
+     */
+    void put(final Shape shape,
+             final Resolved value) {
+        synchronized (this.resolved) {
+            this.resolved.put(shape, value);
+        }
+    }
+
+    /**
+     * Get the number of shapes found in the shared cache.
+     *
+     * @return Number of hits.
+     */
+    public static long getHits() { return instance.hits.get(); }
+
+    /**
+     * Get the number of shapes that had to be transposed.
+     *
+     * @return Number of misses.
+     */
+    public static long getMisses() { return instance.misses.get(); }
+
+    /**
+     * Get the number of shapes in the shared cache.
+     *
+     * @return Number of shapes.
+     */
+    public static int size() {
+        final FretShapeCache cache = instance;
+        synchronized (cache.resolved) {
+            return cache.resolved.size();
+        }
+    }
+}
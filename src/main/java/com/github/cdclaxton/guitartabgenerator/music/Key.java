@@ -1,14 +1,27 @@
 package com.github.cdclaxton.guitartabgenerator.music;
 
-import java.util.Arrays;
-import java.util.HashSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 
 public final class Key {
 
-    private final String key;
+    /**
+     * Mode of a musical key.
+     */
+    public enum Mode { Major, Minor }
+
     private static final String validMajorKeys = "Ab|A|A#|Bb|B|C|C#|Db|D|D#|Eb|E|F|F#|Gb|G|G#";
     private static final String validMinorKeys = "Abm|Am|A#m|Bbm|Bm|Cm|C#m|Dbm|Dm|D#m|Ebm|Em|Fm|F#m|Gbm|Gm|G#m";
 
+    // The valid keys, parsed once
+    private static final Map<String, Key> validKeys = buildValidKeys();
+
+    private final String key;
+    private final int pitchClass;
+    private final Mode mode;
+    private final boolean sharps;
+
     /**
      * Instantiate a key from its string representation.
      *
@@ -16,11 +29,49 @@ public final class Key {
      * @throws InvalidKeyException Musical key is invalid.
      */
     public Key(String key) throws InvalidKeyException {
-        if (isValid(key)) {
-            this.key = key;
-        } else {
-            throw new InvalidKeyException("Key " + key + " is not valid");
-        }
+        this(Key.of(key));
+    }
+
+    /**
+     * Instantiate a key with the same fields as another.
+     *
+     * @param key Key to copy.
+     */
+    private Key(final Key key) {
+        this(key.key, key.pitchClass, key.mode, key.sharps);
+    }
+
+    /**
+     * Instantiate a key.
+     *
+     * @param key String representation of the key.
+     * @param pitchClass Pitch class of the key's root note.
+     * @param mode Mode.
+     * @param sharps Are the notes of the key spelt with sharps?
+     */
+    private Key(final String key,
+                final int pitchClass,
+                final Mode mode,
+                final boolean sharps) {
+        this.key = key;
+        this.pitchClass = pitchClass;
+        this.mode = mode;
+        this.sharps = sharps;
+    }
+
+    /**
+     * Get the key from its string representation.
+     * <p>
+     * The keys are shared, so this doesn't create a new key.
+     *
+     * @param key Key.
+     * @return Key.
+     * @throws InvalidKeyException Musical key is invalid.
+     */
+    public static Key of(final String key) throws InvalidKeyException {
+        final Key validKey = validKeys.get(key);
+        if (validKey == null) throw new InvalidKeyException("Key " + key + " is not valid");
+        return validKey;
     }
 
     /**
@@ -30,11 +81,7 @@ public final class Key {
      * @return New key.
      */
     public static Key newInstance(final Key key) {
-        try {
-            return new Key(key.getKey());
-        } catch (InvalidKeyException e) {
-            throw new IllegalStateException("Key is now invalid!");
-        }
+        return new Key(key);
     }
 
     /**
@@ -44,7 +91,7 @@ public final class Key {
      * @return True if the key is valid.
      */
     static boolean isValid(String key) {
-        return isMajorKey(key) || isMinorKey(key);
+        return validKeys.containsKey(key);
     }
 
     /**
@@ -54,28 +101,59 @@ public final class Key {
      * @return Major key?
      */
     static boolean isMajorKey(String key) {
-        String[] majorKeys = Key.validMajorKeys.split("\\|");
-        HashSet<String> setMajorKeys = new HashSet<>(Arrays.asList(majorKeys));
-        return setMajorKeys.contains(key);
+        final Key validKey = validKeys.get(key);
+        return validKey != null && validKey.mode == Mode.Major;
+    }
+
+    /**
+     * Get the musical key.
+     * @return Key.
+     */
+    public String getKey() {
+        return key;
     }
 
     /**
-     * Is the key a minor key?
+     * Get the pitch class of the key's root note (A = 0).
      *
-     * @param key Key.
-     * @return Minor key?
+     * @return Pitch class.
      */
-    private static boolean isMinorKey(String key) {
-        String[] minorKeys = Key.validMinorKeys.split("\\|");
-        HashSet<String> setMinorKeys = new HashSet<>(Arrays.asList(minorKeys));
-        return setMinorKeys.contains(key);
+    int getPitchClass() {
+        return pitchClass;
     }
 
     /**
-     * Get the musical key.
-     * @return Key.
+     * Get the mode of the key.
+     *
+     * @return Mode.
      */
-    public String getKey() {
-        return key;
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * Are notes in the key spelt with sharps (rather than flats)?
+     *
+     * @return True if the key uses sharps.
+     */
+    boolean usesSharps() {
+        return sharps;
+    }
+
+    /**
+     * Build the table of valid keys.
+     *
+     * @return Keys indexed by their string representation.
+     */
+    private static Map<String, Key> buildValidKeys() {
+        final Map<String, Key> keys = new HashMap<>();
+        for (String key : validMajorKeys.split("\\|")) {
+            keys.put(key, new Key(key, PitchClass.of(key), Mode.Major, PitchClass.isSharpName(key)));
+        }
+        for (String key : validMinorKeys.split("\\|")) {
+            final String rootNote = key.substring(0, key.length() - 1);
+            keys.put(key, new Key(key, PitchClass.of(rootNote), Mode.Minor, PitchClass.isSharpName(rootNote)));
+        }
+        return Collections.unmodifiableMap(keys);
     }
 }
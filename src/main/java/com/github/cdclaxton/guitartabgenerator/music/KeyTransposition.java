@@ -0,0 +1,93 @@
+package com.github.cdclaxton.guitartabgenerator.music;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A change of musical key, worked out once so that it can be applied to every bar in a song.
+ */
+public final class KeyTransposition {
+
+    private final String currentKey;
+    private final String newKey;
+    private final int chordSemitones;
+    private final int noteSemitones;
+    private final boolean sharps;
+
+    // Each distinct chord of the song transposed once, so the transposed bars share the transposed chords
+    private final ConcurrentHashMap<Chord, Chord> transposedChords = new ConcurrentHashMap<>();
+
+    /**
+     * Instantiate a key transposition.
+     *
+     * @param currentKey Current musical key.
+     * @param newKey New musical key.
+     * @param chordSemitones Number of semitones to move the chords (between -6 and 6).
+     * @param noteSemitones Number of semitones to move the notes (dependent on direction).
+     * @param sharps Spell the transposed chords with sharps?
+     */
+    private KeyTransposition(final String currentKey,
+                             final String newKey,
+                             final int chordSemitones,
+                             final int noteSemitones,
+                             final boolean sharps) {
+        this.currentKey = currentKey;
+        this.newKey = newKey;
+        this.chordSemitones = chordSemitones;
+        this.noteSemitones = noteSemitones;
+        this.sharps = sharps;
+    }
+
+    /**
+     * Work out the transposition between two keys.
+     *
+     * @param currentKey Current musical key.
+     * @param newKey New musical key.
+     * @param up Transpose notes up?
+     * @return Key transposition.
+     * @throws TranspositionException Invalid key or change from major to minor.
+     */
+    public static KeyTransposition between(final String currentKey,
+                                           final String newKey,
+                                           final boolean up) throws TranspositionException {
+
+        // The keys are checked once here rather than for each chord
+        final Key current = ChordTransposition.validKey(currentKey, "Old");
+        final Key next = ChordTransposition.validKey(newKey, "New");
+        ChordTransposition.checkKeys(current, next);
+
+        final int chordSemitones = ChordTransposition.numSemitones(current, next);
+        return new KeyTransposition(currentKey,
+                newKey,
+                chordSemitones,
+                BarTransposition.numSemitonesDifferent(chordSemitones, up),
+                next.usesSharps());
+    }
+
+    /**
+     * Transpose a chord.
+     *
+     * @param chord Chord to transpose.
+     * @return Transposed chord.
+     * @throws TranspositionException Invalid root or bass note.
+     */
+    Chord transposeChord(final Chord chord) throws TranspositionException {
+        final Chord cached = this.transposedChords.get(chord);
+        if (cached != null) return cached;
+
+        final Chord transposed = ChordTransposition.transposeChord(chord, this.chordSemitones, this.sharps);
+        final Chord existing = this.transposedChords.putIfAbsent(chord, transposed);
+        return existing == null ? transposed : existing;
+    }
+
+    public String getCurrentKey() { return currentKey; }
+
+    public String getNewKey() { return newKey; }
+
+    int getNoteSemitones() { return noteSemitones; }
+
+    @Override
+    public String toString() {
+        return "KeyTransposition[" + currentKey + " -> " + newKey + ", chords=" + chordSemitones +
+                ", notes=" + noteSemitones + "]";
+    }
+}
@@ -20,13 +20,13 @@ public final class Note {
     }
 
     /**
-     * Get a new instance of the Note object.
+     * Get an instance of the Note object (notes are immutable, so the note itself is returned).
      *
      * @param note Note.
-     * @return New instance.
+     * @return Note.
      */
     public static Note newInstance(final Note note) {
-        return new Note(Fret.newInstance(note.fret), Timing.newInstance(note.timing));
+        return note;
     }
 
     /**
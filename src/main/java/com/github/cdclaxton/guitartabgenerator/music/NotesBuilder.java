@@ -25,7 +25,7 @@ public final class NotesBuilder {
                          final int timing)
             throws InvalidStringException, InvalidFretNumberException, InvalidTimingException {
 
-        notes.add(new Note(new Fret(stringNumber, fret), new Timing(timing)));
+        notes.add(new Note(Fret.of(stringNumber, fret), Timing.of(timing)));
         return this;
     }
 
@@ -0,0 +1,174 @@
+package com.github.cdclaxton.guitartabgenerator.music;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compact, immutable representation of the notes in a bar.
+ * <p>
+ * Each note is packed into a single int (string number, fret number and sixteenth number, one byte each) so that the
+ * notes of a bar are held in one primitive array rather than as Note, Fret and Timing objects. The hot paths
+ * (transposition and layout) read the notes from here; getNotes() converts them to the object API when needed.
+ */
+public final class PackedNotes {
+
+    private static final PackedNotes empty = new PackedNotes(new int[0]);
+
+    private final int[] notes;
+
+    /**
+     * Instantiate packed notes.
+     *
+     * @param notes Packed notes (not copied).
+     */
+    private PackedNotes(final int[] notes) {
+        this.notes = notes;
+    }
+
+    /**
+     * Create packed notes from an array, checking each note is valid.
+     *
+     * @param notes Packed notes (see pack()); the array is copied.
+     * @return Packed notes.
+     * @throws InvalidStringException     String number is invalid.
+     * @throws InvalidFretNumberException Fret number is invalid.
+     * @throws InvalidTimingException     Timing is invalid.
+     */
+    public static PackedNotes of(final int[] notes)
+            throws InvalidStringException, InvalidFretNumberException, InvalidTimingException {
+
+        for (int note : notes) {
+            // Looking up the objects performs the checks (and reports them in the usual way)
+            Fret.of(stringNumber(note), fretNumber(note));
+            Timing.of(sixteenthNumber(note));
+        }
+        return PackedNotes.wrap(notes.clone());
+    }
+
+    /**
+     * Pack a list of notes.
+     *
+     * @param notes Notes (in order).
+     * @return Packed notes.
+     */
+    public static PackedNotes of(final List<Note> notes) {
+        if (notes.isEmpty()) return empty;
+
+        final int[] packed = new int[notes.size()];
+        for (int i = 0; i < packed.length; i++) {
+            final Note note = notes.get(i);
+            final Fret fret = note.getFret();
+            packed[i] = pack(fret.getStringNumber(), fret.getFretNumber(), note.getTiming().getSixteenthNumber());
+        }
+        return new PackedNotes(packed);
+    }
+
+    /**
+     * Wrap an array of packed notes without checking or copying it.
+     *
+     * @param notes Packed notes that are known to be valid (the array must not be modified afterwards).
+     * @return Packed notes.
+     */
+    static PackedNotes wrap(final int[] notes) {
+        return notes.length == 0 ? empty : new PackedNotes(notes);
+    }
+
+    /**
+     * Pack a note into an int.
+     *
+     * @param stringNumber String number (1 = high E string).
+     * @param fretNumber Fret number.
+     * @param sixteenthNumber Timing of the note.
+     * @return Packed note.
+     */
+    public static int pack(final int stringNumber,
+                           final int fretNumber,
+                           final int sixteenthNumber) {
+        return (stringNumber << 16) | (fretNumber << 8) | sixteenthNumber;
+    }
+
+    /**
+     * Get the string number of a packed note.
+     *
+     * @param note Packed note.
+     * @return String number.
+     */
+    public static int stringNumber(final int note) {
+        return (note >>> 16) & 0xff;
+    }
+
+    /**
+     * Get the fret number of a packed note.
+     *
+     * @param note Packed note.
+     * @return Fret number.
+     */
+    public static int fretNumber(final int note) {
+        return (note >>> 8) & 0xff;
+    }
+
+    /**
+     * Get the timing (sixteenth number) of a packed note.
+     *
+     * @param note Packed note.
+     * @return Sixteenth number.
+     */
+    public static int sixteenthNumber(final int note) {
+        return note & 0xff;
+    }
+
+    /**
+     * Get the number of notes.
+     *
+     * @return Number of notes.
+     */
+    public int size() {
+        return this.notes.length;
+    }
+
+    /**
+     * Get a packed note.
+     *
+     * @param index Index of the note.
+     * @return Packed note.
+     */
+    public int get(final int index) {
+        return this.notes[index];
+    }
+
+    /**
+     * Convert the packed notes to a list of notes.
+     *
+     * @return Notes (in order).
+     */
+    public List<Note> toNotes() {
+        final List<Note> list = new ArrayList<>(this.notes.length);
+        try {
+            for (int note : this.notes) {
+                list.add(new Note(Fret.of(stringNumber(note), fretNumber(note)), Timing.of(sixteenthNumber(note))));
+            }
+        } catch (InvalidStringException | InvalidFretNumberException | InvalidTimingException e) {
+            throw new IllegalStateException("Packed note is now invalid!");
+        }
+        return list;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        PackedNotes that = (PackedNotes) o;
+        return Arrays.equals(notes, that.notes);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(notes);
+    }
+
+    @Override
+    public String toString() {
+        return this.toNotes().toString();
+    }
+}
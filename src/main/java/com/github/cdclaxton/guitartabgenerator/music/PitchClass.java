@@ -0,0 +1,109 @@
+package com.github.cdclaxton.guitartabgenerator.music;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Pitch classes (the twelve notes of the octave) as ints, from A = 0 to G#/Ab = 11.
+ * <p>
+ * Note names are converted to pitch classes once, when a chord or key is created, so that transposing is arithmetic
+ * and table lookups rather than string handling.
+ */
+final class PitchClass {
+
+    static final int numberNotes = 12;
+
+    // Pitch class that isn't valid (e.g. a chord without a bass note or a note such as Cb)
+    static final int none = -1;
+
+    private static final String[] sharpNames = {"A", "A#", "B", "C", "C#", "D", "D#", "E", "F", "F#", "G", "G#"};
+    private static final String[] flatNames = {"A", "Bb", "B", "C", "Db", "D", "Eb", "E", "F", "Gb", "G", "Ab"};
+
+    // Pitch class of each note name (both spellings)
+    private static final Map<String, Integer> pitchClasses = buildPitchClasses();
+
+    // Note names wrapped once for chords' bass notes, indexed by [pitch class]
+    private static final List<Optional<String>> optionalSharpNames = wrap(sharpNames);
+    private static final List<Optional<String>> optionalFlatNames = wrap(flatNames);
+
+    private PitchClass() {}
+
+    /**
+     * Get the pitch class of a note name, e.g. 1 for A# or Bb.
+     *
+     * @param note Note name.
+     * @return Pitch class (or none if the name isn't valid).
+     */
+    static int of(final String note) {
+        final Integer pitchClass = pitchClasses.get(note);
+        return pitchClass == null ? none : pitchClass;
+    }
+
+    /**
+     * Get the name of a pitch class.
+     *
+     * @param pitchClass Pitch class.
+     * @param sharps Spell the note with a sharp (rather than a flat)?
+     * @return Note name.
+     */
+    static String name(final int pitchClass,
+                       final boolean sharps) {
+        return sharps ? sharpNames[pitchClass] : flatNames[pitchClass];
+    }
+
+    /**
+     * Get the name of a pitch class as an optional (as used for the bass note of a chord).
+     *
+     * @param pitchClass Pitch class.
+     * @param sharps Spell the note with a sharp (rather than a flat)?
+     * @return Note name (shared instance).
+     */
+    static Optional<String> optionalName(final int pitchClass,
+                                         final boolean sharps) {
+        return sharps ? optionalSharpNames.get(pitchClass) : optionalFlatNames.get(pitchClass);
+    }
+
+    /**
+     * Is the note name spelt with a sharp (or is a natural)?
+     *
+     * @param note Note name.
+     * @return True if the note is one of the sharp spellings.
+     */
+    static boolean isSharpName(final String note) {
+        final int pitchClass = of(note);
+        return pitchClass != none && sharpNames[pitchClass].equals(note);
+    }
+
+    /**
+     * Build the lookup from note name (either spelling) to pitch class.
+     *
+     * @return Pitch classes.
+     */
+    private static Map<String, Integer> buildPitchClasses() {
+        final Map<String, Integer> map = new HashMap<>();
+        for (int i = 0; i < numberNotes; i++) {
+            map.put(sharpNames[i], i);
+            map.put(flatNames[i], i);
+        }
+        return map;
+    }
+
+    /**
+     * Wrap each of the note names in an optional.
+     *
+     * @param names Note names in pitch class order.
+     * @return Wrapped names.
+     */
+    private static List<Optional<String>> wrap(final String[] names) {
+        final List<Optional<String>> wrapped = new ArrayList<>(names.length);
+        for (String name : names) {
+            wrapped.add(Optional.of(name));
+        }
+        return Collections.unmodifiableList(wrapped);
+    }
+
+}
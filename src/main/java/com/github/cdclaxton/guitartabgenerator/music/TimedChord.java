@@ -22,13 +22,13 @@ public final class TimedChord {
     }
 
     /**
-     * Create a new instance of the timed chord.
+     * Get an instance of the timed chord (timed chords are immutable, so the timed chord itself is returned).
      *
-     * @param timedChord Timed chord to copy.
-     * @return New timed chord.
+     * @param timedChord Timed chord.
+     * @return Timed chord.
      */
     public static TimedChord newInstance(TimedChord timedChord) {
-         return new TimedChord(Timing.newInstance(timedChord.timing), timedChord.chord);
+         return timedChord;
     }
 
     /**
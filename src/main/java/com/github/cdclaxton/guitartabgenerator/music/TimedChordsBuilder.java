@@ -21,7 +21,7 @@ public final class TimedChordsBuilder {
     TimedChordsBuilder addTimedChord(final Chord chord,
                                      final int timing) throws InvalidTimingException, InvalidChordException {
 
-        this.timedChords.add(new TimedChord(new Timing(timing), chord));
+        this.timedChords.add(new TimedChord(Timing.of(timing), chord));
         return this;
     }
 
@@ -4,6 +4,11 @@ import java.util.Objects;
 
 public final class Timing {
 
+    private static final int numberSixteenths = 16;
+
+    // Every valid timing, indexed by sixteenth number
+    private static final Timing[] timings = buildTimings();
+
     private final int sixteenthNumber;
 
     /**
@@ -16,7 +21,7 @@ public final class Timing {
 
         if (sixteenthNumber < 0) {
             throw new InvalidTimingException("Invalid timing: " + sixteenthNumber);
-        } else if (sixteenthNumber > 15) {
+        } else if (sixteenthNumber >= numberSixteenths) {
             throw new InvalidTimingException("Invalid timing: " + sixteenthNumber);
         }
 
@@ -24,17 +29,27 @@ public final class Timing {
     }
 
     /**
-     * Get a new instance of the Timing object.
+     * Get the shared instance of a timing.
+     *
+     * @param sixteenthNumber Timing in sixteenths.
+     * @return Timing.
+     * @throws InvalidTimingException Time is invalid.
+     */
+    public static Timing of(final int sixteenthNumber) throws InvalidTimingException {
+        if (sixteenthNumber >= 0 && sixteenthNumber < numberSixteenths) return timings[sixteenthNumber];
+
+        // Constructing the timing reports why it is invalid
+        return new Timing(sixteenthNumber);
+    }
+
+    /**
+     * Get the shared instance of a timing (timings are immutable, so there is no need to copy one).
      *
      * @param timing Timing.
-     * @return New Timing object.
+     * @return Shared Timing object with the same sixteenth number.
      */
     public static Timing newInstance(Timing timing) {
-        try {
-            return new Timing(timing.sixteenthNumber);
-        } catch (InvalidTimingException e) {
-            throw new IllegalStateException("Timing is now invalid!");
-        }
+        return timings[timing.sixteenthNumber];
     }
 
     /**
@@ -63,4 +78,21 @@ public final class Timing {
     public int hashCode() {
         return Objects.hash(sixteenthNumber);
     }
+
+    /**
+     * Build the table of all valid timings.
+     *
+     * @return Timings indexed by sixteenth number.
+     */
+    private static Timing[] buildTimings() {
+        final Timing[] table = new Timing[numberSixteenths];
+        try {
+            for (int i = 0; i < numberSixteenths; i++) {
+                table[i] = new Timing(i);
+            }
+        } catch (InvalidTimingException e) {
+            throw new IllegalStateException("Unable to build the table of timings", e);
+        }
+        return table;
+    }
 }
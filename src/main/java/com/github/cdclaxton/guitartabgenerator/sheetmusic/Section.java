@@ -60,6 +60,15 @@ public class Section {
         return bars.stream().map(Bar::newInstance).collect(Collectors.toList());
     }
 
+    /**
+     * Get the number of bars in the section.
+     *
+     * @return Number of bars.
+     */
+    public int getNumberBars() {
+        return bars.size();
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -62,4 +62,17 @@ public final class SheetMusic {
         return this.sections.get(index);
     }
 
+    /**
+     * Get the number of bars in all of the sections.
+     *
+     * @return Number of bars.
+     */
+    public int getNumberBars() {
+        int nBars = 0;
+        for (Section section : this.sections) {
+            nBars += section.getNumberBars();
+        }
+        return nBars;
+    }
+
 }
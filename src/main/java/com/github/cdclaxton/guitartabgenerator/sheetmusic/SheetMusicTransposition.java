@@ -1,12 +1,29 @@
 package com.github.cdclaxton.guitartabgenerator.sheetmusic;
 
+import com.github.cdclaxton.guitartabgenerator.metrics.Metrics;
+import com.github.cdclaxton.guitartabgenerator.metrics.Timer;
 import com.github.cdclaxton.guitartabgenerator.music.*;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 public final class SheetMusicTransposition {
 
+    // The twelve keys a song is published in (the usual spelling of each)
+    private static final List<String> allMajorKeys = Collections.unmodifiableList(Arrays.asList(
+            "A", "Bb", "B", "C", "Db", "D", "Eb", "E", "F", "F#", "G", "Ab"));
+    private static final List<String> allMinorKeys = Collections.unmodifiableList(Arrays.asList(
+            "Am", "Bbm", "Bm", "Cm", "C#m", "Dm", "Ebm", "Em", "Fm", "F#m", "Gm", "G#m"));
+
+    // Number of bars transposed by each task in parallel mode
+    static final int barsPerChunk = 256;
+
+    private static final Timer transposeTimer = Metrics.timer("transpose", "bars");
+    private static final Timer transposeSectionTimer = Metrics.timer("transpose.section", "bars");
+
     /**
      * Transpose sheet music.
      *
@@ -25,50 +42,326 @@ public final class SheetMusicTransposition {
                                        final int maxFretNumber)
             throws InvalidKeyException, InvalidChordException, TranspositionException {
 
+        return SheetMusicTransposition.transpose(sheetMusic, newKey, up, maxFretNumber, Optional.empty());
+    }
+
+    /**
+     * Transpose sheet music, optionally transposing the bars in parallel.
+     * <p>
+     * In parallel, the bars are split into chunks (a chunk never spans two sections) that are transposed on the
+     * executor. The sections are then put back together in their original order, so the result is identical to
+     * transposing sequentially. If any bars fail, the exception is from the first failing bar in the song.
+     *
+     * @param sheetMusic Sheet music to transpose.
+     * @param newKey Musical key to transpose to.
+     * @param up Transpose up?
+     * @param maxFretNumber Maximum fret number.
+     * @param executor Executor to transpose the bars on (sequential if empty).
+     * @return Transposed sheet music.
+     * @throws InvalidKeyException Invalid key.
+     * @throws InvalidChordException Invalid chord (reported with its section and bar).
+     * @throws TranspositionException Unable to transpose the music (reported with its section and bar).
+     */
+    public static SheetMusic transpose(final SheetMusic sheetMusic,
+                                       final String newKey,
+                                       final boolean up,
+                                       final int maxFretNumber,
+                                       final Optional<ExecutorService> executor)
+            throws InvalidKeyException, InvalidChordException, TranspositionException {
+
+        final long start = Metrics.start();
+
         // Create a new header (just the key changes)
         Header currentHeader = sheetMusic.getHeader();
-        Header newHeader = new Header(currentHeader.getTitle(), currentHeader.getArtist(), new Key(newKey),
-                currentHeader.getTimeSignature());
+        Header newHeader = SheetMusicTransposition.transposeHeader(currentHeader, newKey);
+
+        // Work out the change of key once for the whole song
+        final KeyTransposition keyTransposition = KeyTransposition.between(currentHeader.getKey().getKey(), newKey,
+                up);
 
         // Transpose each of the sections
-        List<Section> currentSections = sheetMusic.getSections();
-        List<Section> newSections = new ArrayList<>(currentSections.size());
-        for (int i = 0; i < currentSections.size(); i++) {
-            newSections.add(SheetMusicTransposition.transposeSection(currentSections.get(i),
-                    sheetMusic.getHeader().getKey().getKey(), newKey, up, maxFretNumber));
-        }
+        final List<Section> currentSections = sheetMusic.getSections();
+        final List<Section> newSections = executor.isPresent() ?
+                SheetMusicTransposition.transposeSectionsInParallel(currentSections, keyTransposition, maxFretNumber,
+                        executor.get()) :
+                SheetMusicTransposition.transposeSections(currentSections, keyTransposition, maxFretNumber);
 
         // Instantiate and return the transposed sheet music
-        return new SheetMusic(newHeader, sheetMusic.getMetadata(), newSections);
+        final SheetMusic transposed = new SheetMusic(newHeader, sheetMusic.getMetadata(), newSections);
+        transposeTimer.stop(start, transposed.getNumberBars());
+        return transposed;
+    }
+
+    /**
+     * Transpose the sections one bar at a time.
+     *
+     * @param sections Sections to transpose.
+     * @param keyTransposition Change of key.
+     * @param maxFretNumber Maximum fret number.
+     * @return Transposed sections.
+     * @throws InvalidChordException Invalid chord.
+     * @throws TranspositionException Unable to transpose a bar.
+     */
+    private static List<Section> transposeSections(final List<Section> sections,
+                                                   final KeyTransposition keyTransposition,
+                                                   final int maxFretNumber)
+            throws InvalidChordException, TranspositionException {
+
+        final List<Section> newSections = new ArrayList<>(sections.size());
+        for (int i = 0; i < sections.size(); i++) {
+            newSections.add(SheetMusicTransposition.transposeSectionAt(sections.get(i), i, keyTransposition,
+                    maxFretNumber));
+        }
+        return newSections;
+    }
+
+    /**
+     * Transpose the sections by transposing chunks of bars on an executor.
+     *
+     * @param sections Sections to transpose.
+     * @param keyTransposition Change of key.
+     * @param maxFretNumber Maximum fret number.
+     * @param executor Executor to transpose the chunks on.
+     * @return Transposed sections (in order).
+     * @throws InvalidChordException Invalid chord.
+     * @throws TranspositionException Unable to transpose a bar.
+     */
+    private static List<Section> transposeSectionsInParallel(final List<Section> sections,
+                                                             final KeyTransposition keyTransposition,
+                                                             final int maxFretNumber,
+                                                             final ExecutorService executor)
+            throws InvalidChordException, TranspositionException {
+
+        // Split the bars of each section into chunks
+        final List<List<Bar>> sectionBars = new ArrayList<>(sections.size());
+        final List<Callable<List<Bar>>> chunks = new ArrayList<>();
+        for (int i = 0; i < sections.size(); i++) {
+            final int sectionIndex = i;
+            final List<Bar> bars = sections.get(i).getBars();
+            sectionBars.add(bars);
+            for (int start = 0; start < bars.size(); start += barsPerChunk) {
+                final int chunkStart = start;
+                final int chunkEnd = Math.min(start + barsPerChunk, bars.size());
+                chunks.add(() -> SheetMusicTransposition.transposeBars(bars, sectionIndex, chunkStart, chunkEnd,
+                        keyTransposition, maxFretNumber));
+            }
+        }
+
+        final List<Future<List<Bar>>> transposed;
+        try {
+            transposed = executor.invokeAll(chunks);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TranspositionException("Interrupted whilst transposing");
+        }
+
+        // Put the sections back together in order (the first failing chunk throws its exception)
+        final Iterator<Future<List<Bar>>> results = transposed.iterator();
+        final List<Section> newSections = new ArrayList<>(sections.size());
+        for (int i = 0; i < sections.size(); i++) {
+            final List<Bar> newBars = new ArrayList<>(sectionBars.get(i).size());
+            while (newBars.size() < sectionBars.get(i).size()) {
+                newBars.addAll(SheetMusicTransposition.getChunk(results.next()));
+            }
+            newSections.add(new Section(sections.get(i).getName(), sections.get(i).getText(), newBars));
+        }
+        return newSections;
+    }
+
+    /**
+     * Get a transposed chunk of bars, rethrowing the exception from the bar that failed.
+     *
+     * @param chunk Chunk of bars being transposed.
+     * @return Transposed bars.
+     * @throws InvalidChordException Invalid chord.
+     * @throws TranspositionException Unable to transpose a bar.
+     */
+    private static List<Bar> getChunk(final Future<List<Bar>> chunk)
+            throws InvalidChordException, TranspositionException {
+
+        try {
+            return chunk.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TranspositionException("Interrupted whilst transposing");
+        } catch (ExecutionException e) {
+            // A fork-join pool wraps checked exceptions in (possibly several) RuntimeExceptions
+            Throwable cause = e.getCause();
+            while (cause.getClass() == RuntimeException.class && cause.getCause() != null) {
+                cause = cause.getCause();
+            }
+            if (cause instanceof InvalidChordException) throw (InvalidChordException) cause;
+            if (cause instanceof TranspositionException) throw (TranspositionException) cause;
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new IllegalStateException("Unexpected exception whilst transposing", cause);
+        }
+    }
+
+    /**
+     * Transpose a range of bars in a section, reporting a failure with the section and bar number.
+     *
+     * @param bars Bars of the section.
+     * @param sectionIndex Index of the section in the song.
+     * @param start Index of the first bar to transpose.
+     * @param end Index after the last bar to transpose.
+     * @param keyTransposition Change of key.
+     * @param maxFretNumber Maximum fret number.
+     * @return Transposed bars.
+     * @throws InvalidChordException Invalid chord.
+     * @throws TranspositionException Unable to transpose a bar.
+     */
+    private static List<Bar> transposeBars(final List<Bar> bars,
+                                           final int sectionIndex,
+                                           final int start,
+                                           final int end,
+                                           final KeyTransposition keyTransposition,
+                                           final int maxFretNumber)
+            throws InvalidChordException, TranspositionException {
+
+        final List<Bar> transposed = new ArrayList<>(end - start);
+        for (int i = start; i < end; i++) {
+            try {
+                transposed.add(BarTransposition.transposeBar(bars.get(i), keyTransposition, maxFretNumber));
+            } catch (InvalidChordException e) {
+                throw new InvalidChordException(SheetMusicTransposition.location(sectionIndex, i) + e.getMessage());
+            } catch (TranspositionException e) {
+                throw new TranspositionException(SheetMusicTransposition.location(sectionIndex, i) + e.getMessage());
+            }
+        }
+        return transposed;
+    }
+
+    /**
+     * Describe where a bar is in the song (for error messages).
+     *
+     * @param sectionIndex Index of the section.
+     * @param barIndex Index of the bar in the section.
+     * @return Location, e.g. "Section 2, bar 5: ".
+     */
+    private static String location(final int sectionIndex,
+                                   final int barIndex) {
+        return "Section " + (sectionIndex + 1) + ", bar " + (barIndex + 1) + ": ";
+    }
+
+    /**
+     * Transpose sheet music to all twelve keys concurrently.
+     * <p>
+     * Each transposition is identical to calling transpose() with that key. A transposition that fails does not
+     * affect the others; its future throws an ExecutionException caused by the exception transpose() would throw.
+     *
+     * @param sheetMusic Sheet music to transpose.
+     * @param up Transpose up?
+     * @param maxFretNumber Maximum fret number.
+     * @param executor Executor to run the transpositions on.
+     * @return Transposed sheet music, keyed (in order) by the new musical key.
+     */
+    public static Map<String, Future<SheetMusic>> transposeToAllKeys(final SheetMusic sheetMusic,
+                                                                     final boolean up,
+                                                                     final int maxFretNumber,
+                                                                     final ExecutorService executor) {
+
+        final Map<String, Future<SheetMusic>> transposed = new LinkedHashMap<>();
+        for (String newKey : allKeys(sheetMusic.getHeader().getKey().getKey())) {
+            transposed.put(newKey, executor.submit(() -> transpose(sheetMusic, newKey, up, maxFretNumber)));
+        }
+        return transposed;
+    }
+
+    /**
+     * Get the twelve keys to transpose a song to.
+     *
+     * @param currentKey Current musical key of the song.
+     * @return Major keys for a song in a major key, otherwise minor keys.
+     */
+    public static List<String> allKeys(final String currentKey) {
+        return currentKey.endsWith("m") ? allMinorKeys : allMajorKeys;
+    }
+
+    /**
+     * Transpose the header of sheet music to a new key (just the key changes).
+     *
+     * @param header Header to transpose.
+     * @param newKey Musical key to transpose to.
+     * @return Transposed header.
+     * @throws InvalidKeyException Invalid key.
+     */
+    public static Header transposeHeader(final Header header,
+                                         final String newKey) throws InvalidKeyException {
+        return new Header(header.getTitle(), header.getArtist(), new Key(newKey), header.getTimeSignature());
     }
 
     /**
      * Transpose a section to a new key.
      *
      * @param section Section to transpose.
-     * @param currentKey Current key.
-     * @param newKey New key.
-     * @param up Transpose up?
+     * @param keyTransposition Change of key.
      * @param maxFretNumber Maximum fret number.
      * @return Transposed section
      * @throws InvalidChordException Invalid chord.
      * @throws TranspositionException Unable to transpose section.
      */
-    private static Section transposeSection(final Section section,
-                                            final String currentKey,
-                                            final String newKey,
-                                            final boolean up,
-                                            final int maxFretNumber)
+    public static Section transposeSection(final Section section,
+                                           final KeyTransposition keyTransposition,
+                                           final int maxFretNumber)
             throws InvalidChordException, TranspositionException {
 
-        // Transpose each of the bars to the new key
-        List<Bar> bars = new ArrayList<>(section.getBars().size());
-        for (int i = 0; i < section.getBars().size(); i++) {
-            bars.add(BarTransposition.transposeBar(section.getBars().get(i), currentKey, newKey, up, maxFretNumber));
+        // Transpose each of the bars to the new key (copying the bars out of the section just once)
+        final List<Bar> currentBars = section.getBars();
+        List<Bar> bars = new ArrayList<>(currentBars.size());
+        for (Bar bar : currentBars) {
+            bars.add(BarTransposition.transposeBar(bar, keyTransposition, maxFretNumber));
         }
 
         // Instantiate and return a new section
         return new Section(section.getName(), section.getText(), bars);
     }
 
+    /**
+     * Transpose a section to a new key, reporting a failure with the section and bar number.
+     *
+     * @param section Section to transpose.
+     * @param sectionIndex Index of the section in the song.
+     * @param keyTransposition Change of key.
+     * @param maxFretNumber Maximum fret number.
+     * @return Transposed section
+     * @throws InvalidChordException Invalid chord.
+     * @throws TranspositionException Unable to transpose section.
+     */
+    public static Section transposeSection(final Section section,
+                                           final int sectionIndex,
+                                           final KeyTransposition keyTransposition,
+                                           final int maxFretNumber)
+            throws InvalidChordException, TranspositionException {
+
+        final long start = Metrics.start();
+        final Section transposed = SheetMusicTransposition.transposeSectionAt(section, sectionIndex, keyTransposition,
+                maxFretNumber);
+        transposeSectionTimer.stop(start, transposed.getNumberBars());
+        return transposed;
+    }
+
+    /**
+     * Transpose a section of a song to a new key, reporting a failure with the section and bar number.
+     *
+     * @param section Section to transpose.
+     * @param sectionIndex Index of the section in the song.
+     * @param keyTransposition Change of key.
+     * @param maxFretNumber Maximum fret number.
+     * @return Transposed section
+     * @throws InvalidChordException Invalid chord.
+     * @throws TranspositionException Unable to transpose section.
+     */
+    private static Section transposeSectionAt(final Section section,
+                                              final int sectionIndex,
+                                              final KeyTransposition keyTransposition,
+                                              final int maxFretNumber)
+            throws InvalidChordException, TranspositionException {
+
+        final List<Bar> bars = section.getBars();
+        return new Section(section.getName(), section.getText(),
+                SheetMusicTransposition.transposeBars(bars, sectionIndex, 0, bars.size(), keyTransposition,
+                        maxFretNumber));
+    }
+
 }
@@ -16,7 +16,16 @@ public final class ExtractedBar implements ExtractedComponent {
 
     private final String timedChords;
     private final String notes;
-    private final static Logger logger = LoggerFactory.getLogger(SheetMusicParser.class);
+    private final static Logger logger = LoggerFactory.getLogger(ExtractedBar.class);
+
+    // Patterns used by the regular expression based parsers
+    private static final Pattern timedChordPattern = Pattern.compile("([1-6][+ea]?)/(.*)");
+    private static final Pattern simultaneousTimePattern = Pattern.compile("([1-6][+ae]?)/.*");
+    private static final Pattern simultaneousNotePattern = Pattern.compile("([A-Za-z][0-9]{1,2})");
+    private static final Pattern notesByTimePattern =
+            Pattern.compile("([1-6][+ae]?/(<([A-Za-z][0-9]{1,2}\\s*)+>|[A-Za-z][0-9]{1,2}\\s*))");
+    private static final Pattern notePattern = Pattern.compile("([1-6][+ea]?)/([A-Za-z])([0-9]{1,2})");
+    private static final Pattern timingPattern = Pattern.compile("([1-6])([+ea]?)");
 
     /**
      * Instantiate an immutable object that represents a bar.
@@ -82,12 +91,12 @@ public final class ExtractedBar implements ExtractedComponent {
             InvalidTimingException, InvalidChordException {
 
         // Parse the notes
-        logger.debug("Parsing notes: " + this.notes);
-        List<Note> notes = ExtractedBar.parseNotes(this.notes);
+        logger.trace("Parsing notes: {}", this.notes);
+        List<Note> notes = NotationTokenizer.parseNotes(this.notes, timeSignature);
 
         // Parse the timed chords
-        logger.debug("Parsing timed chords: " + this.timedChords);
-        List<TimedChord> chords = ExtractedBar.parseChords(this.timedChords);
+        logger.trace("Parsing timed chords: {}", this.timedChords);
+        List<TimedChord> chords = NotationTokenizer.parseChords(this.timedChords, timeSignature);
 
         return new Bar(timeSignature, notes, chords);
     }
@@ -103,6 +112,20 @@ public final class ExtractedBar implements ExtractedComponent {
      */
     static List<TimedChord> parseChords(final String chords)
             throws ExtractionException, InvalidTimingException, InvalidChordException {
+        return NotationTokenizer.parseChords(chords);
+    }
+
+    /**
+     * Parse a list of timed chords using regular expressions (reference implementation for NotationTokenizer).
+     *
+     * @param chords List of timedChords.
+     * @return List of timed timedChords.
+     * @throws ExtractionException Unable to extract chord and timing.
+     * @throws InvalidTimingException Invalid timing.
+     * @throws InvalidChordException Invalid chord.
+     */
+    static List<TimedChord> parseChordsByRegex(final String chords)
+            throws ExtractionException, InvalidTimingException, InvalidChordException {
 
         // Separate timed chords into individual elements
         List<String> separateChordsStrings = ExtractedBar.separateChords(chords.trim());
@@ -113,7 +136,7 @@ public final class ExtractedBar implements ExtractedComponent {
         // Parse each of the string representation of the timedChords
         List<TimedChord> timedChords = new ArrayList<>();
         for (String c : chordStrings) {
-            logger.debug("About to parse chord: " + c);
+            logger.trace("About to parse chord: {}", c);
             timedChords.add(ExtractedBar.notationToChord(c));
         }
 
@@ -143,15 +166,13 @@ public final class ExtractedBar implements ExtractedComponent {
     static TimedChord notationToChord(final String chord)
             throws ExtractionException, InvalidTimingException, InvalidChordException {
 
-        logger.debug("Parsing timed chord: " + chord);
+        logger.trace("Parsing timed chord: {}", chord);
 
-        final String pattern = "([1-6][+ea]?)/(.*)";
-        final Pattern compiledPattern = Pattern.compile(pattern);
-        final Matcher matcher = compiledPattern.matcher(chord);
+        final Matcher matcher = timedChordPattern.matcher(chord);
         if (matcher.find()) {
             // Extract the timing of the chord
             String timingString = matcher.group(1);
-            Timing timing = new Timing(ExtractedBar.timingNotationToSixteenth(timingString));
+            Timing timing = Timing.of(ExtractedBar.timingNotationToSixteenth(timingString));
 
             // Extract the chord and parse
             String chordPart = matcher.group(2);
@@ -177,6 +198,21 @@ public final class ExtractedBar implements ExtractedComponent {
      */
     static List<Note> parseNotes(final String listNotes)
             throws InvalidStringException, InvalidFretNumberException, InvalidTimingException, ExtractionException {
+        return NotationTokenizer.parseNotes(listNotes);
+    }
+
+    /**
+     * Parse a list of notes using regular expressions (reference implementation for NotationTokenizer).
+     *
+     * @param listNotes String representation of a list of notes.
+     * @return List of notes.
+     * @throws InvalidStringException Invalid string number.
+     * @throws InvalidFretNumberException Invalid fret number.
+     * @throws InvalidTimingException Invalid timing.
+     * @throws ExtractionException Unable to parse note.
+     */
+    static List<Note> parseNotesByRegex(final String listNotes)
+            throws InvalidStringException, InvalidFretNumberException, InvalidTimingException, ExtractionException {
 
         // Perform an initial separation
         // e.g. 2+/g6 3/<g7, b8> -> [2+/g6, 3/<g7, b8>]
@@ -208,16 +244,14 @@ public final class ExtractedBar implements ExtractedComponent {
      */
     static List<String> parseSimultaneousNotes(final String notes) throws ExtractionException {
 
-        logger.debug("Extracting simultaneous notes from: " + notes);
+        logger.trace("Extracting simultaneous notes from: {}", notes);
 
         // Extract the time
-        final String timePattern = "([1-6][+ae]?)/.*";
-        final Pattern compiledTimePattern = Pattern.compile(timePattern);
-        final Matcher timeMatcher = compiledTimePattern.matcher(notes);
+        final Matcher timeMatcher = simultaneousTimePattern.matcher(notes);
         String time;
         if (timeMatcher.find()) {
             time = timeMatcher.group(1);
-            logger.debug("Extracted time: " + time);
+            logger.trace("Extracted time: {}", time);
         } else {
             throw new ExtractionException("Can't extract time from: " + notes);
         }
@@ -225,13 +259,11 @@ public final class ExtractedBar implements ExtractedComponent {
         // Extract each of the separate notes
         final List<String> simultaneousNotes = new ArrayList<>();
 
-        final String notePattern = "([A-Za-z][0-9]{1,2})";
-        final Pattern compiledNotePattern = Pattern.compile(notePattern);
-        final Matcher noteMatcher = compiledNotePattern.matcher(notes);
+        final Matcher noteMatcher = simultaneousNotePattern.matcher(notes);
         while (noteMatcher.find()) {
             String n = time + "/" + noteMatcher.group(1).trim();
             simultaneousNotes.add(n);
-            logger.debug("Extracted note: " + n);
+            logger.trace("Extracted note: {}", n);
         }
 
         if (simultaneousNotes.size() == 0) {
@@ -248,9 +280,7 @@ public final class ExtractedBar implements ExtractedComponent {
      * @return Time-separated notes.
      */
     static List<String> splitNotesByTime(final String listNotes) {
-        final String pattern = "([1-6][+ae]?/(<([A-Za-z][0-9]{1,2}\\s*)+>|[A-Za-z][0-9]{1,2}\\s*))";
-        final Pattern compiledPattern = Pattern.compile(pattern);
-        final Matcher matcher = compiledPattern.matcher(listNotes);
+        final Matcher matcher = notesByTimePattern.matcher(listNotes);
         List<String> parts = new ArrayList<>();
         while (matcher.find()) {
             parts.add(matcher.group(1).trim());
@@ -271,19 +301,17 @@ public final class ExtractedBar implements ExtractedComponent {
     static Note notationToNote(final String notation)
             throws InvalidStringException, ExtractionException, InvalidFretNumberException, InvalidTimingException {
 
-        final String pattern = "([1-6][+ea]?)/([A-Za-z])([0-9]{1,2})";
-        final Pattern compiledPattern = Pattern.compile(pattern);
-        final Matcher matcher = compiledPattern.matcher(notation);
+        final Matcher matcher = notePattern.matcher(notation);
         if (matcher.find()) {
 
             // Extract the timing of the note
             final String timingString = matcher.group(1);
-            final Timing timing = new Timing(ExtractedBar.timingNotationToSixteenth(timingString));
+            final Timing timing = Timing.of(ExtractedBar.timingNotationToSixteenth(timingString));
 
             // Extract the note
             final int stringNumber = ExtractedBar.stringLetterToNumber(matcher.group(2));
             final int fretNumber = Integer.valueOf(matcher.group(3));
-            final Fret fret = new Fret(stringNumber, fretNumber);
+            final Fret fret = Fret.of(stringNumber, fretNumber);
 
             // Build and return the note
             return new Note(fret, timing);
@@ -300,9 +328,7 @@ public final class ExtractedBar implements ExtractedComponent {
      * @throws ExtractionException Unable to extract timing.
      */
     static int timingNotationToSixteenth(final String timingNotation) throws ExtractionException {
-        final String pattern = "([1-6])([+ea]?)";
-        final Pattern compiledPattern = Pattern.compile(pattern);
-        final Matcher matcher = compiledPattern.matcher(timingNotation);
+        final Matcher matcher = timingPattern.matcher(timingNotation);
         if (matcher.find()) {
             int sixteenth = (Integer.valueOf(matcher.group(1))-1) * 4;
             switch (matcher.group(2)) {
@@ -0,0 +1,392 @@
+package com.github.cdclaxton.guitartabgenerator.tabparser;
+
+import com.github.cdclaxton.guitartabgenerator.music.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Single-pass tokenizer for the note notation (e.g. 1/g8 2+/<g9 b11>) and the timed chord notation (e.g. 1/Db 2+/F).
+ * <p>
+ * The tokenizer walks the notation with a cursor instead of using regular expressions, so nothing is compiled per
+ * call and no intermediate strings are created for the notes. It accepts exactly what the regular expressions in
+ * ExtractedBar accept (including skipping over text that isn't a note) and raises the same exceptions and messages.
+ * <p>
+ * Timings are counted in the beats of the time signature: in 4/4 a beat is a crotchet (1 e + a), in 6/8 a beat is a
+ * quaver (1 +), so e.g. 2+ is the sixth sixteenth of a 4/4 bar and the fourth of a 6/8 bar.
+ */
+final class NotationTokenizer {
+
+    private final CharSequence notation;
+    private final Bar.TimeSignature timeSignature;
+    private final int end;
+    private int cursor;
+
+    /**
+     * Instantiate a tokenizer over a notation.
+     *
+     * @param notation Notation to tokenize.
+     * @param timeSignature Time signature the timings are counted in (4/4 if null).
+     */
+    private NotationTokenizer(final CharSequence notation,
+                              final Bar.TimeSignature timeSignature) {
+        this.notation = notation;
+        this.timeSignature = timeSignature != null ? timeSignature : Bar.TimeSignature.Four4;
+        this.end = notation.length();
+        this.cursor = 0;
+    }
+
+    /**
+     * Parse a list of notes, e.g. 1/g8 2+/<g9 b11>.
+     *
+     * @param notes Notation for the notes.
+     * @return List of notes.
+     * @throws InvalidStringException Invalid string letter.
+     * @throws InvalidFretNumberException Invalid fret number.
+     * @throws InvalidTimingException Invalid timing.
+     */
+    static List<Note> parseNotes(final CharSequence notes)
+            throws InvalidStringException, InvalidFretNumberException, InvalidTimingException {
+        return NotationTokenizer.parseNotes(notes, Bar.TimeSignature.Four4);
+    }
+
+    /**
+     * Parse a list of notes, e.g. 1/g8 2+/<g9 b11>, in a time signature.
+     *
+     * @param notes Notation for the notes.
+     * @param timeSignature Time signature the timings are counted in.
+     * @return List of notes.
+     * @throws InvalidStringException Invalid string letter.
+     * @throws InvalidFretNumberException Invalid fret number.
+     * @throws InvalidTimingException Invalid timing.
+     */
+    static List<Note> parseNotes(final CharSequence notes,
+                                 final Bar.TimeSignature timeSignature)
+            throws InvalidStringException, InvalidFretNumberException, InvalidTimingException {
+        return new NotationTokenizer(notes, timeSignature).notes();
+    }
+
+    /**
+     * Parse a list of timed chords, e.g. 1/Db 2+/F.
+     *
+     * @param chords Notation for the timed chords.
+     * @return List of timed chords.
+     * @throws ExtractionException Unable to extract the chord and timing.
+     * @throws InvalidTimingException Invalid timing.
+     * @throws InvalidChordException Invalid chord.
+     */
+    static List<TimedChord> parseChords(final CharSequence chords)
+            throws ExtractionException, InvalidTimingException, InvalidChordException {
+        return NotationTokenizer.parseChords(chords, Bar.TimeSignature.Four4);
+    }
+
+    /**
+     * Parse a list of timed chords, e.g. 1/Db 2+/F, in a time signature.
+     *
+     * @param chords Notation for the timed chords.
+     * @param timeSignature Time signature the timings are counted in.
+     * @return List of timed chords.
+     * @throws ExtractionException Unable to extract the chord and timing.
+     * @throws InvalidTimingException Invalid timing.
+     * @throws InvalidChordException Invalid chord.
+     */
+    static List<TimedChord> parseChords(final CharSequence chords,
+                                        final Bar.TimeSignature timeSignature)
+            throws ExtractionException, InvalidTimingException, InvalidChordException {
+        return new NotationTokenizer(chords, timeSignature).timedChords();
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // Notes
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Walk the notation, converting each timed note or group of simultaneous notes.
+     *
+     * @return List of notes.
+     */
+    private List<Note> notes() throws InvalidStringException, InvalidFretNumberException, InvalidTimingException {
+
+        final List<Note> notes = new ArrayList<>();
+
+        while (cursor < end) {
+
+            // Characters that don't start a timed note are skipped
+            final int matchEnd = matchTimedNotes(cursor);
+            if (matchEnd < 0) {
+                cursor++;
+                continue;
+            }
+
+            final int sixteenth = sixteenthAt(cursor);
+            int position = timingEnd(cursor, end);
+
+            if (notation.charAt(position) == '<') {
+                // Simultaneous notes, e.g. 1/<g8 b9>
+                position = position + 1;
+                while (notation.charAt(position) != '>') {
+                    notes.add(noteAt(position, sixteenth));
+                    position = skipWhitespace(fretEnd(position));
+                }
+            } else {
+                notes.add(noteAt(position, sixteenth));
+            }
+
+            cursor = matchEnd;
+        }
+
+        return notes;
+    }
+
+    /**
+     * Find the end of the timed note (or group of simultaneous notes) starting at a position.
+     *
+     * @param start Start position.
+     * @return Position after the timed note(s) and any trailing whitespace, or -1 if there is no timed note.
+     */
+    private int matchTimedNotes(final int start) {
+
+        int position = timingEnd(start, end);
+        if (position < 0) return -1;
+
+        if (position < end && notation.charAt(position) == '<') {
+            position++;
+            int nNotes = 0;
+            int next;
+            while ((next = matchFret(position)) >= 0) {
+                position = next;
+                nNotes++;
+            }
+            if (nNotes == 0 || position >= end || notation.charAt(position) != '>') return -1;
+            return position + 1;
+        }
+
+        return matchFret(position);
+    }
+
+    /**
+     * Find the end of a string letter and fret number (e.g. g12) starting at a position.
+     *
+     * @param start Start position.
+     * @return Position after the fret and any trailing whitespace, or -1 if there is no fret.
+     */
+    private int matchFret(final int start) {
+        if (start >= end || !isLetter(notation.charAt(start))) return -1;
+        if (start + 1 >= end || !isDigit(notation.charAt(start + 1))) return -1;
+        return skipWhitespace(fretEnd(start));
+    }
+
+    /**
+     * Find the end of the fret number for the string letter at a position.
+     *
+     * @param start Position of the string letter.
+     * @return Position after the (one or two digit) fret number.
+     */
+    private int fretEnd(final int start) {
+        if (start + 2 < end && isDigit(notation.charAt(start + 2))) return start + 3;
+        return start + 2;
+    }
+
+    /**
+     * Convert the string letter and fret number at a position into a note.
+     *
+     * @param start Position of the string letter.
+     * @param sixteenth Timing of the note.
+     * @return Note.
+     */
+    private Note noteAt(final int start, final int sixteenth)
+            throws InvalidTimingException, InvalidStringException, InvalidFretNumberException {
+
+        final Timing timing = Timing.of(sixteenth);
+        final int stringNumber = NotationTokenizer.stringLetterToNumber(notation.charAt(start));
+
+        int fretNumber = notation.charAt(start + 1) - '0';
+        if (fretEnd(start) == start + 3) {
+            fretNumber = fretNumber * 10 + (notation.charAt(start + 2) - '0');
+        }
+
+        return new Note(Fret.of(stringNumber, fretNumber), timing);
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // Chords
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Walk the space-separated timed chords, converting each one.
+     *
+     * @return List of timed chords.
+     */
+    private List<TimedChord> timedChords() throws ExtractionException, InvalidTimingException, InvalidChordException {
+
+        final List<TimedChord> timedChords = new ArrayList<>();
+
+        // Ignore leading and trailing whitespace (as per String.trim)
+        int last = end;
+        while (cursor < last && notation.charAt(cursor) <= ' ') cursor++;
+        while (last > cursor && notation.charAt(last - 1) <= ' ') last--;
+
+        while (cursor < last) {
+
+            // Find the extent of the chord
+            int tokenEnd = cursor;
+            while (tokenEnd < last && notation.charAt(tokenEnd) != ' ') tokenEnd++;
+
+            if (tokenEnd > cursor) {
+                timedChords.add(timedChordAt(cursor, tokenEnd));
+            }
+
+            cursor = tokenEnd + 1;
+        }
+
+        return timedChords;
+    }
+
+    /**
+     * Convert a single timed chord, e.g. 1/Eb.
+     *
+     * @param start Start of the timed chord.
+     * @param tokenEnd End of the timed chord.
+     * @return Timed chord.
+     */
+    private TimedChord timedChordAt(final int start, final int tokenEnd)
+            throws ExtractionException, InvalidTimingException, InvalidChordException {
+
+        // Find the timing (which needn't be at the start of the token)
+        int timingStart = start;
+        while (timingStart < tokenEnd && timingEnd(timingStart, tokenEnd) < 0) timingStart++;
+
+        if (timingStart == tokenEnd) {
+            throw new ExtractionException("Can't extract chord and timing from: " +
+                    notation.subSequence(start, tokenEnd));
+        }
+
+        final Timing timing = Timing.of(sixteenthAt(timingStart));
+
+        // The chord runs to the end of the token (or a line terminator)
+        final int chordStart = timingEnd(timingStart, tokenEnd);
+        int chordEnd = chordStart;
+        while (chordEnd < tokenEnd && !isLineTerminator(notation.charAt(chordEnd))) chordEnd++;
+
+        final Chord chord = Chord.build(notation.subSequence(chordStart, chordEnd).toString());
+
+        return new TimedChord(timing, chord);
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // Timing
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Find the end of a timing and its separator (e.g. 2+/) starting at a position.
+     *
+     * @param start Start position.
+     * @param limit Position the timing must end before.
+     * @return Position after the '/', or -1 if there is no timing.
+     */
+    private int timingEnd(final int start, final int limit) {
+        final char beat = notation.charAt(start);
+        if (beat < '1' || beat > '6') return -1;
+
+        if (start + 1 < limit && notation.charAt(start + 1) == '/') return start + 2;
+        if (start + 2 < limit && isSubdivision(notation.charAt(start + 1)) && notation.charAt(start + 2) == '/') {
+            return start + 3;
+        }
+        return -1;
+    }
+
+    /**
+     * Convert the timing at a position (e.g. 4e) into a sixteenth note time.
+     *
+     * @param start Position of the beat number.
+     * @return Sixteenth note time.
+     * @throws InvalidTimingException The subdivision is finer than the time signature allows (e.g. 1e in 6/8).
+     */
+    private int sixteenthAt(final int start) throws InvalidTimingException {
+        final int sixteenthsPerBeat = timeSignature.getSixteenthsPerBeat();
+        final int sixteenth = (notation.charAt(start) - '1') * sixteenthsPerBeat;
+
+        // Quarters of a beat after the beat
+        final int quarters;
+        switch (notation.charAt(start + 1)) {
+            case 'e':
+                quarters = 1;
+                break;
+            case '+':
+                quarters = 2;
+                break;
+            case 'a':
+                quarters = 3;
+                break;
+            default:
+                return sixteenth;
+        }
+
+        if ((quarters * sixteenthsPerBeat) % 4 != 0) {
+            throw new InvalidTimingException("Invalid timing for the time signature: " +
+                    notation.subSequence(start, start + 2));
+        }
+        return sixteenth + quarters * sixteenthsPerBeat / 4;
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // Characters
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Convert a string letter (e.g. E) to a number (e.g. 6).
+     *
+     * @param letter String letter.
+     * @return String number.
+     * @throws InvalidStringException Invalid string letter.
+     */
+    static int stringLetterToNumber(final char letter) throws InvalidStringException {
+        switch (letter) {
+            case 'E':
+                return 6;
+            case 'a':
+                return 5;
+            case 'd':
+                return 4;
+            case 'g':
+                return 3;
+            case 'b':
+                return 2;
+            case 'e':
+                return 1;
+        }
+        throw new InvalidStringException("Can't determine string number for: " + letter);
+    }
+
+    private int skipWhitespace(int position) {
+        while (position < end && isWhitespace(notation.charAt(position))) position++;
+        return position;
+    }
+
+    private static boolean isSubdivision(final char c) {
+        return c == '+' || c == 'e' || c == 'a';
+    }
+
+    private static boolean isLetter(final char c) {
+        return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z');
+    }
+
+    private static boolean isDigit(final char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * Whitespace as matched by \s in a regular expression.
+     */
+    private static boolean isWhitespace(final char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    /**
+     * Line terminators (which aren't matched by . in a regular expression).
+     */
+    private static boolean isLineTerminator(final char c) {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+
+}
@@ -0,0 +1,456 @@
+package com.github.cdclaxton.guitartabgenerator.tabparser;
+
+import com.github.cdclaxton.guitartabgenerator.metrics.Metrics;
+import com.github.cdclaxton.guitartabgenerator.music.*;
+import com.github.cdclaxton.guitartabgenerator.sheetmusic.Header;
+import com.github.cdclaxton.guitartabgenerator.sheetmusic.Metadata;
+import com.github.cdclaxton.guitartabgenerator.sheetmusic.Section;
+import com.github.cdclaxton.guitartabgenerator.sheetmusic.SheetMusic;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * On-disk cache of parsed sheet music, so that an unchanged specification file isn't parsed again.
+ * <p>
+ * Each song is stored in its own file named after the SHA-256 hash of the specification bytes, the parser version and
+ * the format version, so editing a specification or changing the parser (or the format) means the old entry is no
+ * longer found. An entry is written in a compact binary format (notes as bytes, chords as indices into a table of the
+ * song's chords) and read back in one go. An entry that can't be read is deleted and the specification parsed again.
+ * <p>
+ * The cache directory is bounded in size: reading an entry marks it as recently used and, after writing an entry, the
+ * least recently used entries are deleted until the total size is within the limit.
+ */
+public final class ParsedSongCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ParsedSongCache.class);
+
+    // Bump when the binary format changes
+    static final int formatVersion = 2;
+
+    private static final int magic = 0x47544142;  // GTAB
+    private static final String entrySuffix = ".song";
+
+    private final Path directory;
+    private final long maxBytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Instantiate a cache, creating the cache directory if required.
+     *
+     * @param directory Cache directory.
+     * @param maxBytes Maximum total size of the cached songs (in bytes).
+     * @throws IOException Unable to create the directory.
+     */
+    public ParsedSongCache(final File directory,
+                           final long maxBytes) throws IOException {
+        this.directory = Files.createDirectories(directory.toPath());
+        this.maxBytes = maxBytes;
+        Metrics.cache("parse.songs", this::getHits, this::getMisses);
+    }
+
+    /**
+     * Parse sheet music from a (UTF-8) file, using the cached song if the file hasn't changed.
+     *
+     * @param file File containing the sheet music.
+     * @return Parsed sheet music.
+     * @throws IOException Unable to read the file.
+     */
+    public SheetMusic parseSheetMusic(final File file)
+            throws IOException, ExtractionException, InvalidKeyException, InvalidStringException,
+            InvalidFretNumberException, InvalidTimingException, InvalidChordException {
+
+        final byte[] spec = Files.readAllBytes(file.toPath());
+        final Path entry = this.directory.resolve(ParsedSongCache.entryName(spec) + entrySuffix);
+
+        final Optional<SheetMusic> cached = this.read(entry);
+        if (cached.isPresent()) {
+            hits.incrementAndGet();
+            return cached.get();
+        }
+
+        misses.incrementAndGet();
+        final SheetMusic sheetMusic = SheetMusicParser.parseSheetMusic(spec);
+        this.write(entry, sheetMusic);
+        return sheetMusic;
+    }
+
+    /**
+     * Get the number of songs read from the cache.
+     *
+     * @return Number of hits.
+     */
+    public long getHits() { return hits.get(); }
+
+    /**
+     * Get the number of songs that had to be parsed.
+     *
+     * @return Number of misses.
+     */
+    public long getMisses() { return misses.get(); }
+
+    /**
+     * Read a song from the cache.
+     *
+     * @param entry Path of the cache entry.
+     * @return Sheet music, or empty if the entry doesn't exist or can't be read.
+     */
+    private Optional<SheetMusic> read(final Path entry) {
+        final byte[] bytes;
+        try {
+            bytes = Files.readAllBytes(entry);
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        } catch (IOException e) {
+            logger.warn("Unable to read cached song {}: {}", entry, e.getMessage());
+            return Optional.empty();
+        }
+
+        try {
+            final SheetMusic sheetMusic = ParsedSongCache.decode(ByteBuffer.wrap(bytes));
+
+            // Mark the entry as recently used
+            entry.toFile().setLastModified(System.currentTimeMillis());
+            return Optional.of(sheetMusic);
+        } catch (IOException | RuntimeException | InvalidKeyException | InvalidStringException |
+                InvalidFretNumberException | InvalidTimingException e) {
+            logger.warn("Deleting unreadable cached song {}: {}", entry, e.toString());
+            ParsedSongCache.delete(entry);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Write a song to the cache and evict the least recently used songs if the cache is too big.
+     * <p>
+     * A failure to write is logged rather than thrown, as the song has already been parsed.
+     *
+     * @param entry Path of the cache entry.
+     * @param sheetMusic Sheet music to write.
+     */
+    private void write(final Path entry,
+                       final SheetMusic sheetMusic) {
+        try {
+            // Write to a temporary file and rename it, so a partly written entry is never read
+            final Path temporary = Files.createTempFile(this.directory, "song", ".tmp");
+            try {
+                Files.write(temporary, ParsedSongCache.encode(sheetMusic));
+                Files.move(temporary, entry, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+            this.evict();
+        } catch (IOException e) {
+            logger.warn("Unable to cache song {}: {}", entry, e.getMessage());
+        }
+    }
+
+    /**
+     * Delete the least recently used songs until the cache is within its maximum size.
+     *
+     * @throws IOException Unable to list the cache directory.
+     */
+    private synchronized void evict() throws IOException {
+
+        // Take a snapshot of when each entry was last used, as other threads may be reading them
+        final Map<File, Long> lastUsed = new HashMap<>();
+        long totalBytes = 0;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(this.directory, "*" + entrySuffix)) {
+            for (Path path : stream) {
+                lastUsed.put(path.toFile(), path.toFile().lastModified());
+                totalBytes += path.toFile().length();
+            }
+        }
+        if (totalBytes <= this.maxBytes) return;
+
+        final List<File> entries = new ArrayList<>(lastUsed.keySet());
+        entries.sort(Comparator.comparing(lastUsed::get));
+        for (File file : entries) {
+            if (totalBytes <= this.maxBytes) break;
+            final long length = file.length();
+            if (file.delete()) {
+                logger.debug("Evicted cached song {}", file);
+                totalBytes -= length;
+            }
+        }
+    }
+
+    /**
+     * Build the name of the cache entry for a specification.
+     *
+     * @param spec Specification bytes.
+     * @return Hex-encoded SHA-256 hash of the specification, parser version and format version.
+     */
+    static String entryName(final byte[] spec) {
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(spec);
+            digest.update(ByteBuffer.allocate(8).putInt(SheetMusicParser.version).putInt(formatVersion).array());
+
+            final StringBuilder hex = new StringBuilder(64);
+            for (byte b : digest.digest()) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+    }
+
+    /**
+     * Delete a cache entry (if it still exists).
+     *
+     * @param entry Path of the cache entry.
+     */
+    private static void delete(final Path entry) {
+        try {
+            Files.deleteIfExists(entry);
+        } catch (IOException e) {
+            logger.warn("Unable to delete cached song {}: {}", entry, e.getMessage());
+        }
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // Binary format
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Encode sheet music in the binary format.
+     * <p>
+     * The format is: magic number, format version and parser version; the header (title, artist, key and time
+     * signature); the metadata; a table of the distinct chords; then each section (name, text and bars). Each bar is
+     * its time signature, its notes (sixteenth, string and fret as one byte each) and its chords (sixteenth and the
+     * index of the chord in the table).
+     *
+     * @param sheetMusic Sheet music to encode.
+     * @return Encoded bytes.
+     * @throws IOException Unable to encode the sheet music.
+     */
+    static byte[] encode(final SheetMusic sheetMusic) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+
+        out.writeInt(magic);
+        out.writeInt(formatVersion);
+        out.writeInt(SheetMusicParser.version);
+
+        // Header
+        final Header header = sheetMusic.getHeader();
+        writeString(out, header.getTitle());
+        writeString(out, header.getArtist());
+        writeString(out, header.getKey() == null ? null : header.getKey().getKey());
+        out.writeByte(header.getTimeSignature() == null ? -1 : header.getTimeSignature().ordinal());
+
+        // Metadata
+        final Map<String, Object> metadata = sheetMusic.getMetadata().getMetadata();
+        out.writeInt(metadata.size());
+        for (Map.Entry<String, Object> entry : metadata.entrySet()) {
+            writeString(out, entry.getKey());
+            writeString(out, String.valueOf(entry.getValue()));
+        }
+
+        // Table of the distinct chords
+        final Map<String, Integer> chordIndices = new LinkedHashMap<>();
+        final List<Chord> chords = new ArrayList<>();
+        for (Section section : sheetMusic.getSections()) {
+            for (Bar bar : section.getBars()) {
+                for (TimedChord timedChord : bar.getTimedChords()) {
+                    final String notation = timedChord.getChord().musicNotation();
+                    if (!chordIndices.containsKey(notation)) {
+                        chordIndices.put(notation, chords.size());
+                        chords.add(timedChord.getChord());
+                    }
+                }
+            }
+        }
+        out.writeInt(chords.size());
+        for (Chord chord : chords) {
+            writeString(out, chord.getRootNote());
+            writeString(out, chord.getSymbols());
+            writeString(out, chord.getBassNote().orElse(null));
+        }
+
+        // Sections
+        out.writeInt(sheetMusic.getSections().size());
+        for (Section section : sheetMusic.getSections()) {
+            writeString(out, section.getName());
+
+            out.writeInt(section.getText().size());
+            for (String text : section.getText()) {
+                writeString(out, text);
+            }
+
+            out.writeInt(section.getBars().size());
+            for (Bar bar : section.getBars()) {
+                out.writeByte(bar.getTimeSignature() == null ? -1 : bar.getTimeSignature().ordinal());
+
+                final PackedNotes notes = bar.getPackedNotes();
+                out.writeInt(notes.size());
+                for (int k = 0; k < notes.size(); k++) {
+                    out.writeByte(PackedNotes.sixteenthNumber(notes.get(k)));
+                    out.writeByte(PackedNotes.stringNumber(notes.get(k)));
+                    out.writeByte(PackedNotes.fretNumber(notes.get(k)));
+                }
+
+                out.writeInt(bar.getTimedChords().size());
+                for (TimedChord timedChord : bar.getTimedChords()) {
+                    out.writeByte(timedChord.getTiming().getSixteenthNumber());
+                    out.writeInt(chordIndices.get(timedChord.getChord().musicNotation()));
+                }
+            }
+        }
+
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decode sheet music from the binary format.
+     * <p>
+     * Every count is checked against the number of bytes left before anything is allocated, so a corrupt entry fails
+     * with an IOException rather than a huge or negative allocation.
+     *
+     * @param in Encoded bytes.
+     * @return Sheet music.
+     * @throws IOException The bytes aren't sheet music in the current format.
+     */
+    static SheetMusic decode(final ByteBuffer in) throws IOException, InvalidKeyException, InvalidStringException,
+            InvalidFretNumberException, InvalidTimingException {
+
+        if (in.getInt() != magic) throw new IOException("Not a cached song");
+        final int entryFormatVersion = in.getInt();
+        final int entryParserVersion = in.getInt();
+        if (entryFormatVersion != formatVersion || entryParserVersion != SheetMusicParser.version) {
+            throw new IOException("Cached song has format version " + entryFormatVersion + " and parser version " +
+                    entryParserVersion);
+        }
+
+        // Header
+        final String title = readString(in);
+        final String artist = readString(in);
+        final String key = readString(in);
+        final Bar.TimeSignature timeSignature = readTimeSignature(in);
+        final Header header = new Header(title, artist, key == null ? null : new Key(key), timeSignature);
+
+        // Metadata
+        final Metadata metadata = new Metadata();
+        final int nMetadata = readCount(in);
+        for (int i = 0; i < nMetadata; i++) {
+            metadata.addMetadata(readString(in), readString(in));
+        }
+
+        // Table of the distinct chords
+        final Chord[] chords = new Chord[readCount(in)];
+        for (int i = 0; i < chords.length; i++) {
+            final String rootNote = readRequiredString(in);
+            final String symbols = readRequiredString(in);
+            chords[i] = Chord.intern(new Chord(rootNote, symbols, Optional.ofNullable(readString(in))));
+        }
+
+        // Sections
+        final int nSections = readCount(in);
+        final List<Section> sections = new ArrayList<>(nSections);
+        for (int i = 0; i < nSections; i++) {
+            final String name = readString(in);
+
+            final int nText = readCount(in);
+            final List<String> text = new ArrayList<>(nText);
+            for (int j = 0; j < nText; j++) {
+                text.add(readString(in));
+            }
+
+            final int nBars = readCount(in);
+            final List<Bar> bars = new ArrayList<>(nBars);
+            for (int j = 0; j < nBars; j++) {
+                final Bar.TimeSignature barTimeSignature = readTimeSignature(in);
+
+                final int[] notes = new int[readCount(in)];
+                for (int k = 0; k < notes.length; k++) {
+                    // Read the bytes as unsigned so that corrupt values are rejected by PackedNotes.of()
+                    final int sixteenthNumber = in.get() & 0xff;
+                    final int stringNumber = in.get() & 0xff;
+                    notes[k] = PackedNotes.pack(stringNumber, in.get() & 0xff, sixteenthNumber);
+                }
+
+                final int nChords = readCount(in);
+                final List<TimedChord> timedChords = new ArrayList<>(nChords);
+                for (int k = 0; k < nChords; k++) {
+                    final Timing timing = Timing.of(in.get());
+                    final int chord = in.getInt();
+                    if (chord < 0 || chord >= chords.length) throw new IOException("Invalid chord index: " + chord);
+                    timedChords.add(new TimedChord(timing, chords[chord]));
+                }
+
+                bars.add(new Bar(barTimeSignature, PackedNotes.of(notes), timedChords));
+            }
+
+            sections.add(new Section(name, text, bars));
+        }
+
+        if (in.hasRemaining()) throw new IOException("Unexpected bytes at the end of the cached song");
+
+        return new SheetMusic(header, metadata, sections);
+    }
+
+    private static void writeString(final DataOutputStream out,
+                                    final String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+        } else {
+            final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private static String readString(final ByteBuffer in) {
+        final int length = in.getInt();
+        if (length < 0) return null;
+        if (length > in.remaining()) throw new BufferUnderflowException();
+
+        final String value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return value;
+    }
+
+    private static String readRequiredString(final ByteBuffer in) throws IOException {
+        final String value = readString(in);
+        if (value == null) throw new IOException("Missing value in cached song");
+        return value;
+    }
+
+    /**
+     * Read the number of items that follow.
+     *
+     * @param in Encoded bytes.
+     * @return Number of items.
+     * @throws IOException The count is negative or more than the bytes left (each item is at least one byte).
+     */
+    private static int readCount(final ByteBuffer in) throws IOException {
+        final int count = in.getInt();
+        if (count < 0 || count > in.remaining()) throw new IOException("Invalid count in cached song: " + count);
+        return count;
+    }
+
+    private static Bar.TimeSignature readTimeSignature(final ByteBuffer in) {
+        final int ordinal = in.get();
+        if (ordinal < -1 || ordinal >= Bar.TimeSignature.values().length) {
+            throw new IllegalArgumentException("Invalid time signature: " + ordinal);
+        }
+        return ordinal < 0 ? null : Bar.TimeSignature.values()[ordinal];
+    }
+}
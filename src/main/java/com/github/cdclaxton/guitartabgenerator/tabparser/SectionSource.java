@@ -0,0 +1,110 @@
+package com.github.cdclaxton.guitartabgenerator.tabparser;
+
+import com.github.cdclaxton.guitartabgenerator.music.*;
+import com.github.cdclaxton.guitartabgenerator.sheetmusic.Section;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Source of a section of sheet music: its name, lines of text and bars as written in the specification, before the
+ * bars are parsed.
+ * <p>
+ * Two sources are equal exactly when they parse to the same section, so a source is used as the fingerprint of a
+ * section, e.g. to find out which sections of a specification have changed since it was last rendered.
+ */
+public final class SectionSource {
+
+    private final String name;
+    private final List<String> text;
+    private final List<ExtractedBar> bars;
+    private final Bar.TimeSignature timeSignature;
+    private final int hash;
+
+    /**
+     * Instantiate the source of a section.
+     *
+     * @param name Name (or title) of the section (null if it doesn't have one).
+     * @param text Lines of text.
+     * @param bars Extracted (unparsed) bars.
+     * @param timeSignature Time signature of the music.
+     */
+    SectionSource(final String name,
+                  final List<String> text,
+                  final List<ExtractedBar> bars,
+                  final Bar.TimeSignature timeSignature) {
+
+        this.name = name;
+        this.text = Collections.unmodifiableList(new ArrayList<>(text));
+        this.bars = Collections.unmodifiableList(new ArrayList<>(bars));
+        this.timeSignature = timeSignature;
+        this.hash = Objects.hash(name, this.text, this.bars, timeSignature);
+    }
+
+    /**
+     * Get the name (or title) of the section.
+     *
+     * @return Name (null if the section doesn't have one).
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Get the number of bars in the section.
+     *
+     * @return Number of bars.
+     */
+    public int getNumberBars() {
+        return bars.size();
+    }
+
+    /**
+     * Parse the bars of the section.
+     *
+     * @return Section.
+     * @throws ExtractionException        Bar was probably misidentified.
+     * @throws InvalidStringException     String number is invalid.
+     * @throws InvalidFretNumberException Fret number is invalid.
+     * @throws InvalidTimingException     Timing of a note is invalid.
+     * @throws InvalidChordException      Chord is invalid.
+     */
+    public Section parse() throws ExtractionException, InvalidStringException, InvalidFretNumberException,
+            InvalidTimingException, InvalidChordException {
+
+        final List<Bar> parsed = new ArrayList<>(bars.size());
+        for (ExtractedBar bar : bars) {
+            parsed.add(bar.toBar(timeSignature));
+        }
+        return new Section(name, text, parsed);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        SectionSource that = (SectionSource) o;
+        return hash == that.hash &&
+                Objects.equals(name, that.name) &&
+                text.equals(that.text) &&
+                bars.equals(that.bars) &&
+                timeSignature == that.timeSignature;
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return "SectionSource{" +
+                "name='" + name + '\'' +
+                ", text=" + text +
+                ", bars=" + bars.size() +
+                ", timeSignature=" + timeSignature +
+                '}';
+    }
+}
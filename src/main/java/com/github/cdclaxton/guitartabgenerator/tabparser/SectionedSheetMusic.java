@@ -0,0 +1,40 @@
+package com.github.cdclaxton.guitartabgenerator.tabparser;
+
+import com.github.cdclaxton.guitartabgenerator.sheetmusic.Header;
+import com.github.cdclaxton.guitartabgenerator.sheetmusic.Metadata;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Sheet music whose header has been parsed but whose sections are held as their sources, so that each section can be
+ * parsed (or skipped) separately.
+ */
+public final class SectionedSheetMusic {
+
+    private final Header header;
+    private final Metadata metadata;
+    private final List<SectionSource> sections;
+
+    /**
+     * Instantiate sectioned sheet music.
+     *
+     * @param header Header.
+     * @param metadata Metadata.
+     * @param sections Sources of the sections (in order).
+     */
+    SectionedSheetMusic(final Header header,
+                        final Metadata metadata,
+                        final List<SectionSource> sections) {
+        this.header = header;
+        this.metadata = metadata;
+        this.sections = Collections.unmodifiableList(new ArrayList<>(sections));
+    }
+
+    public Header getHeader() { return header; }
+
+    public Metadata getMetadata() { return metadata; }
+
+    public List<SectionSource> getSections() { return sections; }
+}
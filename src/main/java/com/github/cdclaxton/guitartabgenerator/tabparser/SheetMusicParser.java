@@ -1,5 +1,7 @@
 package com.github.cdclaxton.guitartabgenerator.tabparser;
 
+import com.github.cdclaxton.guitartabgenerator.metrics.Metrics;
+import com.github.cdclaxton.guitartabgenerator.metrics.Timer;
 import com.github.cdclaxton.guitartabgenerator.music.*;
 import com.github.cdclaxton.guitartabgenerator.sheetmusic.Header;
 import com.github.cdclaxton.guitartabgenerator.sheetmusic.Metadata;
@@ -18,6 +20,11 @@ public final class SheetMusicParser {
 
     private static final Logger logger = LoggerFactory.getLogger(SheetMusicParser.class);
 
+    // Bump when a change to the parser changes the sheet music it produces (so cached songs are parsed again)
+    static final int version = 2;
+
+    private static final Timer parseTimer = Metrics.timer("parse", "bars");
+
     private SheetMusicParser() {
     }
 
@@ -34,13 +41,108 @@ public final class SheetMusicParser {
             throws IOException, ExtractionException, InvalidKeyException, InvalidStringException,
             InvalidFretNumberException, InvalidTimingException, InvalidChordException {
 
-        logger.info("Reading sheet music from file: " + file);
+        logger.info("Reading sheet music from file: {}", file);
+        final long start = Metrics.start();
 
         // Read the file into a list of components
         List<ExtractedComponent> extractedComponents = SheetMusicParser.readSheetMusic(file);
 
         // Turn the components into sheet music
-        return componentsToSheetMusic(extractedComponents);
+        return SheetMusicParser.timed(start, componentsToSheetMusic(extractedComponents));
+    }
+
+    /**
+     * Parse sheet music from the (UTF-8) bytes of a specification.
+     *
+     * @param spec Specification bytes.
+     * @return Parsed sheet music.
+     * @throws IOException The bytes aren't valid UTF-8.
+     */
+    static SheetMusic parseSheetMusic(final byte[] spec)
+            throws IOException, ExtractionException, InvalidKeyException, InvalidStringException,
+            InvalidFretNumberException, InvalidTimingException, InvalidChordException {
+        final long start = Metrics.start();
+        return SheetMusicParser.timed(start, componentsToSheetMusic(SpecReader.readComponents(spec)));
+    }
+
+    /**
+     * Parse sheet music from a reader (e.g. the body of a request).
+     *
+     * @param reader Reader containing the sheet music; it is read to the end but not closed.
+     * @return Parsed sheet music.
+     * @throws IOException Unable to read the sheet music.
+     */
+    public static SheetMusic parseSheetMusic(final Reader reader)
+            throws IOException, ExtractionException, InvalidKeyException, InvalidStringException,
+            InvalidFretNumberException, InvalidTimingException, InvalidChordException {
+
+        final long start = Metrics.start();
+
+        // Read the lines into a list of components
+        List<ExtractedComponent> extractedComponents = SpecReader.readComponents(reader);
+
+        // Turn the components into sheet music
+        return SheetMusicParser.timed(start, componentsToSheetMusic(extractedComponents));
+    }
+
+    /**
+     * Record the time taken to parse the sheet music.
+     *
+     * @param start Value of Metrics.start() when parsing started.
+     * @param sheetMusic Parsed sheet music.
+     * @return Parsed sheet music.
+     */
+    private static SheetMusic timed(final long start,
+                                    final SheetMusic sheetMusic) {
+        parseTimer.stop(start, sheetMusic.getNumberBars());
+        return sheetMusic;
+    }
+
+    /**
+     * Read sheet music from a (UTF-8) text file, parsing the header but leaving the bars of each section unparsed.
+     *
+     * @param file File containing the sheet music.
+     * @return Sectioned sheet music.
+     * @throws IOException         Unable to read the file.
+     * @throws ExtractionException Unable to parse a line.
+     * @throws InvalidKeyException Musical key is invalid.
+     */
+    public static SectionedSheetMusic parseSections(final File file)
+            throws IOException, ExtractionException, InvalidKeyException {
+
+        logger.info("Reading sheet music sections from file: {}", file);
+        return componentsToSectionedSheetMusic(SheetMusicParser.readSheetMusic(file));
+    }
+
+    /**
+     * Read sheet music from a reader, parsing the header but leaving the bars of each section unparsed.
+     *
+     * @param reader Reader containing the sheet music; it is read to the end but not closed.
+     * @return Sectioned sheet music.
+     * @throws IOException         Unable to read the sheet music.
+     * @throws ExtractionException Unable to parse a line.
+     * @throws InvalidKeyException Musical key is invalid.
+     */
+    public static SectionedSheetMusic parseSections(final Reader reader)
+            throws IOException, ExtractionException, InvalidKeyException {
+        return componentsToSectionedSheetMusic(SpecReader.readComponents(reader));
+    }
+
+    /**
+     * Convert the extracted components into sectioned sheet music.
+     *
+     * @param components List of components.
+     * @return Sectioned sheet music.
+     * @throws InvalidKeyException Musical key is invalid.
+     * @throws ExtractionException Invalid time signature.
+     */
+    private static SectionedSheetMusic componentsToSectionedSheetMusic(final List<ExtractedComponent> components)
+            throws InvalidKeyException, ExtractionException {
+
+        final Header header = SheetMusicParser.componentsToHeader(components);
+        final Metadata metadata = SheetMusicParser.componentsToMetadata(components);
+        return new SectionedSheetMusic(header, metadata,
+                SheetMusicParser.componentsToSectionSources(components, header.getTimeSignature()));
     }
 
     /**
@@ -83,13 +185,31 @@ public final class SheetMusicParser {
             throws ExtractionException, InvalidStringException, InvalidFretNumberException, InvalidTimingException,
             InvalidChordException {
 
-        final List<Section> sections = new ArrayList<>();
+        final List<SectionSource> sources = SheetMusicParser.componentsToSectionSources(components, timeSignature);
+        final List<Section> sections = new ArrayList<>(sources.size());
+        for (SectionSource source : sources) {
+            sections.add(source.parse());
+        }
+        return sections;
+    }
+
+    /**
+     * Group the extracted components into the sources of the sections of the sheet music, without parsing the bars.
+     *
+     * @param components    List of extracted components from the sheet music.
+     * @param timeSignature Time signature of the music.
+     * @return List of section sources.
+     */
+    static List<SectionSource> componentsToSectionSources(final List<ExtractedComponent> components,
+                                                          final Bar.TimeSignature timeSignature) {
+
+        final List<SectionSource> sections = new ArrayList<>();
         boolean sectionInProgress = false;
 
-        // The Section class is immutable, so create temporary variables to hold the extracted values
+        // The SectionSource class is immutable, so create temporary variables to hold the extracted values
         String name = null;
         List<String> text = new ArrayList<>();
-        List<Bar> bars = new ArrayList<>();
+        List<ExtractedBar> bars = new ArrayList<>();
 
         for (ExtractedComponent component : components) {
 
@@ -98,8 +218,7 @@ public final class SheetMusicParser {
 
                 // As there is a section in progress, but a new section has started, add the previous section to list
                 if (sectionInProgress) {
-                    Section section = new Section(name, text, bars);
-                    sections.add(section);
+                    sections.add(new SectionSource(name, text, bars, timeSignature));
 
                     // Clear out the temporary variables
                     text = new ArrayList<>();
@@ -113,28 +232,20 @@ public final class SheetMusicParser {
 
             // A section can contain zero or more lines of text
             if (component instanceof ExtractedText) {
-                if (!sectionInProgress) {
-                    sectionInProgress = true;
-                }
-                ExtractedText extractedText = (ExtractedText) component;
-                text.add(extractedText.getText());
+                sectionInProgress = true;
+                text.add(((ExtractedText) component).getText());
             }
 
             // A section can contain zero or more bars
             if (component instanceof ExtractedBar) {
-                if (!sectionInProgress) {
-                    sectionInProgress = true;
-                }
-                ExtractedBar extractedBar = (ExtractedBar) component;
-                Bar bar = extractedBar.toBar(timeSignature);
-                bars.add(bar);
+                sectionInProgress = true;
+                bars.add((ExtractedBar) component);
             }
         }
 
         // Check if there is a final section to add
         if (sectionInProgress) {
-            Section section = new Section(name, text, bars);
-            sections.add(section);
+            sections.add(new SectionSource(name, text, bars, timeSignature));
         }
 
         return sections;
@@ -148,7 +259,7 @@ public final class SheetMusicParser {
      * @throws InvalidKeyException Musical key is invalid.
      * @throws ExtractionException Invalid time signature.
      */
-    private static Header componentsToHeader(final List<ExtractedComponent> components)
+    static Header componentsToHeader(final List<ExtractedComponent> components)
             throws InvalidKeyException, ExtractionException {
 
         // As Header is immutable, create temporary variables for the member variables
@@ -206,7 +317,7 @@ public final class SheetMusicParser {
      * @param components List of components extracted from the sheet music.
      * @return Metadata.
      */
-    private static Metadata componentsToMetadata(final List<ExtractedComponent> components) {
+    static Metadata componentsToMetadata(final List<ExtractedComponent> components) {
         final Metadata metadata = new Metadata();
 
         for (ExtractedComponent component : components) {
@@ -222,7 +333,7 @@ public final class SheetMusicParser {
     }
 
     /**
-     * Parse the sheet music from a file.
+     * Parse the sheet music from a (UTF-8) file.
      *
      * @param file File to parse.
      * @return List of extracted components of the sheet music.
@@ -230,49 +341,18 @@ public final class SheetMusicParser {
      * @throws ExtractionException Unable to parse a line from the file.
      */
     private static List<ExtractedComponent> readSheetMusic(final File file) throws IOException, ExtractionException {
-
-        // Read each of the lines from the sheet music
-        final BufferedReader bufferedReader = new BufferedReader(new FileReader(file));
-        String line;
-        final List<ExtractedComponent> extractedComponents = new ArrayList<>();
-
-        while ((line = bufferedReader.readLine()) != null) {
-            logger.debug("Processing line: " + line);
-            ExtractedComponent component = SheetMusicParser.parseLine(line);
-            if (component != null) {
-                extractedComponents.add(component);
-            }
-        }
-
-        return extractedComponents;
+        return SpecReader.readComponents(file);
     }
 
     /**
      * Parse a line into a 'component' of the sheet music.
      *
      * @param line Line to parse.
-     * @return Extracted component.
+     * @return Extracted component (null for a blank line).
      * @throws ExtractionException Unable to detemine the type of the line.
      */
     static ExtractedComponent parseLine(final String line) throws ExtractionException {
-        final String trimmedLine = line.trim();
-        ExtractedComponent component;
-
-        if (trimmedLine.length() == 0) {
-            component = null;
-        } else if (SheetMusicParser.isLineHeader(line)) {
-            component = SheetMusicParser.extractHeader(line);
-        } else if (SheetMusicParser.isLineSectionHeader(line)) {
-            component = SheetMusicParser.extractSectionHeader(line);
-        } else if (SheetMusicParser.isLineBar(line)) {
-            component = SheetMusicParser.extractBar(line);
-        } else if (SheetMusicParser.isLineText(line)) {
-            component = SheetMusicParser.extractText(line);
-        } else {
-            throw new ExtractionException("Can't determine type of component to extract: " + line);
-        }
-
-        return component;
+        return SpecReader.parseLine(line.toCharArray(), 0, line.length());
     }
 
     // -----------------------------------------------------------------------------------------------------------------
@@ -297,7 +377,7 @@ public final class SheetMusicParser {
      * @throws ExtractionException Header isn't present on the line.
      */
     static ExtractedHeader extractHeader(final String line) throws ExtractionException {
-        logger.debug("Extracting header from line: " + line);
+        logger.debug("Extracting header from line: {}", line);
         if (!SheetMusicParser.isLineHeader(line)) {
             throw new ExtractionException("Invalid header: " + line);
         }
@@ -331,7 +411,7 @@ public final class SheetMusicParser {
      * @throws ExtractionException Section header can't be extracted from the line.
      */
     static ExtractedSectionHeader extractSectionHeader(final String line) throws ExtractionException {
-        logger.debug("Extracting section header from line: " + line);
+        logger.debug("Extracting section header from line: {}", line);
         if (!SheetMusicParser.isLineSectionHeader(line)) {
             throw new ExtractionException("Invalid section header: " + line);
         }
@@ -370,7 +450,7 @@ public final class SheetMusicParser {
      * @throws ExtractionException A valid bar isn't present on the line.
      */
     static ExtractedBar extractBar(final String line) throws ExtractionException {
-        logger.debug("Extracting bar from line: " + line);
+        logger.debug("Extracting bar from line: {}", line);
         if (!SheetMusicParser.isLineBar(line)) {
             throw new ExtractionException("Invalid bar: " + line);
         }
@@ -410,7 +490,7 @@ public final class SheetMusicParser {
      * @throws ExtractionException Line doesn't contain text.
      */
     static ExtractedText extractText(final String line) throws ExtractionException {
-        logger.debug("Extracting text from line: " + line);
+        logger.debug("Extracting text from line: {}", line);
         if (!SheetMusicParser.isLineText(line)) {
             throw new ExtractionException("Invalid text: " + line);
         }
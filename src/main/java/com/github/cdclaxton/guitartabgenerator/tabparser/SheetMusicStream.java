@@ -0,0 +1,173 @@
+package com.github.cdclaxton.guitartabgenerator.tabparser;
+
+import com.github.cdclaxton.guitartabgenerator.music.*;
+import com.github.cdclaxton.guitartabgenerator.sheetmusic.Header;
+import com.github.cdclaxton.guitartabgenerator.sheetmusic.Metadata;
+import com.github.cdclaxton.guitartabgenerator.sheetmusic.Section;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Reads sheet music one section at a time, so that the whole song never has to be held in memory.
+ * <p>
+ * The header (and metadata) lines are read when the stream is opened and must come before the music. Each call to
+ * nextSection() then reads just enough lines to complete the next section. The sections are the same as those from
+ * SheetMusicParser.parseSheetMusic().
+ */
+public final class SheetMusicStream implements Closeable {
+
+    private final BufferedReader reader;
+    private final Header header;
+    private final Metadata metadata;
+
+    // First component after the header lines, or the section header that ended the previous section
+    private ExtractedComponent pending;
+    private boolean finished = false;
+
+    /**
+     * Open a stream over sheet music, reading the header.
+     *
+     * @param reader Reader containing the sheet music; it is closed when the stream is closed.
+     * @throws IOException Unable to read the sheet music.
+     * @throws ExtractionException Unable to parse a header line.
+     * @throws InvalidKeyException Musical key is invalid.
+     */
+    public SheetMusicStream(final Reader reader) throws IOException, ExtractionException, InvalidKeyException {
+        this.reader = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+
+        // Skip a byte order mark
+        this.reader.mark(1);
+        if (this.reader.read() != '\uFEFF') this.reader.reset();
+
+        // Read the header lines (up to the first line of music)
+        final List<ExtractedComponent> headerComponents = new ArrayList<>();
+        ExtractedComponent component;
+        while ((component = this.readComponent()) != null) {
+            if (!(component instanceof ExtractedHeader)) {
+                this.pending = component;
+                break;
+            }
+            headerComponents.add(component);
+        }
+
+        this.header = SheetMusicParser.componentsToHeader(headerComponents);
+        this.metadata = SheetMusicParser.componentsToMetadata(headerComponents);
+    }
+
+    /**
+     * Open a stream over sheet music in a (UTF-8) file, reading the header.
+     *
+     * @param file File containing the sheet music.
+     * @return Stream.
+     * @throws IOException Unable to read the file.
+     * @throws ExtractionException Unable to parse a header line.
+     * @throws InvalidKeyException Musical key is invalid.
+     */
+    public static SheetMusicStream open(final File file) throws IOException, ExtractionException, InvalidKeyException {
+        final Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8);
+        try {
+            return new SheetMusicStream(reader);
+        } catch (IOException | ExtractionException | InvalidKeyException | RuntimeException e) {
+            reader.close();
+            throw e;
+        }
+    }
+
+    public Header getHeader() { return header; }
+
+    public Metadata getMetadata() { return metadata; }
+
+    /**
+     * Read the next section of the sheet music.
+     *
+     * @return Section, or empty if there are no more sections.
+     * @throws IOException                Unable to read the sheet music.
+     * @throws ExtractionException        Unable to parse a line, or a header line follows the music.
+     * @throws InvalidStringException     String number is invalid.
+     * @throws InvalidFretNumberException Fret number is invalid.
+     * @throws InvalidTimingException     Timing of a note is invalid.
+     * @throws InvalidChordException      Chord is invalid.
+     */
+    public Optional<Section> nextSection() throws IOException, ExtractionException, InvalidStringException,
+            InvalidFretNumberException, InvalidTimingException, InvalidChordException {
+
+        if (this.finished) return Optional.empty();
+
+        boolean sectionInProgress = false;
+        String name = null;
+        final List<String> text = new ArrayList<>();
+        final List<Bar> bars = new ArrayList<>();
+
+        ExtractedComponent component = this.takePending();
+        while (component != null) {
+
+            if (component instanceof ExtractedHeader) {
+                throw new ExtractionException("Header must come before the music: " + component);
+            }
+
+            // Section headers denote the start of a new section
+            if (component instanceof ExtractedSectionHeader) {
+                if (sectionInProgress) {
+                    // Hold on to the header for the next call and return the completed section
+                    this.pending = component;
+                    return Optional.of(new Section(name, text, bars));
+                }
+                sectionInProgress = true;
+                name = ((ExtractedSectionHeader) component).getName();
+            }
+
+            // A section can contain zero or more lines of text
+            if (component instanceof ExtractedText) {
+                sectionInProgress = true;
+                text.add(((ExtractedText) component).getText());
+            }
+
+            // A section can contain zero or more bars
+            if (component instanceof ExtractedBar) {
+                sectionInProgress = true;
+                bars.add(((ExtractedBar) component).toBar(this.header.getTimeSignature()));
+            }
+
+            component = this.readComponent();
+        }
+
+        // End of the sheet music
+        this.finished = true;
+        return sectionInProgress ? Optional.of(new Section(name, text, bars)) : Optional.empty();
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.reader.close();
+    }
+
+    /**
+     * Take the pending component (if there is one), otherwise read the next component.
+     *
+     * @return Component, or null at the end of the sheet music.
+     */
+    private ExtractedComponent takePending() throws IOException, ExtractionException {
+        final ExtractedComponent component = this.pending;
+        this.pending = null;
+        return component != null ? component : this.readComponent();
+    }
+
+    /**
+     * Read the next (non-blank) component.
+     *
+     * @return Component, or null at the end of the sheet music.
+     */
+    private ExtractedComponent readComponent() throws IOException, ExtractionException {
+        String line;
+        while ((line = this.reader.readLine()) != null) {
+            final ExtractedComponent component = SheetMusicParser.parseLine(line);
+            if (component != null) return component;
+        }
+        return null;
+    }
+}
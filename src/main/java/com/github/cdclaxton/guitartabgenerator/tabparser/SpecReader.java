@@ -0,0 +1,255 @@
+package com.github.cdclaxton.guitartabgenerator.tabparser;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads a specification in bulk and classifies each line in a single pass over its characters.
+ * <p>
+ * Files are decoded as UTF-8 (small files are read whole, large files are memory-mapped) into one character array.
+ * Lines are then handled as slices of that array: a line is only turned into a string when an error is reported, and
+ * the only strings created are the parts kept by the extracted components.
+ * <p>
+ * A line is classified with the same precedence as the extract methods in SheetMusicParser: blank, header (contains
+ * '='), section header (contains '[' and ']'), bar (starts with '(' and contains ')') and then text (starts with '>'
+ * after any leading whitespace).
+ */
+final class SpecReader {
+
+    // Files at least this size are memory-mapped rather than read into a byte array
+    private static final long mapThreshold = 1 << 20;
+
+    private static final char byteOrderMark = '\uFEFF';
+
+    private SpecReader() {}
+
+    /**
+     * Read the components of the sheet music from a UTF-8 file.
+     *
+     * @param file File to read.
+     * @return Extracted components (blank lines are skipped).
+     * @throws IOException         Unable to read the file or it isn't valid UTF-8.
+     * @throws ExtractionException Unable to parse a line.
+     */
+    static List<ExtractedComponent> readComponents(final File file) throws IOException, ExtractionException {
+        return SpecReader.readComponents(SpecReader.decode(file));
+    }
+
+    /**
+     * Read the components of the sheet music from UTF-8 bytes.
+     *
+     * @param bytes Bytes of the sheet music.
+     * @return Extracted components (blank lines are skipped).
+     * @throws IOException         The bytes aren't valid UTF-8.
+     * @throws ExtractionException Unable to parse a line.
+     */
+    static List<ExtractedComponent> readComponents(final byte[] bytes) throws IOException, ExtractionException {
+        return SpecReader.readComponents(SpecReader.decode(ByteBuffer.wrap(bytes)));
+    }
+
+    /**
+     * Read the components of the sheet music from a reader.
+     *
+     * @param reader Reader (read to the end but not closed).
+     * @return Extracted components (blank lines are skipped).
+     * @throws IOException         Unable to read the sheet music.
+     * @throws ExtractionException Unable to parse a line.
+     */
+    static List<ExtractedComponent> readComponents(final Reader reader) throws IOException, ExtractionException {
+        char[] chars = new char[8192];
+        int length = 0;
+        int n;
+        while ((n = reader.read(chars, length, chars.length - length)) != -1) {
+            length += n;
+            if (length == chars.length) chars = Arrays.copyOf(chars, chars.length * 2);
+        }
+        return SpecReader.readComponents(chars, 0, length);
+    }
+
+    /**
+     * Read the components from each line of the decoded characters.
+     *
+     * @param chars Decoded characters (backed by an array).
+     * @return Extracted components (blank lines are skipped).
+     * @throws ExtractionException Unable to parse a line.
+     */
+    private static List<ExtractedComponent> readComponents(final CharBuffer chars) throws ExtractionException {
+        return SpecReader.readComponents(chars.array(), chars.arrayOffset() + chars.position(),
+                chars.arrayOffset() + chars.limit());
+    }
+
+    /**
+     * Read the components from each line of the characters.
+     * <p>
+     * Lines end with a line feed, a carriage return or a carriage return followed by a line feed (as for
+     * BufferedReader.readLine()).
+     *
+     * @param chars Characters of the sheet music.
+     * @param start Index of the first character.
+     * @param end Index after the last character.
+     * @return Extracted components (blank lines are skipped).
+     * @throws ExtractionException Unable to parse a line.
+     */
+    static List<ExtractedComponent> readComponents(final char[] chars,
+                                                   final int start,
+                                                   final int end) throws ExtractionException {
+
+        final List<ExtractedComponent> components = new ArrayList<>();
+
+        // Skip a byte order mark
+        int lineStart = (start < end && chars[start] == byteOrderMark) ? start + 1 : start;
+
+        while (lineStart < end) {
+            int lineEnd = lineStart;
+            while (lineEnd < end && chars[lineEnd] != '\n' && chars[lineEnd] != '\r') lineEnd++;
+
+            final ExtractedComponent component = SpecReader.parseLine(chars, lineStart, lineEnd);
+            if (component != null) components.add(component);
+
+            // Move past the line terminator
+            if (lineEnd < end && chars[lineEnd] == '\r' && lineEnd + 1 < end && chars[lineEnd + 1] == '\n') lineEnd++;
+            lineStart = lineEnd + 1;
+        }
+
+        return components;
+    }
+
+    /**
+     * Parse a line into a 'component' of the sheet music.
+     *
+     * @param chars Characters containing the line.
+     * @param start Index of the first character of the line.
+     * @param end Index after the last character of the line (excluding the line terminator).
+     * @return Extracted component, or null if the line is blank.
+     * @throws ExtractionException Unable to determine the type of the line.
+     */
+    static ExtractedComponent parseLine(final char[] chars,
+                                        final int start,
+                                        final int end) throws ExtractionException {
+
+        // Find everything needed to classify the line in one pass
+        int firstNonBlank = -1;
+        int firstEquals = -1;
+        int firstOpenBracket = -1;
+        int lastCloseBracket = -1;
+        int lastCloseParenthesis = -1;
+
+        for (int i = start; i < end; i++) {
+            final char c = chars[i];
+            if (c > ' ' && firstNonBlank < 0) firstNonBlank = i;
+            switch (c) {
+                case '=':
+                    if (firstEquals < 0) firstEquals = i;
+                    break;
+                case '[':
+                    if (firstOpenBracket < 0) firstOpenBracket = i;
+                    break;
+                case ']':
+                    lastCloseBracket = i;
+                    break;
+                case ')':
+                    lastCloseParenthesis = i;
+                    break;
+            }
+        }
+
+        // Blank line
+        if (firstNonBlank < 0) return null;
+
+        // Header, e.g. key = C
+        if (firstEquals >= 0) {
+            return new ExtractedHeader(SpecReader.trimmed(chars, start, firstEquals),
+                    SpecReader.trimmed(chars, firstEquals + 1, end));
+        }
+
+        // Section header, e.g. [Verse 1]
+        if (firstOpenBracket >= 0 && lastCloseBracket >= 0) {
+            if (lastCloseBracket < firstOpenBracket) {
+                throw new ExtractionException("Can't extract section name from: " + new String(chars, start,
+                        end - start));
+            }
+            return new ExtractedSectionHeader(new String(chars, firstOpenBracket + 1,
+                    lastCloseBracket - firstOpenBracket - 1));
+        }
+
+        // Bar, e.g. (1/C) 1/g5 2/b6
+        if (chars[start] == '(' && lastCloseParenthesis >= 0) {
+            return new ExtractedBar(SpecReader.trimmed(chars, start + 1, lastCloseParenthesis),
+                    SpecReader.trimmed(chars, lastCloseParenthesis + 1, end));
+        }
+
+        // Text, e.g. > Play softly
+        if (chars[firstNonBlank] == '>') {
+            return new ExtractedText(SpecReader.trimmed(chars, firstNonBlank + 1, end));
+        }
+
+        throw new ExtractionException("Can't determine type of component to extract: " +
+                new String(chars, start, end - start));
+    }
+
+    /**
+     * Create a string from a slice of characters with the leading and trailing whitespace removed (as String.trim()).
+     *
+     * @param chars Characters.
+     * @param start Index of the first character.
+     * @param end Index after the last character.
+     * @return Trimmed string.
+     */
+    private static String trimmed(final char[] chars,
+                                  int start,
+                                  int end) {
+        while (start < end && chars[start] <= ' ') start++;
+        while (end > start && chars[end - 1] <= ' ') end--;
+        return new String(chars, start, end - start);
+    }
+
+    /**
+     * Decode a file as UTF-8.
+     *
+     * @param file File to decode.
+     * @return Decoded characters (backed by an array).
+     * @throws IOException Unable to read the file or it isn't valid UTF-8.
+     */
+    private static CharBuffer decode(final File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            final long size = channel.size();
+
+            final ByteBuffer bytes;
+            if (size >= mapThreshold) {
+                bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            } else {
+                bytes = ByteBuffer.allocate((int) size);
+                while (bytes.hasRemaining() && channel.read(bytes) != -1) {
+                    // Keep reading until the buffer is full
+                }
+                bytes.flip();
+            }
+
+            return SpecReader.decode(bytes);
+        }
+    }
+
+    /**
+     * Decode bytes as UTF-8.
+     *
+     * @param bytes Bytes to decode.
+     * @return Decoded characters (backed by an array).
+     * @throws IOException The bytes aren't valid UTF-8.
+     */
+    private static CharBuffer decode(final ByteBuffer bytes) throws IOException {
+        return StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT)
+                .decode(bytes);
+    }
+}
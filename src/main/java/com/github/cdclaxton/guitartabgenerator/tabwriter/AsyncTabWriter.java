@@ -0,0 +1,102 @@
+package com.github.cdclaxton.guitartabgenerator.tabwriter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes tab files on a background thread, so that rendering the next tab overlaps with writing the last one.
+ * <p>
+ * The tabs waiting to be written are held in a bounded queue. When the queue is full, the caller writes the tab itself,
+ * which stops rendering getting too far ahead of the disk. Closing the writer waits for the queued tabs to be written;
+ * a tab that is written once the writer is closed is rejected, so every future that is returned completes.
+ */
+public final class AsyncTabWriter implements Closeable {
+
+    // Default number of tabs that can be waiting to be written
+    public static final int defaultQueueCapacity = 64;
+
+    private final ThreadPoolExecutor executor;
+    private final boolean atomic;
+
+    /**
+     * Instantiate an asynchronous writer.
+     *
+     * @param queueCapacity Number of tabs that can be waiting to be written.
+     * @param atomic Write each tab to a temporary file and rename it?
+     */
+    public AsyncTabWriter(final int queueCapacity,
+                          final boolean atomic) {
+
+        this.executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    final Thread thread = new Thread(runnable, "tab-writer");
+                    thread.setDaemon(true);
+                    return thread;
+                }, AsyncTabWriter::writeOnCaller);
+        this.atomic = atomic;
+    }
+
+    /**
+     * Queue a tab to be written.
+     *
+     * @param lines Lines of the tab.
+     * @param filepath Path of the file to write.
+     * @return Future that completes with the path once the tab is written, or with the IOException if it couldn't be.
+     * @throws IllegalStateException The writer has been closed.
+     */
+    public CompletableFuture<String> write(final List<String> lines,
+                                           final String filepath) {
+
+        final CompletableFuture<String> written = new CompletableFuture<>();
+        try {
+            this.executor.execute(() -> {
+                try {
+                    TabSheetMusicWriter.writeLines(lines, filepath, this.atomic);
+                    written.complete(filepath);
+                } catch (IOException | RuntimeException e) {
+                    written.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            throw new IllegalStateException("Writer is closed", e);
+        }
+        return written;
+    }
+
+    /**
+     * Write a tab on the calling thread when the queue is full, or reject it if the writer has been closed.
+     *
+     * @param write Write of the tab.
+     * @param executor Executor of the writer.
+     * @throws RejectedExecutionException The writer has been closed.
+     */
+    private static void writeOnCaller(final Runnable write,
+                                      final ThreadPoolExecutor executor) {
+        if (executor.isShutdown()) throw new RejectedExecutionException("Writer is closed");
+        write.run();
+    }
+
+    /**
+     * Wait for the queued tabs to be written and stop the writer thread.
+     *
+     * @throws IOException Interrupted whilst waiting.
+     */
+    @Override
+    public void close() throws IOException {
+        this.executor.shutdown();
+        try {
+            this.executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            this.executor.shutdownNow();
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted whilst waiting for tabs to be written");
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.github.cdclaxton.guitartabgenerator.tabwriter;
+
+import com.github.cdclaxton.guitartabgenerator.metrics.Metrics;
+import com.github.cdclaxton.guitartabgenerator.music.Bar;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Renders the bars of a song, rendering each distinct bar once.
+ * <p>
+ * Riff-based songs repeat the same bar many times. Bars are looked up by Bar.equals() and hashCode(), so the first
+ * occurrence of a bar is built and rendered and the later occurrences reuse its rows. A cache is used for one song and
+ * holds at most a fixed number of distinct bars (further bars are rendered each time they occur), so a long song of
+ * different bars isn't held in memory. It can be shared by the threads laying out the song. A bar that can't be built
+ * isn't cached.
+ */
+final class BarRenderCache {
+
+    // Default maximum number of distinct bars to hold for a song
+    static final int defaultMaxBars = 4096;
+
+    // Hits and misses over every song
+    private static final LongAdder totalHits = new LongAdder();
+    private static final LongAdder totalMisses = new LongAdder();
+
+    // Hits, misses and distinct bars of the last song to finish
+    private static volatile long[] lastSong = new long[3];
+
+    static {
+        Metrics.cache("layout.bars", totalHits::sum, totalMisses::sum);
+        Metrics.cache("layout.bars.song", () -> lastSong[0], () -> lastSong[1], () -> lastSong[2]);
+    }
+
+    private final Map<Bar, RenderedBar> rendered = new ConcurrentHashMap<>();
+    private final int maxBars;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Instantiate an empty cache of the default size.
+     */
+    BarRenderCache() {
+        this(defaultMaxBars);
+    }
+
+    /**
+     * Instantiate an empty cache.
+     *
+     * @param maxBars Maximum number of distinct bars to hold (0 disables the cache).
+     */
+    BarRenderCache(final int maxBars) {
+        if (maxBars < 0) throw new IllegalArgumentException("Cache size cannot be negative: " + maxBars);
+        this.maxBars = maxBars;
+    }
+
+    /**
+     * Render a bar, re-using the rows of an equal bar if it has been rendered before.
+     *
+     * @param bar Bar of music.
+     * @return Rendered bar.
+     * @throws TabBuildingException Unable to build the bar.
+     */
+    RenderedBar render(final Bar bar) throws TabBuildingException {
+
+        final RenderedBar cached = this.rendered.get(bar);
+        if (cached != null) {
+            this.hits.increment();
+            totalHits.increment();
+            return cached;
+        }
+
+        this.misses.increment();
+        totalMisses.increment();
+        final RenderedBar renderedBar = RenderedBar.render(bar);
+        if (this.rendered.size() < this.maxBars) this.rendered.putIfAbsent(bar, renderedBar);
+        return renderedBar;
+    }
+
+    /**
+     * Record the counts of this cache as those of the last song to finish (reported as layout.bars.song).
+     */
+    void recordSong() {
+        lastSong = new long[]{this.getHits(), this.getMisses(), this.size()};
+    }
+
+    /**
+     * Get the number of bars that re-used the rows of an equal bar.
+     *
+     * @return Number of hits.
+     */
+    long getHits() { return hits.sum(); }
+
+    /**
+     * Get the number of bars that had to be rendered.
+     *
+     * @return Number of misses.
+     */
+    long getMisses() { return misses.sum(); }
+
+    /**
+     * Get the number of distinct bars held.
+     *
+     * @return Number of bars.
+     */
+    int size() { return rendered.size(); }
+}
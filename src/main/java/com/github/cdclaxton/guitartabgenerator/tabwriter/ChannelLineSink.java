@@ -0,0 +1,111 @@
+package com.github.cdclaxton.guitartabgenerator.tabwriter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+
+/**
+ * Sink that encodes lines into a byte buffer and writes the buffer to a channel whenever it fills up.
+ * <p>
+ * Lines that fit in the line buffer are copied into it rather than wrapped, so no object is created per line.
+ */
+final class ChannelLineSink implements LineSink {
+
+    // Size of the buffer the lines are encoded into
+    static final int defaultBufferSize = 64 * 1024;
+
+    // Lines up to this length are copied into the line buffer
+    static final int defaultLineBufferSize = 4096;
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer;
+    private final CharsetEncoder encoder;
+    private final CharBuffer lineBuffer;
+
+    /**
+     * Instantiate a sink.
+     *
+     * @param channel Channel to write to.
+     * @param buffer Buffer to encode into (cleared by the sink).
+     * @param encoder Encoder.
+     * @param lineBuffer Buffer to copy each line into before encoding it.
+     */
+    ChannelLineSink(final WritableByteChannel channel,
+                    final ByteBuffer buffer,
+                    final CharsetEncoder encoder,
+                    final CharBuffer lineBuffer) {
+        this.channel = channel;
+        this.buffer = buffer;
+        this.encoder = encoder;
+        this.lineBuffer = lineBuffer;
+        this.buffer.clear();
+    }
+
+    @Override
+    public void writeLine(final CharSequence line) throws IOException {
+        this.encode(line);
+
+        if (!this.buffer.hasRemaining()) this.drain();
+        this.buffer.put((byte) '\n');
+    }
+
+    @Override
+    public void flush() throws IOException {
+        this.drain();
+    }
+
+    /**
+     * Encode a line into the buffer, writing the buffer to the channel whenever it is full.
+     *
+     * @param line Line to encode.
+     * @throws IOException Unable to write to the channel.
+     */
+    private void encode(final CharSequence line) throws IOException {
+
+        final CharBuffer chars;
+        if (line.length() <= this.lineBuffer.capacity()) {
+            chars = this.lineBuffer;
+            chars.clear();
+            if (line instanceof String) {
+                ((String) line).getChars(0, line.length(), chars.array(), 0);
+            } else if (line instanceof StringBuilder) {
+                ((StringBuilder) line).getChars(0, line.length(), chars.array(), 0);
+            } else {
+                for (int i = 0; i < line.length(); i++) {
+                    chars.put(i, line.charAt(i));
+                }
+            }
+            chars.limit(line.length());
+        } else {
+            chars = CharBuffer.wrap(line);
+        }
+        this.encoder.reset();
+
+        CoderResult result = this.encoder.encode(chars, this.buffer, true);
+        while (result.isOverflow()) {
+            this.drain();
+            result = this.encoder.encode(chars, this.buffer, true);
+        }
+
+        while (this.encoder.flush(this.buffer).isOverflow()) {
+            this.drain();
+        }
+    }
+
+    /**
+     * Write the contents of the buffer to the channel and empty the buffer.
+     *
+     * @throws IOException Unable to write to the channel.
+     */
+    private void drain() throws IOException {
+        this.buffer.flip();
+        while (this.buffer.hasRemaining()) {
+            this.channel.write(this.buffer);
+        }
+        this.buffer.clear();
+    }
+
+}
@@ -1,19 +1,33 @@
 package com.github.cdclaxton.guitartabgenerator.tabwriter;
 
+import com.github.cdclaxton.guitartabgenerator.metrics.Counter;
+import com.github.cdclaxton.guitartabgenerator.metrics.Metrics;
+import com.github.cdclaxton.guitartabgenerator.metrics.Timer;
 import com.github.cdclaxton.guitartabgenerator.music.Bar;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 class LayoutEngine {
 
+    private static final Timer layoutTimer = Metrics.timer("layout", "bars");
+    private static final Counter systemsCounter = Metrics.counter("layout.systems");
+
+    // Number of bars a task lays out when the systems are laid out in parallel
+    static final int barsPerTask = 128;
+
     /**
      * Inner class to represent a block of text.
+     * <p>
+     * Each row is a StringBuilder so that bars are appended in place; the rows are only turned into strings when the
+     * finished block is laid out.
      */
     static class Block {
 
-        final List<String> lines;
+        private final List<StringBuilder> rows;
 
         /**
          * Instantiate a block of text.
@@ -35,7 +49,27 @@ class LayoutEngine {
                 }
             }
 
-            this.lines = lines;
+            this.rows = new ArrayList<>(lines.size());
+            for (String line : lines) {
+                this.rows.add(new StringBuilder(line));
+            }
+        }
+
+        /**
+         * Instantiate a block of text from a rendered bar that starts a system.
+         *
+         * @param bar Rendered bar.
+         * @param capacity Expected width of the block (in characters).
+         */
+        Block(final RenderedBar bar,
+              final int capacity) {
+
+            this.rows = new ArrayList<>(bar.getNumberRows());
+            for (int i = 0; i < bar.getNumberRows(); i++) {
+                final StringBuilder row = new StringBuilder(Math.max(capacity, bar.getSystemStartWidth()));
+                bar.appendSystemStartRowTo(i, row);
+                this.rows.add(row);
+            }
         }
 
         /**
@@ -47,13 +81,32 @@ class LayoutEngine {
         void horizontalLayout(final Block block) throws TabBuildingException {
 
             // Check the blocks have the same number of rows
-            if (this.lines.size() != block.lines.size()) {
+            if (this.rows.size() != block.rows.size()) {
                 throw new TabBuildingException("Blocks have differing number of rows");
             }
 
             // Modify this block
-            for (int i=0; i < this.lines.size(); i++) {
-                this.lines.set(i, this.lines.get(i) + block.lines.get(i));
+            for (int i=0; i < this.rows.size(); i++) {
+                this.rows.get(i).append(block.rows.get(i));
+            }
+        }
+
+        /**
+         * Modify the block by laying a rendered bar to the right of this block.
+         *
+         * @param bar Rendered bar to layout to the right.
+         * @throws TabBuildingException Block and bar have differing numbers of rows.
+         */
+        void horizontalLayout(final RenderedBar bar) throws TabBuildingException {
+
+            // Check the block and bar have the same number of rows
+            if (this.rows.size() != bar.getNumberRows()) {
+                throw new TabBuildingException("Blocks have differing number of rows");
+            }
+
+            // Modify this block
+            for (int i=0; i < this.rows.size(); i++) {
+                bar.appendRowTo(i, this.rows.get(i));
             }
         }
 
@@ -63,136 +116,298 @@ class LayoutEngine {
          * @return Block width.
          */
         int getWidth() {
-            return this.lines.get(0).length();
+            return this.rows.get(0).length();
+        }
+
+        /**
+         * Write the rows of the block to a sink, followed by empty lines.
+         *
+         * @param sink Sink.
+         * @param spacing Number of empty lines to write after the block.
+         * @throws IOException Unable to write to the sink.
+         */
+        void writeTo(final LineSink sink,
+                     final int spacing) throws IOException {
+            for (StringBuilder row : this.rows) {
+                sink.writeLine(row);
+            }
+            for (int emptyLine = 0; emptyLine < spacing; emptyLine++) {
+                sink.writeLine("");
+            }
+        }
+
+        /**
+         * Get the lines of text in the block.
+         *
+         * @return Lines.
+         */
+        List<String> getLines() {
+            final List<String> lines = new ArrayList<>(this.rows.size());
+            for (StringBuilder row : this.rows) {
+                lines.add(row.toString());
+            }
+            return lines;
         }
     }
 
     /**
-     * Layout the bars (to generate a list of lines).
+     * Layout the bars (to generate a list of lines) with greedy line breaking.
      *
      * @param bars Bars of music.
      * @param pageWidth Page width (in characters).
      * @param verticalSpacing Vertical spacing between bars.
      * @return Lines representing the bars.
-     * @throws TabBuildingException
+     * @throws TabBuildingException Unable to build a bar (the message starts with the bar number).
      */
     static List<String> layoutBars(final List<Bar> bars,
                                    final int pageWidth,
                                    final int verticalSpacing) throws TabBuildingException {
+        return LayoutEngine.layoutBars(bars, pageWidth, verticalSpacing, TabSheetMusicBuilder.LineBreaking.Greedy);
+    }
 
-        // Determine the most compact layout for each bar
-        final List<SingleBarTablatureBuilder.Markings> markings = bars.stream()
-                .map(bar -> LayoutEngine.compactLayout(bar))
-                .collect(Collectors.toList());
+    /**
+     * Layout the bars (to generate a list of lines), breaking them into systems in the given way.
+     *
+     * @param bars Bars of music.
+     * @param pageWidth Page width (in characters).
+     * @param verticalSpacing Vertical spacing between bars.
+     * @param lineBreaking How the bars are broken into systems.
+     * @return Lines representing the bars.
+     * @throws TabBuildingException Unable to build a bar (the message starts with the bar number).
+     */
+    static List<String> layoutBars(final List<Bar> bars,
+                                   final int pageWidth,
+                                   final int verticalSpacing,
+                                   final TabSheetMusicBuilder.LineBreaking lineBreaking) throws TabBuildingException {
 
-        // Build the tab, one bar at a time
-        final List<Block> verticalBlocks = new ArrayList<>();
-        Block currentBlock = null;
+        final List<String> lines = new ArrayList<>();
+        try {
+            LayoutEngine.layoutBars(bars, pageWidth, verticalSpacing, lineBreaking, new BarRenderCache(),
+                    LineSink.of(lines));
+        } catch (IOException e) {
+            throw new IllegalStateException("Adding to a list failed!", e);
+        }
+        return lines;
+    }
 
-        for (int i = 0; i < bars.size(); i++) {
+    /**
+     * Layout the bars, breaking them into systems in the given way and writing each system to the sink as soon as it
+     * is laid out.
+     * <p>
+     * The breaks are chosen from the width of each bar before any bar is built: greedy breaking starts a new system
+     * when the next bar doesn't fit, optimal breaking uses the fewest systems and spreads the bars most evenly (see
+     * LineBreaker). Each system is then built on its own, from bars rendered once per song by the cache, so only the
+     * system being laid out (and the bars held by the cache) is in memory. If a bar can't be built, the systems before
+     * it will already have been written.
+     *
+     * @param bars Bars of music.
+     * @param pageWidth Page width (in characters).
+     * @param verticalSpacing Vertical spacing between bars.
+     * @param lineBreaking How the bars are broken into systems.
+     * @param cache Rendered bars of the song.
+     * @param sink Sink to write the lines to.
+     * @throws TabBuildingException Unable to build a bar (the message starts with the bar number).
+     * @throws IOException Unable to write to the sink.
+     */
+    static void layoutBars(final List<Bar> bars,
+                           final int pageWidth,
+                           final int verticalSpacing,
+                           final TabSheetMusicBuilder.LineBreaking lineBreaking,
+                           final BarRenderCache cache,
+                           final LineSink sink) throws TabBuildingException, IOException {
+
+        final long start = Metrics.start();
+
+        final int[] systems = LayoutEngine.systems(bars, pageWidth, lineBreaking);
+        for (int system = 0; system < systems.length - 1; system++) {
+            LayoutEngine.layoutSystem(bars, systems[system], systems[system + 1], pageWidth, cache)
+                    .writeTo(sink, verticalSpacing);
+        }
 
-            // Create the string representation of the bar
-            final SingleBarTablature tabBar = SingleBarTablatureBuilder.buildTabFromBar(bars.get(i), markings.get(i));
-            tabBar.addLeadingSpace();
-            tabBar.addTrailingSpace();
-            tabBar.addBarEndLines(SingleBarTablature.BarLineType.single);
+        layoutTimer.stop(start, bars.size());
+        systemsCounter.add(systems.length - 1);
+    }
 
-            if (currentBlock == null) {
-                tabBar.addBarStartLines(SingleBarTablature.BarLineType.single);
-                tabBar.addStringLetters();
-                currentBlock = new Block(tabBar.getFullBar());
-            } else {
-                // Does the bar fit onto the current line?
-                if (currentBlock.getWidth() + tabBar.getLineWidth() < pageWidth) {
-                    Block temp = new Block(tabBar.getFullBar());
-                    currentBlock.horizontalLayout(temp);
-                } else {
-                    // Finish the current block
-                    verticalBlocks.add(currentBlock);
-
-                    // Start a new block
-                    tabBar.addBarStartLines(SingleBarTablature.BarLineType.single);
-                    tabBar.addStringLetters();
-                    currentBlock = new Block(tabBar.getFullBar());
-                }
-            }
+    /**
+     * Layout the bars on an executor, each task building a batch of consecutive systems into its own lines.
+     * <p>
+     * As the breaks are chosen from the widths of the bars, the systems don't depend on each other, and the lines of
+     * the batches (in order) are identical to laying out the bars on one thread. A batch that can't be built fails with
+     * the TabBuildingException of its first bad bar.
+     *
+     * @param bars Bars of music.
+     * @param pageWidth Page width (in characters).
+     * @param verticalSpacing Vertical spacing between bars.
+     * @param lineBreaking How the bars are broken into systems.
+     * @param cache Rendered bars of the song (shared by the tasks).
+     * @param executor Executor to lay out the systems on.
+     * @return Lines of each batch of systems, in order.
+     */
+    static List<Future<List<String>>> submitSystems(final List<Bar> bars,
+                                                    final int pageWidth,
+                                                    final int verticalSpacing,
+                                                    final TabSheetMusicBuilder.LineBreaking lineBreaking,
+                                                    final BarRenderCache cache,
+                                                    final ExecutorService executor) {
+
+        final int[] systems = LayoutEngine.systems(bars, pageWidth, lineBreaking);
+        final List<Future<List<String>>> batches = new ArrayList<>();
+
+        int first = 0;
+        while (first < systems.length - 1) {
+
+            // Add systems to the batch until it holds enough bars to be worth a task
+            int last = first + 1;
+            while (last < systems.length - 1 && systems[last] - systems[first] < barsPerTask) last++;
+
+            final int firstSystem = first;
+            final int lastSystem = last;
+            batches.add(executor.submit(() -> LayoutEngine.layoutSystems(bars, systems, firstSystem, lastSystem,
+                    pageWidth, verticalSpacing, cache)));
+            first = last;
         }
 
-        // If there is a block in progress, finish it
-        if (currentBlock != null) verticalBlocks.add(currentBlock);
-
-        // Vertically layout the blocks
-        return LayoutEngine.verticallyLayoutBlocks(verticalBlocks, verticalSpacing);
+        return batches;
     }
 
     /**
-     * Layout blocks vertically.
+     * Layout a batch of consecutive systems.
      *
-     * @param blocks Blocks to lay out.
-     * @param spacing Spacing between blocks.
-     * @return Lines of text generated from the blocks.
+     * @param bars Bars of music.
+     * @param systems Index of the first bar of each system (followed by the number of bars).
+     * @param firstSystem First system of the batch.
+     * @param lastSystem System after the batch.
+     * @param pageWidth Page width (in characters).
+     * @param verticalSpacing Vertical spacing between bars.
+     * @param cache Rendered bars of the song.
+     * @return Lines of the systems.
+     * @throws TabBuildingException Unable to build a bar (the message starts with the bar number).
      */
-    private static List<String> verticallyLayoutBlocks(final List<Block> blocks,
-                                                       final int spacing) {
+    private static List<String> layoutSystems(final List<Bar> bars,
+                                              final int[] systems,
+                                              final int firstSystem,
+                                              final int lastSystem,
+                                              final int pageWidth,
+                                              final int verticalSpacing,
+                                              final BarRenderCache cache) throws TabBuildingException {
 
-        final List<String> lines = new ArrayList<>();
+        final long start = Metrics.start();
 
-        for (Block b : blocks) {
-            lines.addAll(b.lines);
-            for (int emptyLine=0; emptyLine < spacing; emptyLine++) {
-                lines.add("");
+        final List<String> lines = new ArrayList<>();
+        try {
+            for (int system = firstSystem; system < lastSystem; system++) {
+                LayoutEngine.layoutSystem(bars, systems[system], systems[system + 1], pageWidth, cache)
+                        .writeTo(LineSink.of(lines), verticalSpacing);
             }
+        } catch (IOException e) {
+            throw new IllegalStateException("Adding to a list failed!", e);
         }
 
+        layoutTimer.stop(start, systems[lastSystem] - systems[firstSystem]);
+        systemsCounter.add(lastSystem - firstSystem);
         return lines;
     }
 
     /**
-     * Find the most compact layout for a bar.
+     * Break the bars into systems from their widths.
      *
-     * @param bar Bar of music.
-     * @return Most compact timing layout.
+     * @param bars Bars of music.
+     * @param pageWidth Page width (in characters).
+     * @param lineBreaking How the bars are broken into systems.
+     * @return Index of the first bar of each system, followed by the number of bars.
      */
-    static SingleBarTablatureBuilder.Markings compactLayout(final Bar bar) {
+    static int[] systems(final List<Bar> bars,
+                         final int pageWidth,
+                         final TabSheetMusicBuilder.LineBreaking lineBreaking) {
+
+        final int[] widths = LayoutEngine.barWidths(bars);
+        final boolean[] starts = lineBreaking == TabSheetMusicBuilder.LineBreaking.Optimal ?
+                LineBreaker.optimalBreaks(widths, pageWidth) :
+                LineBreaker.greedyBreaks(widths, pageWidth);
+
+        int nSystems = 0;
+        for (boolean systemStart : starts) {
+            if (systemStart) nSystems++;
+        }
 
-        // Get a list of all the note times
-        final List<Integer> noteTimes = bar.getNotes().stream()
-                .map(note -> note.getTiming().getSixteenthNumber())
-                .collect(Collectors.toList());
-
-        // Get a list of all the chord times
-        final List<Integer> chordTimes = bar.getTimedChords().stream()
-                .map(timedChord -> timedChord.getTiming().getSixteenthNumber())
-                .collect(Collectors.toList());
-
-        // Create a list of all timings (notes and chords)
-        final List<Integer> timings = new ArrayList<>(noteTimes);
-        timings.addAll(chordTimes);
-
-        // Find the most compact form
-        SingleBarTablatureBuilder.Markings markings;
-        if (timings.size() == 0) {
-            markings = SingleBarTablatureBuilder.Markings.Main;
-        } else {
-            if (LayoutEngine.allDivisible(timings, 4)) markings = SingleBarTablatureBuilder.Markings.Main;
-            else if (LayoutEngine.allDivisible(timings, 2)) markings = SingleBarTablatureBuilder.Markings.Secondary;
-            else markings = SingleBarTablatureBuilder.Markings.Tertiary;
+        final int[] systems = new int[nSystems + 1];
+        int system = 0;
+        for (int i = 0; i < starts.length; i++) {
+            if (starts[i]) systems[system++] = i;
         }
+        systems[nSystems] = bars.size();
+        return systems;
+    }
 
-        // Return the marking
-        return markings;
+    /**
+     * Layout a system (row of bars).
+     *
+     * @param bars Bars of music.
+     * @param from Index of the first bar of the system.
+     * @param to Index of the bar after the system.
+     * @param pageWidth Page width (in characters).
+     * @param cache Rendered bars of the song.
+     * @return Block of the system.
+     * @throws TabBuildingException Unable to build a bar (the message starts with the bar number).
+     */
+    static Block layoutSystem(final List<Bar> bars,
+                              final int from,
+                              final int to,
+                              final int pageWidth,
+                              final BarRenderCache cache) throws TabBuildingException {
+
+        Block block = null;
+        for (int i = from; i < to; i++) {
+
+            // Render the bar using the most compact layout (or re-use the rows of an equal bar)
+            final RenderedBar bar;
+            try {
+                bar = cache.render(bars.get(i));
+            } catch (TabBuildingException e) {
+                throw new TabBuildingException("bar " + (i + 1) + ": " + e.getMessage());
+            }
+
+            if (block == null) {
+                // The first bar of the system starts the line
+                block = new Block(bar, pageWidth);
+            } else {
+                block.horizontalLayout(bar);
+            }
+        }
+        return block;
     }
 
     /**
-     * Are all of the values divisible by the divisor, i.e. have no remainder when performing integer division?
+     * Get the width of each bar when laid out in a system (excluding the string letters and start bar line of the
+     * first bar), without building the bars.
+     * <p>
+     * A bar is as wide as the grid of its time signature and most compact markings, plus its spaces and end bar line.
+     * Frets and chords are written inside the grid (one that would go beyond the end of the line can't be built), so
+     * they never change the width.
      *
-     * @param values List of values.
-     * @param divisor Divisor.
-     * @return True if all values are divisible.s
+     * @param bars Bars of music.
+     * @return Width of each bar (in characters).
+     */
+    static int[] barWidths(final List<Bar> bars) {
+        final int[] widths = new int[bars.size()];
+        for (int i = 0; i < widths.length; i++) {
+            final Bar bar = bars.get(i);
+            widths[i] = TimeSignatureGrid.of(bar.getTimeSignature(), LayoutEngine.compactLayout(bar)).getWidth() +
+                    SingleBarTablature.barDecorationWidth;
+        }
+        return widths;
+    }
+
+    /**
+     * Find the most compact layout for a bar.
+     *
+     * @param bar Bar of music.
+     * @return Most compact timing layout.
      */
-    static boolean allDivisible(List<Integer> values,
-                                int divisor) {
-        return values.stream().map(v -> v % divisor).allMatch(v -> v == 0);
+    static SingleBarTablatureBuilder.Markings compactLayout(final Bar bar) {
+
+        // Find the most compact form for the time signature from the timings of the notes and chords
+        return TimeSignatureGrid.compactMarkings(bar.getTimeSignature(), bar.getOccupancy());
     }
 
 }
@@ -0,0 +1,222 @@
+package com.github.cdclaxton.guitartabgenerator.tabwriter;
+
+/**
+ * Breaking of a row of bars into systems from the width of each bar.
+ * <p>
+ * A system holds the bars from one break to the next and has to be narrower than the page unless it holds a single
+ * bar. Greedy breaking fills each system before starting the next. Optimal breaking chooses the breaks to minimise the
+ * number of systems and then the raggedness (the sum over the systems of the square of the unused width), so the bars
+ * are spread evenly rather than leaving a short last system.
+ * <p>
+ * The cost of a system satisfies the quadrangle inequality, so once a later break is at least as good as an earlier
+ * one for ending a system, it stays so for every later bar. The candidate breaks are therefore held in a queue, each
+ * with the first bar it's best for: the best break for a bar is at the front, and a new break displaces the candidates
+ * at the back that it beats. Where the new break starts to win is found by a binary search bounded by the most bars
+ * that fit on a page, so the breaks are found in O(n log m) time for n bars and at most m bars per system (linear in
+ * the number of bars for a given page width).
+ */
+final class LineBreaker {
+
+    private final int[] offsets;
+    private final int pageWidth;
+    private final int maxBarsPerSystem;
+
+    // Number of systems and raggedness of the best layout of the first n bars
+    private final int[] systems;
+    private final long[] raggedness;
+
+    /**
+     * Instantiate a line breaker.
+     *
+     * @param barWidths Width of each bar (in characters).
+     * @param pageWidth Page width (in characters).
+     */
+    private LineBreaker(final int[] barWidths,
+                        final int pageWidth) {
+
+        // Offset of each bar from the start of the row (the width of the bars before it)
+        this.offsets = new int[barWidths.length + 1];
+        int narrowest = Integer.MAX_VALUE;
+        for (int i = 0; i < barWidths.length; i++) {
+            this.offsets[i + 1] = this.offsets[i] + barWidths[i];
+            narrowest = Math.min(narrowest, barWidths[i]);
+        }
+
+        this.pageWidth = pageWidth;
+        this.maxBarsPerSystem = Math.max(1, (pageWidth - SingleBarTablature.systemStartWidth) / Math.max(1, narrowest));
+
+        this.systems = new int[barWidths.length + 1];
+        this.raggedness = new long[barWidths.length + 1];
+    }
+
+    /**
+     * Find the bars that start a system when each system is filled before starting the next.
+     *
+     * @param barWidths Width of each bar, including its leading and trailing space and end bar line (in characters).
+     * @param pageWidth Page width (in characters).
+     * @return True for each bar that starts a system.
+     */
+    static boolean[] greedyBreaks(final int[] barWidths,
+                                  final int pageWidth) {
+
+        final boolean[] starts = new boolean[barWidths.length];
+        int width = 0;
+        for (int i = 0; i < barWidths.length; i++) {
+            if (i == 0 || width + barWidths[i] >= pageWidth) {
+                starts[i] = true;
+                width = SingleBarTablature.systemStartWidth + barWidths[i];
+            } else {
+                width += barWidths[i];
+            }
+        }
+        return starts;
+    }
+
+    /**
+     * Find the bars that start a system when the bars are broken optimally.
+     *
+     * @param barWidths Width of each bar, including its leading and trailing space and end bar line (in characters).
+     * @param pageWidth Page width (in characters).
+     * @return True for each bar that starts a system.
+     */
+    static boolean[] optimalBreaks(final int[] barWidths,
+                                   final int pageWidth) {
+        return new LineBreaker(barWidths, pageWidth).breaks();
+    }
+
+    /**
+     * Find the optimal breaks.
+     *
+     * @return True for each bar that starts a system.
+     */
+    private boolean[] breaks() {
+
+        final int n = this.offsets.length - 1;
+        final int[] previous = new int[n + 1];
+
+        // Queue of candidate breaks, each with the first number of bars it's the best break for
+        final int[] candidates = new int[n + 1];
+        final int[] from = new int[n + 1];
+        int head = 0;
+        int tail = 0;
+        candidates[tail] = 0;
+        from[tail++] = 1;
+
+        for (int end = 1; end <= n; end++) {
+
+            // The best break for the first 'end' bars is at the front of the queue
+            while (tail - head > 1 && from[head + 1] <= end) head++;
+            final int best = candidates[head];
+            previous[end] = best;
+            this.systems[end] = this.systems[best] + 1;
+            this.raggedness[end] = this.raggedness[best] + this.raggedness(best, end);
+
+            if (end == n) break;
+
+            // Remove the candidates that a break after this bar beats from where they start
+            while (tail > head && this.beats(end, candidates[tail - 1], Math.max(from[tail - 1], end + 1))) tail--;
+
+            if (tail == head) {
+                candidates[tail] = end;
+                from[tail++] = end + 1;
+            } else {
+                final int first = this.firstWin(end, candidates[tail - 1], Math.max(from[tail - 1], end + 1));
+                if (first <= n) {
+                    candidates[tail] = end;
+                    from[tail++] = first;
+                }
+            }
+        }
+
+        // Walk back from the last bar, marking the start of each system
+        final boolean[] starts = new boolean[n];
+        for (int end = n; end > 0; end = previous[end]) {
+            starts[previous[end]] = true;
+        }
+        return starts;
+    }
+
+    /**
+     * Find the first number of bars for which a later break beats an earlier one.
+     *
+     * @param later Later break.
+     * @param earlier Earlier break (in the queue).
+     * @param after Number of bars for which the later break doesn't beat the earlier one.
+     * @return Number of bars (beyond the last bar if the later break never wins).
+     */
+    private int firstWin(final int later,
+                         final int earlier,
+                         final int after) {
+
+        // A system can't hold more bars than fit, so the later break has won by then
+        final int n = this.offsets.length - 1;
+        int low = after;
+        int high = Math.min(n + 1, earlier + this.maxBarsPerSystem + 1);
+        while (high - low > 1) {
+            final int middle = (low + high) >>> 1;
+            if (this.beats(later, earlier, middle)) high = middle;
+            else low = middle;
+        }
+        return high;
+    }
+
+    /**
+     * Is a later break at least as good as an earlier one for ending a system at a bar?
+     *
+     * @param later Later break.
+     * @param earlier Earlier break.
+     * @param end Number of bars.
+     * @return True if the later break is at least as good.
+     */
+    private boolean beats(final int later,
+                          final int earlier,
+                          final int end) {
+
+        if (!this.fits(earlier, end)) return true;
+        if (!this.fits(later, end)) return false;
+
+        final int laterSystems = this.systems[later] + 1;
+        final int earlierSystems = this.systems[earlier] + 1;
+        if (laterSystems != earlierSystems) return laterSystems < earlierSystems;
+
+        return this.raggedness[later] + this.raggedness(later, end) <=
+                this.raggedness[earlier] + this.raggedness(earlier, end);
+    }
+
+    /**
+     * Can the bars from a break to a bar be a system?
+     *
+     * @param start Break.
+     * @param end Number of bars.
+     * @return True if the bars fit on the page (or there is only one).
+     */
+    private boolean fits(final int start,
+                         final int end) {
+        return end - start == 1 || this.systemWidth(start, end) < this.pageWidth;
+    }
+
+    /**
+     * Get the raggedness of a system, i.e. the square of its unused width.
+     *
+     * @param start Break.
+     * @param end Number of bars.
+     * @return Raggedness.
+     */
+    private long raggedness(final int start,
+                            final int end) {
+        final long unused = this.pageWidth - 1 - this.systemWidth(start, end);
+        return unused * unused;
+    }
+
+    /**
+     * Get the width of a system.
+     *
+     * @param start Break.
+     * @param end Number of bars.
+     * @return Width (in characters).
+     */
+    private int systemWidth(final int start,
+                            final int end) {
+        return SingleBarTablature.systemStartWidth + this.offsets[end] - this.offsets[start];
+    }
+}
@@ -0,0 +1,70 @@
+package com.github.cdclaxton.guitartabgenerator.tabwriter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Destination for the lines of a tab as they are laid out.
+ * <p>
+ * Lines are passed to the sink as soon as each system (a row of bars) is finished, so rendering to a sink only holds a
+ * single system in memory rather than the whole song.
+ */
+public interface LineSink {
+
+    /**
+     * Write a line of tab (without a line terminator).
+     *
+     * @param line Line; it is only valid during the call, so a sink that keeps it must copy it.
+     * @throws IOException Unable to write the line.
+     */
+    void writeLine(CharSequence line) throws IOException;
+
+    /**
+     * Write out any buffered lines.
+     *
+     * @throws IOException Unable to write the lines.
+     */
+    default void flush() throws IOException {}
+
+    /**
+     * Sink that appends each line followed by a line feed.
+     *
+     * @param appendable Destination, e.g. a StringBuilder or a Writer.
+     * @return Sink.
+     */
+    static LineSink of(final Appendable appendable) {
+        return line -> appendable.append(line).append('\n');
+    }
+
+    /**
+     * Sink that encodes each line (followed by a line feed) as UTF-8 and writes it to a channel.
+     * <p>
+     * The bytes are buffered, so the sink must be flushed once the tab has been written.
+     *
+     * @param channel Destination.
+     * @return Sink.
+     */
+    static LineSink of(final WritableByteChannel channel) {
+        return new ChannelLineSink(channel, ByteBuffer.allocate(ChannelLineSink.defaultBufferSize),
+                StandardCharsets.UTF_8.newEncoder()
+                        .onMalformedInput(CodingErrorAction.REPLACE)
+                        .onUnmappableCharacter(CodingErrorAction.REPLACE),
+                CharBuffer.allocate(ChannelLineSink.defaultLineBufferSize));
+    }
+
+    /**
+     * Sink that adds each line to a list.
+     *
+     * @param lines List to add the lines to.
+     * @return Sink.
+     */
+    static LineSink of(final List<String> lines) {
+        return line -> lines.add(line.toString());
+    }
+
+}
@@ -0,0 +1,100 @@
+package com.github.cdclaxton.guitartabgenerator.tabwriter;
+
+import com.github.cdclaxton.guitartabgenerator.music.Bar;
+
+/**
+ * A bar of tab rendered as rows of text, ready to be laid out in a system.
+ * <p>
+ * The rows include the bar's leading and trailing space and end bar line, and are held one after another in a single
+ * array. A bar that starts a system is preceded by the system start rows (the string letters and start bar lines),
+ * which are the same for every bar and are shared. Rendered bars are immutable, so one rendering can be laid out
+ * wherever the bar occurs (see BarRenderCache).
+ */
+final class RenderedBar {
+
+    // Rows written before the first bar of a system
+    private static final String[] systemStartRows = SingleBarTablature.systemStartRows();
+
+    private final char[] cells;
+    private final int numberRows;
+    private final int width;
+
+    /**
+     * Instantiate a rendered bar.
+     *
+     * @param cells Characters of the rows (ruler, chords, then tab lines from top to bottom).
+     * @param numberRows Number of rows.
+     * @param width Width of each row.
+     */
+    private RenderedBar(final char[] cells,
+                        final int numberRows,
+                        final int width) {
+        this.cells = cells;
+        this.numberRows = numberRows;
+        this.width = width;
+    }
+
+    /**
+     * Build a bar using its most compact layout and render its rows.
+     *
+     * @param bar Bar of music.
+     * @return Rendered bar.
+     * @throws TabBuildingException Unable to build the bar.
+     */
+    static RenderedBar render(final Bar bar) throws TabBuildingException {
+
+        final SingleBarTablature tabBar = SingleBarTablatureBuilder.buildTabFromBar(bar,
+                LayoutEngine.compactLayout(bar));
+        tabBar.addLeadingSpace();
+        tabBar.addTrailingSpace();
+        tabBar.addBarEndLines(SingleBarTablature.BarLineType.single);
+
+        final int width = tabBar.getLineWidth();
+        final char[] cells = new char[tabBar.getNumberRows() * width];
+        for (int i = 0; i < tabBar.getNumberRows(); i++) {
+            tabBar.copyRowTo(i, cells, i * width);
+        }
+        return new RenderedBar(cells, tabBar.getNumberRows(), width);
+    }
+
+    /**
+     * Get the number of rows (ruler, chords and tab lines).
+     *
+     * @return Number of rows.
+     */
+    int getNumberRows() {
+        return numberRows;
+    }
+
+    /**
+     * Get the width of the bar (in characters) when it starts a system.
+     *
+     * @return Width.
+     */
+    int getSystemStartWidth() {
+        return systemStartRows[0].length() + width;
+    }
+
+    /**
+     * Append a row of the bar to a builder.
+     *
+     * @param row Row index (ruler, chords, then tab lines from top to bottom).
+     * @param builder Builder to append to.
+     */
+    void appendRowTo(final int row,
+                     final StringBuilder builder) {
+        builder.append(cells, row * width, width);
+    }
+
+    /**
+     * Append a row of the bar to a builder, preceded by the row of the system start (string letter and start bar
+     * line).
+     *
+     * @param row Row index (ruler, chords, then tab lines from top to bottom).
+     * @param builder Builder to append to.
+     */
+    void appendSystemStartRowTo(final int row,
+                                final StringBuilder builder) {
+        builder.append(systemStartRows[row]).append(cells, row * width, width);
+    }
+}
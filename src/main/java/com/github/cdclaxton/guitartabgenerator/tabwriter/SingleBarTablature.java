@@ -1,17 +1,42 @@
 package com.github.cdclaxton.guitartabgenerator.tabwriter;
 
+import org.apache.commons.lang3.StringUtils;
+
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
 /**
  * Note that this class is mutable.
+ * <p>
+ * The ruler, chord line and tab lines are held as rows of a character grid with spare columns either side, so that
+ * leading and trailing characters are written in place rather than by rebuilding every row. Strings are only created
+ * when they are asked for.
  */
 final class SingleBarTablature {
 
-    private String ruler;
-    private String chordLine;
-    private List<String> tabLines;
+    private static final int rulerRow = 0;
+    private static final int chordRow = 1;
+    private static final int firstTabRow = 2;
+    private static final int numberTabLines = 6;
+    private static final int numberRows = firstTabRow + numberTabLines;
+
+    // Spare columns either side (enough for string letters, bar lines and spaces)
+    private static final int headroom = 4;
+
+    private static final String[] stringLetters = {"E", "B", "G", "D", "A", "E"};
+    private static final String[] leadingOrTrailingSpace = {"-", "-", "-", "-", "-", "-"};
+    private static final String[] singleBarSeparators = {"|", "|", "|", "|", "|", "|"};
+
+    // Width added to each bar of a system (leading and trailing space and end bar line)
+    static final int barDecorationWidth = 2 * leadingOrTrailingSpace[0].length() + singleBarSeparators[0].length();
+
+    // Width added to the first bar of a system (string letters and start bar line)
+    static final int systemStartWidth = stringLetters[0].length() + singleBarSeparators[0].length();
+
+    private char[][] rows;
+    private int start;
+    private int end;
 
     private boolean hasStringLetters = false;
     private boolean hasBarStartLines = false;
@@ -25,7 +50,7 @@ final class SingleBarTablature {
      * @return Line width.
      */
     int getLineWidth() {
-        return this.ruler.length();
+        return this.end - this.start;
     }
 
     /**
@@ -65,7 +90,7 @@ final class SingleBarTablature {
             throw new TabBuildingException("There must be at least one tab line");
         }
 
-        if (tabLines.size() != 6) {
+        if (tabLines.size() != numberTabLines) {
             throw new TabBuildingException("Currently only supports six strings in standard tuning");
         }
 
@@ -79,44 +104,105 @@ final class SingleBarTablature {
             throw new TabBuildingException("Length of tab lines doesn't match that of chords and ruler");
         }
 
-        // Store the values
-        this.ruler = ruler;
-        this.chordLine = chordLine;
-        this.tabLines = tabLines;
+        // Copy the values into the grid
+        final int width = ruler.length();
+        this.rows = new char[numberRows][width + 2 * headroom];
+        this.start = headroom;
+        this.end = headroom + width;
+
+        ruler.getChars(0, width, this.rows[rulerRow], this.start);
+        chordLine.getChars(0, width, this.rows[chordRow], this.start);
+        for (int i = 0; i < numberTabLines; i++) {
+            tabLines.get(i).getChars(0, width, this.rows[firstTabRow + i], this.start);
+        }
     }
 
     /**
-     * Add a space (or '-') to the start of each line of the bar.
+     * Instantiate an empty single bar of tablature: the ruler, an empty chord line and empty tab lines of a grid.
+     *
+     * @param grid Grid of the bar.
      */
-    void addLeadingSpace() {
+    SingleBarTablature(final TimeSignatureGrid grid) {
+        final int width = grid.getWidth();
+        this.rows = new char[numberRows][width + 2 * headroom];
+        this.start = headroom;
+        this.end = headroom + width;
+
+        grid.copyRuler(this.rows[rulerRow], this.start);
+        grid.copyEmptyChordRow(this.rows[chordRow], this.start);
+        for (int i = 0; i < numberTabLines; i++) {
+            grid.copyEmptyTabRow(this.rows[firstTabRow + i], this.start);
+        }
+    }
 
-        // Pad the ruler with a space
-        this.ruler = TabLineUtils.padLeft(this.ruler, 1, ' ');
+    /**
+     * Write a chord onto the chord line.
+     *
+     * @param column Column of the chord (from the start of the bar).
+     * @param chord Chord notation.
+     * @throws TabBuildingException The chord doesn't fit onto the line.
+     */
+    void writeChord(final int column,
+                    final String chord) throws TabBuildingException {
+        this.checkFits(column, chord.length(), chord);
+        chord.getChars(0, chord.length(), this.rows[chordRow], this.start + column);
+    }
 
-        // Pad the chord line with a space
-        this.chordLine = TabLineUtils.padLeft(this.chordLine, 1, ' ');
+    /**
+     * Write a fret number onto a tab line.
+     *
+     * @param stringNumber String number (1 = high E string).
+     * @param column Column of the fret number (from the start of the bar).
+     * @param fretNumber Fret number (at most two digits).
+     * @throws TabBuildingException The fret number doesn't fit onto the line.
+     */
+    void writeFret(final int stringNumber,
+                   final int column,
+                   final int fretNumber) throws TabBuildingException {
+
+        final char[] row = this.rows[firstTabRow + stringNumber - 1];
+        if (fretNumber < 10) {
+            this.checkFits(column, 1, fretNumber);
+            row[this.start + column] = (char) ('0' + fretNumber);
+        } else {
+            this.checkFits(column, 2, fretNumber);
+            row[this.start + column] = (char) ('0' + fretNumber / 10);
+            row[this.start + column + 1] = (char) ('0' + fretNumber % 10);
+        }
+    }
 
-        // Pad each of the tab lines with a '-'
-        for (int i = 0; i < this.tabLines.size(); i++) {
-            this.tabLines.set(i, "-" + this.tabLines.get(i));
+    /**
+     * Check that text fits onto a line of the bar.
+     *
+     * @param column Column of the text (from the start of the bar).
+     * @param length Number of characters.
+     * @param text Text (for the error message).
+     * @throws TabBuildingException The text doesn't fit.
+     */
+    private void checkFits(final int column,
+                           final int length,
+                           final Object text) throws TabBuildingException {
+        final int width = this.getLineWidth();
+        if (column < 0 || column >= width) {
+            throw new TabBuildingException("Invalid position (" + column + " for a line of length " + width);
+        }
+        if (column + length > width) {
+            throw new TabBuildingException("Text '" + text + "' will go beyond the end of the line");
         }
     }
 
+    /**
+     * Add a space (or '-') to the start of each line of the bar.
+     */
+    void addLeadingSpace() {
+        this.prepend(leadingOrTrailingSpace);
+    }
+
     /**
      * Add a space (or '-') to the end of each line of the bar.
      */
     void addTrailingSpace() {
-
-        // Pad the ruler with a space
-        this.ruler = TabLineUtils.padRight(this.ruler, 1, ' ');
-
-        // Pad the chord line with a space
-        this.chordLine = TabLineUtils.padRight(this.chordLine, 1, ' ');
-
-        // Pad each of the tab lines with a '-'
-        for (int i = 0; i < this.tabLines.size(); i++) {
-            this.tabLines.set(i, this.tabLines.get(i) + "-");
-        }
+        this.append(leadingOrTrailingSpace);
     }
 
     /**
@@ -128,19 +214,7 @@ final class SingleBarTablature {
             throw new TabBuildingException("Bar already has string letters");
         }
 
-        // Pad the ruler with spaces
-        this.ruler = TabLineUtils.padLeft(this.ruler, 1, ' ');
-
-        // Pad the chord line with spaces
-        this.chordLine = TabLineUtils.padLeft(this.chordLine, 1, ' ');
-
-        // Add the string letters
-        this.tabLines.set(0, "E" + this.tabLines.get(0));
-        this.tabLines.set(1, "B" + this.tabLines.get(1));
-        this.tabLines.set(2, "G" + this.tabLines.get(2));
-        this.tabLines.set(3, "D" + this.tabLines.get(3));
-        this.tabLines.set(4, "A" + this.tabLines.get(4));
-        this.tabLines.set(5, "E" + this.tabLines.get(5));
+        this.prepend(stringLetters);
 
         this.hasStringLetters = true;
     }
@@ -156,19 +230,7 @@ final class SingleBarTablature {
             throw new TabBuildingException("Bar already has start lines");
         }
 
-        // Width (in characters) of the bar line
-        int barLineWidth = getWidthOfBarSeparator(barLineType);
-
-        // Pad the ruler with spaces
-        this.ruler = TabLineUtils.padLeft(this.ruler, barLineWidth, ' ');
-
-        // Pad the chord line with spaces
-        this.chordLine = TabLineUtils.padLeft(this.chordLine, barLineWidth, ' ');
-
-        // Add the barline to each of the tab lines
-        for (int i = 0; i < this.tabLines.size(); i++) {
-            this.tabLines.set(i, getBarSeparator(barLineType) + this.tabLines.get(i));
-        }
+        this.prepend(barSeparators(barLineType));
     }
 
     /**
@@ -182,44 +244,77 @@ final class SingleBarTablature {
             throw new TabBuildingException("Bar already has end lines");
         }
 
-        // Width (in characters) of the bar line
-        int barLineWidth = getWidthOfBarSeparator(barLineType);
+        this.append(barSeparators(barLineType));
+    }
 
-        // Pad the ruler with spaces
-        this.ruler = TabLineUtils.padRight(this.ruler, barLineWidth, ' ');
+    /**
+     * Write text to the start of each tab line, padding the ruler and chord line with spaces.
+     *
+     * @param tabText Text for each tab line (all the same length).
+     */
+    private void prepend(final String[] tabText) {
+        final int width = tabText[0].length();
+        if (this.start < width) this.regrow(width, 0);
 
-        // Pad the chord line with spaces
-        this.chordLine = TabLineUtils.padRight(this.chordLine, barLineWidth, ' ');
+        this.start -= width;
+        this.write(tabText, this.start);
+    }
 
-        // Add the barline to each of the tab lines
-        for (int i = 0; i < this.tabLines.size(); i++) {
-            this.tabLines.set(i, this.tabLines.get(i) + getBarSeparator(barLineType));
-        }
+    /**
+     * Write text to the end of each tab line, padding the ruler and chord line with spaces.
+     *
+     * @param tabText Text for each tab line (all the same length).
+     */
+    private void append(final String[] tabText) {
+        final int width = tabText[0].length();
+        if (this.rows[0].length - this.end < width) this.regrow(0, width);
+
+        this.write(tabText, this.end);
+        this.end += width;
     }
 
     /**
-     * Get the number of characters that will be used to show the bar line.
+     * Write the text for each tab line (and spaces for the ruler and chord line) at a column of the grid.
      *
-     * @param barLineType Type of bar line.
-     * @return Number of characters.
+     * @param tabText Text for each tab line.
+     * @param column Column to write to.
      */
-    private static int getWidthOfBarSeparator(final BarLineType barLineType) {
-        if (barLineType == BarLineType.single) {
-            return 1;
+    private void write(final String[] tabText, final int column) {
+        final int width = tabText[0].length();
+        Arrays.fill(this.rows[rulerRow], column, column + width, ' ');
+        Arrays.fill(this.rows[chordRow], column, column + width, ' ');
+        for (int i = 0; i < numberTabLines; i++) {
+            tabText[i].getChars(0, width, this.rows[firstTabRow + i], column);
         }
+    }
 
-        throw new IllegalStateException("Shouldn't reach here.");
+    /**
+     * Copy the grid into larger rows.
+     *
+     * @param extraStart Number of extra columns required at the start.
+     * @param extraEnd Number of extra columns required at the end.
+     */
+    private void regrow(final int extraStart, final int extraEnd) {
+        final int width = this.getLineWidth();
+        final int newStart = headroom + extraStart;
+        for (int i = 0; i < numberRows; i++) {
+            final char[] row = new char[width + extraStart + extraEnd + 2 * headroom];
+            System.arraycopy(this.rows[i], this.start, row, newStart, width);
+            this.rows[i] = row;
+        }
+        this.start = newStart;
+        this.end = newStart + width;
     }
 
     /**
-     * Get the separator to use given the bar line type.
+     * Get the separator to use for each tab line given the bar line type.
      *
      * @param barLineType Type of bar line.
-     * @return Separator.
+     * @return Separator for each tab line.
      */
-    private static String getBarSeparator(final BarLineType barLineType) {
+    private static String[] barSeparators(final BarLineType barLineType) {
         if (barLineType == BarLineType.single) {
-            return "|";
+            return singleBarSeparators;
         }
 
         // Execution shouldn't reach here. Must be a cleaner way of doing this.
@@ -227,14 +322,18 @@ final class SingleBarTablature {
     }
 
     String getRuler() {
-        return ruler;
+        return this.getRow(rulerRow);
     }
 
     String getChordLine() {
-        return chordLine;
+        return this.getRow(chordRow);
     }
 
     List<String> getTabLines() {
+        final List<String> tabLines = new ArrayList<>(numberTabLines);
+        for (int i = 0; i < numberTabLines; i++) {
+            tabLines.add(this.getRow(firstTabRow + i));
+        }
         return tabLines;
     }
 
@@ -244,20 +343,58 @@ final class SingleBarTablature {
      * @return List of strings representing the bar.
      */
     List<String> getFullBar() {
-        List<String> lines = new ArrayList<>();
-
-        if (ruler != null) {
-            lines.add(ruler);
+        final List<String> lines = new ArrayList<>(numberRows);
+        for (int i = 0; i < numberRows; i++) {
+            lines.add(this.getRow(i));
         }
+        return lines;
+    }
 
-        if (chordLine != null) {
-            lines.add(chordLine);
+    /**
+     * Get the rows written before the first bar of a system: spaces for the ruler and chords, then the string letters
+     * and start bar lines, i.e. what addStringLetters() and addBarStartLines() add to a bar.
+     *
+     * @return Rows (ruler, chords, then tab lines from top to bottom).
+     */
+    static String[] systemStartRows() {
+        final String[] rows = new String[numberRows];
+        rows[rulerRow] = StringUtils.repeat(' ', systemStartWidth);
+        rows[chordRow] = rows[rulerRow];
+        for (int i = 0; i < numberTabLines; i++) {
+            rows[firstTabRow + i] = stringLetters[i] + singleBarSeparators[i];
         }
+        return rows;
+    }
 
-        if (tabLines != null) {
-            lines.addAll(tabLines);
-        }
+    /**
+     * Get the number of rows (ruler, chords and tab lines).
+     *
+     * @return Number of rows.
+     */
+    int getNumberRows() {
+        return numberRows;
+    }
 
-        return lines;
+    /**
+     * Copy a row of the bar into an array.
+     *
+     * @param row Row index (ruler, chords, then tab lines from top to bottom).
+     * @param destination Array to copy to.
+     * @param position Position in the array to start at.
+     */
+    void copyRowTo(final int row,
+                   final char[] destination,
+                   final int position) {
+        System.arraycopy(this.rows[row], this.start, destination, position, this.getLineWidth());
+    }
+
+    /**
+     * Get a row of the bar as a string.
+     *
+     * @param row Row index.
+     * @return Row.
+     */
+    private String getRow(final int row) {
+        return new String(this.rows[row], this.start, this.getLineWidth());
     }
 }
@@ -1,159 +1,88 @@
 package com.github.cdclaxton.guitartabgenerator.tabwriter;
 
 import com.github.cdclaxton.guitartabgenerator.music.Bar;
-import com.github.cdclaxton.guitartabgenerator.music.Note;
+import com.github.cdclaxton.guitartabgenerator.music.PackedNotes;
 import com.github.cdclaxton.guitartabgenerator.music.TimedChord;
 
-import java.util.*;
-
 class SingleBarTablatureBuilder {
 
-    private static final char lineCharacter = '-';
-
     public enum Markings{ Main, Secondary, Tertiary }
-    private static final String secondarySymbol = "+";
-    private static final String tertiarySymbol = ".";
-    private static final char rulerSpacingSymbol = ' ';
+
+    // Number of strings and timings (sixteenths) a note can have
+    private static final int numberStrings = 6;
+    private static final int numberTimings = 16;
+
+    // Fret of the last note at each timing on each string (indexed by string number and timing), reused by each
+    // thread; only the entries of a bar's occupied timings are read, so it never needs clearing
+    private static final ThreadLocal<int[]> fretsAtTimings =
+            ThreadLocal.withInitial(() -> new int[(numberStrings + 1) * numberTimings]);
 
     private SingleBarTablatureBuilder() {}
 
     /**
      * Build a single bar of tab.
+     * <p>
+     * The bar starts as a copy of the ruler and empty rows of the grid for its time signature and markings. Each chord
+     * and fret number is then written straight into its row at the column of its timing, found by walking the set bits
+     * of the bar's occupancy masks in time order; no map, boxed integer or intermediate string is created.
      *
      * @param bar Bar.
      * @param markings Time markings to show.
      * @return Tab.
      * @throws TabBuildingException Unable to build tab for the bar.
      */
-    static SingleBarTablature buildTabFromBar(Bar bar,
-                                              Markings markings) throws TabBuildingException {
+    static SingleBarTablature buildTabFromBar(final Bar bar,
+                                              final Markings markings) throws TabBuildingException {
 
-        if (bar.getTimeSignature() == Bar.TimeSignature.Four4) {
-            return buildTabIn44FromBar(bar, markings);
-        } else {
-            throw new UnsupportedOperationException("6/8 not implemented.");
-        }
-    }
+        final TimeSignatureGrid grid = TimeSignatureGrid.of(bar.getTimeSignature(), markings);
+        final SingleBarTablature tab = new SingleBarTablature(grid);
 
-    /**
-     * Build tab in 4/4 timing.
-     *
-     * @param bar Bar.
-     * @param markings Markings to show.
-     * @return Tablature for the bar.
-     * @throws TabBuildingException Unable to build tab.
-     */
-    private static SingleBarTablature buildTabIn44FromBar(final Bar bar,
-                                                          final Markings markings) throws TabBuildingException {
-
-        final int spacing = 3;
-
-        // Build the ruler
-        final String ruler = SingleBarTablatureBuilder.buildRuler(markings, 4, spacing);
-
-        final int nElements = ruler.length();
-
-        // Build the chord line
-        final Map<Integer, String> chordPosToMarking =
-                SingleBarTablatureBuilder.buildPositionToMarking(bar.getTimedChords(), markings, spacing);
-        final String chordLine = SingleBarTablatureBuilder.buildChordLine(nElements, chordPosToMarking);
-
-        // Build a tab line for each guitar string
-        final List<String> tabLines = new ArrayList<>();
-        for (int guitarString = 1; guitarString <= 6; guitarString++) {
-            Map<Integer, String> tabPosToMarking =
-                    SingleBarTablatureBuilder.buildPositionToMarking(bar.getNotes(), markings, spacing, guitarString);
-            String tabLine = SingleBarTablatureBuilder.buildTabLine(nElements, tabPosToMarking);
-            tabLines.add(tabLine);
+        // Write the chords (the last chord at a timing is shown)
+        for (int mask = bar.getChordOccupancy(); mask != 0; mask &= mask - 1) {
+            final int sixteenth = Integer.numberOfTrailingZeros(mask);
+            tab.writeChord(grid.column(sixteenth), SingleBarTablatureBuilder.lastChordAt(bar, sixteenth));
         }
 
-        // Build an return the single bar of tab
-        return new SingleBarTablature(ruler, chordLine, tabLines);
-    }
-
-    /**
-     * Build a map of the character position and marking for a single string.
-     *
-     * @param notes List of notes.
-     * @param markings Markings to use.
-     * @param spacing Spacing between markings.
-     * @param stringNumber String number.
-     * @return Map of character position to marking.
-     * @throws TabBuildingException Unable to represent the markings.
-     */
-    private static Map<Integer, String> buildPositionToMarking(final List<Note> notes,
-                                                               final Markings markings,
-                                                               final int spacing,
-                                                               final int stringNumber) throws TabBuildingException {
-
-        final Map<Integer, String> pos = new HashMap<>();
+        // Find the fret of the last note at each timing on each string
+        final int[] frets = fretsAtTimings.get();
+        final PackedNotes notes = bar.getPackedNotes();
+        for (int i = 0; i < notes.size(); i++) {
+            final int note = notes.get(i);
+            frets[PackedNotes.stringNumber(note) * numberTimings + PackedNotes.sixteenthNumber(note)] =
+                    PackedNotes.fretNumber(note);
+        }
 
-        for (Note n : notes) {
-            if (n.getFret().getStringNumber() == stringNumber) {
-                int position = SingleBarTablatureBuilder.getPosition(n.getTiming().getSixteenthNumber(), markings, spacing);
-                String marking = n.getFret().fretMarking();
-                pos.put(position, marking);
+        // Write the fret numbers onto each tab line
+        for (int guitarString = 1; guitarString <= numberStrings; guitarString++) {
+            for (int mask = bar.getNoteOccupancy(guitarString); mask != 0; mask &= mask - 1) {
+                final int sixteenth = Integer.numberOfTrailingZeros(mask);
+                tab.writeFret(guitarString, grid.column(sixteenth), frets[guitarString * numberTimings + sixteenth]);
             }
         }
 
-        return pos;
+        return tab;
     }
 
     /**
-     * Get the character position of a timing.
+     * Find the notation of the last chord at a timing.
      *
+     * @param bar Bar.
      * @param sixteenthNumber Timing.
-     * @param markings Markings to show on the tab.
-     * @param spacing Spacing between markings.
-     * @return Character position.
-     * @throws TabBuildingException Unable to represent timing given the markings.
+     * @return Chord notation.
      */
-    private static int getPosition(int sixteenthNumber,
-                                   Markings markings,
-                                   int spacing) throws TabBuildingException {
-
-        if (markings == Markings.Tertiary) {
-            return (spacing + 1) * sixteenthNumber;
-        } else if (markings == Markings.Secondary) {
-            if (sixteenthNumber % 2 != 0) {
-                throw new TabBuildingException("Note can't be represented giving markings");
+    private static String lastChordAt(final Bar bar,
+                                      final int sixteenthNumber) {
+        for (int i = bar.getNumberTimedChords() - 1; i >= 0; i--) {
+            final TimedChord timedChord = bar.getTimedChord(i);
+            if (timedChord.getTiming().getSixteenthNumber() == sixteenthNumber) {
+                return timedChord.getChord().musicNotation();
             }
-            return (spacing + 1) * (sixteenthNumber / 2);
-        } else if (markings == Markings.Main) {
-            if (sixteenthNumber % 4 != 0) {
-                throw new TabBuildingException("Note can't be represented giving markings");
-            }
-            return (spacing + 1) * (sixteenthNumber / 4);
-        }
-
-        return -1;
-    }
-
-    /**
-     * Build a map of character position to markings.
-     *
-     * @param timedChords Timed chords.
-     * @param markings Markings to show.
-     * @param spacing Spacing between markings.
-     * @return Map of character position to markings.
-     * @throws TabBuildingException Unable to build tab.
-     */
-    static Map<Integer, String> buildPositionToMarking(final List<TimedChord> timedChords,
-                                                       final Markings markings,
-                                                       final int spacing) throws TabBuildingException {
-
-        final Map<Integer, String> pos = new HashMap<>();
-
-        for (TimedChord timedChord : timedChords) {
-            int i = SingleBarTablatureBuilder.getPosition(timedChord.getTiming().getSixteenthNumber(), markings, spacing);
-            pos.put(i, timedChord.getChord().musicNotation());
         }
-
-        return pos;
+        throw new IllegalStateException("No chord at sixteenth " + sixteenthNumber);
     }
 
     /**
-     * Build the ruler that shows the timing.
+     * Build the ruler that shows the timing in 4/4 (with any number of beats).
      *
      * @param markings Type of markings to display.
      * @param nBeats Number of main beats, e.g. 4 for 4/4.
@@ -173,109 +102,8 @@ class SingleBarTablatureBuilder {
             throw new TabBuildingException("Invalid spacing: " + spacing);
         }
 
-        // Build the spacing string
-        final char[] spacingString = new char[spacing];
-        Arrays.fill(spacingString, rulerSpacingSymbol);
-
-        // Build the rule
-        StringBuilder line = new StringBuilder();
-        for (int beat = 1; beat <= nBeats; beat++) {
-            line.append(beat);
-            line.append(spacingString);
-
-            if (markings == Markings.Tertiary) {
-                line.append(tertiarySymbol);
-                line.append(spacingString);
-            }
-
-            if (markings == Markings.Secondary || markings == Markings.Tertiary) {
-                line.append(secondarySymbol);
-                line.append(spacingString);
-            }
-
-            if (markings == Markings.Tertiary) {
-                line.append(tertiarySymbol);
-                line.append(spacingString);
-            }
-        }
-
-        return line.toString();
-    }
-
-    /**
-     * Build a single line (tab or chords).
-     *
-     * @param nElements Number of elements (characters) in the line.
-     * @param positionToMarking Map of index to marking, e.g. fret number, tilde, etc.
-     * @param spacer Character to use to create the 'background' of the line.
-     * @return Single line.
-     * @throws TabBuildingException Invalid number of elements, position or text.
-     */
-    private static String buildLine(final int nElements,
-                                    final Map<Integer, String> positionToMarking,
-                                    final char spacer)
-            throws TabBuildingException {
-
-        // Precondition
-        if (nElements <= 0) {
-            throw new TabBuildingException("Invalid number of elements: " + nElements);
-        }
-
-        // Construct an empty line
-        final char[] line = new char[nElements];
-        Arrays.fill(line, spacer);
-
-        // Add the frets at the required positions
-        for (Map.Entry<Integer, String> entry : positionToMarking.entrySet()) {
-
-            // Get the position of the fret number
-            final Integer position = entry.getKey();
-            if (position < 0 || position >= nElements) {
-                throw new TabBuildingException("Invalid position (" + position + " for a line of length " + nElements);
-            }
-
-            // Get the fret number
-            final String fret = entry.getValue();
-
-            // Check the characters will fit onto the line
-            if (position + fret.length() > nElements) {
-                throw new TabBuildingException("Text '" + fret + "' will go beyond the end of the line");
-            }
-
-            // Insert the characters onto the line
-            for (int i = 0; i < fret.length(); i++ ) {
-                line[position + i] = fret.charAt(i);
-            }
-
-        }
-
-        return new String(line);
-    }
-
-    /**
-     * Build a single line of guitar tab.
-     *
-     * @param nElements Number of elements (typically dashes).
-     * @param positionToMarking Map of index to marking, e.g. fret number, tilde, etc.
-     * @return Single tab line.
-     * @throws TabBuildingException Unable to build line of tab.
-     */
-    static String buildTabLine(final int nElements,
-                               final Map<Integer, String> positionToMarking) throws TabBuildingException {
-        return SingleBarTablatureBuilder.buildLine(nElements, positionToMarking, SingleBarTablatureBuilder.lineCharacter);
-    }
-
-    /**
-     * Build a single line of chords.
-     *
-     * @param nElements Number of elements.
-     * @param positionToMarking Map of index to chord markings.
-     * @return Single chord line.
-     * @throws TabBuildingException Unable to build line of chords.
-     */
-    static String buildChordLine(final int nElements,
-                                 final Map<Integer, String> positionToMarking) throws TabBuildingException {
-        return SingleBarTablatureBuilder.buildLine(nElements, positionToMarking, ' ');
+        final int step = markings == Markings.Main ? 4 : markings == Markings.Secondary ? 2 : 1;
+        return TimeSignatureGrid.buildRuler(nBeats, 4, step, spacing);
     }
 
 }
@@ -0,0 +1,88 @@
+package com.github.cdclaxton.guitartabgenerator.tabwriter;
+
+import com.github.cdclaxton.guitartabgenerator.sheetmusic.Header;
+import com.github.cdclaxton.guitartabgenerator.sheetmusic.Section;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+/**
+ * Writes tab to a file one section at a time, with each system (row of bars) written as soon as it is laid out, so that
+ * only the section being read, the system being laid out and the distinct bars rendered so far (up to the limit of the
+ * BarRenderCache) are held in memory.
+ * <p>
+ * Writing the header and then each of the sections produces the same file as writing the lines from
+ * TabSheetMusicBuilder.buildTabSheetMusic() with TabSheetMusicWriter.writeLines().
+ */
+public final class StreamingTabWriter implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(StreamingTabWriter.class);
+
+    private final BufferedWriter writer;
+    private final LineSink sink;
+    private final int pageWidth;
+    private final TabSheetMusicBuilder.LineBreaking lineBreaking;
+    private final BarRenderCache cache = new BarRenderCache();
+
+    // Number of sections written so far
+    private int nSections = 0;
+
+    // Title of the song (from the header)
+    private String title = null;
+
+    /**
+     * Open a file to write tab to.
+     *
+     * @param filepath Path of the file to write.
+     * @param pageWidth Number of characters width of the page.
+     * @param lineBreaking How the bars of each section are broken into systems.
+     * @throws IOException Unable to open the file.
+     */
+    public StreamingTabWriter(final String filepath,
+                              final int pageWidth,
+                              final TabSheetMusicBuilder.LineBreaking lineBreaking) throws IOException {
+
+        logger.info("Streaming tab to: {}", filepath);
+
+        this.writer = Files.newBufferedWriter(Paths.get(filepath), StandardCharsets.UTF_8);
+        this.sink = LineSink.of(this.writer);
+        this.pageWidth = pageWidth;
+        this.lineBreaking = lineBreaking;
+    }
+
+    /**
+     * Write the header of the sheet music.
+     *
+     * @param header Header.
+     * @throws IOException Unable to write to the file.
+     */
+    public void writeHeader(final Header header) throws IOException {
+        this.title = header.getTitle();
+        TabSheetMusicBuilder.buildHeader(header, this.pageWidth, this.sink);
+    }
+
+    /**
+     * Lay out and write a section of the sheet music (followed by an empty line).
+     *
+     * @param section Section to write.
+     * @throws TabBuildingException Unable to layout the bars.
+     * @throws IOException Unable to write to the file.
+     */
+    public void writeSection(final Section section) throws TabBuildingException, IOException {
+        TabSheetMusicBuilder.buildSection(section, this.nSections++, this.pageWidth, this.lineBreaking, this.cache,
+                this.sink);
+        this.sink.writeLine("");
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.writer.close();
+        TabSheetMusicBuilder.recordBarsReused(this.title, this.cache);
+    }
+}
@@ -4,16 +4,36 @@ import com.github.cdclaxton.guitartabgenerator.sheetmusic.Header;
 import com.github.cdclaxton.guitartabgenerator.sheetmusic.Section;
 import com.github.cdclaxton.guitartabgenerator.sheetmusic.SheetMusic;
 import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 public final class TabSheetMusicBuilder {
 
+    private static final Logger logger = LoggerFactory.getLogger(TabSheetMusicBuilder.class);
+
+    /**
+     * How the bars of a section are broken into systems (rows of bars).
+     */
+    public enum LineBreaking {
+        // Start a new system when the next bar doesn't fit (fastest)
+        Greedy,
+        // Use the fewest systems and spread the bars evenly across them
+        Optimal
+    }
+
     private TabSheetMusicBuilder() {}
 
     /**
-     * Build the text lines for a sheet of tab music.
+     * Build the text lines for a sheet of tab music (with greedy line breaking).
      *
      * @param sheetMusic Sheet music.
      * @param pageWidth Number of characters width of the page.
@@ -22,26 +42,217 @@ public final class TabSheetMusicBuilder {
      */
     public static List<String> buildTabSheetMusic(final SheetMusic sheetMusic,
                                                   final int pageWidth) throws TabBuildingException {
+        return TabSheetMusicBuilder.buildTabSheetMusic(sheetMusic, pageWidth, Optional.empty(), LineBreaking.Greedy);
+    }
+
+    /**
+     * Build the text lines for a sheet of tab music, optionally laying out the sections in parallel.
+     *
+     * @param sheetMusic Sheet music.
+     * @param pageWidth Number of characters width of the page.
+     * @param executor Executor to lay out the sections on (sequential if empty).
+     * @param lineBreaking How the bars of each section are broken into systems.
+     * @return Sheet music lines.
+     * @throws TabBuildingException Unable to build the sheet music (reported with its section and bar).
+     */
+    public static List<String> buildTabSheetMusic(final SheetMusic sheetMusic,
+                                                  final int pageWidth,
+                                                  final Optional<ExecutorService> executor,
+                                                  final LineBreaking lineBreaking)
+            throws TabBuildingException {
+
+        final List<String> sheetMusicLines = new ArrayList<>();
+        try {
+            TabSheetMusicBuilder.render(sheetMusic, pageWidth, executor, lineBreaking, LineSink.of(sheetMusicLines));
+        } catch (IOException e) {
+            throw new IllegalStateException("Adding to a list failed!", e);
+        }
+        return sheetMusicLines;
+    }
+
+    /**
+     * Render a sheet of tab music, appending each line (followed by a line feed) as soon as it is laid out (with
+     * greedy line breaking).
+     *
+     * @param sheetMusic Sheet music.
+     * @param pageWidth Number of characters width of the page.
+     * @param sink Destination, e.g. a StringBuilder or a Writer.
+     * @throws TabBuildingException Unable to build the sheet music.
+     * @throws IOException Unable to write to the sink.
+     */
+    public static void render(final SheetMusic sheetMusic,
+                              final int pageWidth,
+                              final Appendable sink) throws TabBuildingException, IOException {
+        TabSheetMusicBuilder.render(sheetMusic, pageWidth, Optional.empty(), LineBreaking.Greedy, LineSink.of(sink));
+    }
+
+    /**
+     * Render a sheet of tab music, writing it to a channel as UTF-8 as it is laid out (with greedy line breaking).
+     *
+     * @param sheetMusic Sheet music.
+     * @param pageWidth Number of characters width of the page.
+     * @param sink Destination, e.g. a FileChannel or Channels.newChannel(System.out).
+     * @throws TabBuildingException Unable to build the sheet music.
+     * @throws IOException Unable to write to the channel.
+     */
+    public static void render(final SheetMusic sheetMusic,
+                              final int pageWidth,
+                              final WritableByteChannel sink) throws TabBuildingException, IOException {
+        TabSheetMusicBuilder.render(sheetMusic, pageWidth, Optional.empty(), LineBreaking.Greedy, LineSink.of(sink));
+    }
 
-        // List to hold each of the lines of sheet music
-        List<String> sheetMusicLines = new ArrayList<>();
+    /**
+     * Render a sheet of tab music to a sink, optionally laying out the sections in parallel.
+     * <p>
+     * Sequentially, each system (row of bars) is written to the sink as soon as it is laid out, so only one system is
+     * held in memory. In parallel, the systems of every section are worked out from the widths of the bars and laid
+     * out in batches on the executor, and the batches are then written in order, so the tab is identical to building
+     * it sequentially (and a song of one long section is laid out in parallel too). If any bars fail, the exception
+     * is from the first failing bar in the song (and the lines before it may already have been written). Each distinct
+     * bar of the song is rendered once (see BarRenderCache). The sink is flushed once the tab has been written.
+     *
+     * @param sheetMusic Sheet music.
+     * @param pageWidth Number of characters width of the page.
+     * @param executor Executor to lay out the systems on (sequential if empty).
+     * @param lineBreaking How the bars of each section are broken into systems.
+     * @param sink Sink to write the lines to.
+     * @throws TabBuildingException Unable to build the sheet music (reported with its section and bar).
+     * @throws IOException Unable to write to the sink.
+     */
+    public static void render(final SheetMusic sheetMusic,
+                              final int pageWidth,
+                              final Optional<ExecutorService> executor,
+                              final LineBreaking lineBreaking,
+                              final LineSink sink) throws TabBuildingException, IOException {
 
         // Add the header
-        sheetMusicLines.addAll(TabSheetMusicBuilder.buildHeader(sheetMusic.getHeader(), pageWidth));
+        TabSheetMusicBuilder.buildHeader(sheetMusic.getHeader(), pageWidth, sink);
+
+        final BarRenderCache cache = new BarRenderCache();
+        final List<Section> sections = sheetMusic.getSections();
+        if (executor.isPresent()) {
+            // Lay out the systems of every section as tasks
+            final List<List<Future<List<String>>>> built = new ArrayList<>(sections.size());
+            try {
+                for (Section section : sections) {
+                    built.add(LayoutEngine.submitSystems(section.getBars(), pageWidth, 1, lineBreaking, cache,
+                            executor.get()));
+                }
+
+                for (int i = 0; i < sections.size(); i++) {
+                    TabSheetMusicBuilder.writeSectionText(sections.get(i), sink);
+                    for (Future<List<String>> systems : built.get(i)) {
+                        for (String line : TabSheetMusicBuilder.getSystems(systems, i)) {
+                            sink.writeLine(line);
+                        }
+                    }
 
-        // Build each section
-        for (Section section : sheetMusic.getSections()) {
-            sheetMusicLines.addAll(TabSheetMusicBuilder.buildSection(section, pageWidth));
+                    // Add an empty line after the section
+                    sink.writeLine("");
+                }
+            } finally {
+                // Stop laying out the rest of the song if it failed
+                for (List<Future<List<String>>> section : built) {
+                    for (Future<List<String>> systems : section) {
+                        systems.cancel(false);
+                    }
+                }
+            }
+        } else {
+            // Build each section
+            for (int i = 0; i < sections.size(); i++) {
+                TabSheetMusicBuilder.buildSection(sections.get(i), i, pageWidth, lineBreaking, cache, sink);
 
-            // Add an empty line after the section
-            sheetMusicLines.add("");
+                // Add an empty line after the section
+                sink.writeLine("");
+            }
         }
 
-        return sheetMusicLines;
+        sink.flush();
+        TabSheetMusicBuilder.recordBarsReused(sheetMusic.getHeader().getTitle(), cache);
+    }
+
+    /**
+     * Get the lines of a batch of systems laid out on an executor, rethrowing the exception from the bar that failed.
+     *
+     * @param systems Batch of systems being laid out.
+     * @param sectionIndex Index of the section in the song.
+     * @return Lines of the systems.
+     * @throws TabBuildingException Unable to build a bar (reported with its section and bar).
+     */
+    private static List<String> getSystems(final Future<List<String>> systems,
+                                           final int sectionIndex) throws TabBuildingException {
+        try {
+            return systems.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TabBuildingException("Interrupted whilst building the tab");
+        } catch (ExecutionException e) {
+            // A fork-join pool wraps checked exceptions in (possibly several) RuntimeExceptions
+            Throwable cause = e.getCause();
+            while (cause.getClass() == RuntimeException.class && cause.getCause() != null) {
+                cause = cause.getCause();
+            }
+            if (cause instanceof TabBuildingException) {
+                throw new TabBuildingException("Section " + (sectionIndex + 1) + ", " + cause.getMessage());
+            }
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new IllegalStateException("Unexpected exception whilst building the tab", cause);
+        }
     }
 
     /**
-     * Build the text lines for a single section for a sheet of tab.
+     * Build the text lines for a single section for a sheet of tab, reporting a failure with the section number.
+     *
+     * @param section Section to build.
+     * @param sectionIndex Index of the section in the song.
+     * @param pageWidth Page width in characters.
+     * @param lineBreaking How the bars are broken into systems.
+     * @return Fully-constructed section.
+     * @throws TabBuildingException Unable to layout the bars.
+     */
+    public static List<String> buildSection(final Section section,
+                                            final int sectionIndex,
+                                            final int pageWidth,
+                                            final LineBreaking lineBreaking) throws TabBuildingException {
+        final List<String> lines = new ArrayList<>();
+        try {
+            TabSheetMusicBuilder.buildSection(section, sectionIndex, pageWidth, lineBreaking, new BarRenderCache(),
+                    LineSink.of(lines));
+        } catch (IOException e) {
+            throw new IllegalStateException("Adding to a list failed!", e);
+        }
+        return lines;
+    }
+
+    /**
+     * Write the text lines for a single section for a sheet of tab, reporting a failure with the section number.
+     *
+     * @param section Section to build.
+     * @param sectionIndex Index of the section in the song.
+     * @param pageWidth Page width in characters.
+     * @param lineBreaking How the bars are broken into systems.
+     * @param cache Rendered bars of the song.
+     * @param sink Sink to write the lines to.
+     * @throws TabBuildingException Unable to layout the bars.
+     * @throws IOException Unable to write to the sink.
+     */
+    static void buildSection(final Section section,
+                             final int sectionIndex,
+                             final int pageWidth,
+                             final LineBreaking lineBreaking,
+                             final BarRenderCache cache,
+                             final LineSink sink) throws TabBuildingException, IOException {
+        try {
+            TabSheetMusicBuilder.buildSection(section, pageWidth, lineBreaking, cache, sink);
+        } catch (TabBuildingException e) {
+            throw new TabBuildingException("Section " + (sectionIndex + 1) + ", " + e.getMessage());
+        }
+    }
+
+    /**
+     * Build the text lines for a single section for a sheet of tab (with greedy line breaking).
      *
      * @param section Section to build.
      * @param pageWidth Page width in characters.
@@ -50,21 +261,73 @@ public final class TabSheetMusicBuilder {
      */
     static List<String> buildSection(final Section section,
                                      final int pageWidth) throws TabBuildingException {
+        final List<String> lines = new ArrayList<>();
+        try {
+            TabSheetMusicBuilder.buildSection(section, pageWidth, LineBreaking.Greedy, new BarRenderCache(),
+                    LineSink.of(lines));
+        } catch (IOException e) {
+            throw new IllegalStateException("Adding to a list failed!", e);
+        }
+        return lines;
+    }
 
-        List<String> lines = new ArrayList<>();
+    /**
+     * Write the text lines for a single section for a sheet of tab.
+     *
+     * @param section Section to build.
+     * @param pageWidth Page width in characters.
+     * @param lineBreaking How the bars are broken into systems.
+     * @param cache Rendered bars of the song.
+     * @param sink Sink to write the lines to.
+     * @throws TabBuildingException Unable to layout the bars.
+     * @throws IOException Unable to write to the sink.
+     */
+    static void buildSection(final Section section,
+                             final int pageWidth,
+                             final LineBreaking lineBreaking,
+                             final BarRenderCache cache,
+                             final LineSink sink) throws TabBuildingException, IOException {
 
-        if (section.getName() != null) {
-            lines.add("# " + section.getName());
-        }
+        TabSheetMusicBuilder.writeSectionText(section, sink);
 
-        if (section.getText().size() > 0) {
-            lines.addAll(section.getText());
+        // Layout the bars using the most compact form possible
+        LayoutEngine.layoutBars(section.getBars(), pageWidth, 1, lineBreaking, cache, sink);
+    }
+
+    /**
+     * Record (in the layout.bars.song metrics) and log how many of the bars of a song re-used the rows of an equal bar.
+     *
+     * @param title Title of the song (may be null).
+     * @param cache Rendered bars of the song.
+     */
+    static void recordBarsReused(final String title,
+                                 final BarRenderCache cache) {
+        cache.recordSong();
+        if (logger.isDebugEnabled()) {
+            final long hits = cache.getHits();
+            final long total = hits + cache.getMisses();
+            logger.debug("Rendered '{}': {} of {} bars re-used ({}% hit rate, {} distinct bars held)", title, hits,
+                    total, total > 0 ? 100 * hits / total : 0, cache.size());
         }
+    }
 
-        // Layout the bars using the most compact form possible
-        lines.addAll(LayoutEngine.layoutBars(section.getBars(), pageWidth, 1));
+    /**
+     * Write the name and text of a section.
+     *
+     * @param section Section.
+     * @param sink Sink to write the lines to.
+     * @throws IOException Unable to write to the sink.
+     */
+    private static void writeSectionText(final Section section,
+                                         final LineSink sink) throws IOException {
 
-        return lines;
+        if (section.getName() != null) {
+            sink.writeLine("# " + section.getName());
+        }
+
+        for (String line : section.getText()) {
+            sink.writeLine(line);
+        }
     }
 
     /**
@@ -74,26 +337,42 @@ public final class TabSheetMusicBuilder {
      * @param pageWidth Width of the page in characters.
      * @return List of text lines representing the header.
      */
-    private static List<String> buildHeader(final Header header,
-                                            final int pageWidth) {
-
+    public static List<String> buildHeader(final Header header,
+                                           final int pageWidth) {
         final List<String> headerLines = new ArrayList<>();
+        try {
+            TabSheetMusicBuilder.buildHeader(header, pageWidth, LineSink.of(headerLines));
+        } catch (IOException e) {
+            throw new IllegalStateException("Adding to a list failed!", e);
+        }
+        return headerLines;
+    }
+
+    /**
+     * Write the header text for a sheet of tab.
+     *
+     * @param header Header.
+     * @param pageWidth Width of the page in characters.
+     * @param sink Sink to write the lines to.
+     * @throws IOException Unable to write to the sink.
+     */
+    static void buildHeader(final Header header,
+                            final int pageWidth,
+                            final LineSink sink) throws IOException {
 
         // Add the song title
         if (header.getTitle() != null) {
-            headerLines.add(StringUtils.center(header.getTitle(), pageWidth));
+            sink.writeLine(StringUtils.center(header.getTitle(), pageWidth));
         }
 
         // Add the artist
         if (header.getArtist() != null) {
-            headerLines.add(StringUtils.center(header.getArtist(), pageWidth));
+            sink.writeLine(StringUtils.center(header.getArtist(), pageWidth));
         }
 
         if (header.getKey() != null) {
-            headerLines.add(StringUtils.leftPad(header.getKey().getKey(), pageWidth));
+            sink.writeLine(StringUtils.leftPad(header.getKey().getKey(), pageWidth));
         }
-
-        return headerLines;
     }
 
 }
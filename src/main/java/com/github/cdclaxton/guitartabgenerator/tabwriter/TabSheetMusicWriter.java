@@ -1,17 +1,51 @@
 package com.github.cdclaxton.guitartabgenerator.tabwriter;
 
-import com.github.cdclaxton.guitartabgenerator.tabparser.SheetMusicParser;
+import com.github.cdclaxton.guitartabgenerator.metrics.Metrics;
+import com.github.cdclaxton.guitartabgenerator.metrics.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.BufferedWriter;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Writes tab to a file as UTF-8, one line per row.
+ * <p>
+ * Each line is encoded straight into a byte buffer that is reused by the thread (no string or array is created per
+ * line) and the buffer is written through a FileChannel whenever it fills up.
+ */
 public class TabSheetMusicWriter {
 
-    private static final Logger logger = LoggerFactory.getLogger(SheetMusicParser.class);
+    private static final Logger logger = LoggerFactory.getLogger(TabSheetMusicWriter.class);
+
+    // Buffers reused by each thread
+    private static final ThreadLocal<ByteBuffer> buffers =
+            ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(ChannelLineSink.defaultBufferSize));
+
+    private static final ThreadLocal<CharBuffer> lineBuffers =
+            ThreadLocal.withInitial(() -> CharBuffer.allocate(ChannelLineSink.defaultLineBufferSize));
+
+    private static final ThreadLocal<CharsetEncoder> encoders =
+            ThreadLocal.withInitial(() -> StandardCharsets.UTF_8.newEncoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE));
+
+    // Makes the names of temporary files unique within the process
+    private static final AtomicLong temporaryFiles = new AtomicLong();
+
+    private static final Timer writeTimer = Metrics.timer("write", "bytes");
 
     /**
      * Write a list of lines to a file.
@@ -22,19 +56,64 @@ public class TabSheetMusicWriter {
      */
     public static void writeLines(final List<String> lines,
                                   final String filepath) throws IOException {
+        TabSheetMusicWriter.writeLines(lines, filepath, false);
+    }
 
-        logger.info("Writing tab to: " + filepath);
+    /**
+     * Write a list of lines to a file, optionally writing to a temporary file that is then renamed.
+     * <p>
+     * With an atomic write, the temporary file is in the same folder and is moved over the file in one step, so a
+     * reader sees either the old file or the complete new one, never a partly written file.
+     *
+     * @param lines Lines to write.
+     * @param filepath Path of the file to write.
+     * @param atomic Write to a temporary file and rename it?
+     * @throws IOException Unable to write to file.
+     */
+    public static void writeLines(final List<String> lines,
+                                  final String filepath,
+                                  final boolean atomic) throws IOException {
 
-        // Open the file for writing
-        BufferedWriter writer = new BufferedWriter(new FileWriter(filepath));
+        logger.info("Writing tab to: {}", filepath);
 
-        // Write each of the lines
-        for (String line : lines) {
-            writer.write(line + "\n");
+        final Path path = Paths.get(filepath);
+        if (!atomic) {
+            TabSheetMusicWriter.write(lines, path);
+            return;
         }
 
-        // Close the the file
-        writer.close();
+        final Path temporary = path.resolveSibling("." + path.getFileName() + "." +
+                temporaryFiles.incrementAndGet() + "." + System.nanoTime() + ".tmp");
+        try {
+            TabSheetMusicWriter.write(lines, temporary);
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Encode the lines as UTF-8 and write them to a file.
+     *
+     * @param lines Lines to write.
+     * @param path Path of the file to write.
+     * @throws IOException Unable to write to file.
+     */
+    private static void write(final List<String> lines,
+                              final Path path) throws IOException {
+
+        final long start = Metrics.start();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+
+            final LineSink sink = new ChannelLineSink(channel, buffers.get(), encoders.get(), lineBuffers.get());
+            for (String line : lines) {
+                sink.writeLine(line);
+            }
+            sink.flush();
+
+            if (Metrics.isEnabled()) writeTimer.stop(start, channel.position());
+        }
     }
 
 }
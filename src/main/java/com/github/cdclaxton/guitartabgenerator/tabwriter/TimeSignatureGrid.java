@@ -0,0 +1,254 @@
+package com.github.cdclaxton.guitartabgenerator.tabwriter;
+
+import com.github.cdclaxton.guitartabgenerator.music.Bar;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Character grid of a bar of tab in a time signature, shown with a level of markings.
+ * <p>
+ * The grid is driven by the time signature's beats and sixteenths per beat: the main markings are the beats, the
+ * secondary markings add the half beats (+) and the tertiary markings add the quarter beats (.), as far as the beat can
+ * be divided into sixteenths. A beat of 6/8 is a quaver (two sixteenths), so its secondary markings already show every
+ * sixteenth and its tertiary markings are the same grid as its secondary markings. The ruler, the empty chord and tab
+ * rows and the column of each timing are worked out once for each time signature and level of markings, and shared by
+ * every bar. A bar without a time signature is shown in 4/4.
+ */
+final class TimeSignatureGrid {
+
+    // Number of spaces between markings
+    static final int spacing = 3;
+
+    private static final char lineCharacter = '-';
+    private static final char chordSpacingCharacter = ' ';
+    private static final char rulerSpacingSymbol = ' ';
+
+    // Symbol marking each quarter of a beat (the beat itself is marked by its number)
+    private static final String[] subdivisionSymbols = {null, ".", "+", "."};
+
+    // Number of timings (sixteenths) a note or chord can have
+    private static final int numberTimings = 16;
+
+    // Markings from the most to the least compact
+    private static final SingleBarTablatureBuilder.Markings[] markings = SingleBarTablatureBuilder.Markings.values();
+
+    private static final Map<Bar.TimeSignature, Map<SingleBarTablatureBuilder.Markings, TimeSignatureGrid>> grids =
+            TimeSignatureGrid.buildGrids();
+
+    private final int step;
+    private final int shownTimings;
+    private final String ruler;
+    private final char[] emptyTabRow;
+    private final char[] emptyChordRow;
+    private final int[] columns;
+
+    /**
+     * Instantiate the grid for a time signature and level of markings.
+     *
+     * @param timeSignature Time signature.
+     * @param markings Markings to show.
+     */
+    private TimeSignatureGrid(final Bar.TimeSignature timeSignature,
+                              final SingleBarTablatureBuilder.Markings markings) {
+
+        this.step = TimeSignatureGrid.step(timeSignature.getSixteenthsPerBeat(), markings);
+        this.ruler = TimeSignatureGrid.buildRuler(timeSignature.getNumberBeats(),
+                timeSignature.getSixteenthsPerBeat(), this.step, spacing);
+
+        this.emptyTabRow = new char[this.ruler.length()];
+        Arrays.fill(this.emptyTabRow, lineCharacter);
+        this.emptyChordRow = new char[this.ruler.length()];
+        Arrays.fill(this.emptyChordRow, chordSpacingCharacter);
+
+        // Column of each timing (or -1 if the markings can't show it)
+        this.columns = new int[numberTimings];
+        int shownTimings = 0;
+        for (int sixteenth = 0; sixteenth < numberTimings; sixteenth++) {
+            if (sixteenth % this.step == 0) {
+                this.columns[sixteenth] = (spacing + 1) * (sixteenth / this.step);
+                shownTimings |= 1 << sixteenth;
+            } else {
+                this.columns[sixteenth] = -1;
+            }
+        }
+        this.shownTimings = shownTimings;
+    }
+
+    /**
+     * Build the grids for every time signature and level of markings.
+     *
+     * @return Grids.
+     */
+    private static Map<Bar.TimeSignature, Map<SingleBarTablatureBuilder.Markings, TimeSignatureGrid>> buildGrids() {
+
+        final Map<Bar.TimeSignature, Map<SingleBarTablatureBuilder.Markings, TimeSignatureGrid>> grids =
+                new EnumMap<>(Bar.TimeSignature.class);
+
+        for (Bar.TimeSignature timeSignature : Bar.TimeSignature.values()) {
+            final Map<SingleBarTablatureBuilder.Markings, TimeSignatureGrid> byMarkings =
+                    new EnumMap<>(SingleBarTablatureBuilder.Markings.class);
+            TimeSignatureGrid previous = null;
+            for (SingleBarTablatureBuilder.Markings markings : SingleBarTablatureBuilder.Markings.values()) {
+                // Markings that can't divide the beat any further (e.g. tertiary in 6/8) share the coarser grid
+                final int step = TimeSignatureGrid.step(timeSignature.getSixteenthsPerBeat(), markings);
+                if (previous == null || previous.step != step) {
+                    previous = new TimeSignatureGrid(timeSignature, markings);
+                }
+                byMarkings.put(markings, previous);
+            }
+            grids.put(timeSignature, byMarkings);
+        }
+
+        return grids;
+    }
+
+    /**
+     * Get the grid for a time signature and level of markings.
+     *
+     * @param timeSignature Time signature (4/4 if null).
+     * @param markings Markings to show.
+     * @return Grid.
+     */
+    static TimeSignatureGrid of(final Bar.TimeSignature timeSignature,
+                                final SingleBarTablatureBuilder.Markings markings) {
+        return grids.get(timeSignature != null ? timeSignature : Bar.TimeSignature.Four4).get(markings);
+    }
+
+    /**
+     * Find the most compact markings that can show every timing.
+     *
+     * @param timeSignature Time signature (4/4 if null).
+     * @param occupancy Timings of the notes and chords (bit n is set if there is one at sixteenth n).
+     * @return Markings.
+     */
+    static SingleBarTablatureBuilder.Markings compactMarkings(final Bar.TimeSignature timeSignature,
+                                                              final int occupancy) {
+
+        // The markings can show the bar if every occupied timing is one they show
+        for (SingleBarTablatureBuilder.Markings candidate : markings) {
+            if ((occupancy & ~TimeSignatureGrid.of(timeSignature, candidate).shownTimings) == 0) return candidate;
+        }
+        return SingleBarTablatureBuilder.Markings.Tertiary;
+    }
+
+    /**
+     * Get the number of sixteenths between the markings.
+     * <p>
+     * A beat of fewer than four sixteenths can't be divided into quarters, so the tertiary markings then have the
+     * same step as the secondary markings (one sixteenth in 6/8).
+     *
+     * @param sixteenthsPerBeat Number of sixteenths in a beat.
+     * @param markings Markings to show.
+     * @return Number of sixteenths (at least one).
+     */
+    private static int step(final int sixteenthsPerBeat,
+                            final SingleBarTablatureBuilder.Markings markings) {
+        switch (markings) {
+            case Main:
+                return sixteenthsPerBeat;
+            case Secondary:
+                return Math.max(1, sixteenthsPerBeat / 2);
+            default:
+                return Math.max(1, sixteenthsPerBeat / 4);
+        }
+    }
+
+    /**
+     * Build the ruler that shows the timing.
+     *
+     * @param nBeats Number of beats, e.g. 4 for 4/4.
+     * @param sixteenthsPerBeat Number of sixteenths in a beat.
+     * @param step Number of sixteenths between the markings.
+     * @param spacing Number of spaces between markings.
+     * @return Ruler.
+     */
+    static String buildRuler(final int nBeats,
+                             final int sixteenthsPerBeat,
+                             final int step,
+                             final int spacing) {
+
+        // Build the spacing string
+        final char[] spacingString = new char[spacing];
+        Arrays.fill(spacingString, rulerSpacingSymbol);
+
+        // Build the ruler, marking each beat by its number and each subdivision by its symbol
+        final StringBuilder line = new StringBuilder();
+        for (int beat = 1; beat <= nBeats; beat++) {
+            for (int sixteenth = 0; sixteenth < sixteenthsPerBeat; sixteenth += step) {
+                if (sixteenth == 0) line.append(beat);
+                else line.append(subdivisionSymbols[4 * sixteenth / sixteenthsPerBeat]);
+                line.append(spacingString);
+            }
+        }
+
+        return line.toString();
+    }
+
+    /**
+     * Get the column of a timing.
+     *
+     * @param sixteenthNumber Timing.
+     * @return Character position.
+     * @throws TabBuildingException Unable to represent timing given the markings.
+     */
+    int column(final int sixteenthNumber) throws TabBuildingException {
+        final int column = sixteenthNumber >= 0 && sixteenthNumber < numberTimings ? this.columns[sixteenthNumber] : -1;
+        if (column < 0) {
+            throw new TabBuildingException("Note can't be represented giving markings");
+        }
+        return column;
+    }
+
+    /**
+     * Get the ruler.
+     *
+     * @return Ruler.
+     */
+    String getRuler() {
+        return ruler;
+    }
+
+    /**
+     * Get the width of the bar (in characters).
+     *
+     * @return Number of characters.
+     */
+    int getWidth() {
+        return ruler.length();
+    }
+
+    /**
+     * Copy the ruler into a row.
+     *
+     * @param row Row to copy to.
+     * @param column Column of the row to start at.
+     */
+    void copyRuler(final char[] row,
+                   final int column) {
+        ruler.getChars(0, ruler.length(), row, column);
+    }
+
+    /**
+     * Copy an empty tab row (line characters) into a row.
+     *
+     * @param row Row to copy to.
+     * @param column Column of the row to start at.
+     */
+    void copyEmptyTabRow(final char[] row,
+                         final int column) {
+        System.arraycopy(emptyTabRow, 0, row, column, emptyTabRow.length);
+    }
+
+    /**
+     * Copy an empty chord row (spaces) into a row.
+     *
+     * @param row Row to copy to.
+     * @param column Column of the row to start at.
+     */
+    void copyEmptyChordRow(final char[] row,
+                           final int column) {
+        System.arraycopy(emptyChordRow, 0, row, column, emptyChordRow.length);
+    }
+}
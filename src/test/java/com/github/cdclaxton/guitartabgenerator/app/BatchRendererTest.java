@@ -0,0 +1,156 @@
+package com.github.cdclaxton.guitartabgenerator.app;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchRendererTest {
+
+    private final String specFolder = new File(this.getClass().getResource("/SheetMusic").getFile()).getPath();
+
+    @Test
+    void testFindSpecFiles() throws IOException {
+        List<File> specFiles = BatchRenderer.findSpecFiles(specFolder);
+        assertEquals(2, specFiles.size());
+        assertEquals("How_great_is_our_God.txt", specFiles.get(0).getName());
+        assertEquals("Invalid_example.txt", specFiles.get(1).getName());
+    }
+
+    @Test
+    void testReadManifest() throws IOException {
+        Path manifest = Files.createTempFile("manifest", ".txt");
+        Files.write(manifest, Arrays.asList("# Songs", "", "a.txt", " /b/c.txt "), StandardCharsets.UTF_8);
+
+        List<File> specFiles = BatchRenderer.readManifest(manifest.toString());
+        assertEquals(2, specFiles.size());
+        assertEquals(manifest.getParent().resolve("a.txt").toFile(), specFiles.get(0));
+        assertEquals(new File("/b/c.txt"), specFiles.get(1));
+    }
+
+    @Test
+    void testRenderContinuesAfterFailure() throws IOException, InterruptedException {
+        Config config = new Config(this.getClass().getResource("/config.properties").getFile());
+        Path outputFolder = Files.createTempDirectory("tabs");
+
+        BatchRenderer.Summary summary = BatchRenderer.render(BatchRenderer.findSpecFiles(specFolder),
+                Optional.of("E"), true, outputFolder.toString(), config, 2);
+
+        assertEquals(2, summary.getResults().size());
+        assertEquals(1, summary.numberSucceeded());
+        assertEquals(1, summary.numberFailed());
+        assertTrue(Files.exists(outputFolder.resolve("How great is our God (Chris Tomlin) - E.txt")));
+        assertTrue(summary.latencyPercentileMillis(50) <= summary.latencyPercentileMillis(99));
+    }
+
+    @Test
+    void testRenderDuplicateTabFiles() throws IOException, InterruptedException, RenderException {
+        Config config = new Config(this.getClass().getResource("/config.properties").getFile());
+        Path outputFolder = Files.createTempDirectory("tabs");
+        File specFile = new File(specFolder, "How_great_is_our_God.txt");
+
+        // Every copy of the specification has the same tab file, so only one of them writes it
+        BatchRenderer.Summary summary = BatchRenderer.render(Arrays.asList(specFile, specFile, specFile),
+                Optional.of("E"), true, outputFolder.toString(), config, 3);
+        assertEquals(1, summary.numberSucceeded());
+        assertEquals(2, summary.numberFailed());
+        for (BatchRenderer.FileResult result : summary.getResults()) {
+            if (!result.isSuccess()) assertTrue(result.getError().get().startsWith("Tab file "));
+        }
+
+        Path expectedFolder = Files.createTempDirectory("tabs");
+        String expected = SpecRenderer.renderSpec(specFile, Optional.of("E"), true, expectedFolder.toString(),
+                config);
+        assertArrayEquals(Files.readAllBytes(Paths.get(expected)),
+                Files.readAllBytes(outputFolder.resolve(new File(expected).getName())));
+    }
+
+    @Test
+    void testRenderWithAsyncWrites() throws IOException, InterruptedException, RenderException {
+        Path configPath = Files.createTempFile("config", ".properties");
+        Files.write(configPath, Arrays.asList("page.width=100", "max.fret=20", "writer.async=true",
+                "writer.atomic=true"), StandardCharsets.ISO_8859_1);
+        Config config = new Config(configPath.toString());
+        Path outputFolder = Files.createTempDirectory("tabs");
+
+        BatchRenderer.Summary summary = BatchRenderer.render(BatchRenderer.findSpecFiles(specFolder),
+                Optional.of("E"), true, outputFolder.toString(), config, 2);
+        assertEquals(1, summary.numberSucceeded());
+        assertEquals(1, summary.numberFailed());
+        assertEquals(1, Files.list(outputFolder).count());
+
+        // The tab is the same as one written synchronously
+        Path expectedFolder = Files.createTempDirectory("tabs");
+        String expected = SpecRenderer.renderSpec(new File(specFolder, "How_great_is_our_God.txt"),
+                Optional.of("E"), true, expectedFolder.toString(),
+                new Config(this.getClass().getResource("/config.properties").getFile()));
+        assertArrayEquals(Files.readAllBytes(Paths.get(expected)),
+                Files.readAllBytes(outputFolder.resolve(new File(expected).getName())));
+    }
+
+    @Test
+    void testRenderAllKeysMatchesSeparateRuns() throws IOException, InterruptedException, RenderException {
+        Config config = new Config(this.getClass().getResource("/config.properties").getFile());
+        File specFile = new File(specFolder, "How_great_is_our_God.txt");
+        Path allKeysFolder = Files.createTempDirectory("tabs");
+        Path separateFolder = Files.createTempDirectory("tabs");
+
+        BatchRenderer.Summary summary = BatchRenderer.renderAllKeys(specFile, true, allKeysFolder.toString(),
+                config, 4);
+        assertEquals(12, summary.getResults().size());
+
+        for (BatchRenderer.FileResult result : summary.getResults()) {
+            String key = result.getOutputFile().isPresent() ?
+                    result.getOutputFile().get().replaceAll(".* - (.*)\\.txt$", "$1") : null;
+            if (key == null) continue;
+
+            String expected = SpecRenderer.renderSpec(specFile, Optional.of(key), true, separateFolder.toString(),
+                    config);
+            assertArrayEquals(Files.readAllBytes(Paths.get(expected)),
+                    Files.readAllBytes(Paths.get(result.getOutputFile().get())));
+        }
+
+        // A key that can't be transposed doesn't stop the others
+        assertTrue(summary.numberSucceeded() > 0);
+        assertEquals(summary.numberSucceeded(), Files.list(allKeysFolder).count());
+    }
+
+
+    @Test
+    void testRenderStreamingMatchesRenderSpec() throws IOException, RenderException {
+        Config config = new Config(this.getClass().getResource("/config.properties").getFile());
+        File specFile = new File(specFolder, "How_great_is_our_God.txt");
+        Path streamedFolder = Files.createTempDirectory("tabs");
+        Path renderedFolder = Files.createTempDirectory("tabs");
+
+        for (Optional<String> key : Arrays.asList(Optional.<String>empty(), Optional.of("E"))) {
+            String streamed = SpecRenderer.renderSpecStreaming(specFile, key, true, streamedFolder.toString(), config);
+            String rendered = SpecRenderer.renderSpec(specFile, key, true, renderedFolder.toString(), config);
+            assertEquals(new File(rendered).getName(), new File(streamed).getName());
+            assertArrayEquals(Files.readAllBytes(Paths.get(rendered)), Files.readAllBytes(Paths.get(streamed)));
+        }
+    }
+
+    @Test
+    void testRenderStreamingDeletesPartialTab() throws IOException {
+        Config config = new Config(this.getClass().getResource("/config.properties").getFile());
+        Path specFile = Files.createTempFile("spec", ".txt");
+        Files.write(specFile, Arrays.asList("title = Song", "artist = Band", "key = C", "time.signature = 4/4",
+                "[Verse]", "(1/C) 1/e0", "[Chorus]", "(1/G) 1/x3"), StandardCharsets.UTF_8);
+        Path outputFolder = Files.createTempDirectory("tabs");
+
+        RenderException e = assertThrows(RenderException.class, () -> SpecRenderer.renderSpecStreaming(
+                specFile.toFile(), Optional.empty(), true, outputFolder.toString(), config));
+        assertTrue(e.getMessage().startsWith("Invalid string: "), e.getMessage());
+        assertEquals(0, outputFolder.toFile().list().length);
+    }
+}
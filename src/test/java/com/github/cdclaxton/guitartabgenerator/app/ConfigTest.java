@@ -1,8 +1,16 @@
 package com.github.cdclaxton.guitartabgenerator.app;
 
+import com.github.cdclaxton.guitartabgenerator.tabwriter.TabSheetMusicBuilder;
 import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -15,6 +23,88 @@ class ConfigTest {
 
         assertEquals(100, config.getPageWidth());
         assertEquals(20, config.getMaxFret());
+        assertFalse(config.getParsedSongCache().isPresent());
+        assertEquals(1, config.getRenderThreads());
+        assertFalse(config.getRenderExecutor().isPresent());
+        assertFalse(config.isAsyncWrites());
+        assertFalse(config.isAtomicWrites());
+        assertFalse(config.isMetricsEnabled());
+        assertFalse(config.getMetricsFile().isPresent());
+    }
+
+    @Test
+    void testReadConfigWithWriterOptions() throws IOException {
+        Path path = Files.createTempFile("config", ".properties");
+        Files.write(path, Arrays.asList("page.width=80", "max.fret=22", "writer.async=true", "writer.atomic=true"),
+                StandardCharsets.ISO_8859_1);
+
+        Config config = new Config(path.toString());
+        assertTrue(config.isAsyncWrites());
+        assertTrue(config.isAtomicWrites());
+    }
+
+    @Test
+    void testReadConfigWithMetrics() throws IOException {
+        Path path = Files.createTempFile("config", ".properties");
+        Files.write(path, Arrays.asList("page.width=80", "max.fret=22", "metrics.enabled=true",
+                "metrics.file=metrics.json"), StandardCharsets.ISO_8859_1);
+
+        Config config = new Config(path.toString());
+        assertTrue(config.isMetricsEnabled());
+        assertEquals(Optional.of("metrics.json"), config.getMetricsFile());
+    }
+
+    @Test
+    void testReadConfigWithLineBreaking() throws IOException {
+        Path path = Files.createTempFile("config", ".properties");
+        Files.write(path, Arrays.asList("page.width=80", "max.fret=22"), StandardCharsets.ISO_8859_1);
+        assertEquals(TabSheetMusicBuilder.LineBreaking.Greedy, new Config(path.toString()).getLineBreaking());
+
+        Files.write(path, Arrays.asList("page.width=80", "max.fret=22", "layout.line.breaking=optimal"),
+                StandardCharsets.ISO_8859_1);
+        assertEquals(TabSheetMusicBuilder.LineBreaking.Optimal, new Config(path.toString()).getLineBreaking());
+
+        Files.write(path, Arrays.asList("page.width=80", "max.fret=22", "layout.line.breaking=shortest"),
+                StandardCharsets.ISO_8859_1);
+        assertThrows(IllegalArgumentException.class, () -> new Config(path.toString()));
+    }
+
+    @Test
+    void testReadConfigWithRenderThreads() throws IOException {
+        Path path = Files.createTempFile("config", ".properties");
+        Files.write(path, Arrays.asList("page.width=80", "max.fret=22", "render.threads=3"),
+                StandardCharsets.ISO_8859_1);
+
+        Config config = new Config(path.toString());
+        assertEquals(3, config.getRenderThreads());
+        assertFalse(config.getRenderExecutor().isPresent());
+
+        // The executor is created (and shut down) by the app
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            Config withExecutor = config.withRenderExecutor(Optional.of(executor));
+            assertSame(executor, withExecutor.getRenderExecutor().get());
+            assertEquals(config, withExecutor);
+            assertFalse(config.getRenderExecutor().isPresent());
+        } finally {
+            executor.shutdown();
+        }
+
+        Files.write(path, Arrays.asList("page.width=80", "max.fret=22", "render.threads=-1"),
+                StandardCharsets.ISO_8859_1);
+        assertThrows(IllegalArgumentException.class, () -> new Config(path.toString()));
+    }
+
+    @Test
+    void testReadConfigWithCache() throws IOException {
+        Path cacheDir = Files.createTempDirectory("cache").resolve("songs");
+        Path path = Files.createTempFile("config", ".properties");
+        Files.write(path, Arrays.asList("page.width=80", "max.fret=22", "cache.dir=" + cacheDir, "cache.max.mb=8"),
+                StandardCharsets.ISO_8859_1);
+
+        Config config = new Config(path.toString());
+        assertTrue(config.getParsedSongCache().isPresent());
+        assertTrue(Files.isDirectory(cacheDir));
     }
 
 }
\ No newline at end of file
@@ -8,6 +8,7 @@ import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class GuitarTabGeneratorTest {
@@ -89,6 +90,115 @@ class GuitarTabGeneratorTest {
         assertEquals(expected, parsed);
     }
 
+    @Test
+    void testParsedCmdArgsBatchFolder() throws ParseException {
+        String[] args = "--input-dir specs -o folder -u C# --threads 4".split(" ");
+        GuitarTabGenerator.ParsedCmdArgs parsed = new GuitarTabGenerator.ParsedCmdArgs(args);
+
+        assertTrue(parsed.isBatch());
+        assertEquals(Optional.of("specs"), parsed.getInputFolder());
+        assertEquals(Optional.empty(), parsed.getManifest());
+        assertEquals(Optional.of(4), parsed.getThreads());
+        assertEquals(Optional.of("C#"), parsed.getTransposeKey());
+    }
+
+    @Test
+    void testParsedCmdArgsBatchManifest() throws ParseException {
+        String[] args = "--manifest specs.txt -o folder".split(" ");
+        GuitarTabGenerator.ParsedCmdArgs parsed = new GuitarTabGenerator.ParsedCmdArgs(args);
+
+        assertTrue(parsed.isBatch());
+        assertEquals(Optional.of("specs.txt"), parsed.getManifest());
+        assertEquals(Optional.empty(), parsed.getThreads());
+    }
+
+    @Test
+    void testParsedCmdArgsInvalidThreads() {
+        assertThrows(ParseException.class,
+                () -> new GuitarTabGenerator.ParsedCmdArgs("--input-dir specs -o folder --threads 0".split(" ")));
+        assertThrows(ParseException.class,
+                () -> new GuitarTabGenerator.ParsedCmdArgs("--input-dir specs -o folder --threads=-2".split(" ")));
+        assertThrows(ParseException.class,
+                () -> new GuitarTabGenerator.ParsedCmdArgs("--input-dir specs -o folder --threads many".split(" ")));
+    }
+
+    @Test
+    void testParsedCmdArgsBatchInvalid() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new GuitarTabGenerator.ParsedCmdArgs("--input-dir specs".split(" ")));
+        assertThrows(IllegalArgumentException.class,
+                () -> new GuitarTabGenerator.ParsedCmdArgs("-i test.txt --input-dir specs -o folder".split(" ")));
+    }
+
+    @Test
+    void testParsedCmdArgsAllKeys() throws ParseException {
+        GuitarTabGenerator.ParsedCmdArgs parsed =
+                new GuitarTabGenerator.ParsedCmdArgs("-i test.txt --all-keys -o folder".split(" "));
+        assertTrue(parsed.transposeToAllKeys());
+        assertEquals(Optional.of(true), parsed.getAllKeysUp());
+        assertEquals(Optional.of("folder"), parsed.getOutputFolder());
+
+        parsed = new GuitarTabGenerator.ParsedCmdArgs("-i test.txt -o folder --all-keys down".split(" "));
+        assertEquals(Optional.of(false), parsed.getAllKeysUp());
+
+        assertThrows(IllegalArgumentException.class,
+                () -> new GuitarTabGenerator.ParsedCmdArgs("-i test.txt --all-keys".split(" ")));
+        assertThrows(IllegalArgumentException.class,
+                () -> new GuitarTabGenerator.ParsedCmdArgs("-i test.txt -o folder --all-keys -u C".split(" ")));
+        assertThrows(IllegalArgumentException.class,
+                () -> new GuitarTabGenerator.ParsedCmdArgs("-i test.txt -o folder --all-keys sideways".split(" ")));
+    }
+
+    @Test
+    void testParsedCmdArgsStream() throws ParseException {
+        GuitarTabGenerator.ParsedCmdArgs parsed =
+                new GuitarTabGenerator.ParsedCmdArgs("-i test.txt -o folder -u E --stream".split(" "));
+        assertTrue(parsed.stream());
+        assertEquals(Optional.of("E"), parsed.getTransposeKey());
+        assertFalse(new GuitarTabGenerator.ParsedCmdArgs("-i test.txt -o folder".split(" ")).stream());
+
+        assertThrows(IllegalArgumentException.class,
+                () -> new GuitarTabGenerator.ParsedCmdArgs("-i test.txt --stream".split(" ")));
+        assertThrows(IllegalArgumentException.class,
+                () -> new GuitarTabGenerator.ParsedCmdArgs("-i test.txt -o folder --all-keys --stream".split(" ")));
+    }
+
+    @Test
+    void testParsedCmdArgsWatch() throws ParseException {
+        GuitarTabGenerator.ParsedCmdArgs parsed =
+                new GuitarTabGenerator.ParsedCmdArgs("--input-dir specs -o folder -u E --watch".split(" "));
+        assertTrue(parsed.watch());
+        assertEquals(Optional.of("specs"), parsed.getInputFolder());
+        assertFalse(new GuitarTabGenerator.ParsedCmdArgs("--input-dir specs -o folder".split(" ")).watch());
+
+        assertThrows(IllegalArgumentException.class,
+                () -> new GuitarTabGenerator.ParsedCmdArgs("-i test.txt -o folder --watch".split(" ")));
+        assertThrows(IllegalArgumentException.class,
+                () -> new GuitarTabGenerator.ParsedCmdArgs("--input-dir specs --watch".split(" ")));
+    }
+
+    @Test
+    void testParsedCmdArgsServe() throws ParseException {
+        GuitarTabGenerator.ParsedCmdArgs parsed =
+                new GuitarTabGenerator.ParsedCmdArgs("--serve 8080 --threads 8".split(" "));
+        assertTrue(parsed.serve());
+        assertEquals(Optional.of(8080), parsed.getServePort());
+        assertEquals(Optional.of(8), parsed.getThreads());
+
+        assertThrows(IllegalArgumentException.class,
+                () -> new GuitarTabGenerator.ParsedCmdArgs("--serve 8080 -i test.txt".split(" ")));
+    }
+
+    @Test
+    void testParsedCmdArgsInvalidServePort() {
+        assertThrows(ParseException.class,
+                () -> new GuitarTabGenerator.ParsedCmdArgs("--serve abc".split(" ")));
+        assertThrows(ParseException.class,
+                () -> new GuitarTabGenerator.ParsedCmdArgs("--serve 70000".split(" ")));
+        assertThrows(ParseException.class,
+                () -> new GuitarTabGenerator.ParsedCmdArgs("--serve=-1".split(" ")));
+    }
+
     @Test
     void testParseSheetMusicValidFile() {
         String path = this.getClass().getResource("/SheetMusic/How_great_is_our_God.txt").getFile();
@@ -0,0 +1,142 @@
+package com.github.cdclaxton.guitartabgenerator.app;
+
+import com.github.cdclaxton.guitartabgenerator.tabwriter.TabSheetMusicBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IncrementalRendererTest {
+
+    private Config config;
+    private String spec;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        config = new Config(this.getClass().getResource("/config.properties").getFile());
+        spec = new String(Files.readAllBytes(Paths.get(
+                this.getClass().getResource("/SheetMusic/How_great_is_our_God.txt").getFile())), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Render the specification in full (without the incremental renderer).
+     */
+    private List<String> fullRender(final String spec,
+                                    final Optional<String> key) throws RenderException {
+        return SpecRenderer.build(key.isPresent() ?
+                SpecRenderer.transpose(SpecRenderer.parse(spec), key.get(), true, config.getMaxFret()) :
+                SpecRenderer.parse(spec), config.getPageWidth());
+    }
+
+    @Test
+    void testRenderMatchesFullRender() throws RenderException {
+        IncrementalRenderer renderer = new IncrementalRenderer(IncrementalRenderer.defaultMaxSections);
+
+        for (Optional<String> key : new Optional[]{Optional.empty(), Optional.of("E"), Optional.of("G")}) {
+            assertEquals(fullRender(spec, key),
+                    renderer.render(spec, key, true, config.getPageWidth(), config.getLineBreaking(),
+                            config.getMaxFret()));
+        }
+        assertEquals(12, renderer.getMisses());
+        assertEquals(0, renderer.getHits());
+    }
+
+    @Test
+    void testOnlyChangedSectionsAreRendered() throws RenderException {
+        IncrementalRenderer renderer = new IncrementalRenderer(IncrementalRenderer.defaultMaxSections);
+        renderer.render(spec, Optional.of("E"), true, config.getPageWidth(), config.getLineBreaking(),
+                config.getMaxFret());
+        assertEquals(4, renderer.getMisses());
+
+        // Rendering the same specification again splices in every section
+        renderer.render(spec, Optional.of("E"), true, config.getPageWidth(), config.getLineBreaking(),
+                config.getMaxFret());
+        assertEquals(4, renderer.getMisses());
+        assertEquals(4, renderer.getHits());
+
+        // Editing the chorus only renders the chorus again
+        String edited = spec.replace("> Repeat over all chords", "> Repeat over all of the chords");
+        assertNotEquals(spec, edited);
+        assertEquals(fullRender(edited, Optional.of("E")),
+                renderer.render(edited, Optional.of("E"), true, config.getPageWidth(), config.getLineBreaking(),
+                        config.getMaxFret()));
+        assertEquals(5, renderer.getMisses());
+        assertEquals(7, renderer.getHits());
+
+        // A different page width renders every section again
+        renderer.render(edited, Optional.of("E"), true, 60, config.getLineBreaking(), config.getMaxFret());
+        assertEquals(9, renderer.getMisses());
+        assertEquals(9, renderer.size());
+
+        // So does a different line breaking
+        renderer.render(edited, Optional.of("E"), true, 60, TabSheetMusicBuilder.LineBreaking.Optimal,
+                config.getMaxFret());
+        assertEquals(13, renderer.getMisses());
+        assertEquals(13, renderer.size());
+    }
+
+    @Test
+    void testCacheIsBounded() throws RenderException {
+        IncrementalRenderer renderer = new IncrementalRenderer(2);
+        renderer.render(spec, Optional.empty(), true, config.getPageWidth(), config.getLineBreaking(),
+                config.getMaxFret());
+        assertEquals(2, renderer.size());
+
+        IncrementalRenderer disabled = new IncrementalRenderer(0);
+        assertEquals(fullRender(spec, Optional.empty()),
+                disabled.render(spec, Optional.empty(), true, config.getPageWidth(), config.getLineBreaking(),
+                        config.getMaxFret()));
+        assertEquals(0, disabled.size());
+    }
+
+    @Test
+    void testRenderSpecMatchesRenderer() throws IOException, RenderException {
+        File specFile = new File(this.getClass().getResource("/SheetMusic/How_great_is_our_God.txt").getFile());
+        Path fullFolder = Files.createTempDirectory("tabs");
+        Path incrementalFolder = Files.createTempDirectory("tabs");
+
+        String expected = SpecRenderer.renderSpec(specFile, Optional.of("E"), true, fullFolder.toString(), config);
+        String actual = new IncrementalRenderer(IncrementalRenderer.defaultMaxSections).renderSpec(specFile,
+                Optional.of("E"), true, incrementalFolder.toString(), config);
+
+        assertEquals(Paths.get(expected).getFileName(), Paths.get(actual).getFileName());
+        assertArrayEquals(Files.readAllBytes(Paths.get(expected)), Files.readAllBytes(Paths.get(actual)));
+    }
+
+    @Test
+    void testRenderErrors() {
+        IncrementalRenderer renderer = new IncrementalRenderer(IncrementalRenderer.defaultMaxSections);
+        String invalidBar = spec.replace("() 1/g6 1+/g6 2/b9 2+/g6 3/b7", "() 1/g6 1+/g6 2/b9 2+/g6 3/x7");
+
+        RenderException e = assertThrows(RenderException.class, () ->
+                renderer.render(invalidBar, Optional.empty(), true, config.getPageWidth(), config.getLineBreaking(),
+                        config.getMaxFret()));
+        assertEquals(fullRenderFailure(invalidBar), e.getMessage());
+
+        // A failed section isn't cached
+        assertThrows(RenderException.class, () ->
+                renderer.render(invalidBar, Optional.empty(), true, config.getPageWidth(), config.getLineBreaking(),
+                        config.getMaxFret()));
+        assertEquals(2, renderer.size());
+
+        assertThrows(RenderException.class, () ->
+                renderer.render(spec, Optional.of("H#"), true, config.getPageWidth(), config.getLineBreaking(),
+                        config.getMaxFret()));
+    }
+
+    /**
+     * Get the message from rendering an invalid specification in full.
+     */
+    private String fullRenderFailure(final String spec) {
+        return assertThrows(RenderException.class, () -> fullRender(spec, Optional.empty())).getMessage();
+    }
+}
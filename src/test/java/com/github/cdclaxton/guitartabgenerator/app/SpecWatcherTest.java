@@ -0,0 +1,89 @@
+package com.github.cdclaxton.guitartabgenerator.app;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Optional;
+import java.util.function.LongSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpecWatcherTest {
+
+    /**
+     * Wait for a count to reach (at least) a value.
+     */
+    private static void waitFor(final LongSupplier count,
+                                final long expected) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + 10000;
+        while (count.getAsLong() < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(count.getAsLong() >= expected, "Count is only " + count.getAsLong());
+    }
+
+    /**
+     * Read a tab file (empty if it can't be read).
+     */
+    private static String readTab(final Path tabFile) {
+        try {
+            return new String(Files.readAllBytes(tabFile), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            return "";
+        }
+    }
+
+    @Test
+    void testRendersChangedFiles() throws IOException, InterruptedException, RenderException {
+        Config config = new Config(this.getClass().getResource("/config.properties").getFile());
+        String spec = new String(Files.readAllBytes(Paths.get(
+                this.getClass().getResource("/SheetMusic/How_great_is_our_God.txt").getFile())), StandardCharsets.UTF_8);
+
+        Path inputFolder = Files.createTempDirectory("specs");
+        Path outputFolder = Files.createTempDirectory("tabs");
+        Path specFile = inputFolder.resolve("song.txt");
+        Files.write(specFile, spec.getBytes(StandardCharsets.UTF_8));
+
+        SpecWatcher watcher = new SpecWatcher(inputFolder.toString(), Optional.of("E"), true,
+                outputFolder.toString(), config, 1, 50);
+        Thread thread = new Thread(() -> {
+            try {
+                watcher.run();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        thread.start();
+
+        try {
+            // The files already in the folder are rendered when the watcher starts
+            waitFor(watcher::getNumberRendered, 1);
+            Path tabFile = Paths.get(SpecRenderer.renderSpec(specFile.toFile(), Optional.of("E"), true,
+                    Files.createTempDirectory("tabs").toString(), config));
+            Path watchedTabFile = outputFolder.resolve(tabFile.getFileName());
+            assertArrayEquals(Files.readAllBytes(tabFile), Files.readAllBytes(watchedTabFile));
+
+            // Editing the file renders it again
+            String edited = spec.replace("> Repeat over all chords", "> Repeat over all of the chords");
+            Files.write(specFile, edited.getBytes(StandardCharsets.UTF_8));
+            waitFor(watcher::getNumberRendered, 2);
+            String expected = String.join("\n", SpecRenderer.build(SpecRenderer.transpose(
+                    SpecRenderer.parse(edited), "E", true, config.getMaxFret()), config.getPageWidth())) + "\n";
+            waitFor(() -> readTab(watchedTabFile).equals(expected) ? 1 : 0, 1);
+
+            // Other files are ignored and a file that can't be rendered is reported
+            Files.write(inputFolder.resolve("notes.md"), "Not a specification".getBytes(StandardCharsets.UTF_8));
+            Files.write(inputFolder.resolve("invalid.txt"), "key = H#\n".getBytes(StandardCharsets.UTF_8));
+            waitFor(watcher::getNumberFailed, 1);
+            assertEquals(watcher.getNumberRendered(), watcher.getLatency().getCount());
+        } finally {
+            watcher.close();
+            thread.join(10000);
+        }
+        assertFalse(thread.isAlive());
+    }
+}
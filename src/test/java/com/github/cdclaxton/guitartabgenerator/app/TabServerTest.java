@@ -0,0 +1,139 @@
+package com.github.cdclaxton.guitartabgenerator.app;
+
+import com.github.cdclaxton.guitartabgenerator.tabwriter.TabSheetMusicBuilder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TabServerTest {
+
+    private TabServer server;
+    private Config config;
+    private String spec;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        config = new Config(this.getClass().getResource("/config.properties").getFile());
+        spec = new String(Files.readAllBytes(Paths.get(
+                this.getClass().getResource("/SheetMusic/How_great_is_our_God.txt").getFile())), StandardCharsets.UTF_8);
+        server = new TabServer(config, 0, 2, 4);
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop();
+    }
+
+    @Test
+    void testRenderMatchesFileOutput() throws IOException, RenderException {
+        Path outputFolder = Files.createTempDirectory("tabs");
+        String expected = new String(Files.readAllBytes(Paths.get(SpecRenderer.write(SpecRenderer.transpose(
+                SpecRenderer.parse(spec), "E", true, config.getMaxFret()), outputFolder.toString(),
+                config.getPageWidth()))), StandardCharsets.UTF_8);
+
+        assertEquals(expected, post("/render?key=E&direction=up", spec, 200));
+
+        // The second request for the same specification skips the parser
+        post("/render?key=E", spec, 200);
+        String metrics = get("/metrics");
+        assertTrue(metrics.contains("\"specCache\":{\"hits\":1,\"misses\":1,\"size\":1}"), metrics);
+        assertTrue(metrics.contains("\"latency\":{\"count\":2,"), metrics);
+    }
+
+    @Test
+    void testRenderErrors() throws IOException {
+        assertEquals("Extraction exception: Can't determine type of component to extract: nonsense\n",
+                post("/render", "nonsense", 400));
+        assertTrue(post("/render?direction=sideways", spec, 400).startsWith("Direction must be up or down"));
+        assertTrue(post("/render?width=wide", spec, 400).startsWith("Invalid page width"));
+        assertTrue(get("/metrics").contains("\"failed\":3"));
+    }
+
+    @Test
+    void testRenderWidthOutOfRange() throws IOException {
+        assertTrue(post("/render?width=0", spec, 400).startsWith("Page width must be from 1 to 1000"));
+        assertTrue(post("/render?width=-80", spec, 400).startsWith("Page width must be from 1 to 1000"));
+        assertTrue(post("/render?width=2000000000", spec, 400).startsWith("Page width must be from 1 to 1000"));
+        assertFalse(post("/render?width=" + TabServer.maxPageWidth, spec, 200).isEmpty());
+    }
+
+    @Test
+    void testRenderWidth() throws RenderException {
+        String narrow = server.render(spec, Optional.empty(), true, 60);
+        assertEquals(String.join("\n", SpecRenderer.build(SpecRenderer.parse(spec), 60)) + "\n", narrow);
+        assertNotEquals(server.render(spec, Optional.empty(), true, 100), narrow);
+    }
+
+    @Test
+    void testRenderWithConfigLineBreaking() throws IOException, RenderException {
+        Path path = Files.createTempFile("config", ".properties");
+        Files.write(path, Arrays.asList("page.width=80", "max.fret=22", "layout.line.breaking=optimal"),
+                StandardCharsets.ISO_8859_1);
+        TabServer optimalServer = new TabServer(new Config(path.toString()), 0, 2, 4);
+        try {
+            String optimal = optimalServer.render(spec, Optional.empty(), true, 100);
+            assertEquals(String.join("\n", SpecRenderer.build(SpecRenderer.parse(spec), 100, Optional.empty(),
+                    TabSheetMusicBuilder.LineBreaking.Optimal)) + "\n", optimal);
+            assertNotEquals(server.render(spec, Optional.empty(), true, 100), optimal);
+        } finally {
+            optimalServer.stop();
+        }
+    }
+
+    @Test
+    void testParseQuery() {
+        Map<String, String> params = TabServer.parseQuery("key=C%23&direction=down&flag");
+        assertEquals("C#", params.get("key"));
+        assertEquals("down", params.get("direction"));
+        assertFalse(params.containsKey("flag"));
+        assertTrue(TabServer.parseQuery(null).isEmpty());
+    }
+
+    private String post(final String path, final String body, final int expectedStatus) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) url(path).openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(body.getBytes(StandardCharsets.UTF_8));
+        }
+        assertEquals(expectedStatus, connection.getResponseCode());
+        return read(expectedStatus < 400 ? connection.getInputStream() : connection.getErrorStream());
+    }
+
+    private String get(final String path) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) url(path).openConnection();
+        assertEquals(200, connection.getResponseCode());
+        return read(connection.getInputStream());
+    }
+
+    private URL url(final String path) throws IOException {
+        return new URL("http", InetAddress.getLoopbackAddress().getHostAddress(), server.getPort(), path);
+    }
+
+    private static String read(final InputStream input) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int n;
+        while ((n = input.read(buffer)) != -1) output.write(buffer, 0, n);
+        input.close();
+        return new String(output.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,117 @@
+package com.github.cdclaxton.guitartabgenerator.metrics;
+
+import com.github.cdclaxton.guitartabgenerator.music.*;
+import com.github.cdclaxton.guitartabgenerator.sheetmusic.SheetMusic;
+import com.github.cdclaxton.guitartabgenerator.sheetmusic.SheetMusicTransposition;
+import com.github.cdclaxton.guitartabgenerator.tabparser.ExtractionException;
+import com.github.cdclaxton.guitartabgenerator.tabparser.SheetMusicParser;
+import com.github.cdclaxton.guitartabgenerator.tabwriter.TabBuildingException;
+import com.github.cdclaxton.guitartabgenerator.tabwriter.TabSheetMusicBuilder;
+import com.github.cdclaxton.guitartabgenerator.tabwriter.TabSheetMusicWriter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricsTest {
+
+    @BeforeEach
+    void setUp() {
+        Metrics.reset();
+    }
+
+    @AfterEach
+    void tearDown() {
+        Metrics.setEnabled(false);
+        Metrics.reset();
+    }
+
+    /**
+     * Parse, transpose, lay out and write the example song.
+     */
+    private SheetMusic render() throws IOException, ExtractionException, InvalidKeyException,
+            InvalidStringException, InvalidFretNumberException, InvalidTimingException, InvalidChordException,
+            TranspositionException, TabBuildingException {
+
+        File file = new File(this.getClass().getResource("/SheetMusic/How_great_is_our_God.txt").getFile());
+        SheetMusic sheetMusic = SheetMusicParser.parseSheetMusic(file);
+        SheetMusic transposed = SheetMusicTransposition.transpose(sheetMusic, "E", true, 20);
+        List<String> tab = TabSheetMusicBuilder.buildTabSheetMusic(transposed, 100);
+
+        Path tabFile = Files.createTempFile("tab", ".txt");
+        TabSheetMusicWriter.writeLines(tab, tabFile.toString());
+        return sheetMusic;
+    }
+
+    @Test
+    void testNothingRecordedWhenDisabled() throws Exception {
+        render();
+
+        assertFalse(Metrics.isEnabled());
+        assertEquals(0, Metrics.timer("parse", "bars").getCount());
+        assertEquals(0, Metrics.timer("layout", "bars").getCount());
+        assertEquals(0, Metrics.counter("layout.systems").get());
+        assertTrue(Metrics.toJson().startsWith("{\"enabled\":false,"), Metrics.toJson());
+    }
+
+    @Test
+    void testStagesRecordedWhenEnabled() throws Exception {
+        Metrics.setEnabled(true);
+        SheetMusic sheetMusic = render();
+        int nBars = sheetMusic.getNumberBars();
+        assertEquals(11, nBars);
+
+        Timer parse = Metrics.timer("parse", "bars");
+        assertEquals(1, parse.getCount());
+        assertEquals(nBars, parse.getItems());
+        assertTrue(parse.itemsPerSecond() > 0);
+
+        Timer transpose = Metrics.timer("transpose", "bars");
+        assertEquals(1, transpose.getCount());
+        assertEquals(nBars, transpose.getItems());
+
+        // One call to lay out each section
+        Timer layout = Metrics.timer("layout", "bars");
+        assertEquals(4, layout.getCount());
+        assertEquals(nBars, layout.getItems());
+        assertTrue(Metrics.counter("layout.systems").get() >= 3);
+
+        Timer write = Metrics.timer("write", "bytes");
+        assertEquals(1, write.getCount());
+        assertTrue(write.getItems() > 0);
+
+        String json = Metrics.toJson();
+        assertTrue(json.startsWith("{\"enabled\":true,\"counters\":{"), json);
+        assertTrue(json.contains("\"parse\":{\"bars\":11,\"barsPerSec\":"), json);
+        assertTrue(json.contains("\"layout.systems\":"), json);
+        assertTrue(json.contains("\"transposition.fretShapes\":{\"hits\":"), json);
+
+        // Resetting forgets the calls
+        Metrics.reset();
+        assertEquals(0, parse.getCount());
+        assertEquals(0, parse.getItems());
+        assertEquals(0, Metrics.counter("layout.systems").get());
+    }
+
+    @Test
+    void testCache() {
+        AtomicLong hits = new AtomicLong(3);
+        Metrics.cache("test.cache", hits::get, () -> 1, () -> 2);
+        assertTrue(Metrics.toJson().contains("\"test.cache\":{\"hits\":3,\"misses\":1,\"hitRate\":0.750,\"size\":2}"),
+                Metrics.toJson());
+
+        // The counts are read each time the registry is rendered
+        hits.set(9);
+        Metrics.cache("test.unsized", hits::get, () -> 0);
+        assertTrue(Metrics.toJson().contains("\"test.unsized\":{\"hits\":9,\"misses\":0,\"hitRate\":1.000}"),
+                Metrics.toJson());
+    }
+}
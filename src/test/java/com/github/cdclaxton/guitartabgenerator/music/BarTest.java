@@ -76,4 +76,26 @@ class BarTest {
 
         assertEquals(expectedTimedChords, bar.getTimedChords());
     }
-}
\ No newline at end of file
+
+    @Test
+    void occupancy() throws InvalidStringException, InvalidFretNumberException,
+            InvalidTimingException, InvalidChordException {
+
+        List<Note> notes = new NotesBuilder()
+                .addNote(2, 10, 0)
+                .addNote(2, 12, 3)
+                .addNote(6, 0, 15)
+                .build();
+        List<TimedChord> timedChords = new TimedChordsBuilder()
+                .addTimedChord(Chord.build("C#m"), 0)
+                .addTimedChord(Chord.build("E"), 8)
+                .build();
+        Bar bar = new Bar(Bar.TimeSignature.Four4, notes, timedChords);
+
+        assertEquals(0, bar.getNoteOccupancy(1));
+        assertEquals(0b1001, bar.getNoteOccupancy(2));
+        assertEquals(1 << 15, bar.getNoteOccupancy(6));
+        assertEquals(0b100000001, bar.getChordOccupancy());
+        assertEquals((1 << 15) | 0b100001001, bar.getOccupancy());
+    }
+}
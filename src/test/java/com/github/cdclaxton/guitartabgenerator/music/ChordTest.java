@@ -109,4 +109,21 @@ class ChordTest {
         assertEquals("C#m7/E", new Chord("C#", "m7", Optional.of("E")).musicNotation());
     }
 
-}
\ No newline at end of file
+    @Test
+    void testSharedInstances() throws InvalidChordException, TranspositionException {
+        Chord chord = Chord.build("F#m7/C#");
+        assertSame(chord, Chord.build("F#m7/C#"));
+        assertSame(chord, Chord.intern(new Chord("F#", "m7", Optional.of("C#"))));
+        assertSame(chord, Chord.newInstance(chord));
+
+        // A chord with the same notation but different parts isn't replaced by the shared chord
+        Chord odd = new Chord("F", "#m7", Optional.of("C#"));
+        assertSame(odd, Chord.intern(odd));
+
+        // Each chord is transposed once per change of key
+        KeyTransposition keyTransposition = KeyTransposition.between("A", "B", true);
+        assertSame(keyTransposition.transposeChord(chord), keyTransposition.transposeChord(chord));
+        assertEquals(Chord.build("G#m7/D#"), keyTransposition.transposeChord(chord));
+    }
+
+}
@@ -108,6 +108,31 @@ class ChordTranspositionTest {
                 ChordTransposition.transposeChord(Chord.build("Bm/A"), "G", "A"));
     }
 
+    @Test
+    void testTransposeChordBySemitones() throws InvalidChordException, TranspositionException {
+        assertEquals(Chord.build("B/D#"), ChordTransposition.transposeChord(Chord.build("A/C#"), 2, true));
+        assertEquals(Chord.build("Db/F"), ChordTransposition.transposeChord(Chord.build("C/E"), 1, false));
+        assertEquals(Chord.build("A"), ChordTransposition.transposeChord(Chord.build("Bb"), -1, true));
+        assertEquals(Chord.build("Dbm7"), ChordTransposition.transposeChord(Chord.build("G#m7"), 5, false));
+        assertEquals(Chord.build("G"), ChordTransposition.transposeChord(Chord.build("G"), 0, false));
+        assertEquals(Chord.build("Ab"), ChordTransposition.transposeChord(Chord.build("A"), -13, false));
+    }
+
+    @Test
+    void testTransposeChordFailures() throws InvalidChordException {
+        // Notes that parse but aren't one of the twelve note names
+        assertThrows(TranspositionException.class, () -> ChordTransposition.transposeChord(Chord.build("Cb"), 2, true));
+        assertThrows(TranspositionException.class,
+                () -> ChordTransposition.transposeChord(Chord.build("A/E#"), 2, true));
+
+        TranspositionException e = assertThrows(TranspositionException.class,
+                () -> ChordTransposition.transposeChord(Chord.build("A"), "H", "C"));
+        assertEquals("Old key H is not valid", e.getMessage());
+        e = assertThrows(TranspositionException.class,
+                () -> ChordTransposition.transposeChord(Chord.build("A"), "C", "Am"));
+        assertEquals("Can't transpose from major to minor keys and vice versa", e.getMessage());
+    }
+
     @Test
     void testTransposeNoteIndex() throws TranspositionException {
         assertEquals(0, ChordTransposition.transposeNoteIndex(0, 0));
@@ -0,0 +1,92 @@
+package com.github.cdclaxton.guitartabgenerator.music;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FretShapeCacheTest {
+
+    @AfterEach
+    void resetCache() {
+        FretShapeCache.setMaxEntries(FretShapeCache.defaultMaxEntries);
+    }
+
+    @Test
+    void testCachedMatchesUncached() throws Exception {
+        for (int test = 0; test < 100; test++) {
+            NotesBuilder builder = new NotesBuilder();
+            for (int i = 0; i < RandomGenerators.randomInteger(1, 4); i++) {
+                builder.addNote(RandomGenerators.randomStringNumber(), RandomGenerators.randomFret(0, 20),
+                        RandomGenerators.randomTiming());
+            }
+            List<Note> notes = builder.build();
+            int nSemitones = RandomGenerators.randomInteger(-11, 11);
+
+            FretShapeCache.setMaxEntries(0);
+            String expected = transpose(notes, nSemitones);
+
+            FretShapeCache.setMaxEntries(16);
+            assertEquals(expected, transpose(notes, nSemitones));
+            assertEquals(expected, transpose(notes, nSemitones));
+        }
+    }
+
+    @Test
+    void testHitsKeepTimings() throws Exception {
+        FretShapeCache.setMaxEntries(16);
+
+        List<Note> riff = new NotesBuilder().addNote(3, 2, 0).addNote(4, 4, 4).build();
+        List<Note> sameShapeLater = new NotesBuilder().addNote(3, 2, 8).addNote(4, 4, 12).build();
+
+        NoteTransposition.transposeNotes(riff, 2, 20);
+        assertEquals(new NotesBuilder().addNote(3, 4, 8).addNote(4, 6, 12).build(),
+                NoteTransposition.transposeNotes(sameShapeLater, 2, 20));
+        assertEquals(1, FretShapeCache.getHits());
+        assertEquals(1, FretShapeCache.getMisses());
+
+        // A different maximum fret is a different key
+        NoteTransposition.transposeNotes(riff, 2, 22);
+        assertEquals(2, FretShapeCache.getMisses());
+        assertEquals(2, FretShapeCache.size());
+    }
+
+    @Test
+    void testFailuresAreCached() throws Exception {
+        FretShapeCache.setMaxEntries(16);
+
+        List<Note> notes = new NotesBuilder().addNote(6, 0, 0).build();
+        TranspositionException first = assertThrows(TranspositionException.class,
+                () -> NoteTransposition.transposeNotes(notes, -1, 20));
+        TranspositionException second = assertThrows(TranspositionException.class,
+                () -> NoteTransposition.transposeNotes(notes, -1, 20));
+        assertEquals(first.getMessage(), second.getMessage());
+        assertEquals(1, FretShapeCache.getHits());
+    }
+
+    @Test
+    void testBoundedAndDisabled() throws Exception {
+        FretShapeCache.setMaxEntries(2);
+        for (int fret = 0; fret < 5; fret++) {
+            NoteTransposition.transposeNotes(new NotesBuilder().addNote(1, fret, 0).build(), 1, 20);
+        }
+        assertEquals(2, FretShapeCache.size());
+
+        FretShapeCache.setMaxEntries(0);
+        NoteTransposition.transposeNotes(new NotesBuilder().addNote(1, 0, 0).build(), 1, 20);
+        assertEquals(0, FretShapeCache.getMisses());
+        assertEquals(0, FretShapeCache.size());
+        assertThrows(IllegalArgumentException.class, () -> FretShapeCache.setMaxEntries(-1));
+    }
+
+    private static String transpose(final List<Note> notes,
+                                    final int nSemitones) {
+        try {
+            return NoteTransposition.transposeNotes(notes, nSemitones, 20).toString();
+        } catch (TranspositionException e) {
+            return "Failed: " + e.getMessage();
+        }
+    }
+}
@@ -30,4 +30,13 @@ class FretTest {
         assertEquals(5, new Fret(1,5).getFretNumber());
         assertEquals(22, new Fret(1,22).getFretNumber());
     }
+
+    @org.junit.jupiter.api.Test
+    void testSharedInstances() throws InvalidFretNumberException, InvalidStringException {
+        assertSame(Fret.of(6, 22), Fret.of(6, 22));
+        assertSame(Fret.of(3, 5), Fret.newInstance(new Fret(3, 5)));
+        assertEquals(new Fret(3, 5), Fret.of(3, 5));
+        assertThrows(InvalidStringException.class, () -> Fret.of(7, 0));
+        assertThrows(InvalidFretNumberException.class, () -> Fret.of(1, 23));
+    }
 }
@@ -23,4 +23,20 @@ class KeyTest {
         assertThrows(InvalidKeyException.class, () -> new Key("Hm"));
     }
 
-}
\ No newline at end of file
+    @Test
+    void testKeyModel() throws InvalidKeyException {
+        assertSame(Key.of("C#m"), Key.of("C#m"));
+        assertThrows(InvalidKeyException.class, () -> Key.of("Cb"));
+
+        assertEquals(Key.Mode.Major, Key.of("Bb").getMode());
+        assertEquals(Key.Mode.Minor, Key.of("Bbm").getMode());
+        assertEquals(1, Key.of("Bb").getPitchClass());
+        assertEquals(1, Key.of("A#m").getPitchClass());
+        assertEquals(11, Key.of("Abm").getPitchClass());
+
+        assertTrue(Key.of("A#").usesSharps());
+        assertTrue(Key.of("C").usesSharps());
+        assertFalse(Key.of("Bbm").usesSharps());
+    }
+
+}
@@ -2,9 +2,7 @@ package com.github.cdclaxton.guitartabgenerator.music;
 
 import org.junit.jupiter.api.Test;
 
-import java.util.ArrayList;
 import java.util.List;
-import java.util.Random;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -12,19 +10,12 @@ class NoteTranspositionTest {
 
     private final  int NUM_RANDOM_TESTS = 100;
 
-    class TempFretBuilder {
-        private List<NoteTransposition.TempFret> tempFrets = new ArrayList<>();
-
-        public TempFretBuilder() {}
-
-        public TempFretBuilder addTempFret(int stringNumber, int fret) {
-            tempFrets.add(new NoteTransposition.TempFret(stringNumber, fret));
-            return this;
-        }
-
-        public List<NoteTransposition.TempFret> build() {
-            return this.tempFrets;
-        }
+    /**
+     * Transpose the notes through the packed representation (as the transposition of a bar does).
+     */
+    private static List<Note> transpose(List<Note> notes, int nSemitones, int maxFretNumber)
+            throws TranspositionException {
+        return NoteTransposition.transposeNotes(PackedNotes.of(notes), nSemitones, maxFretNumber).toNotes();
     }
 
     @Test
@@ -73,174 +64,123 @@ class NoteTranspositionTest {
     }
 
     @Test
-    void sameNoteDifferentString() throws TranspositionException {
-
-        // Open strings -- down
-        assertEquals(new NoteTransposition.TempFret(2, 5),
-                NoteTransposition.sameNoteDifferentString(new NoteTransposition.TempFret(1, 0), 2));
-
-        assertEquals(new NoteTransposition.TempFret(3, 4),
-                NoteTransposition.sameNoteDifferentString(new NoteTransposition.TempFret(2, 0), 3));
-
-        assertEquals(new NoteTransposition.TempFret(4, 5),
-                NoteTransposition.sameNoteDifferentString(new NoteTransposition.TempFret(3, 0), 4));
-
-        assertEquals(new NoteTransposition.TempFret(5, 5),
-                NoteTransposition.sameNoteDifferentString(new NoteTransposition.TempFret(4, 0), 5));
-
-        assertEquals(new NoteTransposition.TempFret(6, 5),
-                NoteTransposition.sameNoteDifferentString(new NoteTransposition.TempFret(5, 0), 6));
-
-        // Open strings -- up
-        assertEquals(new NoteTransposition.TempFret(5, 0),
-                NoteTransposition.sameNoteDifferentString(new NoteTransposition.TempFret(6, 5), 5));
-
-        assertEquals(new NoteTransposition.TempFret(4, 0),
-                NoteTransposition.sameNoteDifferentString(new NoteTransposition.TempFret(5, 5), 4));
-
-        assertEquals(new NoteTransposition.TempFret(3, 0),
-                NoteTransposition.sameNoteDifferentString(new NoteTransposition.TempFret(4, 5), 3));
-
-        assertEquals(new NoteTransposition.TempFret(2, 0),
-                NoteTransposition.sameNoteDifferentString(new NoteTransposition.TempFret(3, 4), 2));
-
-        assertEquals(new NoteTransposition.TempFret(1, 0),
-                NoteTransposition.sameNoteDifferentString(new NoteTransposition.TempFret(2, 5), 1));
-
-        // Non-open strings - down
-        assertEquals(new NoteTransposition.TempFret(2, 12),
-                NoteTransposition.sameNoteDifferentString(new NoteTransposition.TempFret(1, 7), 2));
-
-        assertEquals(new NoteTransposition.TempFret(3, 16),
-                NoteTransposition.sameNoteDifferentString(new NoteTransposition.TempFret(1, 7), 3));
-
-        assertEquals(new NoteTransposition.TempFret(3, 11),
-                NoteTransposition.sameNoteDifferentString(new NoteTransposition.TempFret(2, 7), 3));
-
-        assertEquals(new NoteTransposition.TempFret(3, 16),
-                NoteTransposition.sameNoteDifferentString(new NoteTransposition.TempFret(1, 7), 3));
-
-        assertEquals(new NoteTransposition.TempFret(4, 10),
-                NoteTransposition.sameNoteDifferentString(new NoteTransposition.TempFret(2, 1), 4));
+    void testTransposeDownToLowerString() throws InvalidStringException, InvalidFretNumberException,
+            InvalidTimingException, TranspositionException {
 
-        // Non-open strings -- up
-        assertEquals(new NoteTransposition.TempFret(5, 0),
-                NoteTransposition.sameNoteDifferentString(new NoteTransposition.TempFret(6, 5), 5));
+        // An open string transposed down a semitone is played on the next lowest (thicker) string
+        assertEquals(new NotesBuilder().addNote(2, 4, 0).build(),
+                transpose(new NotesBuilder().addNote(1, 0, 0).build(), -1, 22));
+        assertEquals(new NotesBuilder().addNote(3, 3, 0).build(),
+                transpose(new NotesBuilder().addNote(2, 0, 0).build(), -1, 22));
+        assertEquals(new NotesBuilder().addNote(4, 4, 0).build(),
+                transpose(new NotesBuilder().addNote(3, 0, 0).build(), -1, 22));
+        assertEquals(new NotesBuilder().addNote(5, 4, 0).build(),
+                transpose(new NotesBuilder().addNote(4, 0, 0).build(), -1, 22));
+        assertEquals(new NotesBuilder().addNote(6, 4, 0).build(),
+                transpose(new NotesBuilder().addNote(5, 0, 0).build(), -1, 22));
+
+        // A note more than a string below is moved down as many strings as needed
+        assertEquals(new NotesBuilder().addNote(3, 1, 0).build(),
+                transpose(new NotesBuilder().addNote(1, 0, 0).build(), -8, 22));
+    }
 
-        assertEquals(new NoteTransposition.TempFret(4, 0),
-                NoteTransposition.sameNoteDifferentString(new NoteTransposition.TempFret(6, 10), 4));
+    @Test
+    void testTransposeDownMovesAllNotesToLowerStrings() throws InvalidStringException, InvalidFretNumberException,
+            InvalidTimingException, TranspositionException {
 
+        // Only the first note has a negative fret, but every note is moved so the shape is kept
+        List<Note> notes = new NotesBuilder()
+                .addNote(5, 0, 0)
+                .addNote(4, 2, 4)
+                .addNote(2, 2, 8)
+                .build();
 
-        // No change in string number
-        Random random = new Random();
-        int randomFret = random.nextInt(22 + 1);
+        List<Note> expected = new NotesBuilder()
+                .addNote(6, 4, 0)
+                .addNote(5, 6, 4)
+                .addNote(3, 5, 8)
+                .build();
 
-        for (int stringNumber = 1; stringNumber <= 6; stringNumber++) {
-            assertEquals(new NoteTransposition.TempFret(stringNumber, randomFret),
-                    NoteTransposition.sameNoteDifferentString(new NoteTransposition.TempFret(stringNumber, randomFret), stringNumber));
+        assertEquals(expected, transpose(notes, -1, 22));
+    }
 
+    @Test
+    void testTransposeDownWithoutNegativeFrets() throws InvalidStringException, InvalidFretNumberException,
+            InvalidTimingException, TranspositionException {
 
+        // Notes that don't end up with a negative fret stay on the same string
+        for (int i = 0; i < NUM_RANDOM_TESTS; i++) {
+            int stringNumber = RandomGenerators.randomStringNumber();
+            int fretNumber = RandomGenerators.randomFret(1, 16);
+            assertEquals(new NotesBuilder().addNote(stringNumber, fretNumber - 1, 0).build(),
+                    transpose(new NotesBuilder().addNote(stringNumber, fretNumber, 0).build(), -1, 22));
         }
-
-        // Negative frets
-        assertEquals(new NoteTransposition.TempFret(2, -1),
-                NoteTransposition.sameNoteDifferentString(new NoteTransposition.TempFret(3, 3), 2));
-
     }
 
     @Test
-    void sameNoteLowerString() throws TranspositionException {
+    void testTransposeDownBelowLowestString() throws InvalidStringException, InvalidFretNumberException,
+            InvalidTimingException {
 
-        assertEquals(new NoteTransposition.TempFret(2, 5),
-                NoteTransposition.sameNoteLowerString(new NoteTransposition.TempFret(1, 0)));
-
-        assertEquals(new NoteTransposition.TempFret(3, 4),
-                NoteTransposition.sameNoteLowerString(new NoteTransposition.TempFret(2, 0)));
-
-        assertEquals(new NoteTransposition.TempFret(4, 5),
-                NoteTransposition.sameNoteLowerString(new NoteTransposition.TempFret(3, 0)));
-
-        assertEquals(new NoteTransposition.TempFret(5, 5),
-                NoteTransposition.sameNoteLowerString(new NoteTransposition.TempFret(4, 0)));
-
-        assertEquals(new NoteTransposition.TempFret(6, 5),
-                NoteTransposition.sameNoteLowerString(new NoteTransposition.TempFret(5, 0)));
+        // There is no string below the low E string
+        TranspositionException e = assertThrows(TranspositionException.class,
+                () -> transpose(new NotesBuilder().addNote(6, 0, 0).build(), -1, 22));
+        assertEquals("No string below 6", e.getMessage());
     }
 
     @Test
-    void sameNoteHigherString() throws TranspositionException {
-        assertEquals(new NoteTransposition.TempFret(5, 0),
-                NoteTransposition.sameNoteHigherString(new NoteTransposition.TempFret(6, 5)));
-
-        assertEquals(new NoteTransposition.TempFret(4, 0),
-                NoteTransposition.sameNoteHigherString(new NoteTransposition.TempFret(5, 5)));
-
-        assertEquals(new NoteTransposition.TempFret(3, 0),
-                NoteTransposition.sameNoteHigherString(new NoteTransposition.TempFret(4, 5)));
-
-        assertEquals(new NoteTransposition.TempFret(2, 0),
-                NoteTransposition.sameNoteHigherString(new NoteTransposition.TempFret(3, 4)));
-
-        assertEquals(new NoteTransposition.TempFret(1, 0),
-                NoteTransposition.sameNoteHigherString(new NoteTransposition.TempFret(2, 5)));
+    void testTransposeAboveHighestFret() throws InvalidStringException, InvalidFretNumberException,
+            InvalidTimingException {
+
+        // A maximum fret beyond the end of the neck doesn't allow a fret that a Fret can't hold
+        TranspositionException e = assertThrows(TranspositionException.class,
+                () -> transpose(new NotesBuilder().addNote(1, Fret.highestFretNumber, 0).build(), 1,
+                        Fret.highestFretNumber + 8));
+        assertEquals("Transposed notes ended up with invalid fret numbers", e.getMessage());
     }
 
     @Test
-    void makeNoteNegativeFretValid() throws TranspositionException {
-
-        // Note that doesn't need changing
-        for (int i = 0; i < NUM_RANDOM_TESTS; i++) {
-            int stringNumber = RandomGenerators.randomStringNumber();
-            int fretNumber = RandomGenerators.randomFret(0,16);
-            NoteTransposition.TempFret tempFret = new NoteTransposition.TempFret(stringNumber, fretNumber);
-            assertEquals(tempFret, NoteTransposition.makeNoteNegativeFretValid(tempFret));
-        }
+    void testTransposeUpToHigherString() throws InvalidStringException, InvalidFretNumberException,
+            InvalidTimingException, TranspositionException {
 
-        // Notes that need to go one string down (thicker string)
-        assertEquals(new NoteTransposition.TempFret(2, 4),
-                NoteTransposition.makeNoteNegativeFretValid(new NoteTransposition.TempFret(1, -1)));
-        assertEquals(new NoteTransposition.TempFret(3, 3),
-                NoteTransposition.makeNoteNegativeFretValid(new NoteTransposition.TempFret(2, -1)));
-        assertEquals(new NoteTransposition.TempFret(4, 4),
-                NoteTransposition.makeNoteNegativeFretValid(new NoteTransposition.TempFret(3, -1)));
-        assertEquals(new NoteTransposition.TempFret(5, 4),
-                NoteTransposition.makeNoteNegativeFretValid(new NoteTransposition.TempFret(4, -1)));
-        assertEquals(new NoteTransposition.TempFret(6, 4),
-                NoteTransposition.makeNoteNegativeFretValid(new NoteTransposition.TempFret(5, -1)));
+        // A note above the maximum fret is played on the next highest (thinner) string
+        assertEquals(new NotesBuilder().addNote(5, 0, 0).build(),
+                transpose(new NotesBuilder().addNote(6, 4, 0).build(), 1, 0));
+        assertEquals(new NotesBuilder().addNote(4, 0, 0).build(),
+                transpose(new NotesBuilder().addNote(5, 4, 0).build(), 1, 0));
+        assertEquals(new NotesBuilder().addNote(3, 0, 0).build(),
+                transpose(new NotesBuilder().addNote(4, 4, 0).build(), 1, 0));
+        assertEquals(new NotesBuilder().addNote(2, 0, 0).build(),
+                transpose(new NotesBuilder().addNote(3, 3, 0).build(), 1, 0));
+        assertEquals(new NotesBuilder().addNote(1, 0, 0).build(),
+                transpose(new NotesBuilder().addNote(2, 4, 0).build(), 1, 0));
     }
 
     @Test
-    void moveToLowerStrings() throws TranspositionException {
-        List<NoteTransposition.TempFret> tempFrets = new TempFretBuilder()
-                .addTempFret(5, -1)
-                .addTempFret(4, 1)
-                .addTempFret(2, 1)
+    void testTransposeUpMovesAllNotesToHigherStrings() throws InvalidStringException, InvalidFretNumberException,
+            InvalidTimingException, TranspositionException {
+
+        List<Note> notes = new NotesBuilder()
+                .addNote(3, 8, 0)
+                .addNote(3, 10, 4)
+                .addNote(2, 8, 8)
                 .build();
 
-        List<NoteTransposition.TempFret> expected = new TempFretBuilder()
-                .addTempFret(6, 4)
-                .addTempFret(5, 6)
-                .addTempFret(3,5)
+        List<Note> expected = new NotesBuilder()
+                .addNote(2, 5, 0)
+                .addNote(2, 7, 4)
+                .addNote(1, 4, 8)
                 .build();
 
-        assertEquals(expected, NoteTransposition.moveToLowerStrings(tempFrets));
+        assertEquals(expected, transpose(notes, 1, 8));
     }
 
     @Test
-    void moveToHigherStrings() throws TranspositionException {
-        List<NoteTransposition.TempFret> tempFrets = new TempFretBuilder()
-                .addTempFret(3, 9)
-                .addTempFret(3, 11)
-                .addTempFret(2, 9)
-                .build();
-
-        List<NoteTransposition.TempFret> expected = new TempFretBuilder()
-                .addTempFret(2, 5)
-                .addTempFret(2, 7)
-                .addTempFret(1, 4)
-                .build();
+    void testTransposeUpDropsAnOctave() throws InvalidStringException, InvalidFretNumberException,
+            InvalidTimingException, TranspositionException {
 
-        assertEquals(expected, NoteTransposition.moveToHigherStrings(tempFrets, 8));
+        // A note on the high E string can't move to a higher string, so it is dropped an octave
+        assertEquals(new NotesBuilder().addNote(1, 9, 0).build(),
+                transpose(new NotesBuilder().addNote(1, 20, 0).build(), 1, 12));
     }
 
-}
\ No newline at end of file
+}
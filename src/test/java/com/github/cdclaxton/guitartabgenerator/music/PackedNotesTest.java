@@ -0,0 +1,57 @@
+package com.github.cdclaxton.guitartabgenerator.music;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PackedNotesTest {
+
+    @Test
+    void testPackAndUnpack() {
+        for (int stringNumber = 1; stringNumber <= 6; stringNumber++) {
+            for (int fretNumber = 0; fretNumber <= 22; fretNumber++) {
+                for (int sixteenthNumber = 0; sixteenthNumber <= 15; sixteenthNumber++) {
+                    int note = PackedNotes.pack(stringNumber, fretNumber, sixteenthNumber);
+                    assertEquals(stringNumber, PackedNotes.stringNumber(note));
+                    assertEquals(fretNumber, PackedNotes.fretNumber(note));
+                    assertEquals(sixteenthNumber, PackedNotes.sixteenthNumber(note));
+                }
+            }
+        }
+    }
+
+    @Test
+    void testRoundTrip() throws Exception {
+        List<Note> notes = new NotesBuilder()
+                .addNote(6, 0, 0)
+                .addNote(1, 22, 15)
+                .addNote(3, 7, 6)
+                .build();
+
+        PackedNotes packed = PackedNotes.of(notes);
+        assertEquals(3, packed.size());
+        assertEquals(PackedNotes.pack(1, 22, 15), packed.get(1));
+        assertEquals(notes, packed.toNotes());
+        assertEquals(notes.toString(), packed.toString());
+
+        assertEquals(0, PackedNotes.of(Collections.emptyList()).size());
+    }
+
+    @Test
+    void testOfArray() throws Exception {
+        int[] notes = { PackedNotes.pack(2, 3, 4) };
+        PackedNotes packed = PackedNotes.of(notes);
+
+        // The array is copied
+        notes[0] = PackedNotes.pack(5, 5, 5);
+        assertEquals(PackedNotes.pack(2, 3, 4), packed.get(0));
+        assertEquals(PackedNotes.of(new int[]{ PackedNotes.pack(2, 3, 4) }), packed);
+
+        assertThrows(InvalidStringException.class, () -> PackedNotes.of(new int[]{ PackedNotes.pack(7, 0, 0) }));
+        assertThrows(InvalidFretNumberException.class, () -> PackedNotes.of(new int[]{ PackedNotes.pack(1, 23, 0) }));
+        assertThrows(InvalidTimingException.class, () -> PackedNotes.of(new int[]{ PackedNotes.pack(1, 0, 16) }));
+    }
+}
@@ -18,4 +18,11 @@ class TimingTest {
         });
     }
 
-}
\ No newline at end of file
+    @org.junit.jupiter.api.Test
+    void testSharedInstances() throws InvalidTimingException {
+        assertSame(Timing.of(15), Timing.of(15));
+        assertSame(Timing.of(0), Timing.newInstance(new Timing(0)));
+        assertThrows(InvalidTimingException.class, () -> Timing.of(16));
+    }
+
+}
@@ -9,7 +9,16 @@ import org.junit.jupiter.api.Test;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -38,4 +47,101 @@ class SheetMusicTranspositionTest {
             System.out.println(line);
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    void transposeToAllKeys() throws InvalidTimingException, InvalidStringException, IOException,
+            InvalidFretNumberException, InvalidChordException, InvalidKeyException, ExtractionException,
+            TranspositionException, TabBuildingException, InterruptedException, ExecutionException {
+
+        String path = this.getClass().getResource("/SheetMusic/How_great_is_our_God.txt").getFile();
+        SheetMusic sheetMusic = SheetMusicParser.parseSheetMusic(new File(path));
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Map<String, Future<SheetMusic>> allKeys =
+                    SheetMusicTransposition.transposeToAllKeys(sheetMusic, true, 22, executor);
+
+            // Each key matches a separate transposition to that key
+            assertEquals(SheetMusicTransposition.allKeys("Db"), new ArrayList<>(allKeys.keySet()));
+            for (Map.Entry<String, Future<SheetMusic>> entry : allKeys.entrySet()) {
+                SheetMusic expected = SheetMusicTransposition.transpose(sheetMusic, entry.getKey(), true, 22);
+                SheetMusic actual = entry.getValue().get();
+                assertEquals(expected.getHeader().getKey().getKey(), actual.getHeader().getKey().getKey());
+                assertEquals(expected.getSections(), actual.getSections());
+                assertEquals(TabSheetMusicBuilder.buildTabSheetMusic(expected, 80),
+                        TabSheetMusicBuilder.buildTabSheetMusic(actual, 80));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void allKeys() {
+        assertEquals(12, SheetMusicTransposition.allKeys("C").size());
+        assertTrue(SheetMusicTransposition.allKeys("C").contains("Eb"));
+        assertTrue(SheetMusicTransposition.allKeys("F#m").contains("C#m"));
+    }
+
+    @Test
+    void transposeInParallel() throws Exception {
+
+        // Long sections, so that each is split into several chunks
+        StringBuilder spec = new StringBuilder("title = Long song\nkey = C\ntime.signature = 4/4\n");
+        String[] bars = { "(1/C) 1/e0 2/b1 3/g2", "(1/Am 3/F) 1/<a0 d2 g2> 3/b10", "() 1/e3 1e/e5 2/d14 4/a7" };
+        for (int section = 0; section < 3; section++) {
+            spec.append("[Section ").append(section).append("]\n");
+            for (int bar = 0; bar < SheetMusicTransposition.barsPerChunk * 2 + 7; bar++) {
+                spec.append(bars[(section + bar) % bars.length]).append("\n");
+            }
+        }
+        SheetMusic sheetMusic = SheetMusicParser.parseSheetMusic(new StringReader(spec.toString()));
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (String key : SheetMusicTransposition.allKeys("C")) {
+                for (boolean up : new boolean[]{true, false}) {
+                    assertEquals(transposeOrError(sheetMusic, key, up, Optional.empty()),
+                            transposeOrError(sheetMusic, key, up, Optional.of(pool)));
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void transposeReportsFailingBar() throws Exception {
+
+        // The second bar of the second section can't be transposed down (and nor can later bars)
+        String spec = "key = C\n" +
+                "[One]\n() 1/e5\n" +
+                "[Two]\n() 1/e5\n() 1/E0\n() 1/E0\n";
+        SheetMusic sheetMusic = SheetMusicParser.parseSheetMusic(new StringReader(spec));
+
+        TranspositionException sequential = assertThrows(TranspositionException.class,
+                () -> SheetMusicTransposition.transpose(sheetMusic, "B", false, 20));
+        assertEquals("Section 2, bar 2: No string below 6", sequential.getMessage());
+
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            TranspositionException parallel = assertThrows(TranspositionException.class,
+                    () -> SheetMusicTransposition.transpose(sheetMusic, "B", false, 20, Optional.of(pool)));
+            assertEquals(sequential.getMessage(), parallel.getMessage());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static String transposeOrError(final SheetMusic sheetMusic,
+                                           final String key,
+                                           final boolean up,
+                                           final Optional<ExecutorService> executor) throws TabBuildingException {
+        try {
+            return String.join("\n", TabSheetMusicBuilder.buildTabSheetMusic(
+                    SheetMusicTransposition.transpose(sheetMusic, key, up, 20, executor), 80));
+        } catch (InvalidKeyException | InvalidChordException | TranspositionException e) {
+            return e.toString();
+        }
+    }
+}
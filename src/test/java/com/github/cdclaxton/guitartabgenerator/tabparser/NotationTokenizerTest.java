@@ -0,0 +1,156 @@
+package com.github.cdclaxton.guitartabgenerator.tabparser;
+
+import com.github.cdclaxton.guitartabgenerator.music.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NotationTokenizerTest {
+
+    private static final List<String> noteExamples = Arrays.asList(
+            "", "1/g8", "1e/g7", "1+/g7", "1a/g7", "4a/b0", "2+/g6 3/g7 4/b0  ", "1/<g8 b9>", "1/<g8 b9 e9>",
+            "1/<g8>", "1/<g8 b9> 2+/<b12 e0>", "1/<a4 d6 g6>", "3/<E6 a8 d8> 4/<E4 a6 d6>", "1/g123", "11/g8",
+            "1/<g8 b9", "1/< g8>", "x 1/g8 y 2/b3", "1/<g8b9>", "2+/g6,3/g7", "1/g8\t2/b9",
+            "1/h8", "1/g23", "5/g8", "6a/e1", "1/<g8 x9>", "1/<g8 b99>", "1e/<e1 b2>");
+
+    private static final List<String> chordExamples = Arrays.asList(
+            "", "   ", "1/Db", "1/Db 2+/F", "  1/Db 1+/E ", "1/Dbm/C", "4a/D#/F#", "1/Fsus2 3/D4", "1/Db  2/E",
+            "x1/D", "11/D", "1x/D", "1+/", "1/H", "5/C", "1/C\t2/D", "1/C\n", "D", "1/C/D/E");
+
+    @Test
+    void testParseNotesMatchesRegex() {
+        for (String notation : noteExamples) {
+            assertSameNotes(notation);
+        }
+    }
+
+    @Test
+    void testParseChordsMatchesRegex() {
+        for (String notation : chordExamples) {
+            assertSameChords(notation);
+        }
+    }
+
+    @Test
+    void testParseNotes() throws InvalidStringException, InvalidFretNumberException, InvalidTimingException {
+        List<Note> notes = NotationTokenizer.parseNotes("1/g8 2+/<g9 b11>");
+        assertEquals(3, notes.size());
+        assertEquals(new Note(new Fret(3, 8), new Timing(0)), notes.get(0));
+        assertEquals(new Note(new Fret(3, 9), new Timing(6)), notes.get(1));
+        assertEquals(new Note(new Fret(2, 11), new Timing(6)), notes.get(2));
+    }
+
+    @Test
+    void testParseChords() throws ExtractionException, InvalidTimingException, InvalidChordException {
+        List<TimedChord> chords = NotationTokenizer.parseChords("1/Db 2+/F");
+        assertEquals(2, chords.size());
+        assertEquals(new TimedChord(new Timing(0), Chord.build("Db")), chords.get(0));
+        assertEquals(new TimedChord(new Timing(6), Chord.build("F")), chords.get(1));
+    }
+
+    @Test
+    void testParseIn68() throws ExtractionException, InvalidStringException, InvalidFretNumberException,
+            InvalidTimingException, InvalidChordException {
+
+        // Each beat is a quaver (two sixteenths)
+        List<Note> notes = NotationTokenizer.parseNotes("1/g8 2+/<g9 b11> 6+/e0", Bar.TimeSignature.Six8);
+        assertEquals(4, notes.size());
+        assertEquals(new Note(new Fret(3, 8), new Timing(0)), notes.get(0));
+        assertEquals(new Note(new Fret(3, 9), new Timing(3)), notes.get(1));
+        assertEquals(new Note(new Fret(2, 11), new Timing(3)), notes.get(2));
+        assertEquals(new Note(new Fret(1, 0), new Timing(11)), notes.get(3));
+
+        List<TimedChord> chords = NotationTokenizer.parseChords("1/Db 4/F", Bar.TimeSignature.Six8);
+        assertEquals(new TimedChord(new Timing(6), Chord.build("F")), chords.get(1));
+
+        // A quaver can't be divided into quarters
+        InvalidTimingException e = assertThrows(InvalidTimingException.class,
+                () -> NotationTokenizer.parseNotes("1e/g8", Bar.TimeSignature.Six8));
+        assertEquals("Invalid timing for the time signature: 1e", e.getMessage());
+    }
+
+    @Test
+    void testErrorMessages() {
+        InvalidStringException e1 = assertThrows(InvalidStringException.class,
+                () -> NotationTokenizer.parseNotes("1/h8"));
+        assertEquals("Can't determine string number for: h", e1.getMessage());
+
+        InvalidFretNumberException e2 = assertThrows(InvalidFretNumberException.class,
+                () -> NotationTokenizer.parseNotes("1/g23"));
+        assertEquals("Fret number (23) cannot be greater than 22", e2.getMessage());
+
+        InvalidTimingException e3 = assertThrows(InvalidTimingException.class,
+                () -> NotationTokenizer.parseNotes("5/g2"));
+        assertEquals("Invalid timing: 16", e3.getMessage());
+
+        ExtractionException e4 = assertThrows(ExtractionException.class,
+                () -> NotationTokenizer.parseChords("1/C D"));
+        assertEquals("Can't extract chord and timing from: D", e4.getMessage());
+    }
+
+    @Test
+    void testRandomNotationMatchesRegex() {
+        final String alphabet = "123456+ae/<> gbdEhx0123456789";
+        final Random random = new Random(42);
+
+        for (int i = 0; i < 2000; i++) {
+            final char[] chars = new char[random.nextInt(24)];
+            for (int j = 0; j < chars.length; j++) {
+                chars[j] = alphabet.charAt(random.nextInt(alphabet.length()));
+            }
+            final String notation = new String(chars);
+            assertSameNotes(notation);
+            assertSameChords(notation);
+        }
+    }
+
+    /**
+     * Check the tokenizer and the regular expression parser agree on the notes (or the exception thrown).
+     *
+     * @param notation Notes notation.
+     */
+    private static void assertSameNotes(final String notation) {
+        Object expected;
+        try {
+            expected = ExtractedBar.parseNotesByRegex(notation);
+        } catch (Exception e) {
+            expected = e.getClass() + ": " + e.getMessage();
+        }
+
+        Object actual;
+        try {
+            actual = NotationTokenizer.parseNotes(notation);
+        } catch (Exception e) {
+            actual = e.getClass() + ": " + e.getMessage();
+        }
+
+        assertEquals(expected, actual, "Notes: " + notation);
+    }
+
+    /**
+     * Check the tokenizer and the regular expression parser agree on the chords (or the exception thrown).
+     *
+     * @param notation Chords notation.
+     */
+    private static void assertSameChords(final String notation) {
+        Object expected;
+        try {
+            expected = ExtractedBar.parseChordsByRegex(notation);
+        } catch (Exception e) {
+            expected = e.getClass() + ": " + e.getMessage();
+        }
+
+        Object actual;
+        try {
+            actual = NotationTokenizer.parseChords(notation);
+        } catch (Exception e) {
+            actual = e.getClass() + ": " + e.getMessage();
+        }
+
+        assertEquals(expected, actual, "Chords: " + notation);
+    }
+}
@@ -0,0 +1,137 @@
+package com.github.cdclaxton.guitartabgenerator.tabparser;
+
+import com.github.cdclaxton.guitartabgenerator.music.*;
+import com.github.cdclaxton.guitartabgenerator.sheetmusic.SheetMusic;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParsedSongCacheTest {
+
+    private final File specFile =
+            new File(this.getClass().getResource("/SheetMusic/How_great_is_our_God.txt").getFile());
+
+    @Test
+    void testEncodeDecode() throws Exception {
+        SheetMusic sheetMusic = SheetMusicParser.parseSheetMusic(specFile);
+        assertSameSong(sheetMusic, ParsedSongCache.decode(ByteBuffer.wrap(ParsedSongCache.encode(sheetMusic))));
+    }
+
+    @Test
+    void testHitAndMiss() throws Exception {
+        Path directory = Files.createTempDirectory("cache");
+        ParsedSongCache cache = new ParsedSongCache(directory.toFile(), 1 << 20);
+
+        SheetMusic parsed = cache.parseSheetMusic(specFile);
+        SheetMusic cached = cache.parseSheetMusic(specFile);
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.getHits());
+        assertSameSong(SheetMusicParser.parseSheetMusic(specFile), parsed);
+        assertSameSong(parsed, cached);
+
+        // Editing the specification means it is parsed again
+        Path edited = Files.createTempFile(directory, "spec", ".txt");
+        Files.write(edited, (new String(Files.readAllBytes(specFile.toPath()), StandardCharsets.UTF_8) +
+                "\n> Edited\n").getBytes(StandardCharsets.UTF_8));
+        SheetMusic editedSong = cache.parseSheetMusic(edited.toFile());
+        assertEquals("Edited", editedSong.getSection(3).getText().get(0));
+        assertEquals(2, cache.getMisses());
+    }
+
+    @Test
+    void testUnreadableEntryIsReplaced() throws Exception {
+        Path directory = Files.createTempDirectory("cache");
+        ParsedSongCache cache = new ParsedSongCache(directory.toFile(), 1 << 20);
+        Path entry = directory.resolve(ParsedSongCache.entryName(Files.readAllBytes(specFile.toPath())) + ".song");
+
+        // Truncated entry
+        Files.write(entry, new byte[]{0x47, 0x54});
+        assertSameSong(SheetMusicParser.parseSheetMusic(specFile), cache.parseSheetMusic(specFile));
+        assertEquals(1, cache.getMisses());
+
+        // Entry from another version of the format
+        byte[] bytes = Files.readAllBytes(entry);
+        ByteBuffer.wrap(bytes).putInt(4, ParsedSongCache.formatVersion + 1);
+        Files.write(entry, bytes);
+        cache.parseSheetMusic(specFile);
+        assertEquals(2, cache.getMisses());
+
+        cache.parseSheetMusic(specFile);
+        assertEquals(1, cache.getHits());
+    }
+
+    @Test
+    void testCorruptedEntryIsReplaced() throws Exception {
+        Path directory = Files.createTempDirectory("cache");
+        ParsedSongCache cache = new ParsedSongCache(directory.toFile(), 1 << 20);
+        Path entry = directory.resolve(ParsedSongCache.entryName(Files.readAllBytes(specFile.toPath())) + ".song");
+        SheetMusic expected = SheetMusicParser.parseSheetMusic(specFile);
+        byte[] encoded = ParsedSongCache.encode(expected);
+
+        // Corrupt each byte of the entry in turn (counts, lengths, indices and values); the cache never fails, and an
+        // entry it can't read is replaced by the parsed specification
+        for (int i = 12; i < encoded.length; i++) {
+            for (byte value : new byte[]{(byte) 0x80, (byte) 0xff}) {
+                byte[] corrupted = encoded.clone();
+                corrupted[i] = value;
+                Files.write(entry, corrupted);
+
+                SheetMusic sheetMusic = cache.parseSheetMusic(specFile);
+                if (Arrays.equals(encoded, Files.readAllBytes(entry))) assertSameSong(expected, sheetMusic);
+            }
+        }
+        assertTrue(cache.getMisses() > 0);
+    }
+
+    @Test
+    void testLeastRecentlyUsedEviction() throws Exception {
+        Path directory = Files.createTempDirectory("cache");
+        Path specs = Files.createTempDirectory("specs");
+        String spec = new String(Files.readAllBytes(specFile.toPath()), StandardCharsets.UTF_8);
+        long entrySize = ParsedSongCache.encode(SheetMusicParser.parseSheetMusic(specFile)).length;
+
+        // Room for two songs
+        ParsedSongCache cache = new ParsedSongCache(directory.toFile(), 2 * entrySize + 10);
+        File[] files = new File[3];
+        for (int i = 0; i < files.length; i++) {
+            files[i] = specs.resolve("spec" + i + ".txt").toFile();
+            Files.write(files[i].toPath(), spec.replace("Chris Tomlin", "Artist " + i).getBytes(StandardCharsets.UTF_8));
+        }
+
+        cache.parseSheetMusic(files[0]);
+        cache.parseSheetMusic(files[1]);
+        directory.resolve(ParsedSongCache.entryName(Files.readAllBytes(files[0].toPath())) + ".song").toFile()
+                .setLastModified(System.currentTimeMillis() - 60000);
+        directory.resolve(ParsedSongCache.entryName(Files.readAllBytes(files[1].toPath())) + ".song").toFile()
+                .setLastModified(System.currentTimeMillis() - 30000);
+
+        // Using the first song makes the second the least recently used
+        cache.parseSheetMusic(files[0]);
+        cache.parseSheetMusic(files[2]);
+        assertEquals(2, directory.toFile().list().length);
+
+        cache.parseSheetMusic(files[0]);
+        cache.parseSheetMusic(files[2]);
+        assertEquals(3, cache.getHits());
+        cache.parseSheetMusic(files[1]);
+        assertEquals(4, cache.getMisses());
+    }
+
+    private static void assertSameSong(final SheetMusic expected,
+                                       final SheetMusic actual) {
+        assertEquals(expected.getHeader().getTitle(), actual.getHeader().getTitle());
+        assertEquals(expected.getHeader().getArtist(), actual.getHeader().getArtist());
+        assertEquals(expected.getHeader().getKey().getKey(), actual.getHeader().getKey().getKey());
+        assertEquals(expected.getHeader().getTimeSignature(), actual.getHeader().getTimeSignature());
+        assertEquals(expected.getMetadata().getMetadata(), actual.getMetadata().getMetadata());
+        assertEquals(expected.getSections(), actual.getSections());
+    }
+}
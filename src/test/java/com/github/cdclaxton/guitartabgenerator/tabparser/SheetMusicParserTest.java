@@ -6,6 +6,7 @@ import org.junit.jupiter.api.Test;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.StringReader;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -51,6 +52,32 @@ class SheetMusicParserTest {
         assertEquals(8, sheetMusic.getSection(3).getBars().size());
     }
 
+    @Test
+    void testParseSectionsMatchesParser() throws IOException, ExtractionException, InvalidKeyException,
+            InvalidStringException, InvalidFretNumberException, InvalidTimingException, InvalidChordException {
+        File file = new File(this.getClass().getResource("/SheetMusic/How_great_is_our_God.txt").getFile());
+        SheetMusic sheetMusic = SheetMusicParser.parseSheetMusic(file);
+        SectionedSheetMusic sectioned = SheetMusicParser.parseSections(file);
+
+        assertEquals(sheetMusic.getHeader().getTitle(), sectioned.getHeader().getTitle());
+        assertEquals(sheetMusic.getHeader().getKey().getKey(), sectioned.getHeader().getKey().getKey());
+        assertEquals(sheetMusic.getHeader().getTimeSignature(), sectioned.getHeader().getTimeSignature());
+        assertEquals(sheetMusic.getMetadata().findUrl(), sectioned.getMetadata().findUrl());
+        assertEquals(sheetMusic.getSections().size(), sectioned.getSections().size());
+        for (int i = 0; i < sectioned.getSections().size(); i++) {
+            assertEquals(sheetMusic.getSection(i), sectioned.getSections().get(i).parse());
+        }
+
+        // A section's source is equal to the same section read again, but not to an edited one
+        String spec = "key = C\ntime.signature = 4/4\n[Verse]\n> Softly\n() 1/e0\n[Chorus]\n() 1/e1\n";
+        SectionedSheetMusic same = SheetMusicParser.parseSections(new StringReader(spec));
+        SectionedSheetMusic edited = SheetMusicParser.parseSections(new StringReader(spec.replace("1/e1", "1/e2")));
+        assertEquals(same.getSections().get(0), edited.getSections().get(0));
+        assertEquals(same.getSections().get(0).hashCode(), edited.getSections().get(0).hashCode());
+        assertNotEquals(same.getSections().get(1), edited.getSections().get(1));
+        assertEquals(1, edited.getSections().get(1).getNumberBars());
+    }
+
     @Test
     void testExtractHeader() throws ExtractionException {
         assertEquals(new ExtractedHeader("title", "My Song"), SheetMusicParser.extractHeader("title = My Song"));
@@ -0,0 +1,62 @@
+package com.github.cdclaxton.guitartabgenerator.tabparser;
+
+import com.github.cdclaxton.guitartabgenerator.music.*;
+import com.github.cdclaxton.guitartabgenerator.sheetmusic.Section;
+import com.github.cdclaxton.guitartabgenerator.sheetmusic.SheetMusic;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SheetMusicStreamTest {
+
+    @Test
+    void testStreamMatchesParser() throws IOException, ExtractionException, InvalidKeyException,
+            InvalidStringException, InvalidFretNumberException, InvalidTimingException, InvalidChordException {
+        File file = new File(this.getClass().getResource("/SheetMusic/How_great_is_our_God.txt").getFile());
+        SheetMusic sheetMusic = SheetMusicParser.parseSheetMusic(file);
+
+        try (SheetMusicStream stream = SheetMusicStream.open(file)) {
+            assertEquals(sheetMusic.getHeader().getTitle(), stream.getHeader().getTitle());
+            assertEquals(sheetMusic.getHeader().getArtist(), stream.getHeader().getArtist());
+            assertEquals(sheetMusic.getHeader().getKey().getKey(), stream.getHeader().getKey().getKey());
+            assertEquals(sheetMusic.getHeader().getTimeSignature(), stream.getHeader().getTimeSignature());
+            assertEquals(sheetMusic.getMetadata().findUrl(), stream.getMetadata().findUrl());
+
+            for (Section section : sheetMusic.getSections()) {
+                assertEquals(Optional.of(section), stream.nextSection());
+            }
+            assertFalse(stream.nextSection().isPresent());
+            assertFalse(stream.nextSection().isPresent());
+        }
+    }
+
+    @Test
+    void testSectionWithoutHeader() throws IOException, ExtractionException, InvalidKeyException,
+            InvalidStringException, InvalidFretNumberException, InvalidTimingException, InvalidChordException {
+        String spec = "title = Song\nkey = C\ntime.signature = 4/4\n\n> Text\n(1/C) 1/e0\n[Verse]\n(1/G) 1/e3\n";
+        try (SheetMusicStream stream = new SheetMusicStream(new StringReader(spec))) {
+            assertEquals("Song", stream.getHeader().getTitle());
+
+            Section first = stream.nextSection().get();
+            assertNull(first.getName());
+            assertEquals(1, first.getText().size());
+            assertEquals(1, first.getBars().size());
+
+            assertEquals("Verse", stream.nextSection().get().getName());
+            assertFalse(stream.nextSection().isPresent());
+        }
+    }
+
+    @Test
+    void testHeaderAfterMusic() throws IOException, ExtractionException, InvalidKeyException {
+        String spec = "title = Song\nkey = C\ntime.signature = 4/4\n[Verse]\n(1/C) 1/e0\nartist = Late\n";
+        try (SheetMusicStream stream = new SheetMusicStream(new StringReader(spec))) {
+            assertThrows(ExtractionException.class, stream::nextSection);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.github.cdclaxton.guitartabgenerator.tabparser;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.MalformedInputException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpecReaderTest {
+
+    @Test
+    void testParseLineMatchesExtractors() throws ExtractionException {
+        // Headers take precedence over the other components
+        for (String line : Arrays.asList("title = My Song", " key=C ", "[a = b]", "(1/C) = x", "> a = b", "=")) {
+            assertEquals(SheetMusicParser.extractHeader(line), parse(line), line);
+        }
+
+        for (String line : Arrays.asList("[Chorus]", " [ Verse 1 ] ", "[a] [b]", "(1/C) [Bridge]", "> [x]")) {
+            assertEquals(SheetMusicParser.extractSectionHeader(line), parse(line), line);
+        }
+
+        for (String line : Arrays.asList("(1/Db) 1/<a4 d6 g6>", "()", "( 1/C )  1/e0  ", "(1/C) (x) 1/e0")) {
+            assertEquals(SheetMusicParser.extractBar(line), parse(line), line);
+        }
+
+        for (String line : Arrays.asList("> Light overdrive", "\t>x", ">", "  >  (1/C) ")) {
+            assertEquals(SheetMusicParser.extractText(line), parse(line), line);
+        }
+
+        assertNull(parse(""));
+        assertNull(parse(" \t "));
+    }
+
+    @Test
+    void testParseInvalidLine() {
+        ExtractionException e = assertThrows(ExtractionException.class, () -> parse(" (1/C) 1/e0"));
+        assertEquals("Can't determine type of component to extract:  (1/C) 1/e0", e.getMessage());
+
+        e = assertThrows(ExtractionException.class, () -> parse("] backwards ["));
+        assertEquals("Can't extract section name from: ] backwards [", e.getMessage());
+    }
+
+    @Test
+    void testLineTerminators() throws IOException, ExtractionException {
+        List<ExtractedComponent> components = SpecReader.readComponents(
+                new StringReader("\uFEFFtitle = Song\r\n\r\n[Verse]\r> Text\n(1/C) 1/e0"));
+
+        assertEquals(Arrays.asList(new ExtractedHeader("title", "Song"), new ExtractedSectionHeader("Verse"),
+                new ExtractedText("Text"), new ExtractedBar("1/C", "1/e0")), components);
+    }
+
+    @Test
+    void testReadFile() throws IOException, ExtractionException {
+        File file = new File(this.getClass().getResource("/SheetMusic/How_great_is_our_God.txt").getFile());
+        String spec = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+        assertEquals(SpecReader.readComponents(new StringReader(spec)), SpecReader.readComponents(file));
+
+        // Large enough to be memory-mapped
+        Path large = Files.createTempFile("spec", ".txt");
+        StringBuilder repeated = new StringBuilder();
+        while (repeated.length() < (2 << 20)) repeated.append(spec).append('\n');
+        Files.write(large, repeated.toString().getBytes(StandardCharsets.UTF_8));
+        assertEquals(SpecReader.readComponents(new StringReader(repeated.toString())),
+                SpecReader.readComponents(large.toFile()));
+        Files.delete(large);
+    }
+
+    @Test
+    void testReadFileInvalidUtf8() throws IOException {
+        Path file = Files.createTempFile("spec", ".txt");
+        Files.write(file, new byte[]{'>', ' ', (byte) 0xC3, (byte) 0x28});
+        assertThrows(MalformedInputException.class, () -> SpecReader.readComponents(file.toFile()));
+        Files.delete(file);
+    }
+
+    private static ExtractedComponent parse(final String line) throws ExtractionException {
+        return SpecReader.parseLine(line.toCharArray(), 0, line.length());
+    }
+}
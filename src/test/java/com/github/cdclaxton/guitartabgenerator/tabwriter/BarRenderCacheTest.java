@@ -0,0 +1,102 @@
+package com.github.cdclaxton.guitartabgenerator.tabwriter;
+
+import com.github.cdclaxton.guitartabgenerator.metrics.Metrics;
+import com.github.cdclaxton.guitartabgenerator.music.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BarRenderCacheTest {
+
+    private static Bar bar(int fretNumber, int sixteenth, String chord) throws InvalidStringException,
+            InvalidFretNumberException, InvalidTimingException, InvalidChordException {
+        return new Bar(Bar.TimeSignature.Four4,
+                Arrays.asList(new Note(new Fret(2, fretNumber), new Timing(sixteenth))),
+                Arrays.asList(new TimedChord(new Timing(0), Chord.build(chord))));
+    }
+
+    @Test
+    void testEqualBarsAreRenderedOnce() throws Exception {
+        BarRenderCache cache = new BarRenderCache();
+
+        RenderedBar first = cache.render(bar(3, 4, "G"));
+        RenderedBar second = cache.render(bar(3, 4, "G"));
+        RenderedBar different = cache.render(bar(3, 4, "Em"));
+
+        assertSame(first, second);
+        assertNotSame(first, different);
+        assertEquals(1, cache.getHits());
+        assertEquals(2, cache.getMisses());
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    void testRecordSong() throws Exception {
+        BarRenderCache cache = new BarRenderCache();
+        cache.render(bar(3, 4, "G"));
+        cache.render(bar(3, 4, "G"));
+        cache.render(bar(3, 4, "Em"));
+        cache.recordSong();
+
+        assertTrue(Metrics.toJson().contains(
+                "\"layout.bars.song\":{\"hits\":1,\"misses\":2,\"hitRate\":0.333,\"size\":2}"), Metrics.toJson());
+    }
+
+    @Test
+    void testFullCache() throws Exception {
+        BarRenderCache cache = new BarRenderCache(1);
+
+        RenderedBar first = cache.render(bar(3, 4, "G"));
+        cache.render(bar(5, 4, "G"));
+        RenderedBar second = cache.render(bar(5, 4, "G"));
+
+        // Only the first distinct bar is held
+        assertSame(first, cache.render(bar(3, 4, "G")));
+        assertNotSame(second, cache.render(bar(5, 4, "G")));
+        assertEquals(1, cache.size());
+        assertEquals(1, cache.getHits());
+        assertEquals(4, cache.getMisses());
+
+        assertThrows(IllegalArgumentException.class, () -> new BarRenderCache(-1));
+    }
+
+    @Test
+    void testBarThatCantBeBuiltIsNotCached() throws Exception {
+        BarRenderCache cache = new BarRenderCache();
+        Bar bar = new Bar(Bar.TimeSignature.Four4, new ArrayList<>(),
+                Arrays.asList(new TimedChord(new Timing(12), Chord.build("Cmaj7/G"))));
+
+        assertThrows(TabBuildingException.class, () -> cache.render(bar));
+        assertThrows(TabBuildingException.class, () -> cache.render(bar));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testLayoutOfRepeatedBars() throws Exception {
+        // A four bar riff played eight times
+        List<Bar> bars = new ArrayList<>();
+        for (int i = 0; i < 32; i++) {
+            bars.add(bar(i % 4, 2 * (i % 4), i % 2 == 0 ? "G" : "D/F#"));
+        }
+
+        for (int pageWidth : new int[]{40, 100, 400}) {
+            BarRenderCache cache = new BarRenderCache();
+            List<String> lines = new ArrayList<>();
+            LayoutEngine.layoutBars(bars, pageWidth, 1, TabSheetMusicBuilder.LineBreaking.Greedy, cache,
+                    LineSink.of(lines));
+
+            // Identical to rendering every bar
+            List<String> uncached = new ArrayList<>();
+            LayoutEngine.layoutBars(bars, pageWidth, 1, TabSheetMusicBuilder.LineBreaking.Greedy,
+                    new BarRenderCache(0), LineSink.of(uncached));
+            assertEquals(uncached, lines);
+
+            assertEquals(4, cache.getMisses());
+            assertEquals(28, cache.getHits());
+        }
+    }
+}
@@ -6,6 +6,9 @@ import org.junit.jupiter.api.Test;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -37,22 +40,103 @@ class LayoutEngineTest {
     }
 
     @Test
-    void testAllDivisible() {
-        assertEquals(true, LayoutEngine.allDivisible(Arrays.asList(0), 2));
-        assertEquals(true, LayoutEngine.allDivisible(Arrays.asList(2, 4, 6, 8), 2));
-        assertEquals(true, LayoutEngine.allDivisible(Arrays.asList(1, 2, 3, 4), 1));
-        assertEquals(false, LayoutEngine.allDivisible(Arrays.asList(1, 2, 3, 4), 2));
-
-        assertEquals(true, LayoutEngine.allDivisible(Arrays.asList(2), 2));
-        assertEquals(true, LayoutEngine.allDivisible(Arrays.asList(2, 4, 6, 8), 2));
-        assertEquals(false, LayoutEngine.allDivisible(Arrays.asList(2, 4, 6, 8, 9), 2));
-
-        assertEquals(true, LayoutEngine.allDivisible(Arrays.asList(0, 3), 3));
-        assertEquals(false, LayoutEngine.allDivisible(Arrays.asList(0, 3, 4), 3));
-
-        assertEquals(true, LayoutEngine.allDivisible(Arrays.asList(0), 4));
-        assertEquals(true, LayoutEngine.allDivisible(Arrays.asList(0, 4, 8), 4));
-        assertEquals(false, LayoutEngine.allDivisible(Arrays.asList(0, 4, 6, 8), 4));
+    void testCompactLayoutIn68() throws InvalidStringException, InvalidFretNumberException, InvalidTimingException {
+        Fret fret = new Fret(1, 0);
+
+        // Quavers are the main beats
+        Bar bar = new Bar(Bar.TimeSignature.Six8,
+                Arrays.asList(new Note(fret, new Timing(0)), new Note(fret, new Timing(10))), new ArrayList<>());
+        assertEquals(SingleBarTablatureBuilder.Markings.Main, LayoutEngine.compactLayout(bar));
+
+        // Sixteenths are the finest markings
+        Bar bar2 = new Bar(Bar.TimeSignature.Six8,
+                Arrays.asList(new Note(fret, new Timing(0)), new Note(fret, new Timing(3))), new ArrayList<>());
+        assertEquals(SingleBarTablatureBuilder.Markings.Secondary, LayoutEngine.compactLayout(bar2));
+    }
+
+    @Test
+    void testLineBreaking() throws InvalidStringException, InvalidFretNumberException, InvalidTimingException,
+            TabBuildingException {
+        List<Bar> bars = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            bars.add(new Bar(Bar.TimeSignature.Four4, Arrays.asList(new Note(new Fret(1, i), new Timing(0))),
+                    new ArrayList<>()));
+        }
+
+        // Greedy breaking fills the first system (5 bars) and leaves one bar on the second
+        List<String> greedy = LayoutEngine.layoutBars(bars, 100, 1, TabSheetMusicBuilder.LineBreaking.Greedy);
+        assertEquals(18, greedy.size());
+        assertEquals(97, greedy.get(2).length());
+        assertEquals(21, greedy.get(11).length());
+
+        // Optimal breaking uses as many systems, with 3 bars on each
+        List<String> optimal = LayoutEngine.layoutBars(bars, 100, 1, TabSheetMusicBuilder.LineBreaking.Optimal);
+        assertEquals(18, optimal.size());
+        assertEquals(59, optimal.get(2).length());
+        assertEquals(59, optimal.get(11).length());
+        assertEquals("E|-0----------------|-1----------------|-2----------------|", optimal.get(2));
+        assertEquals("E|-3----------------|-4----------------|-5----------------|", optimal.get(11));
+    }
+
+    @Test
+    void testBarWidths() throws InvalidStringException, InvalidFretNumberException, InvalidTimingException,
+            TabBuildingException {
+        Fret fret = new Fret(1, 12);
+        List<Bar> bars = new ArrayList<>();
+        for (Bar.TimeSignature timeSignature : Bar.TimeSignature.values()) {
+            for (int sixteenth : new int[]{0, 2, 3}) {
+                bars.add(new Bar(timeSignature, Arrays.asList(new Note(fret, new Timing(sixteenth))),
+                        new ArrayList<>()));
+            }
+        }
+
+        // The widths worked out without building the bars match the bars when they are built
+        int[] widths = LayoutEngine.barWidths(bars);
+        for (int i = 0; i < bars.size(); i++) {
+            LayoutEngine.Block system = LayoutEngine.layoutSystem(bars, i, i + 1, 100,
+                    new BarRenderCache());
+            assertEquals(SingleBarTablature.systemStartWidth + widths[i], system.getWidth());
+        }
+    }
+
+    @Test
+    void testSubmitSystems() throws Exception {
+        List<Bar> bars = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            bars.add(new Bar(Bar.TimeSignature.Four4, Arrays.asList(new Note(new Fret(1 + i % 6, i % 20),
+                    new Timing(i % 16))), new ArrayList<>()));
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            // The batches of systems, in order, are identical to laying out the bars on one thread
+            for (TabSheetMusicBuilder.LineBreaking lineBreaking : TabSheetMusicBuilder.LineBreaking.values()) {
+                List<Future<List<String>>> batches = LayoutEngine.submitSystems(bars, 100, 1, lineBreaking,
+                        new BarRenderCache(), pool);
+                assertTrue(batches.size() > 1);
+
+                List<String> lines = new ArrayList<>();
+                for (Future<List<String>> batch : batches) {
+                    lines.addAll(batch.get());
+                }
+                assertEquals(LayoutEngine.layoutBars(bars, 100, 1, lineBreaking), lines);
+            }
+
+            // A bar that can't be built fails its batch with the bar number
+            bars.set(700, new Bar(Bar.TimeSignature.Four4, new ArrayList<>(),
+                    Arrays.asList(new TimedChord(new Timing(12), Chord.build("Cmaj7/G")))));
+            List<Future<List<String>>> batches = LayoutEngine.submitSystems(bars, 100, 1,
+                    TabSheetMusicBuilder.LineBreaking.Greedy, new BarRenderCache(), pool);
+            ExecutionException e = assertThrows(ExecutionException.class, () -> {
+                for (Future<List<String>> batch : batches) {
+                    batch.get();
+                }
+            });
+            assertTrue(e.getMessage().contains("bar 701: Text 'Cmaj7/G' will go beyond the end of the line"),
+                    e.getMessage());
+        } finally {
+            pool.shutdown();
+        }
     }
 
     @Test
@@ -60,8 +144,8 @@ class LayoutEngineTest {
         LayoutEngine.Block b1 = new LayoutEngine.Block(Arrays.asList("ABC", "DEF"));
         LayoutEngine.Block b2 = new LayoutEngine.Block(Arrays.asList("123", "456"));
         b1.horizontalLayout(b2);
-        assertEquals(2, b1.lines.size());
-        assertEquals("ABC123", b1.lines.get(0));
-        assertEquals("DEF456", b1.lines.get(1));
+        assertEquals(2, b1.getLines().size());
+        assertEquals("ABC123", b1.getLines().get(0));
+        assertEquals("DEF456", b1.getLines().get(1));
     }
 }
\ No newline at end of file
@@ -0,0 +1,127 @@
+package com.github.cdclaxton.guitartabgenerator.tabwriter;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LineBreakerTest {
+
+    @Test
+    void testGreedyBreaks() {
+        int[] widths = new int[6];
+        Arrays.fill(widths, 19);
+
+        boolean[] starts = LineBreaker.greedyBreaks(widths, 100);
+        assertArrayEquals(new boolean[]{true, false, false, false, false, true}, starts);
+        assertArrayEquals(new boolean[]{true, true, true}, LineBreaker.greedyBreaks(new int[]{67, 67, 19}, 40));
+    }
+
+    @Test
+    void testBalancesSystems() {
+        // Greedy breaking would put 5 bars on the first system and 1 on the second
+        int[] widths = new int[6];
+        Arrays.fill(widths, 19);
+
+        boolean[] starts = LineBreaker.optimalBreaks(widths, 100);
+        assertArrayEquals(new boolean[]{true, false, false, true, false, false}, starts);
+    }
+
+    @Test
+    void testBarsWiderThanThePage() {
+        boolean[] starts = LineBreaker.optimalBreaks(new int[]{67, 67, 19}, 40);
+        assertArrayEquals(new boolean[]{true, true, true}, starts);
+    }
+
+    @Test
+    void testNoBars() {
+        assertEquals(0, LineBreaker.optimalBreaks(new int[0], 100).length);
+    }
+
+    @Test
+    void testMatchesExhaustiveSearch() {
+        final int[] barWidths = {19, 35, 67};
+        final int[] pageWidths = {40, 60, 100, 200};
+        final Random random = new Random(42);
+
+        for (int trial = 0; trial < 500; trial++) {
+            int[] widths = new int[1 + random.nextInt(60)];
+            for (int i = 0; i < widths.length; i++) {
+                widths[i] = barWidths[random.nextInt(barWidths.length)];
+            }
+            int pageWidth = pageWidths[random.nextInt(pageWidths.length)];
+
+            boolean[] starts = LineBreaker.optimalBreaks(widths, pageWidth);
+            assertTrue(starts[0]);
+            assertArrayEquals(exhaustiveCost(widths, pageWidth), cost(widths, pageWidth, starts));
+            assertEquals(greedySystems(widths, pageWidth), cost(widths, pageWidth, starts)[0]);
+            assertEquals(greedySystems(widths, pageWidth),
+                    cost(widths, pageWidth, LineBreaker.greedyBreaks(widths, pageWidth))[0]);
+        }
+    }
+
+    /**
+     * Get the number of systems and raggedness of a layout, checking that each system fits.
+     */
+    private static long[] cost(int[] widths, int pageWidth, boolean[] starts) {
+        long systems = 0;
+        long raggedness = 0;
+        int start = 0;
+        for (int end = 1; end <= widths.length; end++) {
+            if (end == widths.length || starts[end]) {
+                int width = systemWidth(widths, start, end);
+                assertTrue(end - start == 1 || width < pageWidth);
+                systems++;
+                raggedness += (long) (pageWidth - 1 - width) * (pageWidth - 1 - width);
+                start = end;
+            }
+        }
+        return new long[]{systems, raggedness};
+    }
+
+    /**
+     * Find the lowest number of systems and raggedness by trying every break for every bar.
+     */
+    private static long[] exhaustiveCost(int[] widths, int pageWidth) {
+        long[][] best = new long[widths.length + 1][];
+        best[0] = new long[]{0, 0};
+        for (int end = 1; end <= widths.length; end++) {
+            for (int start = end - 1; start >= 0; start--) {
+                int width = systemWidth(widths, start, end);
+                if (end - start > 1 && width >= pageWidth) break;
+                long[] candidate = {best[start][0] + 1,
+                        best[start][1] + (long) (pageWidth - 1 - width) * (pageWidth - 1 - width)};
+                if (best[end] == null || candidate[0] < best[end][0] ||
+                        (candidate[0] == best[end][0] && candidate[1] < best[end][1])) {
+                    best[end] = candidate;
+                }
+            }
+        }
+        return best[widths.length];
+    }
+
+    /**
+     * Count the systems when each system is filled before starting the next.
+     */
+    private static long greedySystems(int[] widths, int pageWidth) {
+        long systems = 1;
+        int width = SingleBarTablature.systemStartWidth + widths[0];
+        for (int i = 1; i < widths.length; i++) {
+            if (width + widths[i] < pageWidth) {
+                width += widths[i];
+            } else {
+                systems++;
+                width = SingleBarTablature.systemStartWidth + widths[i];
+            }
+        }
+        return systems;
+    }
+
+    private static int systemWidth(int[] widths, int start, int end) {
+        int width = SingleBarTablature.systemStartWidth;
+        for (int i = start; i < end; i++) width += widths[i];
+        return width;
+    }
+}
@@ -1,60 +1,17 @@
 package com.github.cdclaxton.guitartabgenerator.tabwriter;
 
 import com.github.cdclaxton.guitartabgenerator.music.*;
-import com.google.common.collect.ImmutableMap;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
-import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 class SingleBarTablatureBuilderTest {
 
-    @Test
-    void testConstructorNegativeNumElements() {
-        assertThrows(TabBuildingException.class, () -> SingleBarTablatureBuilder.buildTabLine(-1, Collections.emptyMap()));
-    }
-
-    @Test
-    void testBuildEmptyTabLines() throws TabBuildingException {
-        assertTrue(SingleBarTablatureBuilder.buildTabLine(1, Collections.emptyMap()).equals("-"));
-        assertTrue(SingleBarTablatureBuilder.buildTabLine(2, Collections.emptyMap()).equals("--"));
-        assertTrue(SingleBarTablatureBuilder.buildTabLine(3, Collections.emptyMap()).equals("---"));
-        assertTrue(SingleBarTablatureBuilder.buildTabLine(4, Collections.emptyMap()).equals("----"));
-    }
-
-    @Test
-    void testBuildTabLinesOneCharacter() throws TabBuildingException {
-        assertTrue(SingleBarTablatureBuilder.buildTabLine(4, ImmutableMap.of(0, "0")).equals("0---"));
-        assertTrue(SingleBarTablatureBuilder.buildTabLine(4, ImmutableMap.of(1, "0")).equals("-0--"));
-        assertTrue(SingleBarTablatureBuilder.buildTabLine(4, ImmutableMap.of(2, "0")).equals("--0-"));
-        assertTrue(SingleBarTablatureBuilder.buildTabLine(4, ImmutableMap.of(3, "0")).equals("---0"));
-    }
-
-    @Test
-    void testBuildTabLinesTwoCharacter() throws TabBuildingException {
-        assertTrue(SingleBarTablatureBuilder.buildTabLine(4, ImmutableMap.of(0, "12")).equals("12--"));
-        assertTrue(SingleBarTablatureBuilder.buildTabLine(4, ImmutableMap.of(1, "12")).equals("-12-"));
-        assertTrue(SingleBarTablatureBuilder.buildTabLine(4, ImmutableMap.of(2, "12")).equals("--12"));
-        assertTrue(SingleBarTablatureBuilder.buildTabLine(4, ImmutableMap.of(3, "1")).equals("---1"));
-    }
-
-    @Test
-    void testBuildTabLinesBeyondEnd() {
-        assertThrows(TabBuildingException.class, () -> SingleBarTablatureBuilder.buildTabLine(4, ImmutableMap.of(4, "12")));
-    }
-
-    @Test
-    void testBuildTabLinesTwoStrings() throws TabBuildingException {
-        assertTrue(SingleBarTablatureBuilder.buildTabLine(4, ImmutableMap.of(0, "1", 1, "2")).equals("12--"));
-        assertTrue(SingleBarTablatureBuilder.buildTabLine(4, ImmutableMap.of(0, "1", 2, "2")).equals("1-2-"));
-        assertTrue(SingleBarTablatureBuilder.buildTabLine(4, ImmutableMap.of(0, "1", 3, "2")).equals("1--2"));
-        assertTrue(SingleBarTablatureBuilder.buildTabLine(4, ImmutableMap.of(0, "1", 2, "34")).equals("1-34"));
-    }
-
     @Test
     void testBuildRuler() throws TabBuildingException {
         assertTrue(SingleBarTablatureBuilder.buildRuler(SingleBarTablatureBuilder.Markings.Main, 1, 2).equals("1  "));
@@ -71,41 +28,36 @@ class SingleBarTablatureBuilderTest {
     }
 
     @Test
-    void testBuildEmptyChordLines() throws TabBuildingException {
-        assertTrue(SingleBarTablatureBuilder.buildChordLine(1, Collections.emptyMap()).equals(" "));
-        assertTrue(SingleBarTablatureBuilder.buildChordLine(2, Collections.emptyMap()).equals("  "));
-        assertTrue(SingleBarTablatureBuilder.buildChordLine(3, Collections.emptyMap()).equals("   "));
-        assertTrue(SingleBarTablatureBuilder.buildChordLine(4, Collections.emptyMap()).equals("    "));
-    }
+    void testChordPositionSingleChord() throws InvalidTimingException, InvalidChordException, TabBuildingException {
+        TimedChord timedChord1 = new TimedChord(new Timing(0), Chord.build("Am"));
+        Bar bar = new Bar(Bar.TimeSignature.Four4, Collections.emptyList(), Arrays.asList(timedChord1));
 
-    @Test
-    void testBuildNonEmptyChordLines() throws TabBuildingException {
-        assertTrue(SingleBarTablatureBuilder.buildChordLine(4, ImmutableMap.of(0, "Am")).equals("Am  "));
-        assertTrue(SingleBarTablatureBuilder.buildChordLine(4, ImmutableMap.of(1, "A")).equals(" A  "));
-        assertTrue(SingleBarTablatureBuilder.buildChordLine(4, ImmutableMap.of(0, "A", 2, "Bm")).equals("A Bm"));
-        assertTrue(SingleBarTablatureBuilder.buildChordLine(4, ImmutableMap.of(3, "D")).equals("   D"));
+        SingleBarTablature tab = SingleBarTablatureBuilder.buildTabFromBar(bar, SingleBarTablatureBuilder.Markings.Main);
+        assertEquals("Am              ", tab.getChordLine());
     }
 
     @Test
-    void testBuildPositionToMarkingSingleChord() throws InvalidTimingException, InvalidChordException, TabBuildingException {
+    void testChordPositionTwoChords() throws InvalidTimingException, InvalidChordException, TabBuildingException {
         TimedChord timedChord1 = new TimedChord(new Timing(0), Chord.build("Am"));
-        Map<Integer, String> posToMarking = SingleBarTablatureBuilder.buildPositionToMarking(
-                Arrays.asList(timedChord1), SingleBarTablatureBuilder.Markings.Main, 3);
+        TimedChord timedChord2 = new TimedChord(new Timing(8), Chord.build("C"));
+        Bar bar = new Bar(Bar.TimeSignature.Four4, Collections.emptyList(), Arrays.asList(timedChord1, timedChord2));
 
-        assertEquals(1, posToMarking.size());
-        assertEquals(posToMarking.get(0), "Am");
+        SingleBarTablature tab = SingleBarTablatureBuilder.buildTabFromBar(bar, SingleBarTablatureBuilder.Markings.Main);
+        assertEquals("Am      C       ", tab.getChordLine());
     }
 
     @Test
-    void testBuildPositionToMarkingTwoChords() throws InvalidTimingException, InvalidChordException, TabBuildingException {
-        TimedChord timedChord1 = new TimedChord(new Timing(0), Chord.build("Am"));
-        TimedChord timedChord2 = new TimedChord(new Timing(8), Chord.build("C"));
-        Map<Integer, String> posToMarking = SingleBarTablatureBuilder.buildPositionToMarking(
-                Arrays.asList(timedChord1, timedChord2), SingleBarTablatureBuilder.Markings.Main, 3);
+    void testLastNoteAtATimingIsShown() throws InvalidStringException, InvalidFretNumberException,
+            InvalidTimingException, TabBuildingException {
 
-        assertEquals(2, posToMarking.size());
-        assertEquals(posToMarking.get(0), "Am");
-        assertEquals(posToMarking.get(8), "C");
+        List<Note> notes = Arrays.asList(
+                new Note(new Fret(1, 12), new Timing(0)),
+                new Note(new Fret(1, 3), new Timing(0))
+        );
+        Bar bar = new Bar(Bar.TimeSignature.Four4, notes, Collections.emptyList());
+
+        SingleBarTablature tab = SingleBarTablatureBuilder.buildTabFromBar(bar, SingleBarTablatureBuilder.Markings.Main);
+        assertEquals("3---------------", tab.getTabLines().get(0));
     }
 
     @Test
@@ -186,4 +138,84 @@ class SingleBarTablatureBuilderTest {
         assertEquals("----3-----------", tab.getTabLines().get(1));
         assertEquals("--------4-------", tab.getTabLines().get(2));
     }
-}
\ No newline at end of file
+
+    @Test
+    void testBuildEighthTabIn68FromBar() throws InvalidStringException, InvalidFretNumberException,
+            InvalidTimingException, InvalidChordException, TabBuildingException {
+
+        // Construct the bar (beats 1, 4 and 6 of the six quavers)
+        List<Note> notes = Arrays.asList(
+                new Note(new Fret(1, 2), new Timing(0)),
+                new Note(new Fret(2, 3), new Timing(6)),
+                new Note(new Fret(3, 4), new Timing(10))
+        );
+        List<TimedChord> timedChords = Arrays.asList(
+                new TimedChord(new Timing(0), Chord.build("D")),
+                new TimedChord(new Timing(6), Chord.build("Bm"))
+        );
+        Bar bar = new Bar(Bar.TimeSignature.Six8, notes, timedChords);
+
+        SingleBarTablature tab = SingleBarTablatureBuilder.buildTabFromBar(bar, SingleBarTablatureBuilder.Markings.Main);
+
+        assertEquals("1   2   3   4   5   6   ", tab.getRuler());
+        assertEquals("D           Bm          ", tab.getChordLine());
+        assertEquals("2-----------------------", tab.getTabLines().get(0));
+        assertEquals("------------3-----------", tab.getTabLines().get(1));
+        assertEquals("--------------------4---", tab.getTabLines().get(2));
+    }
+
+    @Test
+    void testBuildSixteenthTabIn68FromBar() throws InvalidStringException, InvalidFretNumberException,
+            InvalidTimingException, InvalidChordException, TabBuildingException {
+
+        List<Note> notes = Arrays.asList(
+                new Note(new Fret(1, 2), new Timing(1)),
+                new Note(new Fret(2, 3), new Timing(11))
+        );
+        Bar bar = new Bar(Bar.TimeSignature.Six8, notes, Collections.emptyList());
+
+        SingleBarTablature tab = SingleBarTablatureBuilder.buildTabFromBar(bar, SingleBarTablatureBuilder.Markings.Secondary);
+
+        assertEquals("1   +   2   +   3   +   4   +   5   +   6   +   ", tab.getRuler());
+        assertEquals("----2------------------------------------------", tab.getTabLines().get(0).substring(0, 47));
+        assertEquals("--------------------------------------------3---", tab.getTabLines().get(1));
+
+        // Quavers can't show a sixteenth
+        assertThrows(TabBuildingException.class,
+                () -> SingleBarTablatureBuilder.buildTabFromBar(bar, SingleBarTablatureBuilder.Markings.Main));
+    }
+
+    @Test
+    void testTertiaryGridIn68IsSecondaryGrid() throws InvalidStringException, InvalidFretNumberException,
+            InvalidTimingException {
+
+        // A quaver beat can only be halved, so 6/8 has no finer grid than its secondary markings
+        assertSame(TimeSignatureGrid.of(Bar.TimeSignature.Six8, SingleBarTablatureBuilder.Markings.Secondary),
+                TimeSignatureGrid.of(Bar.TimeSignature.Six8, SingleBarTablatureBuilder.Markings.Tertiary));
+        assertNotSame(TimeSignatureGrid.of(Bar.TimeSignature.Four4, SingleBarTablatureBuilder.Markings.Secondary),
+                TimeSignatureGrid.of(Bar.TimeSignature.Four4, SingleBarTablatureBuilder.Markings.Tertiary));
+
+        // A bar with a note on every sixteenth is shown with the secondary markings
+        List<Note> notes = new ArrayList<>();
+        for (int sixteenth = 0; sixteenth < 12; sixteenth++) {
+            notes.add(new Note(new Fret(1, sixteenth), new Timing(sixteenth)));
+        }
+        Bar bar = new Bar(Bar.TimeSignature.Six8, notes, Collections.emptyList());
+        assertEquals(SingleBarTablatureBuilder.Markings.Secondary,
+                TimeSignatureGrid.compactMarkings(bar.getTimeSignature(), bar.getOccupancy()));
+    }
+
+    @Test
+    void testGridRulersAreShared() throws TabBuildingException {
+        for (Bar.TimeSignature timeSignature : Bar.TimeSignature.values()) {
+            for (SingleBarTablatureBuilder.Markings markings : SingleBarTablatureBuilder.Markings.values()) {
+                assertSame(TimeSignatureGrid.of(timeSignature, markings).getRuler(),
+                        TimeSignatureGrid.of(timeSignature, markings).getRuler());
+            }
+        }
+
+        // The 4/4 grid matches the ruler built for four beats
+        assertEquals(SingleBarTablatureBuilder.buildRuler(SingleBarTablatureBuilder.Markings.Tertiary, 4, 3),
+                TimeSignatureGrid.of(Bar.TimeSignature.Four4, SingleBarTablatureBuilder.Markings.Tertiary).getRuler());
+    }
+}
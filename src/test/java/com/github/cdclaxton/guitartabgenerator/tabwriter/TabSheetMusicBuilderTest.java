@@ -6,9 +6,15 @@ import com.github.cdclaxton.guitartabgenerator.tabparser.ExtractionException;
 import com.github.cdclaxton.guitartabgenerator.tabparser.SheetMusicParser;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -34,4 +40,61 @@ class TabSheetMusicBuilderTest {
         TabSheetMusicWriter.writeLines(sheetMusicLines, outputFile.getPath());
     }
 
-}
\ No newline at end of file
+    @Test
+    void testBuildTabSheetMusicInParallel() throws Exception {
+        String path = this.getClass().getResource("/SheetMusic/How_great_is_our_God.txt").getFile();
+        SheetMusic sheetMusic = SheetMusicParser.parseSheetMusic(new File(path));
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (int pageWidth : new int[]{40, 100, 400}) {
+                assertEquals(TabSheetMusicBuilder.buildTabSheetMusic(sheetMusic, pageWidth),
+                        TabSheetMusicBuilder.buildTabSheetMusic(sheetMusic, pageWidth, Optional.of(pool),
+                                TabSheetMusicBuilder.LineBreaking.Greedy));
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testRenderToSink() throws Exception {
+        String path = this.getClass().getResource("/SheetMusic/How_great_is_our_God.txt").getFile();
+        SheetMusic sheetMusic = SheetMusicParser.parseSheetMusic(new File(path));
+
+        for (int pageWidth : new int[]{40, 100, 400}) {
+            List<String> lines = TabSheetMusicBuilder.buildTabSheetMusic(sheetMusic, pageWidth);
+            String expected = String.join("\n", lines) + "\n";
+
+            // Appendable
+            StringBuilder tab = new StringBuilder();
+            TabSheetMusicBuilder.render(sheetMusic, pageWidth, tab);
+            assertEquals(expected, tab.toString());
+
+            // Channel
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            TabSheetMusicBuilder.render(sheetMusic, pageWidth, Channels.newChannel(bytes));
+            assertArrayEquals(expected.getBytes(StandardCharsets.UTF_8), bytes.toByteArray());
+        }
+    }
+
+    @Test
+    void testRenderReportsSinkFailure() throws Exception {
+        String path = this.getClass().getResource("/SheetMusic/How_great_is_our_God.txt").getFile();
+        SheetMusic sheetMusic = SheetMusicParser.parseSheetMusic(new File(path));
+
+        // The sink fails part way through the bars
+        List<String> written = new ArrayList<>();
+        LineSink sink = line -> {
+            if (written.size() == 20) throw new IOException("Disk full");
+            written.add(line.toString());
+        };
+
+        IOException e = assertThrows(IOException.class,
+                () -> TabSheetMusicBuilder.render(sheetMusic, 100, Optional.empty(),
+                        TabSheetMusicBuilder.LineBreaking.Greedy, sink));
+        assertEquals("Disk full", e.getMessage());
+        assertEquals(TabSheetMusicBuilder.buildTabSheetMusic(sheetMusic, 100).subList(0, 20), written);
+    }
+
+}
@@ -0,0 +1,114 @@
+package com.github.cdclaxton.guitartabgenerator.tabwriter;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TabSheetMusicWriterTest {
+
+    @Test
+    void testWriteLines() throws IOException {
+        Path file = Files.createTempDirectory("tabs").resolve("tab.txt");
+
+        // Lines longer than the buffer and characters that take more than one byte
+        char[] longLine = new char[100_000];
+        Arrays.fill(longLine, '-');
+        List<String> lines = Arrays.asList("Caf\u00e9 \u266f", "", new String(longLine), "e|--3--|");
+
+        TabSheetMusicWriter.writeLines(lines, file.toString());
+        assertEquals(lines, Files.readAllLines(file, StandardCharsets.UTF_8));
+
+        // Writing again replaces the file
+        TabSheetMusicWriter.writeLines(Arrays.asList("A"), file.toString());
+        assertEquals(Arrays.asList("A"), Files.readAllLines(file, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testAtomicWriteLines() throws IOException {
+        Path folder = Files.createTempDirectory("tabs");
+        Path file = folder.resolve("tab.txt");
+        Files.write(file, Arrays.asList("Old", "tab"), StandardCharsets.UTF_8);
+
+        List<String> lines = Arrays.asList("New", "tab", "here");
+        TabSheetMusicWriter.writeLines(lines, file.toString(), true);
+
+        // The file is replaced and the temporary file is gone
+        assertEquals(lines, Files.readAllLines(file, StandardCharsets.UTF_8));
+        assertEquals(1, Files.list(folder).count());
+    }
+
+    @Test
+    void testAsyncTabWriter() throws IOException, InterruptedException, ExecutionException {
+        Path folder = Files.createTempDirectory("tabs");
+        List<CompletableFuture<String>> written = new ArrayList<>();
+
+        try (AsyncTabWriter writer = new AsyncTabWriter(2, true)) {
+            for (int i = 0; i < 10; i++) {
+                written.add(writer.write(Arrays.asList("Tab " + i), folder.resolve(i + ".txt").toString()));
+            }
+        }
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals(folder.resolve(i + ".txt").toString(), written.get(i).get());
+            assertEquals(Arrays.asList("Tab " + i),
+                    Files.readAllLines(folder.resolve(i + ".txt"), StandardCharsets.UTF_8));
+        }
+        assertEquals(10, Files.list(folder).count());
+    }
+
+    @Test
+    void testAsyncTabWriterReportsFailure() throws IOException, InterruptedException {
+        Path missing = Files.createTempDirectory("tabs").resolve("missing").resolve("tab.txt");
+
+        AsyncTabWriter writer = new AsyncTabWriter(AsyncTabWriter.defaultQueueCapacity, false);
+        CompletableFuture<String> written = writer.write(Arrays.asList("Tab"), missing.toString());
+        writer.close();
+
+        ExecutionException e = assertThrows(ExecutionException.class, written::get);
+        assertTrue(e.getCause() instanceof IOException);
+        assertThrows(IllegalStateException.class, () -> writer.write(Arrays.asList("Tab"), missing.toString()));
+    }
+
+    @Test
+    void testAsyncTabWriterClosedWhilstWriting() throws Exception {
+        Path folder = Files.createTempDirectory("tabs");
+        AsyncTabWriter writer = new AsyncTabWriter(1, false);
+        List<CompletableFuture<String>> written = Collections.synchronizedList(new ArrayList<>());
+
+        // Close the writer whilst another thread is still writing tabs
+        Thread writing = new Thread(() -> {
+            for (int i = 0; i < 200; i++) {
+                try {
+                    written.add(writer.write(Arrays.asList("Tab " + i), folder.resolve(i + ".txt").toString()));
+                } catch (IllegalStateException e) {
+                    return;
+                }
+            }
+        });
+        writing.start();
+        while (written.isEmpty()) Thread.yield();
+        writer.close();
+        writing.join();
+
+        // Every tab that was accepted is written
+        synchronized (written) {
+            for (CompletableFuture<String> future : written) {
+                assertTrue(Files.exists(Paths.get(future.get(10, TimeUnit.SECONDS))));
+            }
+        }
+    }
+
+}